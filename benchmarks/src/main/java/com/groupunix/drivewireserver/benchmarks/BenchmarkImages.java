@@ -0,0 +1,90 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Scratch disk images for benchmarks.
+ */
+public final class BenchmarkImages {
+  /**
+   * Sector size.
+   */
+  public static final int SECTOR_SIZE = 256;
+  /**
+   * Sectors per track on a CoCo floppy.
+   */
+  public static final int SECTORS_PER_TRACK = 18;
+  /**
+   * Bits in a byte.
+   */
+  private static final int BYTE_BITS = 8;
+  /**
+   * Bits in two bytes.
+   */
+  private static final int WORD_BITS = 16;
+  /**
+   * Seed for image contents, so runs are comparable.
+   */
+  private static final long SEED = 0xD1F1L;
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * Create raw OS9 image.
+   * <p>
+   * LSN0 holds the total sector count so that format detection
+   * positively identifies the image as raw
+   * </p>
+   *
+   * @param sectors total sectors
+   * @return temporary image file
+   * @throws IOException failed to write image
+   */
+  public static File os9Image(final int sectors) throws IOException {
+    final byte[] data = new byte[sectors * SECTOR_SIZE];
+    new Random(SEED).nextBytes(data);
+    data[0] = (byte) (sectors >> WORD_BITS);
+    data[1] = (byte) (sectors >> BYTE_BITS);
+    data[2] = (byte) sectors;
+    return write("os9", data);
+  }
+
+  /**
+   * Create raw image without an OS9 LSN0.
+   * <p>
+   * Format detection can only guess that this is a raw image
+   * </p>
+   *
+   * @param sectors total sectors
+   * @return temporary image file
+   * @throws IOException failed to write image
+   */
+  public static File dskImage(final int sectors) throws IOException {
+    final byte[] data = new byte[sectors * SECTOR_SIZE];
+    new Random(SEED).nextBytes(data);
+    data[0] = 0;
+    data[1] = 0;
+    data[2] = 0;
+    return write("dsk", data);
+  }
+
+  /**
+   * Write image to a temporary file.
+   *
+   * @param type image type, used as file suffix
+   * @param data image contents
+   * @return temporary file
+   * @throws IOException failed to write file
+   */
+  private static File write(final String type, final byte[] data)
+      throws IOException {
+    final File file = File.createTempFile("dwbench", "." + type);
+    file.deleteOnExit();
+    Files.write(file.toPath(), data);
+    return file;
+  }
+}
@@ -0,0 +1,57 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+
+/**
+ * Sector checksum calculation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+  /**
+   * Seed for sector contents.
+   */
+  private static final long SEED = 0xC0C0L;
+  /**
+   * Sector contents.
+   */
+  private final byte[] sector = new byte[BenchmarkImages.SECTOR_SIZE];
+
+  /**
+   * Fill sector with random data.
+   */
+  @Setup
+  public void setup() {
+    new Random(SEED).nextBytes(this.sector);
+  }
+
+  /**
+   * Checksum one sector.
+   *
+   * @return checksum
+   */
+  @Benchmark
+  public int computeChecksum() {
+    return DWProtocolHandler.computeChecksum(
+        this.sector, BenchmarkImages.SECTOR_SIZE
+    );
+  }
+}
@@ -0,0 +1,107 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupunix.drivewireserver.virtualserial.DWVSerialCircularBuffer;
+
+/**
+ * Virtual serial buffer throughput.
+ * <p>
+ * Each invocation pushes a block through the buffer and reads it
+ * back out, results are per byte.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircularBufferBenchmark {
+  /**
+   * Bytes moved per invocation.
+   */
+  private static final int BLOCK = 256;
+  /**
+   * Buffer size.
+   */
+  @Param({"1024", "65536"})
+  private int size;
+  /**
+   * Buffer under test.
+   */
+  private DWVSerialCircularBuffer buffer;
+  /**
+   * Buffer input side.
+   */
+  private OutputStream out;
+  /**
+   * Buffer output side.
+   */
+  private InputStream in;
+  /**
+   * Data block.
+   */
+  private final byte[] block = new byte[BLOCK];
+
+  /**
+   * Create buffer.
+   */
+  @Setup
+  public void setup() {
+    this.buffer = new DWVSerialCircularBuffer(this.size, true);
+    this.out = this.buffer.getOutputStream();
+    this.in = this.buffer.getInputStream();
+  }
+
+  /**
+   * Move a block with bulk calls.
+   *
+   * @return bytes read
+   * @throws Exception buffer failure
+   */
+  @Benchmark
+  @OperationsPerInvocation(BLOCK)
+  public int blockTransfer() throws Exception {
+    this.out.write(this.block, 0, BLOCK);
+    int done = 0;
+    while (done < BLOCK) {
+      done += this.in.read(this.block, done, BLOCK - done);
+    }
+    return done;
+  }
+
+  /**
+   * Move a block a byte at a time.
+   *
+   * @return sum of bytes read
+   * @throws Exception buffer failure
+   */
+  @Benchmark
+  @OperationsPerInvocation(BLOCK)
+  public int byteTransfer() throws Exception {
+    for (int i = 0; i < BLOCK; i++) {
+      this.out.write(this.block[i]);
+    }
+    int sum = 0;
+    for (int i = 0; i < BLOCK; i++) {
+      sum += this.in.read();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,93 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWDiskDrives;
+
+/**
+ * Opening an image with format detection.
+ * <p>
+ * Covers reading the header, collecting votes from every format and
+ * constructing the winning disk type, which includes loading it.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiskFormatBenchmark {
+  /**
+   * Tracks in a standard single sided floppy.
+   */
+  private static final int TRACKS = 35;
+  /**
+   * Image kind, raw OS9 (positive match) or plain raw (best guess).
+   */
+  @Param({"os9", "dsk"})
+  private String format;
+  /**
+   * Image file.
+   */
+  private File image;
+  /**
+   * Image file object.
+   */
+  private FileObject fileObject;
+
+  /**
+   * Create image.
+   *
+   * @throws Exception failed to create image
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    final int sectors = TRACKS * BenchmarkImages.SECTORS_PER_TRACK;
+    if ("dsk".equals(this.format)) {
+      this.image = BenchmarkImages.dskImage(sectors);
+    } else {
+      this.image = BenchmarkImages.os9Image(sectors);
+    }
+    this.fileObject = VFS.getManager().toFileObject(this.image);
+  }
+
+  /**
+   * Release image.
+   */
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (!this.image.delete()) {
+      this.image.deleteOnExit();
+    }
+  }
+
+  /**
+   * Detect format and load image.
+   *
+   * @return disk
+   * @throws Exception image rejected
+   */
+  @Benchmark
+  public DWDisk diskFromFile() throws Exception {
+    return DWDiskDrives.diskFromFile(this.fileObject, true);
+  }
+}
@@ -0,0 +1,232 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.groupunix.drivewireserver.dwexceptions.DWCommTimeOutException;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolDevice;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWSerialRingBuffer;
+
+/**
+ * In memory protocol device standing in for a serial link.
+ * <p>
+ * The server side is the usual DWProtocolDevice interface, the CoCo
+ * side is driven by the benchmark thread through {@link #cocoWrite}
+ * and {@link #cocoRead}.
+ * </p>
+ */
+public class LoopbackProtocolDevice implements DWProtocolDevice {
+  /**
+   * Size of each direction's buffer.
+   */
+  private static final int BUFFER_SIZE = 4096;
+  /**
+   * Milliseconds to wait for the other side before timing out.
+   */
+  private static final long READ_TIMEOUT = 1000;
+  /**
+   * Nominal link rate.
+   */
+  private static final int RATE = 115200;
+  /**
+   * Bytes from CoCo to server.
+   */
+  private final DWSerialRingBuffer toServer
+      = new DWSerialRingBuffer(BUFFER_SIZE);
+  /**
+   * Bytes from server to CoCo.
+   */
+  private final DWSerialRingBuffer toCoco
+      = new DWSerialRingBuffer(BUFFER_SIZE);
+  /**
+   * Device has been shut down.
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * Is device connected.
+   *
+   * @return true until shut down
+   */
+  @Override
+  public boolean connected() {
+    return !this.closed;
+  }
+
+  /**
+   * Close device.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+  }
+
+  /**
+   * Shutdown device.
+   */
+  @Override
+  public void shutdown() {
+    this.closed = true;
+  }
+
+  /**
+   * Write bytes to CoCo.
+   *
+   * @param data   data
+   * @param len    bytes to write
+   * @param prefix ignored
+   */
+  @Override
+  public void comWrite(final byte[] data, final int len, final boolean prefix) {
+    try {
+      this.toCoco.write(data, 0, len);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Write single byte to CoCo.
+   *
+   * @param data   byte
+   * @param prefix ignored
+   */
+  @Override
+  public void comWrite1(final int data, final boolean prefix) {
+    this.comWrite(new byte[] {(byte) data}, 1, prefix);
+  }
+
+  /**
+   * Read bytes from CoCo.
+   *
+   * @param len bytes to read
+   * @return data
+   * @throws IOException interrupted while waiting
+   * @throws DWCommTimeOutException CoCo did not send enough data
+   */
+  @Override
+  public byte[] comRead(final int len)
+      throws IOException, DWCommTimeOutException {
+    final byte[] buf = new byte[len];
+    comRead(buf, len);
+    return buf;
+  }
+
+  /**
+   * Read bytes from CoCo into a caller supplied buffer.
+   *
+   * @param buffer buffer of at least len bytes
+   * @param len    bytes to read
+   * @throws IOException interrupted while waiting
+   * @throws DWCommTimeOutException CoCo did not send enough data
+   */
+  @Override
+  public void comRead(final byte[] buffer, final int len)
+      throws IOException, DWCommTimeOutException {
+    try {
+      if (this.toServer.read(buffer, 0, len, READ_TIMEOUT) < len) {
+        throw new DWCommTimeOutException("timed out reading from loopback");
+      }
+    } catch (InterruptedException e) {
+      throw new IOException("interrupted reading from loopback");
+    }
+  }
+
+  /**
+   * Read single byte from CoCo.
+   *
+   * @param timeout give up if nothing arrives in time
+   * @return byte value
+   * @throws IOException interrupted while waiting
+   * @throws DWCommTimeOutException CoCo did not send anything
+   */
+  @Override
+  public int comRead1(final boolean timeout)
+      throws IOException, DWCommTimeOutException {
+    final int res;
+    try {
+      res = this.toServer.read(timeout ? READ_TIMEOUT : 0);
+    } catch (InterruptedException e) {
+      throw new IOException("interrupted reading from loopback");
+    }
+    if (res < 0) {
+      throw new DWCommTimeOutException("timed out reading from loopback");
+    }
+    return res;
+  }
+
+  /**
+   * Get link rate.
+   *
+   * @return bits per second
+   */
+  @Override
+  public int getRate() {
+    return RATE;
+  }
+
+  /**
+   * Get device type.
+   *
+   * @return device type
+   */
+  @Override
+  public String getDeviceType() {
+    return "loopback";
+  }
+
+  /**
+   * Get device name.
+   *
+   * @return device name
+   */
+  @Override
+  public String getDeviceName() {
+    return "loopback";
+  }
+
+  /**
+   * Get client description.
+   *
+   * @return client
+   */
+  @Override
+  public String getClient() {
+    return "benchmark";
+  }
+
+  /**
+   * Get input stream.
+   *
+   * @return null, not supported
+   */
+  @Override
+  public InputStream getInputStream() {
+    return null;
+  }
+
+  /**
+   * Send bytes from CoCo to server.
+   *
+   * @param data bytes to send
+   * @throws InterruptedException interrupted while waiting for space
+   */
+  public void cocoWrite(final byte[] data) throws InterruptedException {
+    this.toServer.write(data, 0, data.length);
+  }
+
+  /**
+   * Receive bytes from server.
+   *
+   * @param buf buffer to fill
+   * @param len bytes wanted
+   * @throws InterruptedException interrupted while waiting
+   * @throws IOException server did not respond in time
+   */
+  public void cocoRead(final byte[] buf, final int len)
+      throws InterruptedException, IOException {
+    if (this.toCoco.read(buf, 0, len, READ_TIMEOUT) < len) {
+      throw new IOException("timed out waiting for server response");
+    }
+  }
+}
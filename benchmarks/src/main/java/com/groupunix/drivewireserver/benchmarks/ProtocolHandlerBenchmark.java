@@ -0,0 +1,339 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+import com.groupunix.drivewireserver.virtualserial.DWVSerialPorts;
+
+/**
+ * Round trip cost of protocol operations.
+ * <p>
+ * A protocol handler runs on its own thread against a loopback
+ * device, and each benchmark plays the CoCo side of one operation,
+ * waiting for the complete response.  Drive 0 holds a raw image and
+ * virtual port N1 is connected to a local socket that is drained in
+ * the background.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtocolHandlerBenchmark {
+  /**
+   * Sectors in drive 0 image.
+   */
+  private static final int SECTORS = 630;
+  /**
+   * Virtual port used for serial operations.
+   */
+  private static final int PORT = 1;
+  /**
+   * Bytes sent per OP_SERWRITEM.
+   */
+  private static final int SERWRITEM_LEN = 64;
+  /**
+   * Milliseconds to wait for the handler to come up.
+   */
+  private static final long READY_TIMEOUT = 10000;
+  /**
+   * Poll interval while waiting for the handler.
+   */
+  private static final long READY_POLL = 10;
+  /**
+   * OP_READEX/OP_WRITE header length.
+   */
+  private static final int DISK_HEADER_LEN = 5;
+  /**
+   * Checksum length.
+   */
+  private static final int CHECKSUM_LEN = 2;
+  /**
+   * OP_SERWRITEM header length.
+   */
+  private static final int SERWRITEM_HEADER_LEN = 3;
+  /**
+   * OP_SERREAD response length.
+   */
+  private static final int SERREAD_RESPONSE_LEN = 2;
+  /**
+   * Socket drain buffer size.
+   */
+  private static final int DRAIN_BUFFER_SIZE = 8192;
+  /**
+   * Bits in a byte.
+   */
+  private static final int BYTE_BITS = 8;
+  /**
+   * Bits in two bytes.
+   */
+  private static final int WORD_BITS = 16;
+  /**
+   * Character written to the virtual port.
+   */
+  private static final byte FILL = 'x';
+
+  /**
+   * Drive 0 image.
+   */
+  private File image;
+  /**
+   * Handler under test.
+   */
+  private DWProtocolHandler handler;
+  /**
+   * Handler thread.
+   */
+  private Thread handlerT;
+  /**
+   * CoCo side of the link.
+   */
+  private LoopbackProtocolDevice device;
+  /**
+   * Listener for virtual port connection.
+   */
+  private ServerSocketChannel listener;
+  /**
+   * Server end of virtual port connection.
+   */
+  private SocketChannel portEnd;
+  /**
+   * Remote end of virtual port connection.
+   */
+  private SocketChannel remoteEnd;
+  /**
+   * Next LSN to use.
+   */
+  private int lsn = 0;
+  /**
+   * OP_READEX request.
+   */
+  private final byte[] readRequest = new byte[DISK_HEADER_LEN];
+  /**
+   * Sector returned by OP_READEX.
+   */
+  private final byte[] sector = new byte[BenchmarkImages.SECTOR_SIZE];
+  /**
+   * Checksum sent after OP_READEX.
+   */
+  private final byte[] checksum = new byte[CHECKSUM_LEN];
+  /**
+   * OP_WRITE request.
+   */
+  private final byte[] writeRequest = new byte[
+      DISK_HEADER_LEN + BenchmarkImages.SECTOR_SIZE + CHECKSUM_LEN
+      ];
+  /**
+   * OP_SERREAD request.
+   */
+  private final byte[] serReadRequest = {DWDefs.OP_SERREAD};
+  /**
+   * OP_SERWRITEM request followed by an OP_SERREAD poll.
+   */
+  private final byte[] serWriteRequest
+      = new byte[SERWRITEM_HEADER_LEN + SERWRITEM_LEN + 1];
+  /**
+   * Response bytes.
+   */
+  private final byte[] response = new byte[SERREAD_RESPONSE_LEN];
+
+  /**
+   * Start handler with a disk and a connected virtual port.
+   *
+   * @throws Exception failed to set up handler
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    this.image = BenchmarkImages.os9Image(SECTORS);
+    final HierarchicalConfiguration config = new HierarchicalConfiguration();
+    config.setProperty("DeviceType", "dummy");
+    config.setProperty("RestoreDrivePaths", false);
+    this.device = new LoopbackProtocolDevice();
+    this.handler = new DWProtocolHandler(0, config);
+    this.handler.setProtoDev(this.device);
+    this.handlerT = new Thread(this.handler);
+    this.handlerT.setDaemon(true);
+    this.handlerT.start();
+    final long deadline = System.currentTimeMillis() + READY_TIMEOUT;
+    while (!this.handler.isReady()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new IOException("protocol handler did not start");
+      }
+      Thread.sleep(READY_POLL);
+    }
+    this.handler.getDiskDrives()
+        .loadDiskFromFile(0, this.image.getAbsolutePath());
+    connectPort();
+
+    final byte[] data = new byte[BenchmarkImages.SECTOR_SIZE];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    final int sum = DWProtocolHandler.computeChecksum(data, data.length);
+    this.writeRequest[0] = DWDefs.OP_WRITE;
+    System.arraycopy(data, 0, this.writeRequest, DISK_HEADER_LEN, data.length);
+    this.writeRequest[DISK_HEADER_LEN + BenchmarkImages.SECTOR_SIZE]
+        = (byte) (sum >> BYTE_BITS);
+    this.writeRequest[DISK_HEADER_LEN + BenchmarkImages.SECTOR_SIZE + 1]
+        = (byte) sum;
+    this.readRequest[0] = DWDefs.OP_READEX;
+    this.serWriteRequest[0] = DWDefs.OP_SERWRITEM;
+    this.serWriteRequest[1] = PORT;
+    this.serWriteRequest[2] = SERWRITEM_LEN;
+    for (int i = 0; i < SERWRITEM_LEN; i++) {
+      this.serWriteRequest[SERWRITEM_HEADER_LEN + i] = FILL;
+    }
+    this.serWriteRequest[SERWRITEM_HEADER_LEN + SERWRITEM_LEN]
+        = DWDefs.OP_SERREAD;
+  }
+
+  /**
+   * Open virtual port and connect it to a local socket.
+   *
+   * @throws Exception failed to connect port
+   */
+  private void connectPort() throws Exception {
+    final DWVSerialPorts ports = this.handler.getVPorts();
+    ports.openPort(PORT);
+    this.listener = ServerSocketChannel.open();
+    this.listener.bind(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+    );
+    this.remoteEnd = SocketChannel.open(this.listener.getLocalAddress());
+    this.portEnd = this.listener.accept();
+    ports.setPortChannel(PORT, this.portEnd);
+    ports.markConnected(PORT);
+    final Thread drain = new Thread(() -> {
+      final ByteBuffer buf = ByteBuffer.allocate(DRAIN_BUFFER_SIZE);
+      try {
+        while (this.remoteEnd.read(buf) > -1) {
+          buf.clear();
+        }
+      } catch (IOException ignored) {
+        // benchmark is over
+      }
+    });
+    drain.setDaemon(true);
+    drain.start();
+  }
+
+  /**
+   * Stop handler and release resources.
+   *
+   * @throws Exception failed to stop cleanly
+   */
+  @TearDown(Level.Trial)
+  public void teardown() throws Exception {
+    this.handler.shutdown();
+    this.handlerT.interrupt();
+    this.handlerT.join(READY_TIMEOUT);
+    this.remoteEnd.close();
+    this.portEnd.close();
+    this.listener.close();
+    if (!this.image.delete()) {
+      this.image.deleteOnExit();
+    }
+  }
+
+  /**
+   * Fill in drive and LSN of a disk request.
+   *
+   * @param request request packet
+   */
+  private void nextSector(final byte[] request) {
+    request[1] = 0;
+    request[2] = (byte) (this.lsn >> WORD_BITS);
+    request[3] = (byte) (this.lsn >> BYTE_BITS);
+    request[4] = (byte) this.lsn;
+    this.lsn = (this.lsn + 1) % SECTORS;
+  }
+
+  /**
+   * OP_READEX including checksum exchange.
+   *
+   * @return result code
+   * @throws Exception link failure
+   */
+  @Benchmark
+  public byte readEx() throws Exception {
+    nextSector(this.readRequest);
+    this.device.cocoWrite(this.readRequest);
+    this.device.cocoRead(this.sector, BenchmarkImages.SECTOR_SIZE);
+    final int sum = DWProtocolHandler.computeChecksum(
+        this.sector, BenchmarkImages.SECTOR_SIZE
+    );
+    this.checksum[0] = (byte) (sum >> BYTE_BITS);
+    this.checksum[1] = (byte) sum;
+    this.device.cocoWrite(this.checksum);
+    this.device.cocoRead(this.response, 1);
+    return this.response[0];
+  }
+
+  /**
+   * OP_WRITE of one sector.
+   *
+   * @return result code
+   * @throws Exception link failure
+   */
+  @Benchmark
+  public byte write() throws Exception {
+    nextSector(this.writeRequest);
+    this.device.cocoWrite(this.writeRequest);
+    this.device.cocoRead(this.response, 1);
+    return this.response[0];
+  }
+
+  /**
+   * OP_SERREAD poll.
+   *
+   * @return first response byte
+   * @throws Exception link failure
+   */
+  @Benchmark
+  public byte serRead() throws Exception {
+    this.device.cocoWrite(this.serReadRequest);
+    this.device.cocoRead(this.response, SERREAD_RESPONSE_LEN);
+    return this.response[0];
+  }
+
+  /**
+   * OP_SERWRITEM to a connected port.
+   * <p>
+   * OP_SERWRITEM has no response, so it is followed by an OP_SERREAD
+   * poll to find out when the server is done with it
+   * </p>
+   *
+   * @return first poll response byte
+   * @throws Exception link failure
+   */
+  @Benchmark
+  public byte serWriteM() throws Exception {
+    this.device.cocoWrite(this.serWriteRequest);
+    this.device.cocoRead(this.response, SERREAD_RESPONSE_LEN);
+    return this.response[0];
+  }
+}
@@ -0,0 +1,121 @@
+package com.groupunix.drivewireserver.benchmarks;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwdisk.DWRawDisk;
+
+/**
+ * Sector reads from a raw image, cached in memory or mapped directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RawDiskBenchmark {
+  /**
+   * Sectors in image.
+   */
+  private static final int SECTORS = 4096;
+  /**
+   * Seed for random LSNs.
+   */
+  private static final long SEED = 0xD15CL;
+  /**
+   * Image access mode, cached or direct.
+   */
+  @Param({"cached", "direct"})
+  private String mode;
+  /**
+   * Image file.
+   */
+  private File image;
+  /**
+   * Disk under test.
+   */
+  private DWRawDisk disk;
+  /**
+   * Next sequential LSN.
+   */
+  private int lsn = 0;
+  /**
+   * Random LSN source.
+   */
+  private final Random random = new Random(SEED);
+
+  /**
+   * Load image.
+   *
+   * @throws Exception failed to load image
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    this.image = BenchmarkImages.os9Image(SECTORS);
+    final FileObject fileObject = VFS.getManager().toFileObject(this.image);
+    this.disk = new DWRawDisk(
+        fileObject,
+        DWDefs.DISK_SECTORSIZE,
+        DWDefs.DISK_MAXSECTORS,
+        "cached".equals(this.mode)
+    );
+    if (this.disk.isDirect() == "cached".equals(this.mode)) {
+      throw new IllegalStateException("disk did not load in " + this.mode
+          + " mode");
+    }
+  }
+
+  /**
+   * Release image.
+   */
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (!this.image.delete()) {
+      this.image.deleteOnExit();
+    }
+  }
+
+  /**
+   * Read sectors in order.
+   *
+   * @return sector data
+   * @throws Exception read failed
+   */
+  @Benchmark
+  public byte[] sequentialRead() throws Exception {
+    this.disk.seekSector(this.lsn);
+    this.lsn = (this.lsn + 1) % SECTORS;
+    return this.disk.readSector();
+  }
+
+  /**
+   * Read sectors at random.
+   *
+   * @return sector data
+   * @throws Exception read failed
+   */
+  @Benchmark
+  public byte[] randomRead() throws Exception {
+    this.disk.seekSector(this.random.nextInt(SECTORS));
+    return this.disk.readSector();
+  }
+}
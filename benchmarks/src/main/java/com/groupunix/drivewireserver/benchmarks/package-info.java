@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks for the protocol, disk and virtual serial hot paths.
+ */
+package com.groupunix.drivewireserver.benchmarks;
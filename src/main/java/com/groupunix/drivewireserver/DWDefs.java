@@ -15,6 +15,10 @@ public final class DWDefs {
    * Drivewire protocol version.
    */
   public static final byte DW_PROTOCOL_VERSION = 4;
+  /**
+   * Added to the DWINIT response when streaming disk ops are accepted.
+   */
+  public static final byte DW_PROTOCOL_STREAM_FLAG = (byte) 0x80;
 
   /**
    * NOP - no operation.
@@ -260,6 +264,10 @@ public final class DWDefs {
    * Serial term?(terminate).
    */
   public static final byte OP_SERTERM = (byte) 197;  // 0xC5 E+128
+  /**
+   * Read run of sectors (streaming).
+   */
+  public static final byte OP_READM = (byte) 205;  // 0xCD M+128
   /**
    * Read ex.
    */
@@ -268,6 +276,10 @@ public final class DWDefs {
    * RFM.
    */
   public static final byte OP_RFM = (byte) 214;  // 0xD6 V+128
+  /**
+   * Write run of sectors (streaming).
+   */
+  public static final byte OP_WRITEM = (byte) 215;  // 0xD7 W+128
   /**
    * 230K230K?.
    */
@@ -535,13 +547,37 @@ public final class DWDefs {
    */
   public static final int DISK_SECTORSIZE = 256;
   /**
-   * Maximum number of sync skips.
+   * Default dirty sector count that triggers a flush.
+   */
+  public static final int DISK_DEFAULT_FLUSH_DIRTY = 64;
+  /**
+   * Default maximum age of an unflushed write (milliseconds).
+   */
+  public static final long DISK_DEFAULT_FLUSH_AGE = 1000;
+  /**
+   * Most sectors written back to a source in a single write.
+   */
+  public static final int DISK_FLUSH_MAX_RUN = 64;
+  /**
+   * Default for journalling writes to cached disks.
    */
-  public static final int DISK_MAX_SYNC_SKIPS = 1;
+  public static final boolean DISK_DEFAULT_JOURNAL = true;
   /**
-   * Maximum pause for sync inop.
+   * Default directory for disk write journals.
    */
-  public static final long DISK_SYNC_INOP_PAUSE = 40;
+  public static final String DISK_DEFAULT_JOURNAL_PATH = "journal";
+  /**
+   * Default file for the image index.
+   */
+  public static final String DISK_DEFAULT_INDEX_PATH = "imageindex.txt";
+  /**
+   * Default interval between image indexer passes (milliseconds).
+   */
+  public static final long DISK_DEFAULT_INDEX_INTERVAL = 60000;
+  /**
+   * Default interval between disk state publications (milliseconds).
+   */
+  public static final long DISK_STATE_PUBLISH_INTERVAL = 250;
   /**
    * Size of hdbdos disk.
    */
@@ -586,6 +622,10 @@ public final class DWDefs {
    * Disk default expand flag.
    */
   public static final Boolean DISK_DEFAULT_EXPAND = true;
+  /**
+   * Disk default cache location, true for off heap.
+   */
+  public static final boolean DISK_DEFAULT_CACHE_OFFHEAP = false;
   /**
    * Disk default syncto flag.
    */
@@ -610,6 +650,30 @@ public final class DWDefs {
    * Disk default size limit.
    */
   public static final int DISK_DEFAULT_SIZELIMIT = -1;
+  /**
+   * Default read-ahead window in sectors, 0 disables prefetch.
+   */
+  public static final int DISK_DEFAULT_READAHEAD = 32;
+  /**
+   * Largest LSN step still treated as a sequential run.
+   */
+  public static final int DISK_READAHEAD_MAX_STRIDE = 8;
+  /**
+   * Consecutive equal steps needed before prefetch starts.
+   */
+  public static final int DISK_READAHEAD_TRIGGER = 2;
+  /**
+   * Maximum pending prefetch requests per instance.
+   */
+  public static final int DISK_PREFETCH_QUEUE_SIZE = 16;
+  /**
+   * Quiet time before a changed disk source is acted on (millis).
+   */
+  public static final long DISK_SOURCE_SETTLE = 250;
+  /**
+   * Default interval between checks of non local disk sources (millis).
+   */
+  public static final long DISK_SOURCE_POLL_INTERVAL = 2000;
   /**
    * Disk image header size.
    */
@@ -780,6 +844,14 @@ public final class DWDefs {
    * Logging buffer max size.
    */
   public static final int LOGGING_MAX_BUFFER_EVENTS = 500;
+  /**
+   * Maximum log events waiting to be published to UI clients.
+   */
+  public static final int LOGGING_QUEUE_SIZE = 2048;
+  /**
+   * Maximum log events published to UI clients in one batch.
+   */
+  public static final int LOGGING_PUBLISH_BATCH = 128;
   /**
    * UI thread wait tick.
    */
@@ -792,6 +864,26 @@ public final class DWDefs {
    * UI thread instance wait time.
    */
   public static final long UITHREAD_INSTANCE_WAIT_TIME = 3000;
+  /**
+   * UI request that switches a connection to session mode.
+   */
+  public static final String UI_SESSION_HELLO = "session";
+  /**
+   * UI session protocol version.
+   */
+  public static final int UI_SESSION_VERSION = 1;
+  /**
+   * UI session frame carrying a command response.
+   */
+  public static final byte UI_FRAME_RESPONSE = (byte) 'R';
+  /**
+   * UI session frame carrying a batch of sync events.
+   */
+  public static final byte UI_FRAME_EVENTS = (byte) 'E';
+  /**
+   * Maximum events sent to a UI client in one batch.
+   */
+  public static final int UI_EVENT_BATCH = 64;
   /**
    * Server memory update interval.
    */
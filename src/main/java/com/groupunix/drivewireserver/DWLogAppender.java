@@ -1,7 +1,6 @@
 package com.groupunix.drivewireserver;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.Layout;
@@ -13,9 +12,28 @@ import org.apache.log4j.spi.LoggingEvent;
 
 public class DWLogAppender extends AppenderSkeleton {
   /**
-   * Events List.
+   * Logger name prefix of massive httpd client noise.
    */
-  private final LinkedList<LoggingEvent> events = new LinkedList<>();
+  private static final String HTTPCLIENT_LOGGER
+      = "org.apache.commons.httpclient";
+  /**
+   * Pesky XMLConfiguration debug message.
+   */
+  private static final String CONFIG_LOCATE_MESSAGE
+      = "ConfigurationUtils.locate(): base is null, name is null";
+  /**
+   * Recent events ring.
+   */
+  private final LoggingEvent[] events
+      = new LoggingEvent[DWDefs.LOGGING_MAX_BUFFER_EVENTS];
+  /**
+   * Position of oldest event in ring.
+   */
+  private int eventsHead = 0;
+  /**
+   * Number of events in ring.
+   */
+  private int eventsCount = 0;
 
   /**
    * Drivewire Log Appender.
@@ -77,22 +95,27 @@ public class DWLogAppender extends AppenderSkeleton {
       System.out.println("FATAL: " + event.getRenderedMessage());
     }
     // ignore those pesky XMLConfiguration debug messages
-    // and massive httpd client noise
+    // and massive httpd client noise.  filter on logger name,
+    // location information would mean a stack walk per event
+    final String loggerName = event.getLoggerName();
     if (event.getMessage() != null
-        && event.getLocationInformation().getClassName() != null
-        && !event.getMessage()
-        .equals("ConfigurationUtils.locate(): base is null, name is null")
-        && !event.getLocationInformation()
-        .getClassName().startsWith("org.apache.commons.httpclient")
+        && loggerName != null
+        && !loggerName.startsWith(HTTPCLIENT_LOGGER)
+        && !CONFIG_LOCATE_MESSAGE.equals(event.getMessage())
     ) {
+      // thread name is resolved lazily, fix it before leaving this thread
+      event.getThreadName();
       // send it to UI listeners
       DriveWireServer.submitLogEvent(event);
       // add to our buffer (for viewing from coco)
       synchronized (events) {
-        if (events.size() == DWDefs.LOGGING_MAX_BUFFER_EVENTS) {
-          events.removeFirst();
+        if (eventsCount == events.length) {
+          events[eventsHead] = event;
+          eventsHead = (eventsHead + 1) % events.length;
+        } else {
+          events[(eventsHead + eventsCount) % events.length] = event;
+          eventsCount++;
         }
-        events.addLast(event);
       }
     }
   }
@@ -105,17 +128,12 @@ public class DWLogAppender extends AppenderSkeleton {
    */
   public ArrayList<String> getLastEvents(final int num) {
     final ArrayList<String> eventsText = new ArrayList<>();
-    int start = 0;
-    int limit = num;
     synchronized (events) {
-      if (limit > events.size()) {
-        limit = events.size();
-      }
-      if (events.size() > limit) {
-        start = events.size() - limit;
-      }
-      for (int i = start; i < events.size(); i++) {
-        eventsText.add(layout.format(events.get(i)));
+      final int limit = Math.min(Math.max(num, 0), eventsCount);
+      for (int i = eventsCount - limit; i < eventsCount; i++) {
+        eventsText.add(
+            layout.format(events[(eventsHead + i) % events.length])
+        );
       }
     }
     return eventsText;
@@ -136,6 +154,8 @@ public class DWLogAppender extends AppenderSkeleton {
    * @return events size
    */
   public int getEventsSize() {
-    return events.size();
+    synchronized (events) {
+      return eventsCount;
+    }
   }
 }
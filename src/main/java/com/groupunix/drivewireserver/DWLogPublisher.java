@@ -0,0 +1,160 @@
+package com.groupunix.drivewireserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Delivers log events to UI clients off the logging thread.
+ * <p>
+ * Logging threads only drop events into a bounded ring, which never
+ * blocks: when the ring is full the oldest event is discarded.
+ * The publisher thread drains the ring in batches and hands each
+ * batch to the server for caching and fan-out to UI clients.
+ * </p>
+ */
+public class DWLogPublisher implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWLogPublisher");
+  /**
+   * Pending events.
+   */
+  private final LoggingEvent[] ring;
+  /**
+   * Position of oldest pending event.
+   */
+  private int head = 0;
+  /**
+   * Number of pending events.
+   */
+  private int count = 0;
+  /**
+   * Events discarded since last batch.
+   */
+  private int dropped = 0;
+  /**
+   * Total events discarded.
+   */
+  private long totalDropped = 0;
+  /**
+   * Thread waiting to die.
+   */
+  private volatile boolean wantToDie = false;
+
+  /**
+   * Log publisher constructor.
+   *
+   * @param capacity maximum number of pending events
+   */
+  public DWLogPublisher(final int capacity) {
+    this.ring = new LoggingEvent[capacity];
+  }
+
+  /**
+   * Queue event for publishing.
+   * <p>
+   * Never blocks, a full ring discards its oldest event
+   * </p>
+   *
+   * @param event logging event
+   */
+  public synchronized void offer(final LoggingEvent event) {
+    if (this.count == this.ring.length) {
+      this.ring[this.head] = null;
+      this.head = (this.head + 1) % this.ring.length;
+      this.count--;
+      this.dropped++;
+      this.totalDropped++;
+    }
+    this.ring[(this.head + this.count) % this.ring.length] = event;
+    this.count++;
+    if (this.count == 1) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * Get total number of events discarded because the ring was full.
+   *
+   * @return dropped events
+   */
+  public synchronized long getDroppedEvents() {
+    return this.totalDropped;
+  }
+
+  /**
+   * Move pending events into batch.
+   * <p>
+   * Waits while there is nothing to publish
+   * </p>
+   *
+   * @param batch list to fill
+   * @param max   maximum number of events to take
+   * @return number of events discarded since the last batch
+   * @throws InterruptedException interrupted while waiting
+   */
+  private synchronized int drain(
+      final List<LoggingEvent> batch, final int max
+  ) throws InterruptedException {
+    while (this.count == 0 && !this.wantToDie) {
+      wait();
+    }
+    final int take = Math.min(max, this.count);
+    for (int i = 0; i < take; i++) {
+      batch.add(this.ring[this.head]);
+      this.ring[this.head] = null;
+      this.head = (this.head + 1) % this.ring.length;
+    }
+    this.count -= take;
+    final int res = this.dropped;
+    this.dropped = 0;
+    return res;
+  }
+
+  /**
+   * Run thread.
+   * <p>
+   * Pending events are flushed before exiting
+   * </p>
+   */
+  public void run() {
+    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+    Thread.currentThread().setName(
+        "logpub-" + Thread.currentThread().getId()
+    );
+    final List<LoggingEvent> batch
+        = new ArrayList<>(DWDefs.LOGGING_PUBLISH_BATCH);
+    boolean running = true;
+    while (running) {
+      int lost = 0;
+      try {
+        lost = this.drain(batch, DWDefs.LOGGING_PUBLISH_BATCH);
+      } catch (InterruptedException e) {
+        this.wantToDie = true;
+      }
+      if (!batch.isEmpty()) {
+        DriveWireServer.publishLogEvents(batch);
+        batch.clear();
+      }
+      if (lost > 0) {
+        LOGGER.warn("log publisher discarded " + lost + " events");
+      }
+      synchronized (this) {
+        running = !this.wantToDie || this.count > 0;
+      }
+    }
+  }
+
+  /**
+   * Stop thread once pending events are published.
+   */
+  public synchronized void shutdown() {
+    this.wantToDie = true;
+    notifyAll();
+  }
+}
@@ -0,0 +1,234 @@
+package com.groupunix.drivewireserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocol;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolDevice;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolMetrics;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves instance metrics in the Prometheus text exposition format.
+ * <p>
+ * Listens on MetricsPort when it is set to a non zero value, and
+ * answers GET /metrics from the counters kept by each DriveWire
+ * protocol handler.  Only the local host can connect unless
+ * MetricsListenAddress names another address.
+ * </p>
+ */
+public class DWMetricsServer {
+  /**
+   * class logger.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWMetricsServer");
+  /**
+   * HTTP OK.
+   */
+  private static final int HTTP_OK = 200;
+  /**
+   * HTTP method not allowed.
+   */
+  private static final int HTTP_BAD_METHOD = 405;
+  /**
+   * Microseconds per second.
+   */
+  private static final double MICROS_PER_SECOND = 1000000.0;
+  /**
+   * Milliseconds per second.
+   */
+  private static final double MILLIS_PER_SECOND = 1000.0;
+  /**
+   * Metric name prefix.
+   */
+  private static final String PREFIX = "drivewire_";
+  /**
+   * Exposition format content type.
+   */
+  private static final String CONTENT_TYPE
+      = "text/plain; version=0.0.4; charset=utf-8";
+  /**
+   * Default listen address.
+   */
+  public static final String DEFAULT_LISTEN_ADDRESS = "127.0.0.1";
+  /**
+   * HTTP server.
+   */
+  private final HttpServer server;
+
+  /**
+   * Metrics server constructor.
+   *
+   * @param address listen address
+   * @param port    tcp port
+   * @throws IOException failed to bind port
+   */
+  public DWMetricsServer(final String address, final int port)
+      throws IOException {
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getByName(address), port), 0
+    );
+    this.server.createContext("/metrics", this::handle);
+  }
+
+  /**
+   * Start serving.
+   */
+  public void start() {
+    this.server.start();
+    LOGGER.info("metrics available on " + this.server.getAddress());
+  }
+
+  /**
+   * Stop serving.
+   */
+  public void stop() {
+    this.server.stop(0);
+  }
+
+  /**
+   * Answer a metrics request.
+   *
+   * @param exchange http exchange
+   * @throws IOException failed to send response
+   */
+  private void handle(final HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(HTTP_BAD_METHOD, -1);
+        return;
+      }
+      final byte[] body = render().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(HTTP_OK, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  /**
+   * Render metrics of all DriveWire instances.
+   *
+   * @return exposition text
+   */
+  public static String render() {
+    final StringBuilder latency = new StringBuilder();
+    final StringBuilder maxima = new StringBuilder();
+    final StringBuilder bytesIn = new StringBuilder();
+    final StringBuilder bytesOut = new StringBuilder();
+    final StringBuilder crc = new StringBuilder();
+    final StringBuilder readRetries = new StringBuilder();
+    final StringBuilder writeRetries = new StringBuilder();
+    final StringBuilder readWait = new StringBuilder();
+    for (int i = 0; i < DriveWireServer.getNumHandlers(); i++) {
+      final DWProtocol protocol = DriveWireServer.getHandler(i);
+      if (!(protocol instanceof DWProtocolHandler handler)) {
+        continue;
+      }
+      final String inst = "{instance=\"" + i + "\"}";
+      final DWProtocolMetrics metrics = handler.getMetrics();
+      final DWProtocolDevice device = handler.getProtoDev();
+      if (device != null) {
+        bytesIn.append(PREFIX).append("bytes_in_total").append(inst)
+            .append(' ').append(device.getBytesIn()).append('\n');
+        bytesOut.append(PREFIX).append("bytes_out_total").append(inst)
+            .append(' ').append(device.getBytesOut()).append('\n');
+      }
+      crc.append(PREFIX).append("crc_failures_total").append(inst)
+          .append(' ').append(metrics.getCrcFailures()).append('\n');
+      readRetries.append(PREFIX).append("read_retries_total").append(inst)
+          .append(' ').append(handler.getReadRetries()).append('\n');
+      writeRetries.append(PREFIX).append("write_retries_total").append(inst)
+          .append(' ').append(handler.getWriteRetries()).append('\n');
+      readWait.append(PREFIX).append("read_wait_seconds_total").append(inst)
+          .append(' ').append(metrics.getReadWait() / MILLIS_PER_SECOND)
+          .append('\n');
+      for (final int op : metrics.getOpcodes()) {
+        // opcodes such as the resets share a name, so keep the code too
+        final String labels = "instance=\"" + i + "\",op=\""
+            + DWUtils.prettyOP((byte) op) + "\",code=\"" + op + "\"";
+        quantile(latency, labels, DWProtocolMetrics.P50,
+            metrics.getPercentile(op, DWProtocolMetrics.P50));
+        quantile(latency, labels, DWProtocolMetrics.P99,
+            metrics.getPercentile(op, DWProtocolMetrics.P99));
+        latency.append(PREFIX).append("op_latency_seconds_sum{")
+            .append(labels).append("} ")
+            .append(metrics.getTotal(op) / MICROS_PER_SECOND).append('\n');
+        latency.append(PREFIX).append("op_latency_seconds_count{")
+            .append(labels).append("} ")
+            .append(metrics.getCount(op)).append('\n');
+        maxima.append(PREFIX).append("op_latency_max_seconds{")
+            .append(labels).append("} ")
+            .append(metrics.getMax(op) / MICROS_PER_SECOND).append('\n');
+      }
+    }
+    final StringBuilder text = new StringBuilder();
+    family(text, "op_latency_seconds", "summary",
+        "Time to complete a protocol operation", latency);
+    family(text, "op_latency_max_seconds", "gauge",
+        "Slowest protocol operation", maxima);
+    family(text, "bytes_in_total", "counter",
+        "Bytes read from the protocol device", bytesIn);
+    family(text, "bytes_out_total", "counter",
+        "Bytes written to the protocol device", bytesOut);
+    family(text, "crc_failures_total", "counter",
+        "Checksum failures", crc);
+    family(text, "read_retries_total", "counter",
+        "Sector read retries requested", readRetries);
+    family(text, "write_retries_total", "counter",
+        "Sector write retries requested", writeRetries);
+    family(text, "read_wait_seconds_total", "counter",
+        "Time spent waiting for serial data", readWait);
+    return text.toString();
+  }
+
+  /**
+   * Append a summary quantile sample.
+   *
+   * @param text     output
+   * @param labels   sample labels
+   * @param fraction quantile
+   * @param micros   value in microseconds
+   */
+  private static void quantile(
+      final StringBuilder text, final String labels,
+      final double fraction, final long micros
+  ) {
+    text.append(PREFIX).append("op_latency_seconds{").append(labels)
+        .append(",quantile=\"").append(fraction).append("\"} ")
+        .append(micros / MICROS_PER_SECOND).append('\n');
+  }
+
+  /**
+   * Append a metric family if it has any samples.
+   *
+   * @param text    output
+   * @param name    metric name without prefix
+   * @param type    metric type
+   * @param help    help text
+   * @param samples sample lines
+   */
+  private static void family(
+      final StringBuilder text, final String name, final String type,
+      final String help, final StringBuilder samples
+  ) {
+    if (samples.length() == 0) {
+      return;
+    }
+    text.append("# HELP ").append(PREFIX).append(name).append(' ')
+        .append(help).append('\n')
+        .append("# TYPE ").append(PREFIX).append(name).append(' ')
+        .append(type).append('\n')
+        .append(samples);
+  }
+}
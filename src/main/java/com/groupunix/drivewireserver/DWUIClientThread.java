@@ -2,9 +2,14 @@ package com.groupunix.drivewireserver;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.log4j.Logger;
@@ -18,6 +23,24 @@ import static com.groupunix.drivewireserver.DWDefs.BYTE_MASK;
 import static com.groupunix.drivewireserver.DWDefs.CARRIAGE_RETURN;
 import static com.groupunix.drivewireserver.DWDefs.NEWLINE;
 
+/**
+ * Serves one UI client connection.
+ * <p>
+ * By default a connection carries a single request, answered with
+ * a 0, result code, 0 header followed by the response data, and the
+ * connection is closed to mark the end of the response.
+ * </p>
+ * <p>
+ * A client that sends "session" as its first line switches the
+ * connection to session mode.  Requests are then sent as
+ * id NUL instance NUL command, and every reply comes back as a frame:
+ * frame type byte, request id and payload length as 4 byte big endian
+ * integers, then the payload.  Response frames carry the result code
+ * followed by the response data.  After "ui sync" the event stream
+ * shares the connection as event frames tagged with the sync request
+ * id, each holding a batch of events in sync format.
+ * </p>
+ */
 public class DWUIClientThread implements Runnable {
   /**
    * Log appender.
@@ -39,7 +62,7 @@ public class DWUIClientThread implements Runnable {
   /**
    * Command list.
    */
-  private final DWCommandList commands;
+  private DWCommandList commands;
   /**
    * Event queue.
    */
@@ -69,6 +92,30 @@ public class DWUIClientThread implements Runnable {
    * Thread state.
    */
   private String state = "not set";
+  /**
+   * Connection is in session mode.
+   */
+  private boolean session = false;
+  /**
+   * Id of request being processed in session mode.
+   */
+  private int requestId = 0;
+  /**
+   * Instance whose events are delivered to this client.
+   */
+  private volatile int eventInstance = -1;
+  /**
+   * Client has asked for events.
+   */
+  private volatile boolean subscribed = false;
+  /**
+   * Session command lists by instance.
+   */
+  private final Map<Integer, DWCommandList> sessionCommands = new HashMap<>();
+  /**
+   * Session event streamer thread.
+   */
+  private Thread streamerT;
 
   /**
    * UI Client Thread.
@@ -99,11 +146,13 @@ public class DWUIClientThread implements Runnable {
     try {
       this.state = "get output stream";
       this.bufferedout = new BufferedOutputStream(socket.getOutputStream());
+      final InputStream input
+          = new BufferedInputStream(socket.getInputStream());
       // cmd loop
       StringBuilder cmd = new StringBuilder();
       while (!socket.isClosed() && !wanttodie) {
         this.state = "read from output stream";
-        final int databyte = socket.getInputStream().read();
+        final int databyte = input.read();
 
         if (databyte == -1) {
           //logger.debug("got -1 in input stream");
@@ -112,8 +161,15 @@ public class DWUIClientThread implements Runnable {
           if (databyte == NEWLINE) {
             if (cmd.length() > 0) {
               this.state = "do cmd";
-              doCmd(cmd.toString().trim());
-              wanttodie = true;
+              final String line = cmd.toString().trim();
+              if (this.session) {
+                doSessionCmd(line);
+              } else if (line.equals(DWDefs.UI_SESSION_HELLO)) {
+                startSession();
+              } else {
+                doCmd(line);
+                wanttodie = true;
+              }
               cmd = new StringBuilder();
             }
           } else if (databyte != CARRIAGE_RETURN) {
@@ -121,6 +177,9 @@ public class DWUIClientThread implements Runnable {
           }
         }
       }
+      if (this.streamerT != null) {
+        this.streamerT.interrupt();
+      }
       this.bufferedout.close();
       socket.close();
       this.state = "close socket";
@@ -134,6 +193,52 @@ public class DWUIClientThread implements Runnable {
     this.state = "exit";
   }
 
+  /**
+   * Switch connection to session mode.
+   *
+   * @throws IOException write failed
+   */
+  private void startSession() throws IOException {
+    this.session = true;
+    this.tname = "dwUIsess-" + Thread.currentThread().getId();
+    Thread.currentThread().setName(tname);
+    sendUiResponse(new DWCommandResponse(
+        "DriveWire UI session " + DWDefs.UI_SESSION_VERSION
+    ));
+  }
+
+  /**
+   * Do command in session mode.
+   *
+   * @param line request id, NUL, then a one shot request
+   * @throws IOException write failed
+   */
+  private void doSessionCmd(final String line) throws IOException {
+    final int div = line.indexOf(0);
+    this.requestId = 0;
+    if (div > 0) {
+      try {
+        this.requestId = Integer.parseInt(line.substring(0, div));
+      } catch (NumberFormatException e) {
+        sendUiResponse(new DWCommandResponse(
+            false,
+            DWDefs.RC_UI_MALFORMED_REQUEST,
+            "Malformed UI request (bad request id)"
+        ));
+        return;
+      }
+    }
+    if (div < 1) {
+      sendUiResponse(new DWCommandResponse(
+          false,
+          DWDefs.RC_UI_MALFORMED_REQUEST,
+          "Malformed UI request (no request id)"
+      ));
+      return;
+    }
+    doCmd(line.substring(div + 1));
+  }
+
   /**
    * Do command.
    *
@@ -233,6 +338,19 @@ public class DWUIClientThread implements Runnable {
             + resp.getResponseText());
       }
     }
+    if (this.session) {
+      final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      payload.write(resp.getResponseCode() & BYTE_MASK);
+      if (resp.isUseBytes() && resp.getResponseBytes() != null) {
+        payload.write(resp.getResponseBytes());
+      } else if (resp.getResponseText() != null) {
+        payload.write(resp.getResponseText().getBytes(DWDefs.ENCODING));
+      }
+      writeFrame(
+          DWDefs.UI_FRAME_RESPONSE, this.requestId, payload.toByteArray()
+      );
+      return;
+    }
     // response header 0, (single byte RC), 0
     this.bufferedout.write(0);
     this.bufferedout.write(resp.getResponseCode() & BYTE_MASK);
@@ -245,6 +363,66 @@ public class DWUIClientThread implements Runnable {
     }
   }
 
+  /**
+   * Write session frame.
+   *
+   * @param type    frame type
+   * @param reqId   request id
+   * @param payload frame data
+   * @throws IOException write failed
+   */
+  public void writeFrame(
+      final byte type, final int reqId, final byte[] payload
+  ) throws IOException {
+    synchronized (this.bufferedout) {
+      final DataOutputStream out = new DataOutputStream(this.bufferedout);
+      out.writeByte(type);
+      out.writeInt(reqId);
+      out.writeInt(payload.length);
+      out.write(payload);
+      out.flush();
+    }
+  }
+
+  /**
+   * Is connection in session mode.
+   *
+   * @return true if in session mode
+   */
+  public boolean isSession() {
+    return this.session;
+  }
+
+  /**
+   * Start streaming sync events for the current request.
+   *
+   * @return false if a stream is already running
+   */
+  public boolean startEventStream() {
+    if (this.streamerT != null) {
+      return false;
+    }
+    this.eventInstance = this.instance;
+    this.subscribe();
+    this.streamerT = new Thread(new DWUIEventStreamer(this, this.requestId));
+    this.streamerT.setDaemon(true);
+    this.streamerT.start();
+    return true;
+  }
+
+  /**
+   * Get instance whose events are delivered to this client.
+   * <p>
+   * Fixed by the sync request in session mode, otherwise the
+   * instance of the current request
+   * </p>
+   *
+   * @return handler id, -1 for all instances
+   */
+  public int getEventInstance() {
+    return this.eventInstance;
+  }
+
   /**
    * Get handler instance.
    *
@@ -261,6 +439,18 @@ public class DWUIClientThread implements Runnable {
    */
   public void setInstance(final int handler) {
     this.instance = handler;
+    if (this.streamerT == null) {
+      this.eventInstance = handler;
+    }
+    // a session talks to many instances, each needs its own dw mapping
+    if (this.session) {
+      this.commands = this.sessionCommands.get(handler);
+      if (this.commands == null) {
+        this.commands = new DWCommandList(null);
+        this.commands.addCommand(new UICmd(this));
+        this.sessionCommands.put(handler, this.commands);
+      }
+    }
     // valid instances get a dw cmd mapping
     if (DriveWireServer.isValidHandlerNo(handler)
         && !this.commands.validate("dw")) {
@@ -312,6 +502,26 @@ public class DWUIClientThread implements Runnable {
     }
   }
 
+  /**
+   * Start queueing events for this client.
+   * <p>
+   * Until then events are not queued, so connections that never sync
+   * do not fill their queue
+   * </p>
+   */
+  public void subscribe() {
+    this.subscribed = true;
+  }
+
+  /**
+   * Has this client asked for events.
+   *
+   * @return true if events are queued for this client
+   */
+  public boolean isSubscribed() {
+    return this.subscribed;
+  }
+
   /**
    * Get event queue.
    *
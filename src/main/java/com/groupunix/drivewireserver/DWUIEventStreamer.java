@@ -0,0 +1,87 @@
+package com.groupunix.drivewireserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.uicommands.UICmdSync;
+
+/**
+ * Streams sync events to a UI session.
+ * <p>
+ * Runs alongside the session's request loop.  Whatever has queued
+ * up for the client is encoded in the usual sync format and sent as
+ * a single event frame tagged with the id of the sync request.
+ * </p>
+ */
+public class DWUIEventStreamer implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWUIEventStreamer");
+  /**
+   * Owning client.
+   */
+  private final DWUIClientThread client;
+  /**
+   * Id of sync request.
+   */
+  private final int requestId;
+
+  /**
+   * Event streamer constructor.
+   *
+   * @param clientThread owning client
+   * @param reqId        id of sync request
+   */
+  public DWUIEventStreamer(
+      final DWUIClientThread clientThread, final int reqId
+  ) {
+    this.client = clientThread;
+    this.requestId = reqId;
+  }
+
+  /**
+   * Run thread.
+   */
+  public void run() {
+    Thread.currentThread().setName(
+        "dwUIsync-" + Thread.currentThread().getId()
+    );
+    final DWEvent lastevt = new DWEvent((byte) 0, -1);
+    final List<DWEvent> batch = new ArrayList<>(DWDefs.UI_EVENT_BATCH);
+    final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    try {
+      // bring client up to date...
+      UICmdSync.encodeEvent(
+          DriveWireServer.getServerStatusEvent(), lastevt, frame
+      );
+      this.client.writeFrame(
+          DWDefs.UI_FRAME_EVENTS, this.requestId, frame.toByteArray()
+      );
+      // ready for new log events
+      this.client.setDropLog(false);
+      while (!this.client.getSocket().isClosed()) {
+        batch.add(this.client.getEventQueue().take());
+        this.client.getEventQueue().drainTo(batch, DWDefs.UI_EVENT_BATCH - 1);
+        frame.reset();
+        for (final DWEvent evt : batch) {
+          UICmdSync.encodeEvent(evt, lastevt, frame);
+        }
+        batch.clear();
+        this.client.writeFrame(
+            DWDefs.UI_FRAME_EVENTS, this.requestId, frame.toByteArray()
+        );
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted");
+    } catch (IOException e) {
+      LOGGER.debug("IO Exception: " + e.getMessage());
+    }
+    LOGGER.debug("removing status sync session");
+  }
+}
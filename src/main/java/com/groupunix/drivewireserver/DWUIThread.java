@@ -5,6 +5,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ConcurrentModificationException;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.log4j.Logger;
@@ -148,37 +149,33 @@ public class DWUIThread implements Runnable {
    * @param evt event
    */
   public void submitEvent(final DWEvent evt) {
+    this.submitEvents(List.of(evt));
+  }
+
+  /**
+   * submitEvents.
+   * <p>
+   * push a batch of events to all subscribed clients, taking
+   * each client queue lock once per batch
+   *
+   * @param evts events
+   */
+  public void submitEvents(final List<DWEvent> evts) {
     synchronized (this.clientThreads) {
       for (final DWUIClientThread client : this.clientThreads) {
-        // filter for instance
-        if (
-            client.getInstance() == -1
-                || client.getInstance() == evt.getEventInstance()
-                || evt.getEventInstance() == -1
-        ) {
-          final LinkedBlockingQueue<DWEvent> queue = client.getEventQueue();
-          synchronized (queue) {
+        if (!client.isSubscribed()) {
+          continue;
+        }
+        final LinkedBlockingQueue<DWEvent> queue = client.getEventQueue();
+        synchronized (queue) {
+          for (final DWEvent evt : evts) {
+            // filter for instance
             if (
-                !(client.isDropLog()
-                    && evt.getEventType() == DWDefs.EVENT_TYPE_LOG)
+                client.getEventInstance() == -1
+                    || client.getEventInstance() == evt.getEventInstance()
+                    || evt.getEventInstance() == -1
             ) {
-              this.lastQueueSize = queue.size();
-              if (queue.size() < DWDefs.EVENT_QUEUE_LOGDROP_SIZE) {
-                queue.add(evt);
-              } else if (
-                  queue.size() < DWDefs.EVENT_MAX_QUEUE_SIZE
-                      && evt.getEventType() != DWDefs.EVENT_TYPE_LOG
-              ) {
-                queue.add(evt);
-              } else {
-                this.droppedEvents++;
-                System.out.println(
-                    "queue drop: " + queue.size() + "/"
-                        + this.droppedEvents + "  " + evt.getEventType()
-                        + " thr " + client.getThreadName()
-                        + " cmd " + client.getCurCmd()
-                        + " state " + client.getState());
-              }
+              this.queueEvent(client, queue, evt);
             }
           }
         }
@@ -186,6 +183,45 @@ public class DWUIThread implements Runnable {
     }
   }
 
+  /**
+   * queueEvent.
+   * <p>
+   * add event to one client queue, dropping log events first
+   * when the client is falling behind
+   *
+   * @param client client thread
+   * @param queue  client event queue
+   * @param evt    event
+   */
+  private void queueEvent(
+      final DWUIClientThread client,
+      final LinkedBlockingQueue<DWEvent> queue,
+      final DWEvent evt
+  ) {
+    if (
+        !(client.isDropLog()
+            && evt.getEventType() == DWDefs.EVENT_TYPE_LOG)
+    ) {
+      this.lastQueueSize = queue.size();
+      if (queue.size() < DWDefs.EVENT_QUEUE_LOGDROP_SIZE) {
+        queue.add(evt);
+      } else if (
+          queue.size() < DWDefs.EVENT_MAX_QUEUE_SIZE
+              && evt.getEventType() != DWDefs.EVENT_TYPE_LOG
+      ) {
+        queue.add(evt);
+      } else {
+        this.droppedEvents++;
+        System.out.println(
+            "queue drop: " + queue.size() + "/"
+                + this.droppedEvents + "  " + evt.getEventType()
+                + " thr " + client.getThreadName()
+                + " cmd " + client.getCurCmd()
+                + " state " + client.getState());
+      }
+    }
+  }
+
   /**
    * getNumUIClients.
    * @return int total number of client threads
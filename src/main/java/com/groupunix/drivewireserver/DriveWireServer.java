@@ -12,6 +12,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Field;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
@@ -35,6 +36,9 @@ import org.apache.log4j.lf5.LF5Appender;
 import org.apache.log4j.spi.LoggingEvent;
 
 import com.groupunix.drivewireserver.dwdisk.DWDiskLazyWriter;
+import com.groupunix.drivewireserver.dwdisk.DWDiskStatePublisher;
+import com.groupunix.drivewireserver.dwdisk.DWImageIndex;
+import com.groupunix.drivewireserver.dwdisk.DWImageIndexer;
 import com.groupunix.drivewireserver.dwexceptions.DWPlatformUnknownException;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocol;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
@@ -155,18 +159,47 @@ public final class DriveWireServer {
    */
   private static PatternLayout logLayout
       = new PatternLayout("%d{dd MMM yyyy HH:mm:ss} %-5p [%-14t] %m%n");
+  /**
+   * Log event publisher.
+   */
+  private static final DWLogPublisher LOG_PUBLISHER
+      = new DWLogPublisher(DWDefs.LOGGING_QUEUE_SIZE);
+  /**
+   * Log event publisher thread.
+   */
+  private static Thread logPublisherT;
   /**
    * Lazy writer thread.
    */
   private static Thread lazyWriterT;
+  /**
+   * Disk state publisher thread.
+   */
+  private static Thread statePublisherT;
   /**
    * UI thread object.
    */
-  private static DWUIThread uiObj;
+  private static volatile DWUIThread uiObj;
   /**
    * UI thread.
    */
   private static Thread uiT;
+  /**
+   * metrics server, null if disabled.
+   */
+  private static DWMetricsServer metricsServer;
+  /**
+   * Image index, memory only until the server is configured.
+   */
+  private static DWImageIndex imageIndex = new DWImageIndex(null);
+  /**
+   * Background image indexer.
+   */
+  private static DWImageIndexer imageIndexer;
+  /**
+   * Image indexer thread.
+   */
+  private static Thread imageIndexerT;
   /**
    * Waiting to die gracefully.
    */
@@ -480,6 +513,7 @@ public final class DriveWireServer {
 
     // set up initial logging config
     initLogging();
+    startLogPublisher();
 
     LOGGER.info("DriveWire Server v" + DW_SERVER_VERSION + " starting");
     LOGGER.debug(
@@ -539,14 +573,23 @@ public final class DriveWireServer {
       serverConfiguration.setAutoSave(true);
     }
 
+    // load image index before anything is mounted
+    startImageIndex();
+
     // start protocol handler instance(s)
     startProtoHandlers();
 
     // start lazy writer
     startLazyWriter();
 
+    // start disk state publisher
+    startStatePublisher();
+
     // start UI server
     applyUISettings();
+
+    // start metrics server
+    startMetricsServer();
   }
 
   /**
@@ -609,11 +652,20 @@ public final class DriveWireServer {
           new Thread(DW_PROTOCOL_HANDLERS.get(handlerId))
       );
 
-      if (hierarchicalConfiguration.getBoolean("AutoStart", true)) {
-        startHandler(handlerId);
-      }
       handlerId++;
     }
+    // instances come up together, each restoring its drives in the
+    // background, so only wait once they have all been started
+    for (int i = 0; i < handlerConfigurations.size(); i++) {
+      if (handlerConfigurations.get(i).getBoolean("AutoStart", true)) {
+        launchHandler(i);
+      }
+    }
+    for (int i = 0; i < handlerConfigurations.size(); i++) {
+      if (handlerConfigurations.get(i).getBoolean("AutoStart", true)) {
+        awaitHandler(i);
+      }
+    }
   }
 
   /**
@@ -622,25 +674,45 @@ public final class DriveWireServer {
    * @param handlerId handler id
    */
   public static void startHandler(final int handlerId) {
+    if (launchHandler(handlerId)) {
+      awaitHandler(handlerId);
+    }
+  }
+
+  /**
+   * Start handler thread without waiting for it.
+   *
+   * @param handlerId handler id
+   * @return true if started
+   */
+  private static boolean launchHandler(final int handlerId) {
     if (DW_PROTO_HANDLER_THREADS.get(handlerId).isAlive()) {
       LOGGER.error("Requested start of already alive handler #" + handlerId);
-    } else {
-      LOGGER.info(
-          "Starting handler #" + handlerId + ": "
-              + DW_PROTOCOL_HANDLERS.get(handlerId).getClass().getSimpleName()
-      );
-
-      DW_PROTO_HANDLER_THREADS.get(handlerId).start();
+      return false;
+    }
+    LOGGER.info(
+        "Starting handler #" + handlerId + ": "
+            + DW_PROTOCOL_HANDLERS.get(handlerId).getClass().getSimpleName()
+    );
+    DW_PROTO_HANDLER_THREADS.get(handlerId).start();
+    return true;
+  }
 
-      while (!DW_PROTOCOL_HANDLERS.get(handlerId).isReady()) {
-        try {
-          Thread.sleep(THREAD_SLEEP_MILLIS);
-        } catch (InterruptedException e) {
-          LOGGER.warn(
-              "Interrupted while waiting for instance "
-                  + handlerId + " to become ready."
-          );
-        }
+  /**
+   * Wait for started handler to become ready.
+   *
+   * @param handlerId handler id
+   */
+  private static void awaitHandler(final int handlerId) {
+    while (!DW_PROTOCOL_HANDLERS.get(handlerId).isReady()
+        && DW_PROTO_HANDLER_THREADS.get(handlerId).isAlive()) {
+      try {
+        Thread.sleep(THREAD_SLEEP_MILLIS);
+      } catch (InterruptedException e) {
+        LOGGER.warn(
+            "Interrupted while waiting for instance "
+                + handlerId + " to become ready."
+        );
       }
     }
   }
@@ -956,6 +1028,24 @@ public final class DriveWireServer {
         LOGGER.warn(e.getMessage());
       }
     }
+    if (statePublisherT != null) {
+      LOGGER.debug("stopping disk state publisher...");
+      statePublisherT.interrupt();
+      try {
+        statePublisherT.join();
+      } catch (InterruptedException e) {
+        LOGGER.warn(e.getMessage());
+      }
+    }
+    if (logPublisherT != null) {
+      LOGGER.debug("stopping log publisher...");
+      LOG_PUBLISHER.shutdown();
+      try {
+        logPublisherT.join();
+      } catch (InterruptedException e) {
+        LOGGER.warn(e.getMessage());
+      }
+    }
     if (uiObj != null) {
       LOGGER.debug("stopping UI thread...");
       uiObj.die();
@@ -965,10 +1055,32 @@ public final class DriveWireServer {
         LOGGER.warn(e.getMessage());
       }
     }
+    if (metricsServer != null) {
+      LOGGER.debug("stopping metrics server...");
+      metricsServer.stop();
+    }
+    if (imageIndexer != null) {
+      LOGGER.debug("stopping image indexer...");
+      imageIndexer.shutdown();
+      try {
+        imageIndexerT.join();
+      } catch (InterruptedException e) {
+        LOGGER.warn(e.getMessage());
+      }
+    }
     LOGGER.info("server shutdown complete");
     LOGGER.removeAllAppenders();
   }
 
+  /**
+   * Start log event publisher.
+   */
+  private static void startLogPublisher() {
+    logPublisherT = new Thread(LOG_PUBLISHER);
+    logPublisherT.setDaemon(true);
+    logPublisherT.start();
+  }
+
   /**
    * Start lazy writer.
    */
@@ -977,6 +1089,65 @@ public final class DriveWireServer {
     lazyWriterT.start();
   }
 
+  /**
+   * Start disk state publisher.
+   */
+  private static void startStatePublisher() {
+    statePublisherT = new Thread(new DWDiskStatePublisher());
+    statePublisherT.setDaemon(true);
+    statePublisherT.start();
+  }
+
+  /**
+   * Load image index and start background indexer.
+   */
+  private static void startImageIndex() {
+    final DWImageIndex index = new DWImageIndex(Paths.get(
+        serverConfiguration.getString(
+            "ImageIndexPath", DWDefs.DISK_DEFAULT_INDEX_PATH
+        )
+    ));
+    index.load();
+    imageIndex = index;
+    imageIndexer = new DWImageIndexer(
+        index,
+        serverConfiguration.getLong(
+            "ImageIndexInterval", DWDefs.DISK_DEFAULT_INDEX_INTERVAL
+        )
+    );
+    imageIndexerT = new Thread(imageIndexer);
+    imageIndexerT.setDaemon(true);
+    imageIndexerT.start();
+  }
+
+  /**
+   * Get image index.
+   *
+   * @return image index
+   */
+  public static DWImageIndex getImageIndex() {
+    return imageIndex;
+  }
+
+  /**
+   * Start metrics server if a port is configured.
+   */
+  private static void startMetricsServer() {
+    final int port = serverConfiguration.getInt("MetricsPort", 0);
+    final String address = serverConfiguration.getString(
+        "MetricsListenAddress", DWMetricsServer.DEFAULT_LISTEN_ADDRESS
+    );
+    if (port > 0) {
+      try {
+        metricsServer = new DWMetricsServer(address, port);
+        metricsServer.start();
+      } catch (IOException e) {
+        LOGGER.error("Cannot serve metrics on " + address + " port " + port
+            + ": " + e.getMessage());
+      }
+    }
+  }
+
   /**
    * Apply UI settings.
    */
@@ -1369,26 +1540,46 @@ public final class DriveWireServer {
 
   /**
    * Submit logging event.
+   * <p>
+   * Only queues the event, it is published to UI clients
+   * from the log publisher thread
+   * </p>
    *
    * @param event logging event
    */
   public static void submitLogEvent(final LoggingEvent event) {
-    final DWEvent evt = new DWEvent(DWDefs.EVENT_TYPE_LOG, -1);
-
-    evt.setParam(DWDefs.EVENT_ITEM_LOGLEVEL, event.getLevel().toString());
-    evt.setParam(DWDefs.EVENT_ITEM_TIMESTAMP, event.timeStamp + "");
-    evt.setParam(DWDefs.EVENT_ITEM_LOGMSG, event.getMessage().toString());
-    evt.setParam(DWDefs.EVENT_ITEM_THREAD, event.getThreadName());
-    evt.setParam(DWDefs.EVENT_ITEM_LOGSRC, event.getLoggerName());
+    LOG_PUBLISHER.offer(event);
+  }
 
+  /**
+   * Publish batch of logging events.
+   * <p>
+   * Adds the events to the log cache and pushes them to UI clients
+   * </p>
+   *
+   * @param events logging events
+   */
+  static void publishLogEvents(final List<LoggingEvent> events) {
+    final List<DWEvent> batch = new ArrayList<>(events.size());
+    for (final LoggingEvent event : events) {
+      final DWEvent evt = new DWEvent(DWDefs.EVENT_TYPE_LOG, -1);
+      evt.setParam(DWDefs.EVENT_ITEM_LOGLEVEL, event.getLevel().toString());
+      evt.setParam(DWDefs.EVENT_ITEM_TIMESTAMP, event.timeStamp + "");
+      evt.setParam(DWDefs.EVENT_ITEM_LOGMSG, event.getMessage().toString());
+      evt.setParam(DWDefs.EVENT_ITEM_THREAD, event.getThreadName());
+      evt.setParam(DWDefs.EVENT_ITEM_LOGSRC, event.getLoggerName());
+      batch.add(evt);
+    }
     synchronized (LOG_CACHE) {
-      LOG_CACHE.add(evt);
-      if (LOG_CACHE.size() > DWDefs.LOGGING_MAX_BUFFER_EVENTS) {
-        LOG_CACHE.remove(0);
+      LOG_CACHE.addAll(batch);
+      final int excess = LOG_CACHE.size() - DWDefs.LOGGING_MAX_BUFFER_EVENTS;
+      if (excess > 0) {
+        LOG_CACHE.subList(0, excess).clear();
       }
     }
-    if (uiObj != null) {
-      uiObj.submitEvent(evt);
+    final DWUIThread ui = uiObj;
+    if (ui != null) {
+      ui.submitEvents(batch);
     }
   }
 
@@ -31,6 +31,7 @@ public final class DWCmdDiskDos extends DWCommand {
     commands.addCommand(new DWCmdDiskDosList(protocolHandler, this));
     commands.addCommand(new DWCmdDiskDosFormat(protocolHandler, this));
     commands.addCommand(new DWCmdDiskDosAdd(protocolHandler, this));
+    commands.addCommand(new DWCmdDiskDosImport(protocolHandler, this));
     this.setCommand("dos");
     this.setShortHelp("Manage DOS disks");
     this.setUsage("dw disk dos [command]");
@@ -128,22 +128,14 @@ public final class DWCmdDiskDosAdd extends DWCommand {
                 + Integer.MAX_VALUE + " bytes."
         );
       }
-      // get header
-      final byte[] content = new byte[(int) fObjSize];
-      if (content.length > 0) {
-        int readres = 0;
-        final InputStream inputStream = fileContent.getInputStream();
-        while (readres < content.length) {
-          readres += inputStream.read(
-              content, readres, content.length - readres
-          );
-        }
-        inputStream.close();
+      // stream content straight into the disk
+      try (InputStream inputStream = fileContent.getInputStream()) {
+        decbFs.addFile(
+            fileObj.getName().getBaseName().toUpperCase(),
+            inputStream,
+            (int) fObjSize
+        );
       }
-      decbFs.addFile(
-          fileObj.getName().getBaseName().toUpperCase(),
-          content
-      );
     } else {
       throw new IOException("Unreadable source path");
     }
@@ -0,0 +1,160 @@
+package com.groupunix.drivewireserver.dwcommands;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.VFS;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwdisk.filesystem.DWDECBFileSystem;
+import com.groupunix.drivewireserver.dwdisk.filesystem.DWDECBFileSystemImport;
+import com.groupunix.drivewireserver.dwexceptions.DWDiskInvalidSectorNumber;
+import com.groupunix.drivewireserver.dwexceptions.DWDriveNotLoadedException;
+import com.groupunix.drivewireserver.dwexceptions.DWDriveNotValidException;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemFullException;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFATException;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFilenameException;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+
+public final class DWCmdDiskDosImport extends DWCommand {
+  /**
+   * Drivewire protocol handler.
+   */
+  private final DWProtocolHandler dwProtocolHandler;
+
+  /**
+   * Disk dos import files command constructor.
+   *
+   * @param protocolHandler protocol handler
+   * @param parent          parent command
+   */
+  public DWCmdDiskDosImport(
+      final DWProtocolHandler protocolHandler,
+      final DWCommand parent
+  ) {
+    super();
+    setParentCmd(parent);
+    this.dwProtocolHandler = protocolHandler;
+    this.setCommand("import");
+    this.setShortHelp("Add all files in a directory to DOS disk image");
+    this.setUsage("dw disk dos import # path");
+  }
+
+  /**
+   * parse command.
+   *
+   * @param cmdline command line
+   * @return command response
+   */
+  public DWCommandResponse parse(final String cmdline) {
+    final String[] args = cmdline.split(" ");
+
+    if (args.length == 2) {
+      try {
+        return doDiskDosImport(
+            dwProtocolHandler.getDiskDrives().getDriveNoFromString(args[0]),
+            args[1]
+        );
+      } catch (DWDriveNotValidException e) {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_INVALID_DRIVE,
+            e.getMessage()
+        );
+      } catch (DWDriveNotLoadedException e) {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_DRIVE_NOT_LOADED,
+            e.getMessage()
+        );
+      } catch (DWFileSystemFullException
+               | DWFileSystemInvalidFilenameException
+               | DWFileSystemInvalidFATException
+               | DWDiskInvalidSectorNumber e) {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_SERVER_FILESYSTEM_EXCEPTION,
+            e.getMessage()
+        );
+      } catch (IOException e) {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_SERVER_IO_EXCEPTION,
+            e.getMessage()
+        );
+      }
+    }
+
+    return new DWCommandResponse(
+        false,
+        DWDefs.RC_SYNTAX_ERROR,
+        "Syntax error"
+    );
+  }
+
+  private DWCommandResponse doDiskDosImport(
+      final int driveno,
+      final String path
+  ) throws DWDriveNotLoadedException,
+      DWDriveNotValidException,
+      DWFileSystemFullException,
+      DWFileSystemInvalidFilenameException,
+      DWFileSystemInvalidFATException,
+      DWDiskInvalidSectorNumber,
+      IOException {
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(
+        new DWDECBFileSystem(
+            dwProtocolHandler.getDiskDrives().getDisk(driveno)
+        )
+    );
+    final FileObject dirObj = VFS.getManager().resolveFile(path);
+    if (!dirObj.exists() || !dirObj.isReadable()) {
+      throw new IOException("Unreadable source path");
+    }
+    final FileObject[] children;
+    if (dirObj.getType() == FileType.FOLDER) {
+      children = dirObj.getChildren();
+    } else {
+      children = new FileObject[] {dirObj};
+    }
+    // same order every time, so rebuilt images are identical
+    Arrays.sort(children, Comparator.comparing(f -> f.getName().getBaseName()));
+    for (final FileObject fileObj : children) {
+      if (fileObj.getType() != FileType.FILE || !fileObj.isReadable()) {
+        continue;
+      }
+      final FileContent fileContent = fileObj.getContent();
+      final long fObjSize = fileContent.getSize();
+      // size check
+      if (fObjSize > Integer.MAX_VALUE) {
+        throw new DWFileSystemFullException(
+            "File too big, maximum size is "
+                + Integer.MAX_VALUE + " bytes."
+        );
+      }
+      batch.add(
+          fileObj.getName().getBaseName().toUpperCase(),
+          (int) fObjSize,
+          fileContent::getInputStream
+      );
+    }
+    batch.run();
+    return new DWCommandResponse(
+        "Added " + batch.size() + " files to DOS disk."
+    );
+  }
+
+  /**
+   * Validate command line.
+   *
+   * @param cmdline command line
+   * @return true if valid
+   */
+  public boolean validate(final String cmdline) {
+    return true;
+  }
+}
@@ -25,6 +25,7 @@ public class DWCmdServerShow extends DWCommand {
     this.setCommandList(commands);
     commands.addCommand(new DWCmdServerShowThreads(this));
     commands.addCommand(new DWCmdServerShowTimers(this.dwProtocol, this));
+    commands.addCommand(new DWCmdServerShowMetrics(this.dwProtocol, this));
     commands.addCommand(new DWCmdServerShowSerial(this.dwProtocol, this));
     this.setCommand("show");
     this.setShortHelp("Show various server information");
@@ -0,0 +1,103 @@
+package com.groupunix.drivewireserver.dwcommands;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocol;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolMetrics;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWUtils;
+
+public final class DWCmdServerShowMetrics extends DWCommand {
+  /**
+   * Width of opcode name column.
+   */
+  private static final int NAME_WIDTH = 20;
+  /**
+   * Width of number columns.
+   */
+  private static final int NUM_WIDTH = 10;
+  /**
+   * Drivewire protocol.
+   */
+  private final DWProtocol dwProtocol;
+
+  /**
+   * server show metrics command constructor.
+   *
+   * @param protocol protocol
+   * @param parent   parent command
+   */
+  public DWCmdServerShowMetrics(
+      final DWProtocol protocol,
+      final DWCommand parent
+  ) {
+    super();
+    this.dwProtocol = protocol;
+    setParentCmd(parent);
+    this.setCommand("metrics");
+    this.setShortHelp("Show instance operation metrics");
+    this.setUsage("dw server show metrics");
+  }
+
+  /**
+   * parse command.
+   *
+   * @param cmdline command string
+   * @return command response
+   */
+  public DWCommandResponse parse(final String cmdline) {
+    if (!(dwProtocol instanceof DWProtocolHandler)) {
+      return new DWCommandResponse(
+          false,
+          DWDefs.RC_SERVER_NOT_IMPLEMENTED,
+          "Metrics are only kept for DriveWire instances"
+      );
+    }
+    final DWProtocolHandler handler = (DWProtocolHandler) dwProtocol;
+    final DWProtocolMetrics metrics = handler.getMetrics();
+    final StringBuilder text = new StringBuilder();
+    text.append("DriveWire instance metrics:\r\n\r\n");
+    if (handler.getProtoDev() != null) {
+      text.append("Bytes in:      ")
+          .append(handler.getProtoDev().getBytesIn())
+          .append("\r\n")
+          .append("Bytes out:     ")
+          .append(handler.getProtoDev().getBytesOut())
+          .append("\r\n");
+    }
+    text.append("CRC failures:  ").append(metrics.getCrcFailures())
+        .append("\r\n")
+        .append("Read retries:  ").append(handler.getReadRetries())
+        .append("\r\n")
+        .append("Write retries: ").append(handler.getWriteRetries())
+        .append("\r\n")
+        .append("Read wait ms:  ").append(metrics.getReadWait())
+        .append("\r\n\r\n");
+    text.append(String.format(
+        "%-" + NAME_WIDTH + "s%" + NUM_WIDTH + "s%" + NUM_WIDTH + "s%"
+            + NUM_WIDTH + "s%" + NUM_WIDTH + "s\r\n",
+        "Operation (us)", "Count", "p50", "p99", "Max"
+    ));
+    for (final int op : metrics.getOpcodes()) {
+      text.append(String.format(
+          "%-" + NAME_WIDTH + "s%" + NUM_WIDTH + "d%" + NUM_WIDTH + "d%"
+              + NUM_WIDTH + "d%" + NUM_WIDTH + "d\r\n",
+          DWUtils.prettyOP((byte) op),
+          metrics.getCount(op),
+          metrics.getPercentile(op, DWProtocolMetrics.P50),
+          metrics.getPercentile(op, DWProtocolMetrics.P99),
+          metrics.getMax(op)
+      ));
+    }
+    return new DWCommandResponse(text.toString());
+  }
+
+  /**
+   * validate command.
+   *
+   * @param cmdline command string
+   * @return true if command valid
+   */
+  public boolean validate(final String cmdline) {
+    return true;
+  }
+}
@@ -102,34 +102,16 @@ public class DWCCBDisk extends DWDisk {
       readres = fis.read(buf, readres, size);
       // ccb scripts may not be /256
       if (readres == -1) {
-        this.getSectors().set(
-            sec,
-            new DWDiskSector(
-                this,
-                sec,
-                DWDefs.DISK_SECTORSIZE,
-                false
-            )
-        );
         for (int i = secres; i < DWDefs.DISK_SECTORSIZE; i++) {
           buf[i] = 0;
         }
-        this.getSectors().get(sec).setData(buf, false);
+        this.getSectors().write(sec, buf, false);
         sec++;
       } else {
         secres += readres;
         readres = 0;
         if (secres == DWDefs.DISK_SECTORSIZE) {
-          this.getSectors().set(
-              sec,
-              new DWDiskSector(
-                  this,
-                  sec,
-                  DWDefs.DISK_SECTORSIZE,
-                  false
-              )
-          );
-          this.getSectors().get(sec).setData(buf, false);
+          this.getSectors().write(sec, buf, false);
           secres = 0;
           sec++;
         }
@@ -5,7 +5,6 @@ import java.io.InputStream;
 import java.util.ArrayList;
 
 import org.apache.commons.vfs2.FileObject;
-import org.apache.commons.vfs2.FileSystemException;
 import org.apache.log4j.Logger;
 
 import com.groupunix.drivewireserver.DWDefs;
@@ -198,12 +197,14 @@ public class DWDMKDisk extends DWDisk {
     loadSectors();
     this.setParam(
         "_filesystem",
-        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(this.getSectors()))
+        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(
+            this.getFileObject(), this.getSectors()
+        ))
     );
   }
 
   private void loadSectors()
-      throws DWImageFormatException, FileSystemException {
+      throws DWImageFormatException, IOException {
     this.getSectors().clear();
     // hard coded to 18 spt until i find a reason not to
     this.getSectors().setSize(header.getTracks() * SECTORS_PER_TRACK);
@@ -223,16 +224,10 @@ public class DWDMKDisk extends DWDisk {
   }
 
   private void addSectorFrom(final DWDMKDiskIDAM idam, final int track)
-      throws DWImageFormatException, FileSystemException {
+      throws DWImageFormatException, IOException {
     final int lsn = calcLSN(idam);
     if (lsn > -1 && lsn < this.getSectors().size()) {
-      this.getSectors().set(
-          lsn,
-          new DWDiskSector(this, lsn, idam.getSectorSize(), false)
-      );
-      this.getSectors()
-          .get(lsn)
-          .setData(getSectorDataFrom(idam, track), false);
+      this.getSectors().write(lsn, getSectorDataFrom(idam, track), false);
     } else {
       throw new DWImageFormatException(
           "Invalid LSN " + lsn + " while adding sector from DMK!"
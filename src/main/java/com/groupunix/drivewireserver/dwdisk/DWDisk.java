@@ -18,8 +18,9 @@ import org.apache.log4j.Logger;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class DWDisk {
   /**
@@ -30,10 +31,18 @@ public abstract class DWDisk {
    * Parameter map.
    */
   private final HierarchicalConfiguration params;
+  /**
+   * Typed state for the sector hot path.
+   */
+  private final DWDiskState state;
   /**
    * Disk sectors.
    */
-  private Vector<DWDiskSector> sectors = new Vector<>();
+  private volatile DWSectorStore sectors = new DWSectorArena(this);
+  /**
+   * Reload sequence, odd while the sectors are being reloaded.
+   */
+  private final AtomicInteger reloadSeq = new AtomicInteger();
   /**
    * File object.
    * <p>
@@ -50,6 +59,14 @@ public abstract class DWDisk {
    * Associated drive.
    */
   private DWDiskDrive drive;
+  /**
+   * Source has changed since it was loaded.
+   */
+  private volatile boolean sourceChanged = false;
+  /**
+   * Parsed file system structures, kept by the file system code.
+   */
+  private volatile Object fileSystemCache;
 
   // required for format implementation:
 
@@ -66,6 +83,7 @@ public abstract class DWDisk {
       throws IOException, DWImageFormatException {
     this.fileObj = fileObject;
     this.params = new HierarchicalConfiguration();
+    this.state = new DWDiskState(this.params);
     // internal
     this.setParam("_path", fileObject.getName().getURI());
     long lastModifiedTime = -1;
@@ -75,9 +93,7 @@ public abstract class DWDisk {
       LOGGER.warn(e.getMessage());
     }
     this.setLastModifiedTime(lastModifiedTime);
-    this.setParam("_reads", 0);
-    this.setParam("_writes", 0);
-    this.setParam("_lsn", 0);
+    this.state.publish();
     // user options
     this.setParam("writeprotect", DWDefs.DISK_DEFAULT_WRITEPROTECT);
   }
@@ -90,11 +106,10 @@ public abstract class DWDisk {
   public DWDisk() {
     this.fileObj = null;
     this.params = new HierarchicalConfiguration();
+    this.state = new DWDiskState(this.params);
     // internal
     this.setParam("_path", "");
-    this.setParam("_reads", 0);
-    this.setParam("_writes", 0);
-    this.setParam("_lsn", 0);
+    this.state.publish();
     // user options
     this.setParam("writeprotect", DWDefs.DISK_DEFAULT_WRITEPROTECT);
   }
@@ -139,7 +154,7 @@ public abstract class DWDisk {
           "Attempt to seek beyond end of image"
       );
     } else {
-      this.setParam("_lsn", newLSN);
+      this.state.setLsn(newLSN);
     }
   }
 
@@ -155,8 +170,8 @@ public abstract class DWDisk {
     if (this.isWriteProtect()) {
       throw new DWDriveWriteProtectedException("Disk is write protected");
     } else {
-      this.getSectors().get(this.getLSN()).setData(data);
-      this.incParam("_writes");
+      this.getSectors().write(this.getLSN(), data, true);
+      this.state.incWrites();
     }
   }
 
@@ -168,8 +183,115 @@ public abstract class DWDisk {
    * @throws DWImageFormatException Invalid file format
    */
   public byte[] readSector() throws IOException, DWImageFormatException {
-    this.incParam("_reads");
-    return this.getSectors().get(this.getLSN()).getData();
+    this.state.incReads();
+    return this.getSectors().read(this.getLSN());
+  }
+
+  /**
+   * read disk sector into a caller supplied buffer.
+   * <p>
+   * Formats that can fill the buffer directly override this, the
+   * default copies whatever {@link #readSector()} returns
+   * </p>
+   *
+   * @param buffer buffer of at least one sector
+   * @throws IOException Failed to read from file object
+   * @throws DWImageFormatException Invalid file format
+   */
+  public void readSector(final byte[] buffer)
+      throws IOException, DWImageFormatException {
+    final byte[] data = this.readSector();
+    if (data != null) {
+      System.arraycopy(
+          data, 0, buffer, 0, Math.min(data.length, buffer.length)
+      );
+    }
+  }
+
+  /**
+   * Read a sector by LSN into a caller supplied buffer.
+   * <p>
+   * Formats that can address sectors directly override this to read
+   * without the disk lock and without moving the current LSN.  The
+   * default seeks and reads while holding the disk lock.
+   * </p>
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @throws DWInvalidSectorException Invalid LSN
+   * @throws DWSeekPastEndOfDeviceException Seek past end of disk
+   * @throws IOException Failed to read from file object
+   * @throws DWImageFormatException Invalid file format
+   */
+  public void readSector(final int lsn, final byte[] buffer)
+      throws DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      IOException, DWImageFormatException {
+    synchronized (this) {
+      this.seekSector(lsn);
+      this.readSector(buffer);
+    }
+  }
+
+  /**
+   * Read a run of consecutive sectors.
+   * <p>
+   * The whole run is checked before anything is read.  Each sector
+   * goes through {@link #readSector(byte[])}, so format specific
+   * handling still applies, and the disk is left positioned on the
+   * last sector of the run.
+   * </p>
+   *
+   * @param lsn    first logical sector number
+   * @param count  number of sectors
+   * @param buffer buffer of at least count sectors
+   * @throws DWInvalidSectorException invalid sector number
+   * @throws DWSeekPastEndOfDeviceException run goes past end of disk
+   * @throws IOException Failed to read from file object
+   * @throws DWImageFormatException Invalid file format
+   */
+  public void readSectors(final int lsn, final int count, final byte[] buffer)
+      throws DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      IOException, DWImageFormatException {
+    final int size = this.state.getSectorSize();
+    this.seekSector(lsn + count - 1);
+    final byte[] sector = new byte[size];
+    for (int i = 0; i < count; i++) {
+      this.seekSector(lsn + i);
+      this.readSector(sector);
+      System.arraycopy(sector, 0, buffer, i * size, size);
+    }
+  }
+
+  /**
+   * Write a run of consecutive sectors.
+   * <p>
+   * The whole run is checked before anything is written, and the disk
+   * is left positioned on the last sector of the run.
+   * </p>
+   *
+   * @param lsn    first logical sector number
+   * @param count  number of sectors
+   * @param buffer buffer holding count sectors
+   * @throws DWInvalidSectorException invalid sector number
+   * @throws DWSeekPastEndOfDeviceException run goes past end of disk
+   * @throws DWDriveWriteProtectedException Write protected
+   * @throws IOException Failed to write to file object
+   */
+  public void writeSectors(
+      final int lsn, final int count, final byte[] buffer
+  ) throws DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      DWDriveWriteProtectedException, IOException {
+    if (this.isWriteProtect()) {
+      throw new DWDriveWriteProtectedException("Disk is write protected");
+    }
+    final int size = this.state.getSectorSize();
+    this.seekSector(lsn + count - 1);
+    final byte[] sector = new byte[size];
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(buffer, i * size, sector, 0, size);
+      this.seekSector(lsn + i);
+      this.writeSector(sector);
+    }
   }
 
   /**
@@ -191,13 +313,34 @@ public abstract class DWDisk {
 
   /**
    * Get all parameters.
+   * <p>
+   * Publishes the current disk state first so callers always
+   * see up to date counters
+   * </p>
    *
    * @return map of parameters
    */
   public HierarchicalConfiguration getParams() {
+    this.state.publish();
     return this.params;
   }
 
+  /**
+   * Get typed disk state.
+   *
+   * @return disk state
+   */
+  public DWDiskState getState() {
+    return this.state;
+  }
+
+  /**
+   * Publish disk state to parameters and event listeners.
+   */
+  public void publishState() {
+    this.state.publish();
+  }
+
   /**
    * Set named parameter to value.
    *
@@ -249,7 +392,7 @@ public abstract class DWDisk {
    * @return last modified timestamp
    */
   public long getLastModifiedTime() {
-    return this.params.getLong("_last_modified", 0);
+    return this.state.getLastModified();
   }
 
   /**
@@ -267,7 +410,40 @@ public abstract class DWDisk {
    * @return sector count
    */
   public int getLSN() {
-    return this.params.getInt("_lsn", 0);
+    return this.state.getLsn();
+  }
+
+  /**
+   * Get position of current sector in the sector store.
+   *
+   * @return store LSN
+   */
+  public int getStoreLSN() {
+    return this.getStoreLSN(this.getLSN());
+  }
+
+  /**
+   * Get position of a sector in the sector store.
+   *
+   * @param lsn logical sector number
+   * @return store LSN
+   */
+  public int getStoreLSN(final int lsn) {
+    return lsn;
+  }
+
+  /**
+   * Get reload sequence.
+   * <p>
+   * Odd while a reload is replacing the sectors, and different
+   * once it is done, so lock free readers can tell whether they
+   * raced with a reload.
+   * </p>
+   *
+   * @return reload sequence
+   */
+  protected int getReloadSeq() {
+    return this.reloadSeq.get();
   }
 
   /**
@@ -288,9 +464,14 @@ public abstract class DWDisk {
   public void reload() throws IOException, DWImageFormatException {
     if (this.getFileObject() != null) {
       LOGGER.debug("reloading disk sectors from " + this.getFilePath());
-      this.sectors.clear();
-      // load from path
-      load();
+      this.reloadSeq.incrementAndGet();
+      try {
+        this.sectors.clear();
+        // load from path
+        load();
+      } finally {
+        this.reloadSeq.incrementAndGet();
+      }
     } else {
       throw new DWImageFormatException(
           "Image is in memory only, so cannot reload."
@@ -298,6 +479,73 @@ public abstract class DWDisk {
     }
   }
 
+  /**
+   * Open write journal for disk.
+   * <p>
+   * Always NOP unless overridden
+   * </p>
+   *
+   * @param file journal file
+   * @throws IOException Failed to open or replay journal
+   */
+  public void openJournal(final Path file) throws IOException {
+    // nothing to journal
+  }
+
+  /**
+   * Flag disk source as changed since it was loaded.
+   * <p>
+   * Called by the source watcher, the disk is brought back into line
+   * by {@link #refreshFromSource()}
+   * </p>
+   */
+  public void markSourceChanged() {
+    this.sourceChanged = true;
+  }
+
+  /**
+   * Has disk source changed since it was loaded.
+   *
+   * @return true if a refresh is due
+   */
+  public boolean isSourceChanged() {
+    return this.sourceChanged;
+  }
+
+  /**
+   * Bring disk into line with a changed source.
+   * <p>
+   * Reloads the disk, unless there are local changes, in which case
+   * the source is overwritten.  Caller must hold the disk lock.
+   * </p>
+   *
+   * @throws IOException Failed to read from file object
+   * @throws DWImageFormatException Invalid file format
+   */
+  public void refreshFromSource() throws IOException, DWImageFormatException {
+    if (!this.sourceChanged) {
+      return;
+    }
+    this.sourceChanged = false;
+    if (this.getDirtySectors() > 0) {
+      // doh
+      LOGGER.warn(
+          "Sync conflict on " + getFilePath()
+              + ", both the source and our cached image have changed.  "
+              + "Source will be overwritten!"
+      );
+      try {
+        this.write();
+      } catch (DWImageHasNoSourceException ignored) {
+      }
+    } else {
+      LOGGER.info(
+          "Disk source " + getFilePath() + " has changed, reloading"
+      );
+      this.reload();
+    }
+  }
+
   /**
    * Eject disk.
    * <p>
@@ -308,6 +556,7 @@ public abstract class DWDisk {
    */
   public void eject() throws IOException {
     sync();
+    this.sectors.clear();
     this.sectors = null;
     if (this.fileObj != null) {
       this.fileObj.close();
@@ -397,17 +646,17 @@ public abstract class DWDisk {
     }
     final byte[] zerofill = new byte[sectorSize];
     timeInit = System.currentTimeMillis() - timePoint;
-    for (final DWDiskSector sector : this.sectors) {
-      // we do have a sector obj
-      if (sector != null) {
+    for (int lsn = 0; lsn < this.sectors.size(); lsn++) {
+      // we do have a sector
+      if (this.sectors.isDefined(lsn)) {
         timePoint = System.currentTimeMillis();
-        final byte[] tmp = sector.getData();
+        final byte[] tmp = this.sectors.read(lsn);
         timeGetdata += System.currentTimeMillis() - timePoint;
         timePoint = System.currentTimeMillis();
         fileOutputStream.write(tmp, 0, tmp.length);
         timeWrite += System.currentTimeMillis() - timePoint;
         timePoint = System.currentTimeMillis();
-        sector.makeClean();
+        this.sectors.makeClean(lsn);
         timeClean += System.currentTimeMillis() - timePoint;
       } else {
         // we don't, write 0 filled
@@ -434,15 +683,10 @@ public abstract class DWDisk {
    * @return total dirty sectors on disk
    */
   public int getDirtySectors() {
-    int drt = 0;
     if (this.sectors != null) {
-      for (final DWDiskSector sector : this.sectors) {
-        if (sector != null && sector.isDirty()) {
-          drt++;
-        }
-      }
+      return this.sectors.getDirtyCount();
     }
-    return drt;
+    return 0;
   }
 
   /**
@@ -461,10 +705,7 @@ public abstract class DWDisk {
           "Invalid sector number: " + sectorNumber
       );
     }
-    if (this.sectors.get(sectorNumber) != null) {
-      return this.sectors.get(sectorNumber);
-    }
-    return null;
+    return this.sectors.get(sectorNumber);
   }
 
   /**
@@ -473,9 +714,7 @@ public abstract class DWDisk {
    * @return status
    */
   public boolean isWriteProtect() {
-    return this.params.getBoolean(
-        "writeprotect", DWDefs.DISK_DEFAULT_WRITEPROTECT
-    );
+    return this.state.isWriteProtect();
   }
 
   /**
@@ -507,15 +746,18 @@ public abstract class DWDisk {
    */
   public void insert(final DWDiskDrive targetDrive) {
     this.drive = targetDrive;
-    // remove any existing listeners
+    // remove any existing drive listeners
     for (final ConfigurationListener configurationListener : this.params
         .getConfigurationListeners()) {
-      this.params.removeConfigurationListener(configurationListener);
+      if (configurationListener instanceof DWDiskConfigListener) {
+        this.params.removeConfigurationListener(configurationListener);
+      }
     }
     // add for this drive
     this.params.addConfigurationListener(
         new DWDiskConfigListener(this)
     );
+    this.state.publish();
     // announce drive info to any event listeners
     final Iterator<String> itr = this.params.getKeys();
     while (itr.hasNext()) {
@@ -550,20 +792,64 @@ public abstract class DWDisk {
   }
 
   /**
-   * Get vectors to all sectors.
+   * Get sector store.
    *
    * @return disk sectors
    */
-  public Vector<DWDiskSector> getSectors() {
+  public DWSectorStore getSectors() {
     return this.sectors;
   }
 
   /**
-   * Set sector vectors.
+   * Get parsed file system structures held for this disk.
+   *
+   * @return cache, or null if none
+   */
+  public Object getFileSystemCache() {
+    return this.fileSystemCache;
+  }
+
+  /**
+   * Set parsed file system structures held for this disk.
+   * <p>
+   * Held for as long as the disk, so it is released with it
+   * </p>
+   *
+   * @param cache cache
+   */
+  public void setFileSystemCache(final Object cache) {
+    this.fileSystemCache = cache;
+  }
+
+  /**
+   * Set sector store.
    *
    * @param diskSectors disk sectors
    */
-  public void setSectors(final Vector<DWDiskSector> diskSectors) {
+  public void setSectors(final DWSectorStore diskSectors) {
     this.sectors = diskSectors;
   }
+
+  /**
+   * Swap in a new sector store while the disk is in use.
+   * <p>
+   * The reload sequence moves as it does for a reload, so lock free
+   * readers that overlap the swap read again from the new store.  The
+   * old store is cleared once it is out of use.
+   * </p>
+   *
+   * @param diskSectors new disk sectors
+   * @throws IOException failed to clear old store
+   */
+  protected void replaceSectors(final DWSectorStore diskSectors)
+      throws IOException {
+    final DWSectorStore old = this.sectors;
+    this.reloadSeq.incrementAndGet();
+    try {
+      this.sectors = diskSectors;
+      old.clear();
+    } finally {
+      this.reloadSeq.incrementAndGet();
+    }
+  }
 }
@@ -1,9 +1,13 @@
 package com.groupunix.drivewireserver.dwdisk;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.log4j.Logger;
 
+import com.groupunix.drivewireserver.DWDefs;
 import com.groupunix.drivewireserver.dwexceptions.DWDriveNotLoadedException;
 import com.groupunix.drivewireserver.dwexceptions.DWDriveWriteProtectedException;
 import com.groupunix.drivewireserver.dwexceptions.DWImageFormatException;
@@ -26,11 +30,19 @@ public class DWDiskDrive {
   /**
    * Drive loaded?.
    */
-  private boolean loaded = false;
+  private volatile boolean loaded = false;
   /**
    * Drivewire disk.
    */
-  private DWDisk dwDisk = null;
+  private volatile DWDisk dwDisk = null;
+  /**
+   * Read pattern detector, null if read-ahead is off.
+   */
+  private volatile DWDiskReadAhead readAhead = null;
+  /**
+   * Released when the startup restore of this drive is done.
+   */
+  private final CountDownLatch restored = new CountDownLatch(1);
 
   /**
    * Disk drives constructor.
@@ -43,6 +55,33 @@ public class DWDiskDrive {
     this.driveNo = driveNumber;
   }
 
+  /**
+   * Mark startup restore of this drive as done.
+   */
+  public void restoreDone() {
+    this.restored.countDown();
+  }
+
+  /**
+   * Is startup restore of this drive still running.
+   *
+   * @return true while restoring
+   */
+  public boolean isRestoring() {
+    return this.restored.getCount() > 0;
+  }
+
+  /**
+   * Wait for startup restore of this drive.
+   */
+  public void awaitRestore() {
+    try {
+      this.restored.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /**
    * Get drive number.
    *
@@ -96,8 +135,12 @@ public class DWDiskDrive {
             "Ejecting from drive " + this.getDriveNo() + ": " + e.getMessage()
         );
       }
+      if (this.dwDrives != null) {
+        this.dwDrives.getSourceWatcher().unwatch(this.dwDisk);
+      }
       this.loaded = false;
       this.dwDisk = null;
+      this.readAhead = null;
       this.submitEvent("*eject", "");
     }
   }
@@ -110,8 +153,51 @@ public class DWDiskDrive {
   public void insert(final DWDisk disk) {
     this.dwDisk = disk;
     this.loaded = true;
+    this.readAhead = null;
+    if (this.dwDrives != null) {
+      final int depth = this.dwDrives.getConfig()
+          .getInt("DiskReadAhead", DWDefs.DISK_DEFAULT_READAHEAD);
+      if (depth > 0) {
+        this.readAhead
+            = new DWDiskReadAhead(this.dwDrives.getPrefetcher(), depth);
+      }
+    }
     this.submitEvent("*insert", this.dwDisk.getFilePath());
     this.dwDisk.insert(this);
+    if (this.dwDrives != null) {
+      this.openJournal();
+      this.dwDrives.getSourceWatcher().watch(this.dwDisk);
+    }
+  }
+
+  /**
+   * Open write journal for inserted disk.
+   */
+  private void openJournal() {
+    if (!this.dwDrives.getConfig()
+        .getBoolean("DiskJournal", DWDefs.DISK_DEFAULT_JOURNAL)
+        || this.dwDisk.getFileObject() == null) {
+      return;
+    }
+    final Path file = DWDiskJournal.journalFile(
+        Paths.get(this.dwDrives.getConfig().getString(
+            "DiskJournalPath", DWDefs.DISK_DEFAULT_JOURNAL_PATH
+        )),
+        this.dwDrives.getDWProtocolHandler().getHandlerNo(),
+        this.driveNo,
+        this.dwDisk.getFilePath()
+    );
+    try {
+      this.dwDisk.openJournal(file);
+    } catch (IOException e) {
+      LOGGER.warn(
+          "Journal for drive " + this.driveNo + ": " + e.getMessage()
+      );
+    }
+    if (this.dwDisk.getDirtySectors() > 0) {
+      // recovered from journal
+      this.dwDrives.getFlusher().request();
+    }
   }
 
   /**
@@ -146,7 +232,119 @@ public class DWDiskDrive {
       throw new IOException("Disk is null");
     }
     synchronized (this.dwDisk) {
-      return this.dwDisk.readSector();
+      final byte[] data = this.dwDisk.readSector();
+      if (this.readAhead != null) {
+        this.readAhead.access(
+            this.dwDisk.getSectors(), this.dwDisk.getStoreLSN()
+        );
+      }
+      return data;
+    }
+  }
+
+  /**
+   * Read sector from disk into a caller supplied buffer.
+   *
+   * @param buffer buffer of at least one sector
+   * @throws IOException read failure
+   * @throws DWImageFormatException invalid image format
+   */
+  public void readSector(final byte[] buffer)
+      throws IOException, DWImageFormatException {
+    if (this.dwDisk == null) {
+      throw new IOException("Disk is null");
+    }
+    synchronized (this.dwDisk) {
+      this.dwDisk.readSector(buffer);
+      if (this.readAhead != null) {
+        this.readAhead.access(
+            this.dwDisk.getSectors(), this.dwDisk.getStoreLSN()
+        );
+      }
+    }
+  }
+
+  /**
+   * Read sector by LSN into a caller supplied buffer.
+   * <p>
+   * Unlike seek and read this does not hold the disk lock, so reads
+   * are not held up by writes or syncs of other sectors.  Formats that
+   * cannot read a sector directly take the lock themselves.
+   * </p>
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @throws DWDriveNotLoadedException no disk in drive
+   * @throws DWInvalidSectorException invalid sector number
+   * @throws DWSeekPastEndOfDeviceException sector past end of disk
+   * @throws IOException read failure
+   * @throws DWImageFormatException invalid image format
+   */
+  public void read(final int lsn, final byte[] buffer)
+      throws DWDriveNotLoadedException, DWInvalidSectorException,
+      DWSeekPastEndOfDeviceException, IOException, DWImageFormatException {
+    final DWDisk disk = this.dwDisk;
+    if (disk == null) {
+      throw new DWDriveNotLoadedException("No disk in drive " + this.driveNo);
+    }
+    disk.readSector(lsn, buffer);
+    final DWDiskReadAhead ahead = this.readAhead;
+    if (ahead != null) {
+      ahead.access(disk.getSectors(), disk.getStoreLSN(lsn));
+    }
+  }
+
+  /**
+   * Read a run of consecutive sectors from disk.
+   *
+   * @param lsn    first logical sector number
+   * @param count  number of sectors
+   * @param buffer buffer of at least count sectors
+   * @throws DWDriveNotLoadedException no disk in drive
+   * @throws DWInvalidSectorException invalid sector number
+   * @throws DWSeekPastEndOfDeviceException run goes past end of disk
+   * @throws IOException read failure
+   * @throws DWImageFormatException invalid image format
+   */
+  public void readSectors(final int lsn, final int count, final byte[] buffer)
+      throws DWDriveNotLoadedException, DWInvalidSectorException,
+      DWSeekPastEndOfDeviceException, IOException, DWImageFormatException {
+    if (this.dwDisk == null) {
+      throw new DWDriveNotLoadedException("No disk in drive " + this.driveNo);
+    }
+    synchronized (this.dwDisk) {
+      this.dwDisk.readSectors(lsn, count, buffer);
+      if (this.readAhead != null) {
+        this.readAhead.accessRun(
+            this.dwDisk.getSectors(), this.dwDisk.getStoreLSN(lsn), count
+        );
+      }
+    }
+  }
+
+  /**
+   * Write a run of consecutive sectors to disk.
+   *
+   * @param lsn    first logical sector number
+   * @param count  number of sectors
+   * @param buffer buffer holding count sectors
+   * @throws DWDriveNotLoadedException no disk in drive
+   * @throws DWInvalidSectorException invalid sector number
+   * @throws DWSeekPastEndOfDeviceException run goes past end of disk
+   * @throws DWDriveWriteProtectedException attempt to write to protected disk
+   * @throws IOException write failure
+   */
+  public void writeSectors(
+      final int lsn, final int count, final byte[] buffer
+  ) throws DWDriveNotLoadedException, DWInvalidSectorException,
+      DWSeekPastEndOfDeviceException, DWDriveWriteProtectedException,
+      IOException {
+    if (this.dwDisk == null) {
+      throw new DWDriveNotLoadedException("No disk in drive " + this.driveNo);
+    }
+    synchronized (this.dwDisk) {
+      this.dwDisk.writeSectors(lsn, count, buffer);
+      this.noteWrite();
     }
   }
 
@@ -164,6 +362,20 @@ public class DWDiskDrive {
     }
     synchronized (this.dwDisk) {
       this.dwDisk.writeSector(data);
+      this.noteWrite();
+    }
+  }
+
+  /**
+   * Tell the flusher about a write.
+   * <p>
+   * Disks that are not synced to their source are never flushed, so
+   * their dirty sectors do not count towards a flush
+   * </p>
+   */
+  private void noteWrite() {
+    if (this.dwDrives != null && this.dwDisk.getState().isSyncTo()) {
+      this.dwDrives.getFlusher().dirtied(this.dwDisk.getDirtySectors());
     }
   }
 
@@ -6,7 +6,8 @@ import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.configuration.HierarchicalConfiguration;
 import org.apache.commons.vfs2.FileContent;
@@ -60,6 +61,10 @@ public class DWDiskDrives {
    * Byte array size for matching LWFS.
    */
   private static final int LWFS_ARRAY_SIZE = 4;
+  /**
+   * Pool restoring drives at startup, shared by all instances.
+   */
+  private static ExecutorService restorePool;
   /**
    * Disk drives.
    */
@@ -80,6 +85,22 @@ public class DWDiskDrives {
    * HBD Dos Drive.
    */
   private int hdbdosdrive = 0;
+  /**
+   * Sector prefetch thread.
+   */
+  private final DWDiskPrefetcher prefetcher = new DWDiskPrefetcher();
+  /**
+   * Disk source change watcher.
+   */
+  private final DWDiskSourceWatcher sourceWatcher;
+  /**
+   * Write-behind flusher.
+   */
+  private final DWDiskFlusher flusher;
+  /**
+   * Held while disks are synced.
+   */
+  private final Object syncLock = new Object();
 
   /**
    * Disk Drives constructor.
@@ -92,34 +113,116 @@ public class DWDiskDrives {
     );
     this.dwProtocolHandler = protocolHandler;
     this.diskDrives = new DWDiskDrive[getMaxDrives()];
+    final Thread prefetcherT = new Thread(this.prefetcher);
+    prefetcherT.setDaemon(true);
+    prefetcherT.start();
+    this.sourceWatcher = new DWDiskSourceWatcher(
+        protocolHandler.getConfig().getLong(
+            "DiskSourcePollInterval", DWDefs.DISK_SOURCE_POLL_INTERVAL
+        )
+    );
+    final Thread sourceWatcherT = new Thread(this.sourceWatcher);
+    sourceWatcherT.setDaemon(true);
+    sourceWatcherT.start();
+    this.flusher = new DWDiskFlusher(
+        this,
+        protocolHandler.getConfig().getInt(
+            "DiskFlushDirty", DWDefs.DISK_DEFAULT_FLUSH_DIRTY
+        ),
+        protocolHandler.getConfig().getLong(
+            "DiskFlushAge", DWDefs.DISK_DEFAULT_FLUSH_AGE
+        )
+    );
+    final Thread flusherT = new Thread(this.flusher);
+    flusherT.setDaemon(true);
+    flusherT.start();
 
     for (int i = 0; i < getMaxDrives(); i++) {
       this.diskDrives[i] = new DWDiskDrive(this, i);
-
+    }
+    for (int i = 0; i < getMaxDrives(); i++) {
+      final String path
+          = protocolHandler.getConfig().getString("Drive" + i + "Path", null);
       if (!DriveWireServer.isNoMount()
           && protocolHandler.getConfig()
           .getBoolean("RestoreDrivePaths", true)
-          && protocolHandler.getConfig()
-          .getString("Drive" + i + "Path", null) != null
+          && path != null
       ) {
-        try {
-          LOGGER.debug(
-              "Restoring drive " + i + " from "
-                  + protocolHandler.getConfig().getString("Drive" + i + "Path")
-          );
-          this.loadDiskFromFile(
-              i, protocolHandler.getConfig().getString("Drive" + i + "Path")
-          );
-        } catch (DWDriveNotValidException
-                 | DWImageFormatException
-                 | IOException
-                 | DWDriveAlreadyLoadedException e
-        ) {
-          LOGGER.warn("Restoring drive " + i + ": " + e.getMessage());
-        }
+        final int driveNo = i;
+        getRestorePool().execute(() -> restoreDrive(driveNo, path));
+      } else {
+        this.diskDrives[i].restoreDone();
+      }
+    }
+
+  }
+
+  /**
+   * Get pool restoring drives at startup.
+   * <p>
+   * Shared by all instances, so images are read in parallel but no
+   * more than DiskRestoreThreads at a time
+   * </p>
+   *
+   * @return restore pool
+   */
+  private static synchronized ExecutorService getRestorePool() {
+    if (restorePool == null) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      if (DriveWireServer.getServerConfiguration() != null) {
+        threads = DriveWireServer.getServerConfiguration()
+            .getInt("DiskRestoreThreads", threads);
       }
+      restorePool = Executors.newFixedThreadPool(
+          Math.max(1, threads),
+          runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setName("diskrestore-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+          }
+      );
     }
+    return restorePool;
+  }
 
+  /**
+   * Restore drive from its saved path.
+   * <p>
+   * Runs on the restore pool.  The image is read before the drive is
+   * touched, and anything using the drive waits until this is done.
+   * </p>
+   *
+   * @param driveNo drive number
+   * @param path    image path
+   */
+  private void restoreDrive(final int driveNo, final String path) {
+    LOGGER.debug("Restoring drive " + driveNo + " from " + path);
+    try {
+      this.fsManager = VFS.getManager();
+      final FileObject fileobj = this.fsManager.resolveFile(path);
+      if (fileobj.exists() && fileobj.isReadable()) {
+        this.insertDisk(driveNo, DWDiskDrives.diskFromFile(fileobj));
+      } else {
+        LOGGER.warn("Restoring drive " + driveNo + ": unreadable path");
+      }
+    } catch (DWImageFormatException | IOException e) {
+      LOGGER.warn("Restoring drive " + driveNo + ": " + e.getMessage());
+    } finally {
+      this.diskDrives[driveNo].restoreDone();
+    }
+  }
+
+  /**
+   * Get drive once its startup restore is done.
+   *
+   * @param driveNumber drive number
+   * @return disk drive
+   */
+  private DWDiskDrive drive(final int driveNumber) {
+    final DWDiskDrive drive = this.diskDrives[driveNumber];
+    drive.awaitRestore();
+    return drive;
   }
 
   /**
@@ -166,6 +269,45 @@ public class DWDiskDrives {
       );
     }
 
+    final DWImageIndexEntry known
+        = DriveWireServer.getImageIndex().lookup(fileobj);
+    final int format;
+    if (known != null && known.getFormat() != DWImageIndexEntry.UNKNOWN) {
+      format = known.getFormat();
+    } else {
+      format = detectFormat(content, fObjSize);
+      final DWImageIndexEntry entry
+          = DriveWireServer.getImageIndex().entry(fileobj);
+      if (entry != null) {
+        entry.setFormat(format);
+        DriveWireServer.getImageIndex().changed();
+      }
+    }
+    return switch (format) {
+      case DWDefs.DISK_FORMAT_DMK -> new DWDMKDisk(fileobj);
+      case DWDefs.DISK_FORMAT_VDK -> new DWVDKDisk(fileobj);
+      case DWDefs.DISK_FORMAT_JVC -> new DWJVCDisk(fileobj);
+      case DWDefs.DISK_FORMAT_CCB -> new DWCCBDisk(fileobj);
+      case DWDefs.DISK_FORMAT_RAW -> new DWRawDisk(fileobj,
+          DWDefs.DISK_SECTORSIZE,
+          DWDefs.DISK_MAXSECTORS,
+          forcecache);
+      default -> throw new DWImageFormatException("Unsupported image format");
+    };
+  }
+
+  /**
+   * Identify disk format from image header.
+   *
+   * @param content  image content
+   * @param fObjSize image size
+   * @return disk format
+   * @throws DWImageFormatException no single format claims the image
+   * @throws IOException            read failure
+   */
+  private static int detectFormat(
+      final FileContent content, final long fObjSize
+  ) throws DWImageFormatException, IOException {
     // get header
     final int hdrSize
         = (int) Math.min(DWDefs.DISK_IMAGE_HEADER_SIZE, fObjSize);
@@ -192,18 +334,68 @@ public class DWDiskDrives {
         DWJVCDisk.considerImage(header, fObjSize));
     votes.put(DWDefs.DISK_FORMAT_CCB,
         DWCCBDisk.considerImage(header, fObjSize));
-    final int format = getBestFormat(votes);
-    return switch (format) {
-      case DWDefs.DISK_FORMAT_DMK -> new DWDMKDisk(fileobj);
-      case DWDefs.DISK_FORMAT_VDK -> new DWVDKDisk(fileobj);
-      case DWDefs.DISK_FORMAT_JVC -> new DWJVCDisk(fileobj);
-      case DWDefs.DISK_FORMAT_CCB -> new DWCCBDisk(fileobj);
-      case DWDefs.DISK_FORMAT_RAW -> new DWRawDisk(fileobj,
-          DWDefs.DISK_SECTORSIZE,
-          DWDefs.DISK_MAXSECTORS,
-          forcecache);
-      default -> throw new DWImageFormatException("Unsupported image format");
-    };
+    return getBestFormat(votes);
+  }
+
+  /**
+   * Identify an image source without loading it.
+   * <p>
+   * The format is worked out from the image header and, for raw
+   * images, the file system from the sectors that identify it, and
+   * both are recorded in the image index.  The source is only read
+   * through streams of its own, so a file object shared with a
+   * mounted disk is left open.
+   * </p>
+   *
+   * @param fileobj image source
+   * @throws DWImageFormatException invalid disk image
+   * @throws IOException            read failure
+   */
+  public static void identify(final FileObject fileobj)
+      throws DWImageFormatException, IOException {
+    final FileContent content = fileobj.getContent();
+    final long fObjSize = content.getSize();
+    if (fObjSize > Integer.MAX_VALUE) {
+      throw new DWImageFormatException(
+          "Image too big, maximum size is " + Integer.MAX_VALUE + " bytes."
+      );
+    }
+    final DWImageIndex index = DriveWireServer.getImageIndex();
+    final DWImageIndexEntry entry = index.entry(fileobj);
+    if (entry == null) {
+      return;
+    }
+    if (entry.getFormat() == DWImageIndexEntry.UNKNOWN) {
+      entry.setFormat(detectFormat(content, fObjSize));
+      index.changed();
+    }
+    if (entry.getFormat() != DWDefs.DISK_FORMAT_RAW
+        || entry.getFileSystem() != DWImageIndexEntry.UNKNOWN) {
+      return;
+    }
+    final int sectors = (int) (fObjSize / DWDefs.DISK_SECTORSIZE);
+    // only a disk of exactly this size can hold DECB, others
+    // are identified by sector 0 alone
+    final int wanted;
+    if (sectors == DWDECBFileSystem.MAX_SECTORS) {
+      wanted = sectors;
+    } else {
+      wanted = Math.min(sectors, 1);
+    }
+    final DWRawDisk probe
+        = new DWRawDisk(DWDefs.DISK_SECTORSIZE, DWDefs.DISK_MAXSECTORS);
+    final byte[] buf = new byte[DWDefs.DISK_SECTORSIZE];
+    try (InputStream inputStream = content.getInputStream()) {
+      for (int lsn = 0; lsn < wanted; lsn++) {
+        if (inputStream.readNBytes(buf, 0, buf.length) < buf.length) {
+          throw new IOException("Image shorter than its size");
+        }
+        probe.getSectors().write(lsn, buf, false);
+      }
+    }
+    entry.setSectors(sectors);
+    entry.setFileSystem(getDiskFSType(probe.getSectors()));
+    index.changed();
   }
 
   /**
@@ -248,33 +440,67 @@ public class DWDiskDrives {
     return DWDefs.DISK_FORMAT_NONE;
   }
 
+  /**
+   * Get filesystem type of disk loaded from an image source.
+   * <p>
+   * Uses the image index when the source is unchanged since it was
+   * last examined, and records the answer otherwise
+   * </p>
+   *
+   * @param fileobj image source, may be null
+   * @param sectors disk sectors
+   * @return file system
+   */
+  public static int getDiskFSType(
+      final FileObject fileobj, final DWSectorStore sectors
+  ) {
+    if (fileobj == null) {
+      return getDiskFSType(sectors);
+    }
+    final DWImageIndex index = DriveWireServer.getImageIndex();
+    final DWImageIndexEntry known = index.lookup(fileobj);
+    if (known != null
+        && known.getFileSystem() != DWImageIndexEntry.UNKNOWN
+        && known.getSectors() == sectors.size()) {
+      return known.getFileSystem();
+    }
+    final int fsType = getDiskFSType(sectors);
+    final DWImageIndexEntry entry = index.entry(fileobj);
+    if (entry != null) {
+      entry.setSectors(sectors.size());
+      entry.setFileSystem(fsType);
+      index.changed();
+    }
+    return fsType;
+  }
+
   /**
    * Get filesystem type of disk.
    *
    * @param sectors disk sectors
    * @return file system
    */
-  public static int getDiskFSType(final Vector<DWDiskSector> sectors) {
+  public static int getDiskFSType(final DWSectorStore sectors) {
     try {
-      if (!sectors.isEmpty()) {
+      if (sectors.size() > 0) {
+        final byte[] sector0 = sectors.read(0);
         // OS9 ?
         if (
-            sectors.get(0).getData()[OS9_OFFSET1] == OS9_DATA_MATCH
-                && sectors.get(0).getData()[OS9_OFFSET2] == OS9_DATA_MATCH
-                && sectors.get(0).getData()[OS9_OFFSET3] == OS9_DATA_MATCH
+            sector0[OS9_OFFSET1] == OS9_DATA_MATCH
+                && sector0[OS9_OFFSET2] == OS9_DATA_MATCH
+                && sector0[OS9_OFFSET3] == OS9_DATA_MATCH
         ) {
           return DWDefs.DISK_FILESYSTEM_OS9;
         }
         // LWFS
         final byte[] lwfs = new byte[LWFS_ARRAY_SIZE];
-        System.arraycopy(sectors.get(0).getData(), 0, lwfs, 0, lwfs.length);
+        System.arraycopy(sector0, 0, lwfs, 0, lwfs.length);
         if (new String(lwfs, DWDefs.ENCODING).equals("LWFS")
             || new String(lwfs, DWDefs.ENCODING).equals("LW16")) {
           return DWDefs.DISK_FILESYSTEM_LWFS;
         }
         // TODO - outdated? cocoboot isave
-        if (sectors.get(0).getData()[0]
-            == (byte) 'f' && sectors.get(0).getData()[1] == (byte) 'c') {
+        if (sector0[0] == (byte) 'f' && sector0[1] == (byte) 'c') {
           return DWDefs.DISK_FILESYSTEM_CCB;
         }
         // DECB? no 100% sure way that i know of
@@ -310,7 +536,7 @@ public class DWDiskDrives {
           ) - 1)
       );
     }
-    return diskDrives[driveNumber].getDisk();
+    return drive(driveNumber).getDisk();
   }
 
   /**
@@ -329,10 +555,10 @@ public class DWDiskDrives {
       DWDriveWriteProtectedException,
       IOException {
     int driveNo = driveNumber;
-    if (dwProtocolHandler.getConfig().getBoolean("HDBDOSMode", false)) {
+    if (dwProtocolHandler.getSettings().isHDBDOSMode()) {
       driveNo = this.hdbdosdrive;
     }
-    this.diskDrives[driveNo].writeSector(data);
+    drive(driveNo).writeSector(data);
   }
 
   /**
@@ -351,10 +577,121 @@ public class DWDiskDrives {
       IOException,
       DWImageFormatException {
     int driveNo = driveNumber;
-    if (dwProtocolHandler.getConfig().getBoolean("HDBDOSMode", false)) {
+    if (dwProtocolHandler.getSettings().isHDBDOSMode()) {
       driveNo = this.hdbdosdrive;
     }
-    return this.diskDrives[driveNo].readSector();
+    return drive(driveNo).readSector();
+  }
+
+  /**
+   * Read current sector for given drive into a caller supplied buffer.
+   *
+   * @param driveNumber drive number
+   * @param buffer      buffer of at least one sector
+   * @throws DWDriveNotLoadedException drive not loaded
+   * @throws DWDriveNotValidException invalid drive
+   * @throws IOException read failure
+   * @throws DWImageFormatException invalid disk image format
+   */
+  public void readSector(final int driveNumber, final byte[] buffer)
+      throws DWDriveNotLoadedException,
+      DWDriveNotValidException,
+      IOException,
+      DWImageFormatException {
+    int driveNo = driveNumber;
+    if (dwProtocolHandler.getSettings().isHDBDOSMode()) {
+      driveNo = this.hdbdosdrive;
+    }
+    drive(driveNo).readSector(buffer);
+  }
+
+  /**
+   * Read sector by LSN from given drive into a caller supplied buffer.
+   * <p>
+   * Does not hold the disk lock or move the drive's current sector,
+   * see {@link DWDiskDrive#read(int, byte[])}.  HDB-DOS mode maps the
+   * LSN to a drive and sector as a seek would.
+   * </p>
+   *
+   * @param driveNumber drive number
+   * @param lsn         logical sector number
+   * @param buffer      buffer of at least one sector
+   * @throws DWDriveNotLoadedException drive not loaded
+   * @throws DWDriveNotValidException invalid drive
+   * @throws DWInvalidSectorException invalid sector
+   * @throws DWSeekPastEndOfDeviceException sector past end of disk
+   * @throws IOException read failure
+   * @throws DWImageFormatException invalid disk image format
+   */
+  public void read(final int driveNumber, final int lsn, final byte[] buffer)
+      throws DWDriveNotLoadedException, DWDriveNotValidException,
+      DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      IOException, DWImageFormatException {
+    if (dwProtocolHandler.getSettings().isHDBDOSMode()) {
+      drive(lsn / SECTORS_PER_DRIVE).read(lsn % SECTORS_PER_DRIVE, buffer);
+    } else {
+      drive(driveNumber).read(lsn, buffer);
+    }
+  }
+
+  /**
+   * Read a run of consecutive sectors from given drive.
+   * <p>
+   * Streaming ops are only negotiated by OS-9 drivers, so there is
+   * no HDB-DOS drive mapping here
+   * </p>
+   *
+   * @param driveNumber drive number
+   * @param lsn         first logical sector number
+   * @param count       number of sectors
+   * @param buffer      buffer of at least count sectors
+   * @throws DWDriveNotLoadedException drive not loaded
+   * @throws DWDriveNotValidException invalid drive
+   * @throws DWInvalidSectorException invalid sector
+   * @throws DWSeekPastEndOfDeviceException run goes past end of disk
+   * @throws IOException read failure
+   * @throws DWImageFormatException invalid disk image format
+   */
+  public void readSectors(
+      final int driveNumber, final int lsn, final int count,
+      final byte[] buffer
+  ) throws DWDriveNotLoadedException, DWDriveNotValidException,
+      DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      IOException, DWImageFormatException {
+    if (!isDriveNo(driveNumber)) {
+      throw new DWDriveNotValidException(
+          "Invalid drive number " + driveNumber
+      );
+    }
+    drive(driveNumber).readSectors(lsn, count, buffer);
+  }
+
+  /**
+   * Write a run of consecutive sectors to given drive.
+   *
+   * @param driveNumber drive number
+   * @param lsn         first logical sector number
+   * @param count       number of sectors
+   * @param buffer      buffer holding count sectors
+   * @throws DWDriveNotLoadedException drive not loaded
+   * @throws DWDriveNotValidException invalid drive
+   * @throws DWInvalidSectorException invalid sector
+   * @throws DWSeekPastEndOfDeviceException run goes past end of disk
+   * @throws DWDriveWriteProtectedException disk is write protected
+   * @throws IOException write failure
+   */
+  public void writeSectors(
+      final int driveNumber, final int lsn, final int count,
+      final byte[] buffer
+  ) throws DWDriveNotLoadedException, DWDriveNotValidException,
+      DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      DWDriveWriteProtectedException, IOException {
+    if (!isDriveNo(driveNumber)) {
+      throw new DWDriveNotValidException(
+          "Invalid drive number " + driveNumber
+      );
+    }
+    drive(driveNumber).writeSectors(lsn, count, buffer);
   }
 
   /**
@@ -374,7 +711,7 @@ public class DWDiskDrives {
       DWSeekPastEndOfDeviceException {
     int newdriveno = driveNumber;
     int newlsn = lsn;
-    if (dwProtocolHandler.getConfig().getBoolean("HDBDOSMode", false)) {
+    if (dwProtocolHandler.getSettings().isHDBDOSMode()) {
       // every 630 sectors is drive, lsn to remainder
       newdriveno = lsn / SECTORS_PER_DRIVE;
       newlsn = lsn % SECTORS_PER_DRIVE;
@@ -388,7 +725,7 @@ public class DWDiskDrives {
       }
       this.hdbdosdrive = newdriveno;
     }
-    this.diskDrives[newdriveno].seekSector(newlsn);
+    drive(newdriveno).seekSector(newlsn);
   }
 
   /**
@@ -455,7 +792,7 @@ public class DWDiskDrives {
    */
   public void ejectDisk(final int driveNumber)
       throws DWDriveNotValidException, DWDriveNotLoadedException {
-    diskDrives[driveNumber].eject();
+    drive(driveNumber).eject();
     if (dwProtocolHandler
         .getConfig()
         .getBoolean("SaveDrivePaths", true)
@@ -555,6 +892,17 @@ public class DWDiskDrives {
    */
   public void loadDisk(final int driveno, final DWDisk disk)
       throws DWDriveNotValidException, DWDriveAlreadyLoadedException {
+    drive(driveno);
+    this.insertDisk(driveno, disk);
+  }
+
+  /**
+   * Put disk in given drive without waiting for the drive's restore.
+   *
+   * @param driveno drive number
+   * @param disk    disk object
+   */
+  private void insertDisk(final int driveno, final DWDisk disk) {
     // eject existing disk if necessary
     if (this.isLoaded(driveno)) {
       try {
@@ -584,18 +932,7 @@ public class DWDiskDrives {
    * @return empty sector
    */
   public byte[] nullSector() {
-    byte[] tmp = new byte[dwProtocolHandler
-        .getConfig()
-        .getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)];
-    for (int i = 0;
-         i < dwProtocolHandler.getConfig().getInt(
-             "DiskSectorSize", DWDefs.DISK_SECTORSIZE
-         );
-         i++
-    ) {
-      tmp[i] = (byte) 0;
-    }
-    return tmp;
+    return new byte[dwProtocolHandler.getSettings().getSectorSize()];
   }
 
   /**
@@ -604,22 +941,70 @@ public class DWDiskDrives {
   public void shutdown() {
     LOGGER.debug("shutting down");
     // sync all disks
+    this.flusher.shutdown();
     sync();
+    this.prefetcher.shutdown();
+    this.sourceWatcher.shutdown();
+  }
+
+  /**
+   * Get sector prefetch thread.
+   *
+   * @return prefetcher
+   */
+  public DWDiskPrefetcher getPrefetcher() {
+    return this.prefetcher;
+  }
+
+  /**
+   * Get disk source change watcher.
+   *
+   * @return source watcher
+   */
+  public DWDiskSourceWatcher getSourceWatcher() {
+    return this.sourceWatcher;
+  }
+
+  /**
+   * Get write-behind flusher.
+   *
+   * @return flusher
+   */
+  public DWDiskFlusher getFlusher() {
+    return this.flusher;
   }
 
   /**
    * Sync all loaded drives.
    */
   public void sync() {
+    synchronized (this.syncLock) {
+      for (int driveno = 0; driveno < getMaxDrives(); driveno++) {
+        if (isLoaded(driveno)) {
+          try {
+            getDisk(driveno).sync();
+          } catch (DWDriveNotLoadedException
+                   | IOException
+                   | DWDriveNotValidException e
+          ) {
+            LOGGER.warn(e.getMessage());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Publish state of all loaded drives.
+   */
+  public void publishState() {
     for (int driveno = 0; driveno < getMaxDrives(); driveno++) {
       if (isLoaded(driveno)) {
         try {
-          getDisk(driveno).sync();
+          getDisk(driveno).publishState();
         } catch (DWDriveNotLoadedException
-                 | IOException
-                 | DWDriveNotValidException e
-        ) {
-          LOGGER.warn(e.getMessage());
+                 | DWDriveNotValidException ignored) {
+          // ejected while we were looking
         }
       }
     }
@@ -643,7 +1028,7 @@ public class DWDiskDrives {
    */
   public int getFreeDriveNo() {
     int res = getMaxDrives() - 1;
-    while (isLoaded(res) && res > 0) {
+    while ((isLoaded(res) || this.diskDrives[res].isRestoring()) && res > 0) {
       res--;
     }
     return res;
@@ -721,7 +1106,7 @@ public class DWDiskDrives {
    */
   public void createDisk(final int driveNumber)
       throws DWDriveAlreadyLoadedException {
-    if (this.isLoaded(driveNumber)) {
+    if (drive(driveNumber).isLoaded()) {
       throw new DWDriveAlreadyLoadedException(
           "Already a disk in drive " + driveNumber
       );
@@ -780,7 +1165,7 @@ public class DWDiskDrives {
         try {
           if (
               this.diskDrives[i] != null
-                  && this.diskDrives[i].isLoaded()
+                  && drive(i).isLoaded()
                   && (this.diskDrives[i].getDisk().getFilePath().equals(objPath)
                   || this.diskDrives[i].getDisk()
                   .getFilePath().equals(fileobj.getName().getFriendlyURI())
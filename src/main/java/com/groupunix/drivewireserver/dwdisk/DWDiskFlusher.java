@@ -0,0 +1,127 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Write-behind flusher for an instance's disk drives.
+ * <p>
+ * Drives report each sector write, and the flusher syncs the disks
+ * once enough sectors are dirty or the oldest unflushed write reaches
+ * its maximum age, whichever comes first.  The protocol thread never
+ * waits for a flush.
+ * </p>
+ */
+public class DWDiskFlusher implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWDiskFlusher");
+  /**
+   * Disk drives to flush.
+   */
+  private final DWDiskDrives diskDrives;
+  /**
+   * Dirty sector count that triggers an immediate flush.
+   */
+  private final int dirtyThreshold;
+  /**
+   * Maximum age of an unflushed write (millis).
+   */
+  private final long maxAge;
+  /**
+   * Time of oldest unflushed write, 0 if none.
+   */
+  private long oldestDirty = 0;
+  /**
+   * Flush wanted now.
+   */
+  private boolean urgent = false;
+  /**
+   * Thread waiting to die.
+   */
+  private boolean wantToDie = false;
+
+  /**
+   * Disk flusher constructor.
+   *
+   * @param drives    disk drives to flush
+   * @param threshold dirty sector count that triggers a flush
+   * @param age       maximum age of an unflushed write (millis)
+   */
+  public DWDiskFlusher(
+      final DWDiskDrives drives, final int threshold, final long age
+  ) {
+    this.diskDrives = drives;
+    this.dirtyThreshold = threshold;
+    this.maxAge = age;
+  }
+
+  /**
+   * Note a sector write.
+   *
+   * @param dirtyCount dirty sectors now held by the disk
+   */
+  public synchronized void dirtied(final int dirtyCount) {
+    if (this.oldestDirty == 0) {
+      this.oldestDirty = System.currentTimeMillis();
+      notifyAll();
+    }
+    if (dirtyCount >= this.dirtyThreshold && !this.urgent) {
+      this.urgent = true;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Request a flush now.
+   */
+  public synchronized void request() {
+    this.urgent = true;
+    notifyAll();
+  }
+
+  /**
+   * Shutdown.
+   */
+  public synchronized void shutdown() {
+    this.wantToDie = true;
+    notifyAll();
+  }
+
+  /**
+   * Run thread.
+   */
+  public void run() {
+    Thread.currentThread().setName(
+        "diskflush-" + Thread.currentThread().getId()
+    );
+    try {
+      while (true) {
+        synchronized (this) {
+          while (!this.urgent && !this.wantToDie) {
+            if (this.oldestDirty == 0) {
+              wait();
+            } else {
+              final long due = this.oldestDirty + this.maxAge
+                  - System.currentTimeMillis();
+              if (due <= 0) {
+                break;
+              }
+              wait(due);
+            }
+          }
+          if (this.wantToDie) {
+            break;
+          }
+          this.urgent = false;
+          this.oldestDirty = 0;
+        }
+        this.diskDrives.sync();
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted");
+    }
+    LOGGER.debug("exit");
+  }
+}
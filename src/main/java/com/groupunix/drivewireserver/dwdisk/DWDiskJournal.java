@@ -0,0 +1,344 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Append only journal of sector writes for a cached disk.
+ * <p>
+ * Every sector written by the CoCo is appended to the journal as soon
+ * as it arrives, so it survives the server process going down before
+ * the flusher has written it back to the image source.  Appends are
+ * left to the OS and only forced out when the disk is synced, so
+ * writes made since the last sync can still be lost with the power.
+ * Records carry a checksum, and replay stops at the first record that
+ * is incomplete or damaged.
+ * </p>
+ * <p>
+ * The header records the size and modification time of the source as
+ * last written by the server.  A journal whose source has changed
+ * since, for instance edited after a crash, is not replayed over it
+ * but set aside next to the journal file.
+ * </p>
+ */
+public class DWDiskJournal {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWDiskJournal");
+  /**
+   * Journal file signature ("DWJ2").
+   */
+  private static final int MAGIC = 0x44574A32;
+  /**
+   * Header length: signature, sector size, source size and source
+   * modification time.
+   */
+  private static final int HEADER_LEN = 24;
+  /**
+   * Suffix of a journal set aside because its source changed.
+   */
+  private static final String STALE_SUFFIX = ".stale";
+  /**
+   * Record overhead: LSN and checksum.
+   */
+  private static final int RECORD_OVERHEAD = 8;
+  /**
+   * Mask for unsigned checksum.
+   */
+  private static final long CRC_MASK = 0xFFFFFFFFL;
+
+  /**
+   * Journal file.
+   */
+  private final Path path;
+  /**
+   * Sector size.
+   */
+  private final int sectorSize;
+  /**
+   * Journal file channel.
+   */
+  private FileChannel channel;
+  /**
+   * Record being written or read.
+   */
+  private final ByteBuffer record;
+  /**
+   * Record checksum.
+   */
+  private final CRC32 crc = new CRC32();
+  /**
+   * Records appended since last force.
+   */
+  private boolean unforced = false;
+  /**
+   * Source size when last written by the server.
+   */
+  private long sourceSize;
+  /**
+   * Source modification time when last written by the server.
+   */
+  private long sourceModified;
+
+  /**
+   * Disk journal constructor.
+   * <p>
+   * An existing journal is kept for {@link #replay}
+   * </p>
+   *
+   * @param file journal file
+   * @param size sector size
+   * @throws IOException failed to open journal
+   */
+  public DWDiskJournal(final Path file, final int size) throws IOException {
+    this.path = file;
+    this.sectorSize = size;
+    this.record = ByteBuffer.allocate(size + RECORD_OVERHEAD);
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    this.channel = FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+    );
+  }
+
+  /**
+   * Get journal file for an image in a drive.
+   *
+   * @param dir     journal directory
+   * @param handler handler number
+   * @param drive   drive number
+   * @param source  image source path
+   * @return journal file
+   */
+  public static Path journalFile(
+      final Path dir, final int handler, final int drive, final String source
+  ) {
+    return dir.resolve(
+        "h" + handler + "-d" + drive + "-"
+            + UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8))
+            + ".jnl"
+    );
+  }
+
+  /**
+   * Get journal file.
+   *
+   * @return journal path
+   */
+  public Path getPath() {
+    return this.path;
+  }
+
+  /**
+   * Note the state of the source as last written by the server.
+   * <p>
+   * Records already appended are from after that state, so the header
+   * is brought up to date as well
+   * </p>
+   *
+   * @param size     source size
+   * @param modified source modification time
+   * @throws IOException failed to write journal
+   */
+  public synchronized void setSource(final long size, final long modified)
+      throws IOException {
+    this.sourceSize = size;
+    this.sourceModified = modified;
+    // a journal not yet replayed keeps the header it was written with
+    if (this.channel.position() > 0) {
+      this.writeHeader();
+      this.unforced = true;
+    }
+  }
+
+  /**
+   * Apply journalled writes to a sector store.
+   * <p>
+   * Recovered sectors are tagged dirty.  Anything after the last
+   * good record is discarded, as is a journal for another sector size.
+   * A journal for a source other than the one set by
+   * {@link #setSource} is set aside rather than replayed.
+   * </p>
+   *
+   * @param store sector store
+   * @return number of sectors recovered
+   * @throws IOException failed to read journal
+   */
+  public synchronized int replay(final DWSectorStore store)
+      throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+    this.channel.read(header, 0);
+    header.flip();
+    if (header.remaining() < HEADER_LEN
+        || header.getInt() != MAGIC
+        || header.getInt() != this.sectorSize) {
+      this.reset();
+      return 0;
+    }
+    if (header.getLong() != this.sourceSize
+        || header.getLong() != this.sourceModified) {
+      this.setAside();
+      return 0;
+    }
+    final byte[] data = new byte[this.sectorSize];
+    long pos = HEADER_LEN;
+    int recovered = 0;
+    while (true) {
+      this.record.clear();
+      int got = 0;
+      while (this.record.hasRemaining() && got >= 0) {
+        got = this.channel.read(this.record, pos + this.record.position());
+      }
+      if (this.record.hasRemaining()) {
+        break;
+      }
+      this.record.flip();
+      final int lsn = this.record.getInt();
+      this.record.get(data);
+      this.crc.reset();
+      this.crc.update(this.record.array(), 0, Integer.BYTES + this.sectorSize);
+      if ((this.record.getInt() & CRC_MASK) != this.crc.getValue()
+          || lsn < 0) {
+        LOGGER.warn("Damaged record in journal " + this.path);
+        break;
+      }
+      store.write(lsn, data, true);
+      recovered++;
+      pos += this.record.limit();
+    }
+    this.channel.truncate(pos);
+    this.channel.position(pos);
+    return recovered;
+  }
+
+  /**
+   * Append sector write to journal.
+   *
+   * @param lsn  logical sector number
+   * @param data sector bytes
+   * @throws IOException failed to write journal
+   */
+  public synchronized void append(final int lsn, final byte[] data)
+      throws IOException {
+    if (this.channel.position() == 0) {
+      this.writeHeader();
+      this.channel.position(HEADER_LEN);
+    }
+    this.record.clear();
+    this.record.putInt(lsn);
+    this.record.put(data, 0, this.sectorSize);
+    this.crc.reset();
+    this.crc.update(this.record.array(), 0, this.record.position());
+    this.record.putInt((int) this.crc.getValue());
+    this.record.flip();
+    while (this.record.hasRemaining()) {
+      this.channel.write(this.record);
+    }
+    this.unforced = true;
+  }
+
+  /**
+   * Force appended records out to the device.
+   *
+   * @throws IOException failed to force journal
+   */
+  public synchronized void force() throws IOException {
+    if (this.unforced) {
+      this.channel.force(false);
+      this.unforced = false;
+    }
+  }
+
+  /**
+   * Empty the journal.
+   * <p>
+   * Only safe once every journalled sector has reached the source
+   * </p>
+   *
+   * @throws IOException failed to truncate journal
+   */
+  public synchronized void reset() throws IOException {
+    if (this.channel.size() > 0) {
+      this.channel.truncate(0);
+      this.channel.force(false);
+    }
+    this.channel.position(0);
+    this.unforced = false;
+  }
+
+  /**
+   * Close journal.
+   *
+   * @param delete remove the journal file as well
+   * @throws IOException failed to close or delete journal
+   */
+  public synchronized void close(final boolean delete) throws IOException {
+    if (this.channel == null) {
+      return;
+    }
+    if (!delete) {
+      this.force();
+    }
+    this.channel.close();
+    this.channel = null;
+    if (delete) {
+      Files.deleteIfExists(this.path);
+    }
+  }
+
+  /**
+   * Move journal aside, as its source has changed since it was written.
+   *
+   * @throws IOException failed to move or reopen journal
+   */
+  private void setAside() throws IOException {
+    final Path stale
+        = this.path.resolveSibling(this.path.getFileName() + STALE_SUFFIX);
+    LOGGER.warn(
+        "Source changed since journal " + this.path
+            + " was written, not replaying it, kept as " + stale
+    );
+    this.channel.close();
+    Files.move(this.path, stale, StandardCopyOption.REPLACE_EXISTING);
+    this.channel = FileChannel.open(
+        this.path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+    );
+  }
+
+  /**
+   * Write journal header at start of file.
+   *
+   * @throws IOException failed to write journal
+   */
+  private void writeHeader() throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+    header.putInt(MAGIC);
+    header.putInt(this.sectorSize);
+    header.putLong(this.sourceSize);
+    header.putLong(this.sourceModified);
+    header.flip();
+    int pos = 0;
+    while (header.hasRemaining()) {
+      pos += this.channel.write(header, pos);
+    }
+  }
+}
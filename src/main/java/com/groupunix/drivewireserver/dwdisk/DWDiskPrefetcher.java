@@ -0,0 +1,119 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.util.ArrayDeque;
+
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+/**
+ * Background sector prefetch for an instance's disk drives.
+ * <p>
+ * Drives that spot a sequential read pattern queue the sectors they
+ * expect to need next, and this thread asks the sector store to bring
+ * them into memory before the protocol thread gets there.  Requests
+ * are only hints: when the queue is full new requests are dropped.
+ * </p>
+ */
+public class DWDiskPrefetcher implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWDiskPrefetcher");
+  /**
+   * Pending requests.
+   */
+  private final ArrayDeque<Request> queue = new ArrayDeque<>();
+  /**
+   * Thread waiting to die.
+   */
+  private boolean wantToDie = false;
+
+  /**
+   * Queue a range of sectors for prefetch.
+   *
+   * @param store   sector store
+   * @param fromLsn first LSN in range
+   * @param count   number of sectors in range
+   */
+  public synchronized void request(
+      final DWSectorStore store, final int fromLsn, final int count
+  ) {
+    if (this.wantToDie
+        || this.queue.size() >= DWDefs.DISK_PREFETCH_QUEUE_SIZE) {
+      return;
+    }
+    this.queue.addLast(new Request(store, fromLsn, count));
+    notifyAll();
+  }
+
+  /**
+   * Shutdown.
+   */
+  public synchronized void shutdown() {
+    this.wantToDie = true;
+    this.queue.clear();
+    notifyAll();
+  }
+
+  /**
+   * Run thread.
+   */
+  public void run() {
+    Thread.currentThread().setName(
+        "diskprefetch-" + Thread.currentThread().getId()
+    );
+    try {
+      while (true) {
+        final Request req;
+        synchronized (this) {
+          while (this.queue.isEmpty() && !this.wantToDie) {
+            wait();
+          }
+          if (this.wantToDie) {
+            break;
+          }
+          req = this.queue.removeFirst();
+        }
+        req.store.prefetch(req.fromLsn, req.count);
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted");
+    }
+    LOGGER.debug("exit");
+  }
+
+  /**
+   * Range of sectors to prefetch.
+   */
+  private static final class Request {
+    /**
+     * Sector store.
+     */
+    private final DWSectorStore store;
+    /**
+     * First LSN in range.
+     */
+    private final int fromLsn;
+    /**
+     * Number of sectors in range.
+     */
+    private final int count;
+
+    /**
+     * Prefetch request constructor.
+     *
+     * @param sectorStore sector store
+     * @param first       first LSN in range
+     * @param sectors     number of sectors in range
+     */
+    private Request(
+        final DWSectorStore sectorStore, final int first, final int sectors
+    ) {
+      this.store = sectorStore;
+      this.fromLsn = first;
+      this.count = sectors;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+/**
+ * Read pattern detector for a single drive.
+ * <p>
+ * Watches the LSNs read from a drive and, once the same small forward
+ * step has been seen a few times in a row, keeps a window of sectors
+ * ahead of the reader queued for prefetch.  The window never extends
+ * more than depth steps past the current sector, and any read that
+ * breaks the pattern cancels the run.
+ * </p>
+ */
+public class DWDiskReadAhead {
+  /**
+   * Prefetch thread.
+   */
+  private final DWDiskPrefetcher prefetcher;
+  /**
+   * Window size in steps.
+   */
+  private final int depth;
+  /**
+   * Last LSN read.
+   */
+  private int lastLsn = -1;
+  /**
+   * Step between recent reads.
+   */
+  private int stride = 0;
+  /**
+   * Number of consecutive reads with the same step.
+   */
+  private int run = 0;
+  /**
+   * End of range already queued (exclusive).
+   */
+  private int prefetchedTo = 0;
+
+  /**
+   * Read-ahead constructor.
+   *
+   * @param diskPrefetcher prefetch thread
+   * @param windowDepth    window size in steps
+   */
+  public DWDiskReadAhead(
+      final DWDiskPrefetcher diskPrefetcher, final int windowDepth
+  ) {
+    this.prefetcher = diskPrefetcher;
+    this.depth = windowDepth;
+  }
+
+  /**
+   * Record a sector read.
+   *
+   * @param store sector store read from
+   * @param lsn   store LSN that was read
+   */
+  public synchronized void access(final DWSectorStore store, final int lsn) {
+    final int step = lsn - this.lastLsn;
+    this.lastLsn = lsn;
+    if (step <= 0 || step > DWDefs.DISK_READAHEAD_MAX_STRIDE) {
+      this.reset();
+      this.lastLsn = lsn;
+      return;
+    }
+    if (step == this.stride) {
+      this.run++;
+    } else {
+      this.stride = step;
+      this.run = 1;
+      this.prefetchedTo = 0;
+    }
+    if (this.run < DWDefs.DISK_READAHEAD_TRIGGER) {
+      return;
+    }
+    final int window = this.stride * this.depth;
+    final int windowEnd = lsn + window + 1;
+    final int from = Math.max(this.prefetchedTo, lsn + 1);
+    // top up once half the window has been consumed
+    if ((windowEnd - from) * 2 < window) {
+      return;
+    }
+    this.prefetcher.request(store, from, windowEnd - from);
+    this.prefetchedTo = windowEnd;
+  }
+
+  /**
+   * Record a read of consecutive sectors.
+   * <p>
+   * Each sector of the run counts as a read with a step of one, so
+   * runs of any length keep the pattern going
+   * </p>
+   *
+   * @param store    sector store read from
+   * @param firstLsn store LSN of first sector read
+   * @param count    number of sectors read
+   */
+  public synchronized void accessRun(
+      final DWSectorStore store, final int firstLsn, final int count
+  ) {
+    for (int i = 0; i < count; i++) {
+      this.access(store, firstLsn + i);
+    }
+  }
+
+  /**
+   * Forget read history.
+   */
+  public synchronized void reset() {
+    this.lastLsn = -1;
+    this.stride = 0;
+    this.run = 0;
+    this.prefetchedTo = 0;
+  }
+}
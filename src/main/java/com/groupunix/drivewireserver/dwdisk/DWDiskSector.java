@@ -1,58 +1,33 @@
 package com.groupunix.drivewireserver.dwdisk;
 
-import org.apache.commons.vfs2.FileSystemException;
-import org.apache.commons.vfs2.RandomAccessContent;
-import org.apache.commons.vfs2.util.RandomAccessMode;
-
 import java.io.IOException;
 
+/**
+ * View of a single sector in a sector store.
+ * <p>
+ * Holds no data of its own, all access goes through to the
+ * backing store.
+ * </p>
+ */
 public class DWDiskSector {
   /**
    * Logical sector number.
    */
   private final int lsn;
   /**
-   * Sector byte array.
-   */
-  private byte[] data;
-  /**
-   * Associated drivewire disk.
-   */
-  private final DWDisk dwDisk;
-  /**
-   * Sector size.
-   */
-  private final int sectorsize;
-  /**
-   * Direct flag.
+   * Backing store.
    */
-  private final boolean directFlag;
-  /**
-   * Dirty flag.
-   */
-  private boolean dirtyFlag = false;
+  private final DWSectorStore store;
 
   /**
-   * Disk sector constructor.
+   * Disk sector view constructor.
    *
-   * @param disk       drivewire disk
-   * @param sector     logical sector number
-   * @param sectorSize sector size
-   * @param direct     is direct
-   * @throws FileSystemException file system error
+   * @param sectorStore backing store
+   * @param sector      logical sector number
    */
-  public DWDiskSector(
-      final DWDisk disk, final int sector,
-      final int sectorSize, final boolean direct
-  ) throws FileSystemException {
+  public DWDiskSector(final DWSectorStore sectorStore, final int sector) {
     this.lsn = sector;
-    this.sectorsize = sectorSize;
-    this.directFlag = direct;
-    this.dwDisk = disk;
-
-    if (!direct) {
-      this.data = new byte[sectorSize];
-    }
+    this.store = sectorStore;
   }
 
   /**
@@ -69,29 +44,21 @@ public class DWDiskSector {
    *
    * @param newData new byte array
    * @param dirty   dirty flag
+   * @throws IOException write failure
    */
-  public synchronized void setData(final byte[] newData, final boolean dirty) {
-    this.dirtyFlag = dirty;
-    if (this.data == null) {
-      this.data = new byte[newData.length];
-    }
-    System.arraycopy(newData, 0, this.data, 0, this.sectorsize);
+  public void setData(final byte[] newData, final boolean dirty)
+      throws IOException {
+    this.store.write(this.lsn, newData, dirty);
   }
 
   /**
-   * Get sector data as byte array.
+   * Get copy of sector data as byte array.
    *
    * @return byte array
    * @throws IOException read failure
    */
-  public synchronized byte[] getData() throws IOException {
-    if (this.data != null) {
-      return this.data;
-    } else if (this.directFlag) {
-      return this.getFileSector();
-    } else {
-      return new byte[this.sectorsize];
-    }
+  public byte[] getData() throws IOException {
+    return this.store.read(this.lsn);
   }
 
   /**
@@ -101,44 +68,17 @@ public class DWDiskSector {
    * </p>
    *
    * @param newdata new byte array
+   * @throws IOException write failure
    */
-  public void setData(final byte[] newdata) {
-    if (this.data == null) {
-      this.data = new byte[newdata.length];
-    }
-    this.dirtyFlag = true;
-    System.arraycopy(newdata, 0, this.data, 0, this.sectorsize);
+  public void setData(final byte[] newdata) throws IOException {
+    this.setData(newdata, true);
   }
 
   /**
    * Remove dirty tag on sector.
    */
-  public synchronized void makeClean() {
-    if (this.dirtyFlag) {
-      if (this.directFlag) {
-        this.data = null;
-      }
-      this.dirtyFlag = false;
-    }
-  }
-
-  /**
-   * Get file sector as byte array.
-   *
-   * @return byte array
-   * @throws IOException read failure
-   */
-  private byte[] getFileSector() throws IOException {
-    final RandomAccessContent raf = this.dwDisk
-        .getFileObject()
-        .getContent()
-        .getRandomAccessContent(RandomAccessMode.READ);
-    final long pos = (long) this.lsn * this.sectorsize;
-    raf.seek(pos);
-    final byte[] buf = new byte[this.sectorsize];
-    raf.readFully(buf);
-    raf.close();
-    return buf;
+  public void makeClean() {
+    this.store.makeClean(this.lsn);
   }
 
   /**
@@ -146,8 +86,8 @@ public class DWDiskSector {
    *
    * @return true if dirty
    */
-  public synchronized boolean isDirty() {
-    return dirtyFlag;
+  public boolean isDirty() {
+    return this.store.isDirty(this.lsn);
   }
 
   /**
@@ -162,17 +102,17 @@ public class DWDiskSector {
    */
   public void setDataByte(final int index, final byte value)
       throws IOException {
-    if (this.data == null) {
-      this.data = this.getFileSector();
+    synchronized (this.store) {
+      final byte[] buf = this.store.read(this.lsn);
+      buf[index] = value;
+      this.store.write(this.lsn, buf, true);
     }
-    this.data[index] = value;
-    this.dirtyFlag = true;
   }
 
   /**
    * Tag sector as dirty.
    */
   public void makeDirty() {
-    this.dirtyFlag = true;
+    this.store.makeDirty(this.lsn);
   }
 }
@@ -0,0 +1,306 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwexceptions.DWImageFormatException;
+
+/**
+ * Notices changes to the sources of loaded disks.
+ * <p>
+ * Local images are watched through the platform file system watch
+ * service, other sources have their modification time checked in a
+ * single pass every poll interval.  A change is only acted on once
+ * the source has been quiet for a moment, then disks with syncfrom
+ * set are refreshed on this thread, so the protocol thread never has
+ * to look at the source itself.
+ * </p>
+ */
+public class DWDiskSourceWatcher implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWDiskSourceWatcher");
+  /**
+   * Watch service for local images, null if unavailable.
+   */
+  private final WatchService watchService;
+  /**
+   * Interval between checks of non local sources (millis).
+   */
+  private final long pollInterval;
+  /**
+   * Watched disks and their local path, null for non local sources.
+   */
+  private final Map<DWDisk, Path> disks = new IdentityHashMap<>();
+  /**
+   * Watch keys of directories holding local images.
+   */
+  private final Map<Path, WatchKey> dirKeys = new HashMap<>();
+  /**
+   * Disks with a possible change and when to check them.
+   */
+  private final Map<DWDisk, Long> pending = new IdentityHashMap<>();
+  /**
+   * Thread waiting to die.
+   */
+  private volatile boolean wantToDie = false;
+
+  /**
+   * Source watcher constructor.
+   *
+   * @param interval interval between checks of non local sources (millis)
+   */
+  public DWDiskSourceWatcher(final long interval) {
+    this.pollInterval = interval;
+    WatchService service = null;
+    try {
+      service = FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn(
+          "No file system watch service, local disks will be polled: "
+              + e.getMessage()
+      );
+    }
+    this.watchService = service;
+  }
+
+  /**
+   * Start watching the source of a disk.
+   *
+   * @param disk disk
+   */
+  public synchronized void watch(final DWDisk disk) {
+    final FileObject fileObject = disk.getFileObject();
+    if (fileObject == null || this.disks.containsKey(disk)) {
+      return;
+    }
+    Path path = null;
+    if (this.watchService != null
+        && fileObject.getName().toString().startsWith("file://")) {
+      path = fileObject.getPath().toAbsolutePath();
+      final Path dir = path.getParent();
+      if (dir != null && !this.dirKeys.containsKey(dir)) {
+        try {
+          this.dirKeys.put(dir, dir.register(
+              this.watchService,
+              StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_MODIFY
+          ));
+        } catch (IOException e) {
+          LOGGER.warn("Cannot watch " + dir + ": " + e.getMessage());
+          path = null;
+        }
+      }
+    }
+    this.disks.put(disk, path);
+  }
+
+  /**
+   * Stop watching the source of a disk.
+   *
+   * @param disk disk
+   */
+  public synchronized void unwatch(final DWDisk disk) {
+    final Path path = this.disks.remove(disk);
+    this.pending.remove(disk);
+    if (path == null) {
+      return;
+    }
+    final Path dir = path.getParent();
+    for (final Path other : this.disks.values()) {
+      if (other != null && other.getParent().equals(dir)) {
+        return;
+      }
+    }
+    final WatchKey key = this.dirKeys.remove(dir);
+    if (key != null) {
+      key.cancel();
+    }
+  }
+
+  /**
+   * Shutdown.
+   */
+  public void shutdown() {
+    this.wantToDie = true;
+    if (this.watchService != null) {
+      try {
+        this.watchService.close();
+      } catch (IOException e) {
+        LOGGER.debug(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Run thread.
+   */
+  public void run() {
+    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+    Thread.currentThread().setName(
+        "disksrcwatch-" + Thread.currentThread().getId()
+    );
+    long nextPoll = System.currentTimeMillis() + this.pollInterval;
+    try {
+      while (!this.wantToDie) {
+        WatchKey key = null;
+        if (this.watchService != null) {
+          key = this.watchService.poll(
+              DWDefs.DISK_SOURCE_SETTLE, TimeUnit.MILLISECONDS
+          );
+        } else {
+          Thread.sleep(DWDefs.DISK_SOURCE_SETTLE);
+        }
+        while (key != null) {
+          this.handleEvents(key);
+          key = this.watchService.poll();
+        }
+        final long now = System.currentTimeMillis();
+        if (now >= nextPoll) {
+          this.pollSources(now);
+          nextPoll = now + this.pollInterval;
+        }
+        this.checkPending(now);
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted");
+    } catch (ClosedWatchServiceException e) {
+      LOGGER.debug("watch service closed");
+    }
+    LOGGER.debug("exit");
+  }
+
+  /**
+   * Queue disks touched by directory events for checking.
+   *
+   * @param key watch key of directory
+   */
+  private synchronized void handleEvents(final WatchKey key) {
+    final Path dir = (Path) key.watchable();
+    final long due = System.currentTimeMillis() + DWDefs.DISK_SOURCE_SETTLE;
+    for (final WatchEvent<?> event : key.pollEvents()) {
+      final Path changed;
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        changed = null;
+      } else {
+        changed = dir.resolve((Path) event.context());
+      }
+      for (final Map.Entry<DWDisk, Path> entry : this.disks.entrySet()) {
+        final Path path = entry.getValue();
+        if (path != null
+            && ((changed == null && path.getParent().equals(dir))
+            || path.equals(changed))) {
+          // restart quiet period while the source is being written
+          this.pending.put(entry.getKey(), due);
+        }
+      }
+    }
+    key.reset();
+  }
+
+  /**
+   * Check modification time of non local sources.
+   *
+   * @param now current time
+   */
+  private void pollSources(final long now) {
+    final List<DWDisk> remote = new ArrayList<>();
+    synchronized (this) {
+      for (final Map.Entry<DWDisk, Path> entry : this.disks.entrySet()) {
+        if (entry.getValue() == null
+            && entry.getKey().getState().isSyncFrom()) {
+          remote.add(entry.getKey());
+        }
+      }
+    }
+    for (final DWDisk disk : remote) {
+      if (this.sourceDiffers(disk, true)) {
+        synchronized (this) {
+          if (this.disks.containsKey(disk)) {
+            this.pending.putIfAbsent(disk, now + DWDefs.DISK_SOURCE_SETTLE);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Refresh disks whose source has settled with a new modification time.
+   *
+   * @param now current time
+   */
+  private void checkPending(final long now) {
+    final List<DWDisk> due = new ArrayList<>();
+    synchronized (this) {
+      this.pending.entrySet().removeIf(entry -> {
+        if (entry.getValue() <= now) {
+          due.add(entry.getKey());
+          return true;
+        }
+        return false;
+      });
+    }
+    for (final DWDisk disk : due) {
+      if (disk.getState().isSyncFrom() && this.sourceDiffers(disk, false)) {
+        disk.markSourceChanged();
+        synchronized (disk) {
+          if (disk.getFileObject() == null) {
+            // ejected while we were looking
+            continue;
+          }
+          try {
+            disk.refreshFromSource();
+          } catch (IOException | DWImageFormatException e) {
+            LOGGER.warn(
+                "Refreshing " + disk.getFilePath() + ": " + e.getMessage()
+            );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Compare source modification time with the time it was loaded.
+   *
+   * @param disk    disk
+   * @param refresh discard cached source attributes first
+   * @return true if source has been modified
+   */
+  private boolean sourceDiffers(final DWDisk disk, final boolean refresh) {
+    final FileObject fileObject = disk.getFileObject();
+    if (fileObject == null) {
+      return false;
+    }
+    try {
+      if (refresh) {
+        fileObject.refresh();
+      }
+      return fileObject.getContent().getLastModifiedTime()
+          != disk.getLastModifiedTime();
+    } catch (IOException e) {
+      LOGGER.debug(
+          "Checking source of " + disk.getFilePath() + ": " + e.getMessage()
+      );
+      return false;
+    }
+  }
+}
@@ -0,0 +1,362 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.configuration.ConversionException;
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+/**
+ * Typed disk state.
+ * <p>
+ * Holds the sector cursor, read/write counters, geometry and the user
+ * options consulted on every sector operation as plain fields, so the
+ * protocol thread never touches the parameter tree.  Counters are only
+ * copied into the parameter map (and so out to the UI as events) when
+ * {@link #publish()} is called, which coalesces any number of sector
+ * operations into at most one event per changed value.
+ * </p>
+ */
+public final class DWDiskState implements ConfigurationListener {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWDiskState");
+  /**
+   * Parameter map mirrored by this state.
+   */
+  private final HierarchicalConfiguration params;
+  /**
+   * Current logical sector number.
+   */
+  private volatile int lsn = 0;
+  /**
+   * Last accessed logical sector number, as published.
+   */
+  private volatile int position = 0;
+  /**
+   * Sector reads, counted by concurrent readers.
+   */
+  private final LongAdder reads = new LongAdder();
+  /**
+   * Sector writes.
+   */
+  private volatile long writes = 0;
+  /**
+   * Number of sectors in image.
+   */
+  private volatile int sectors = 0;
+  /**
+   * Sector size.
+   */
+  private volatile int sectorSize = DWDefs.DISK_SECTORSIZE;
+  /**
+   * Maximum sectors.
+   */
+  private volatile int maxSectors = DWDefs.DISK_MAXSECTORS;
+  /**
+   * Source last modified time.
+   */
+  private volatile long lastModified = 0;
+  /**
+   * Write protect option.
+   */
+  private volatile boolean writeProtect = DWDefs.DISK_DEFAULT_WRITEPROTECT;
+  /**
+   * Expand option.
+   */
+  private volatile boolean expand = DWDefs.DISK_DEFAULT_EXPAND;
+  /**
+   * Sync from source option.
+   */
+  private volatile boolean syncFrom = DWDefs.DISK_DEFAULT_SYNCFROM;
+  /**
+   * Sync to source option.
+   */
+  private volatile boolean syncTo = DWDefs.DISK_DEFAULT_SYNCTO;
+  /**
+   * Sector offset option.
+   */
+  private volatile int offset = DWDefs.DISK_DEFAULT_OFFSET;
+  /**
+   * HDB-DOS drive offset option.
+   */
+  private volatile int offsetDrv = 0;
+  /**
+   * Size limit option.
+   */
+  private volatile int sizeLimit = DWDefs.DISK_DEFAULT_SIZELIMIT;
+  /**
+   * Last published LSN.
+   */
+  private int publishedLsn = -1;
+  /**
+   * Last published read count.
+   */
+  private long publishedReads = -1;
+  /**
+   * Last published write count.
+   */
+  private long publishedWrites = -1;
+
+  /**
+   * Disk state constructor.
+   *
+   * @param parameters disk parameter map
+   */
+  public DWDiskState(final HierarchicalConfiguration parameters) {
+    this.params = parameters;
+    this.params.addConfigurationListener(this);
+  }
+
+  /**
+   * Handle parameter change.
+   * <p>
+   * Keeps typed copies of geometry and user options in step with the
+   * parameter map, whichever way the map was updated.
+   * </p>
+   *
+   * @param event configuration change
+   */
+  @Override
+  public void configurationChanged(final ConfigurationEvent event) {
+    if (!event.isBeforeUpdate() && event.getPropertyName() != null) {
+      try {
+        applyParam(event.getPropertyName());
+      } catch (ConversionException e) {
+        LOGGER.warn(
+            "Invalid value for disk parameter '" + event.getPropertyName()
+                + "': " + e.getMessage()
+        );
+      }
+    }
+  }
+
+  /**
+   * Refresh typed copy of a parameter.
+   *
+   * @param key parameter key
+   */
+  private void applyParam(final String key) {
+    switch (key) {
+      case "_sectors" -> {
+        this.sectors = params.getInt(key, 0);
+      }
+      case "_sectorsize" -> {
+        this.sectorSize = params.getInt(key, DWDefs.DISK_SECTORSIZE);
+      }
+      case "_maxsectors" -> {
+        this.maxSectors = params.getInt(key, DWDefs.DISK_MAXSECTORS);
+      }
+      case "_last_modified" -> {
+        this.lastModified = params.getLong(key, 0);
+      }
+      case "writeprotect" -> {
+        this.writeProtect
+            = params.getBoolean(key, DWDefs.DISK_DEFAULT_WRITEPROTECT);
+      }
+      case "expand" -> {
+        this.expand = params.getBoolean(key, DWDefs.DISK_DEFAULT_EXPAND);
+      }
+      case "syncfrom" -> {
+        this.syncFrom = params.getBoolean(key, DWDefs.DISK_DEFAULT_SYNCFROM);
+      }
+      case "syncto" -> {
+        this.syncTo = params.getBoolean(key, DWDefs.DISK_DEFAULT_SYNCTO);
+      }
+      case "offset" -> {
+        this.offset = params.getInt(key, DWDefs.DISK_DEFAULT_OFFSET);
+      }
+      case "offsetdrv" -> {
+        this.offsetDrv = params.getInt(key, 0);
+      }
+      case "sizelimit" -> {
+        this.sizeLimit = params.getInt(key, DWDefs.DISK_DEFAULT_SIZELIMIT);
+      }
+      default -> {
+        // not a typed parameter
+      }
+    }
+  }
+
+  /**
+   * Publish changed counters into the parameter map.
+   * <p>
+   * Each changed value results in a single parameter update, and
+   * therefore a single UI event, regardless of how many sector
+   * operations took place since the previous call.
+   * </p>
+   */
+  public synchronized void publish() {
+    final int curLsn = this.position;
+    final long curReads = this.reads.sum();
+    final long curWrites = this.writes;
+    if (curLsn != this.publishedLsn) {
+      this.publishedLsn = curLsn;
+      this.params.setProperty("_lsn", curLsn);
+    }
+    if (curReads != this.publishedReads) {
+      this.publishedReads = curReads;
+      this.params.setProperty("_reads", curReads);
+    }
+    if (curWrites != this.publishedWrites) {
+      this.publishedWrites = curWrites;
+      this.params.setProperty("_writes", curWrites);
+    }
+  }
+
+  /**
+   * Get current LSN.
+   *
+   * @return logical sector number
+   */
+  public int getLsn() {
+    return this.lsn;
+  }
+
+  /**
+   * Set current LSN.
+   *
+   * @param newLsn logical sector number
+   */
+  public void setLsn(final int newLsn) {
+    this.lsn = newLsn;
+    this.position = newLsn;
+  }
+
+  /**
+   * Note a sector accessed without moving the current LSN.
+   *
+   * @param accessedLsn logical sector number
+   */
+  public void noteAccess(final int accessedLsn) {
+    this.position = accessedLsn;
+  }
+
+  /**
+   * Get read count.
+   *
+   * @return sectors read
+   */
+  public long getReads() {
+    return this.reads.sum();
+  }
+
+  /**
+   * Count a sector read.
+   */
+  public void incReads() {
+    this.reads.increment();
+  }
+
+  /**
+   * Get write count.
+   *
+   * @return sectors written
+   */
+  public long getWrites() {
+    return this.writes;
+  }
+
+  /**
+   * Count a sector write.
+   */
+  public void incWrites() {
+    this.writes++;
+  }
+
+  /**
+   * Get number of sectors in image.
+   *
+   * @return sector count
+   */
+  public int getSectors() {
+    return this.sectors;
+  }
+
+  /**
+   * Get sector size.
+   *
+   * @return sector size
+   */
+  public int getSectorSize() {
+    return this.sectorSize;
+  }
+
+  /**
+   * Get maximum sectors.
+   *
+   * @return max sectors
+   */
+  public int getMaxSectors() {
+    return this.maxSectors;
+  }
+
+  /**
+   * Get source last modified time.
+   *
+   * @return last modified timestamp
+   */
+  public long getLastModified() {
+    return this.lastModified;
+  }
+
+  /**
+   * Get write protect option.
+   *
+   * @return true if write protected
+   */
+  public boolean isWriteProtect() {
+    return this.writeProtect;
+  }
+
+  /**
+   * Get expand option.
+   *
+   * @return true if image may grow
+   */
+  public boolean isExpand() {
+    return this.expand;
+  }
+
+  /**
+   * Get sync from source option.
+   *
+   * @return syncfrom
+   */
+  public boolean isSyncFrom() {
+    return this.syncFrom;
+  }
+
+  /**
+   * Get sync to source option.
+   *
+   * @return syncto
+   */
+  public boolean isSyncTo() {
+    return this.syncTo;
+  }
+
+  /**
+   * Get effective sector offset.
+   *
+   * @return offset including any HDB-DOS drive offset
+   */
+  public int getOffset() {
+    return this.offset + this.offsetDrv * DWDefs.DISK_HDBDOS_DISKSIZE;
+  }
+
+  /**
+   * Get size limit option.
+   *
+   * @return size limit in sectors, -1 for none
+   */
+  public int getSizeLimit() {
+    return this.sizeLimit;
+  }
+}
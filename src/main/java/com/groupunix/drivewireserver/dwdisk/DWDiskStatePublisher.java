@@ -0,0 +1,63 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.DriveWireServer;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocol;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+
+public class DWDiskStatePublisher implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWDiskStatePublisher");
+  /**
+   * Thread waiting to die.
+   */
+  private boolean wantToDie = false;
+
+  /**
+   * Run thread.
+   * <p>
+   * Periodically publishes a snapshot of every loaded disk's state,
+   * so the UI sees at most one event per changed value per interval
+   * rather than one per sector.
+   * </p>
+   */
+  public void run() {
+    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+    Thread.currentThread().setName(
+        "dskstate-" + Thread.currentThread().getId()
+    );
+    LOGGER.debug("started");
+    while (!wantToDie) {
+      try {
+        Thread.sleep(
+            DriveWireServer.getServerConfiguration().getLong(
+                "DiskStatePublishInterval",
+                DWDefs.DISK_STATE_PUBLISH_INTERVAL
+            )
+        );
+        publishDisks();
+      } catch (InterruptedException e) {
+        LOGGER.debug("interrupted");
+        wantToDie = true;
+      }
+    }
+    LOGGER.debug("exit");
+  }
+
+  private void publishDisks() {
+    for (int h = 0; h < DriveWireServer.getNumHandlers(); h++) {
+      if (DriveWireServer.handlerIsAlive(h)) {
+        final DWProtocol protocol = DriveWireServer.getHandler(h);
+        if (protocol instanceof DWProtocolHandler handler
+            && handler.getDiskDrives() != null) {
+          handler.getDiskDrives().publishState();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.log4j.Logger;
+
+/**
+ * Index of image sources the server has already looked at.
+ * <p>
+ * Entries are keyed by source URI and only used while the source size
+ * and modification time are unchanged, so any change to an image
+ * simply means it is examined again.  The index is kept in a small
+ * text file, one entry per line, and is saved by the background
+ * indexer and at shutdown rather than on every mount.
+ * </p>
+ */
+public class DWImageIndex {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWImageIndex");
+  /**
+   * First line of index file.
+   */
+  private static final String HEADER = "# DriveWire image index 2";
+  /**
+   * Field separator.
+   */
+  private static final String SEPARATOR = "\t";
+  /**
+   * Fields per line.
+   */
+  private static final int FIELDS = 6;
+  /**
+   * Field holding format.
+   */
+  private static final int FIELD_FORMAT = 2;
+  /**
+   * Field holding sector count.
+   */
+  private static final int FIELD_SECTORS = 3;
+  /**
+   * Field holding file system.
+   */
+  private static final int FIELD_FILESYSTEM = 4;
+  /**
+   * Field holding source URI.
+   */
+  private static final int FIELD_URI = 5;
+
+  /**
+   * Index file, null if the index is not kept.
+   */
+  private final Path path;
+  /**
+   * Entries by source URI.
+   */
+  private final Map<String, DWImageIndexEntry> entries = new HashMap<>();
+  /**
+   * Entries changed since last save.
+   */
+  private boolean dirty = false;
+
+  /**
+   * Image index constructor.
+   *
+   * @param file index file, or null to keep the index in memory only
+   */
+  public DWImageIndex(final Path file) {
+    this.path = file;
+  }
+
+  /**
+   * Get entry for the current version of a source.
+   *
+   * @param fileobj image source
+   * @return entry, or null if the source has not been seen in this state
+   */
+  public synchronized DWImageIndexEntry lookup(final FileObject fileobj) {
+    try {
+      final FileContent content = fileobj.getContent();
+      final DWImageIndexEntry entry
+          = this.entries.get(fileobj.getName().getURI());
+      if (entry != null
+          && entry.matches(content.getSize(), content.getLastModifiedTime())) {
+        return entry;
+      }
+    } catch (FileSystemException e) {
+      LOGGER.debug("Cannot index " + fileobj.getName() + ": " + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Get entry for the current version of a source, creating it if needed.
+   *
+   * @param fileobj image source
+   * @return entry, or null if the source cannot be indexed
+   */
+  public synchronized DWImageIndexEntry entry(final FileObject fileobj) {
+    final DWImageIndexEntry existing = this.lookup(fileobj);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+      final FileContent content = fileobj.getContent();
+      final DWImageIndexEntry entry = new DWImageIndexEntry(
+          content.getSize(), content.getLastModifiedTime()
+      );
+      this.entries.put(fileobj.getName().getURI(), entry);
+      this.dirty = true;
+      return entry;
+    } catch (FileSystemException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Note that an entry has been filled in.
+   */
+  public synchronized void changed() {
+    this.dirty = true;
+  }
+
+  /**
+   * Get number of entries.
+   *
+   * @return entries
+   */
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Load index file.
+   * <p>
+   * Lines that cannot be understood are skipped
+   * </p>
+   */
+  public synchronized void load() {
+    if (this.path == null) {
+      return;
+    }
+    try (BufferedReader reader
+             = Files.newBufferedReader(this.path, StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        LOGGER.warn("Ignoring unrecognised image index " + this.path);
+        return;
+      }
+      String line = reader.readLine();
+      while (line != null) {
+        final String[] fields = line.split(SEPARATOR, FIELDS);
+        if (fields.length == FIELDS) {
+          try {
+            final DWImageIndexEntry entry = new DWImageIndexEntry(
+                Long.parseLong(fields[0]), Long.parseLong(fields[1])
+            );
+            entry.setFormat(Integer.parseInt(fields[FIELD_FORMAT]));
+            entry.setSectors(Integer.parseInt(fields[FIELD_SECTORS]));
+            entry.setFileSystem(Integer.parseInt(fields[FIELD_FILESYSTEM]));
+            this.entries.put(fields[FIELD_URI], entry);
+          } catch (NumberFormatException e) {
+            LOGGER.debug("Bad image index line: " + line);
+          }
+        }
+        line = reader.readLine();
+      }
+      LOGGER.debug("Loaded " + this.entries.size() + " image index entries");
+    } catch (NoSuchFileException e) {
+      LOGGER.debug("No image index at " + this.path);
+    } catch (IOException e) {
+      LOGGER.warn("Reading image index: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Save index file if anything has changed.
+   */
+  public synchronized void save() {
+    if (this.path == null || !this.dirty) {
+      return;
+    }
+    final Path tmp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+    try {
+      if (this.path.getParent() != null) {
+        Files.createDirectories(this.path.getParent());
+      }
+      try (BufferedWriter writer
+               = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.newLine();
+        for (final Map.Entry<String, DWImageIndexEntry> item
+            : this.entries.entrySet()) {
+          final DWImageIndexEntry entry = item.getValue();
+          writer.write(entry.getSize() + SEPARATOR
+              + entry.getModified() + SEPARATOR
+              + entry.getFormat() + SEPARATOR
+              + entry.getSectors() + SEPARATOR
+              + entry.getFileSystem() + SEPARATOR
+              + item.getKey());
+          writer.newLine();
+        }
+      }
+      Files.move(
+          tmp, this.path,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+      );
+      this.dirty = false;
+    } catch (IOException e) {
+      LOGGER.warn("Writing image index: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+/**
+ * What is known about one version of an image source.
+ * <p>
+ * An entry only describes the source while its size and modification
+ * time are unchanged.  Values not yet worked out are
+ * {@link DWImageIndexEntry#UNKNOWN}.
+ * </p>
+ */
+public class DWImageIndexEntry {
+  /**
+   * Value not known yet.
+   */
+  public static final int UNKNOWN = -1;
+
+  /**
+   * Source size in bytes.
+   */
+  private final long size;
+  /**
+   * Source modification time.
+   */
+  private final long modified;
+  /**
+   * Image format (DWDefs.DISK_FORMAT_*).
+   */
+  private volatile int format = UNKNOWN;
+  /**
+   * Sectors in image.
+   */
+  private volatile int sectors = UNKNOWN;
+  /**
+   * File system (DWDefs.DISK_FILESYSTEM_*).
+   */
+  private volatile int fileSystem = UNKNOWN;
+
+  /**
+   * Image index entry constructor.
+   *
+   * @param sourceSize     source size in bytes
+   * @param sourceModified source modification time
+   */
+  public DWImageIndexEntry(final long sourceSize, final long sourceModified) {
+    this.size = sourceSize;
+    this.modified = sourceModified;
+  }
+
+  /**
+   * Does entry describe this version of the source.
+   *
+   * @param sourceSize     source size in bytes
+   * @param sourceModified source modification time
+   * @return true if size and modification time match
+   */
+  public boolean matches(final long sourceSize, final long sourceModified) {
+    return this.size == sourceSize && this.modified == sourceModified;
+  }
+
+  /**
+   * Get source size.
+   *
+   * @return size in bytes
+   */
+  public long getSize() {
+    return this.size;
+  }
+
+  /**
+   * Get source modification time.
+   *
+   * @return modification time
+   */
+  public long getModified() {
+    return this.modified;
+  }
+
+  /**
+   * Get image format.
+   *
+   * @return format or UNKNOWN
+   */
+  public int getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Set image format.
+   *
+   * @param imageFormat format
+   */
+  public void setFormat(final int imageFormat) {
+    this.format = imageFormat;
+  }
+
+  /**
+   * Get sector count.
+   *
+   * @return sectors or UNKNOWN
+   */
+  public int getSectors() {
+    return this.sectors;
+  }
+
+  /**
+   * Set sector count.
+   *
+   * @param sectorCount sectors
+   */
+  public void setSectors(final int sectorCount) {
+    this.sectors = sectorCount;
+  }
+
+  /**
+   * Get file system type.
+   *
+   * @return file system or UNKNOWN
+   */
+  public int getFileSystem() {
+    return this.fileSystem;
+  }
+
+  /**
+   * Set file system type.
+   *
+   * @param fsType file system
+   */
+  public void setFileSystem(final int fsType) {
+    this.fileSystem = fsType;
+  }
+}
@@ -0,0 +1,152 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.VFS;
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.DriveWireServer;
+import com.groupunix.drivewireserver.dwexceptions.DWImageFormatException;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocol;
+
+/**
+ * Keeps the image index warm for named objects.
+ * <p>
+ * Every interval the named object directory and named objects of each
+ * instance are checked, and any image not yet fully indexed is examined
+ * once in the background, so named object mounts find everything they
+ * need in the index.  The index is saved after each pass.
+ * </p>
+ */
+public class DWImageIndexer implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWImageIndexer");
+  /**
+   * Index to warm.
+   */
+  private final DWImageIndex index;
+  /**
+   * Interval between passes (millis).
+   */
+  private final long interval;
+  /**
+   * Thread waiting to die.
+   */
+  private boolean wantToDie = false;
+
+  /**
+   * Image indexer constructor.
+   *
+   * @param imageIndex index to warm
+   * @param millis     interval between passes
+   */
+  public DWImageIndexer(final DWImageIndex imageIndex, final long millis) {
+    this.index = imageIndex;
+    this.interval = millis;
+  }
+
+  /**
+   * Shutdown.
+   */
+  public synchronized void shutdown() {
+    this.wantToDie = true;
+    notifyAll();
+  }
+
+  /**
+   * Run thread.
+   */
+  public void run() {
+    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+    Thread.currentThread().setName(
+        "imageindex-" + Thread.currentThread().getId()
+    );
+    try {
+      while (true) {
+        this.pass();
+        this.index.save();
+        synchronized (this) {
+          if (!this.wantToDie) {
+            wait(this.interval);
+          }
+          if (this.wantToDie) {
+            break;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted");
+    }
+    this.index.save();
+    LOGGER.debug("exit");
+  }
+
+  /**
+   * Index named objects of every instance.
+   */
+  private void pass() {
+    for (int h = 0; h < DriveWireServer.getNumHandlers(); h++) {
+      final DWProtocol protocol = DriveWireServer.getHandler(h);
+      if (protocol == null || protocol.getConfig() == null) {
+        continue;
+      }
+      final HierarchicalConfiguration config = protocol.getConfig();
+      try {
+        final String dir = config.getString("NamedObjectDir", null);
+        if (dir != null) {
+          final FileObject dirobj = VFS.getManager().resolveFile(dir);
+          if (dirobj.getType() == FileType.FOLDER) {
+            for (final FileObject child : dirobj.getChildren()) {
+              this.warm(child);
+            }
+          }
+        }
+        @SuppressWarnings("unchecked")
+        final List<HierarchicalConfiguration> objs
+            = config.configurationsAt("NamedObject");
+        for (final HierarchicalConfiguration obj : objs) {
+          if (obj.containsKey("[@path]")) {
+            this.warm(
+                VFS.getManager().resolveFile(obj.getString("[@path]"))
+            );
+          }
+        }
+      } catch (FileSystemException e) {
+        LOGGER.debug("instance " + h + ": " + e.getMessage());
+      }
+      if (this.wantToDie) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Index one image if not already done.
+   *
+   * @param fileobj image source
+   */
+  private void warm(final FileObject fileobj) {
+    try {
+      if (fileobj.getType() != FileType.FILE || !fileobj.isReadable()) {
+        return;
+      }
+      final DWImageIndexEntry entry = this.index.lookup(fileobj);
+      if (entry == null
+          || entry.getFormat() == DWImageIndexEntry.UNKNOWN
+          || entry.getFileSystem() == DWImageIndexEntry.UNKNOWN) {
+        DWDiskDrives.identify(fileobj);
+      }
+    } catch (DWImageFormatException | IOException e) {
+      LOGGER.debug("Not indexing " + fileobj.getName() + ": "
+          + e.getMessage());
+    }
+  }
+}
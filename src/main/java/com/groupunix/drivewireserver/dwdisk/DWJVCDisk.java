@@ -126,25 +126,21 @@ public class DWJVCDisk extends DWDisk {
         "_sectors",
         tracks * header.getSides() * header.getSectorsPerTrack()
     );
-    this.getSectors().setSize(this.getParams().getInt("_sectors"));
+    this.getSectors().setSize(this.getState().getSectors());
     final byte[] buf = new byte[header.getSectorSize()];
-    for (int i = 0; i < this.getParams().getInt("_sectors"); i++) {
+    for (int i = 0; i < this.getState().getSectors(); i++) {
       int readres = 0;
       while (readres < header.getSectorSize()) {
         readres += fis.read(buf, readres, header.getSectorSize() - readres);
       }
-      this.getSectors().set(i, new DWDiskSector(
-          this,
-          i,
-          header.getSectorSize(),
-          false
-      ));
-      this.getSectors().get(i).setData(buf, false);
+      this.getSectors().write(i, buf, false);
     }
     fis.close();
     this.setParam(
         "_filesystem",
-        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(this.getSectors()))
+        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(
+            this.getFileObject(), this.getSectors()
+        ))
     );
   }
 }
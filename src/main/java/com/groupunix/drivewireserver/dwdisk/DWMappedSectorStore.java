@@ -0,0 +1,479 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sector store backed by a memory mapped local image file.
+ * <p>
+ * The whole image is mapped once when the store is opened, so sector
+ * reads are plain memory copies (or zero-copy slices) with no file
+ * open, seek or close per sector.  Writes land directly in the mapping
+ * and are tracked in a dirty bitset until {@link #force()} pushes them
+ * out to the device.
+ * </p>
+ * <p>
+ * Writes always reach the image file, so disks that are not synced to
+ * their source must not use this store.
+ * </p>
+ * <p>
+ * The mapping grows ahead of the sectors in use, which extends the
+ * file.  {@link #clear()} cuts the file back, but never below its
+ * length when opened or the sectors the store has held, so a crash
+ * while the store is open can leave the file grown by zeros.
+ * </p>
+ */
+public class DWMappedSectorStore implements DWSectorStore {
+  /**
+   * Most sectors added to the mapping at once.
+   */
+  private static final int MAX_GROWTH = 65536;
+  /**
+   * Image file channel.
+   */
+  private FileChannel channel;
+  /**
+   * Mapping of image file.
+   */
+  private MappedByteBuffer map;
+  /**
+   * Sector size.
+   */
+  private final int sectorSize;
+  /**
+   * Number of sectors visible in store.
+   */
+  private int sectorCount;
+  /**
+   * Number of sectors covered by current mapping.
+   */
+  private int mappedSectors;
+  /**
+   * Dirty sector flags.
+   */
+  private final BitSet dirty = new BitSet();
+  /**
+   * Number of dirty sectors.
+   */
+  private int dirtyCount;
+  /**
+   * Writes to the store, the source of sector versions.
+   */
+  private long writes;
+  /**
+   * Version of each mapped sector, the write count when last written.
+   */
+  private long[] versions = new long[0];
+  /**
+   * Bytes of the image file that must be kept, its length when opened
+   * or the most sectors held since, whichever is more.
+   */
+  private long keepLength;
+
+  /**
+   * Mapped sector store constructor.
+   *
+   * @param path local image path
+   * @param size sector size
+   * @throws IOException failed to open or map image
+   */
+  public DWMappedSectorStore(final Path path, final int size)
+      throws IOException {
+    this.sectorSize = size;
+    this.channel = FileChannel.open(
+        path, StandardOpenOption.READ, StandardOpenOption.WRITE
+    );
+    this.keepLength = this.channel.size();
+    this.sectorCount = (int) (this.keepLength / size);
+    this.remap(this.sectorCount);
+  }
+
+  /**
+   * Map the first sectors of the image.
+   * <p>
+   * Mapping beyond the current end of file extends the file, the grow
+   * ahead is undone by {@link #clear()}
+   * </p>
+   *
+   * @param sectors sectors to map
+   * @throws IOException failed to map image
+   */
+  private void remap(final int sectors) throws IOException {
+    final long bytes = (long) sectors * this.sectorSize;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IOException("Image would exceed maximum mappable size");
+    }
+    this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    this.mappedSectors = sectors;
+    this.versions = Arrays.copyOf(this.versions, sectors);
+  }
+
+  /**
+   * Get sector size.
+   *
+   * @return sector size
+   */
+  @Override
+  public int getSectorSize() {
+    return this.sectorSize;
+  }
+
+  /**
+   * Get number of sectors in store.
+   *
+   * @return sector count
+   */
+  @Override
+  public synchronized int size() {
+    return this.sectorCount;
+  }
+
+  /**
+   * Set number of sectors in store.
+   * <p>
+   * Shrinking only hides sectors, they are kept in the image file
+   * </p>
+   *
+   * @param newCount new sector count
+   * @throws IOException failed to extend mapping
+   */
+  @Override
+  public synchronized void setSize(final int newCount) throws IOException {
+    if (newCount > this.mappedSectors) {
+      // grow ahead, so a disk expanding a sector at a time is not
+      // remapped on every write
+      final long ahead = Math.min(
+          (long) this.mappedSectors * 2,
+          (long) this.mappedSectors + MAX_GROWTH
+      );
+      this.remap((int) Math.max(newCount, Math.min(
+          ahead, Integer.MAX_VALUE / this.sectorSize
+      )));
+    }
+    this.keepLength = Math.max(
+        this.keepLength, (long) newCount * this.sectorSize
+    );
+    if (newCount < this.sectorCount) {
+      this.dirty.clear(newCount, this.sectorCount);
+      this.dirtyCount = this.dirty.cardinality();
+    }
+    this.sectorCount = newCount;
+  }
+
+  /**
+   * Is sector defined.
+   *
+   * @param lsn logical sector number
+   * @return true if sector is within the image
+   */
+  @Override
+  public synchronized boolean isDefined(final int lsn) {
+    return lsn >= 0 && lsn < this.sectorCount;
+  }
+
+  /**
+   * Get sector handle.
+   *
+   * @param lsn logical sector number
+   * @return sector view
+   */
+  @Override
+  public DWDiskSector get(final int lsn) {
+    if (!this.isDefined(lsn)) {
+      return null;
+    }
+    return new DWDiskSector(this, lsn);
+  }
+
+  /**
+   * Read sector data.
+   *
+   * @param lsn logical sector number
+   * @return copy of sector bytes
+   */
+  @Override
+  public synchronized byte[] read(final int lsn) {
+    final byte[] buf = new byte[this.sectorSize];
+    this.read(lsn, buf, 0);
+    return buf;
+  }
+
+  /**
+   * Read sector data into a caller supplied buffer.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   */
+  @Override
+  public synchronized void read(final int lsn, final byte[] buffer) {
+    this.read(lsn, buffer, 0);
+  }
+
+  /**
+   * Read sector data into a caller supplied buffer at an offset.
+   * <p>
+   * Sectors outside the store read as zeros, which is what a lock
+   * free reader that races with {@link #clear()} gets
+   * </p>
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer with room for one sector after offset
+   * @param offset position in buffer to read to
+   */
+  @Override
+  public synchronized void read(
+      final int lsn, final byte[] buffer, final int offset
+  ) {
+    if (lsn < 0 || lsn >= this.sectorCount) {
+      Arrays.fill(buffer, offset, offset + this.sectorSize, (byte) 0);
+      return;
+    }
+    this.map.get(lsn * this.sectorSize, buffer, offset, this.sectorSize);
+  }
+
+  /**
+   * Read sector data along with its write version.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @return version of the data read
+   */
+  @Override
+  public synchronized long readVersioned(final int lsn, final byte[] buffer) {
+    this.read(lsn, buffer);
+    return this.version(lsn);
+  }
+
+  /**
+   * Get write version of sector.
+   *
+   * @param lsn logical sector number
+   * @return version, changes whenever the sector is written
+   */
+  @Override
+  public synchronized long getVersion(final int lsn) {
+    return this.version(lsn);
+  }
+
+  /**
+   * Get write version of sector, store lock held.
+   *
+   * @param lsn logical sector number
+   * @return version, 0 for sectors outside the mapping
+   */
+  private long version(final int lsn) {
+    if (lsn < 0 || lsn >= this.versions.length) {
+      return 0;
+    }
+    return this.versions[lsn];
+  }
+
+  /**
+   * Get read only view of sector without copying.
+   *
+   * @param lsn logical sector number
+   * @return sector slice of mapped image, zeros for sectors outside
+   *     the store
+   */
+  public synchronized ByteBuffer slice(final int lsn) {
+    if (this.map == null || lsn < 0 || lsn >= this.sectorCount) {
+      return ByteBuffer.allocate(this.sectorSize).asReadOnlyBuffer();
+    }
+    return this.map
+        .slice(lsn * this.sectorSize, this.sectorSize)
+        .asReadOnlyBuffer();
+  }
+
+  /**
+   * Write sector data.
+   *
+   * @param lsn   logical sector number
+   * @param data  sector bytes
+   * @param dirtyFlag tag sector as dirty
+   * @throws IOException failed to extend mapping
+   */
+  @Override
+  public synchronized void write(
+      final int lsn, final byte[] data, final boolean dirtyFlag
+  ) throws IOException {
+    if (lsn >= this.sectorCount) {
+      this.setSize(lsn + 1);
+    }
+    this.map.put(lsn * this.sectorSize, data, 0, this.sectorSize);
+    this.versions[lsn] = ++this.writes;
+    if (dirtyFlag) {
+      this.makeDirty(lsn);
+    }
+  }
+
+  /**
+   * Write single byte of sector.
+   * <p>
+   * Bytes outside the store are ignored, as they read back as zeros
+   * </p>
+   *
+   * @param lsn   logical sector number
+   * @param index offset within sector
+   * @param value byte data
+   */
+  public synchronized void writeByte(
+      final int lsn, final int index, final byte value
+  ) {
+    if (this.map == null || lsn < 0 || lsn >= this.sectorCount
+        || index < 0 || index >= this.sectorSize) {
+      return;
+    }
+    this.map.put(lsn * this.sectorSize + index, value);
+    this.versions[lsn] = ++this.writes;
+    this.makeDirty(lsn);
+  }
+
+  /**
+   * Is sector dirty.
+   *
+   * @param lsn logical sector number
+   * @return true if dirty
+   */
+  @Override
+  public synchronized boolean isDirty(final int lsn) {
+    return lsn >= 0 && this.dirty.get(lsn);
+  }
+
+  /**
+   * Tag sector as dirty.
+   *
+   * @param lsn logical sector number
+   */
+  @Override
+  public synchronized void makeDirty(final int lsn) {
+    if (!this.dirty.get(lsn)) {
+      this.dirty.set(lsn);
+      this.dirtyCount++;
+    }
+  }
+
+  /**
+   * Remove dirty tag on sector.
+   *
+   * @param lsn logical sector number
+   */
+  @Override
+  public synchronized void makeClean(final int lsn) {
+    if (this.dirty.get(lsn)) {
+      this.dirty.clear(lsn);
+      this.dirtyCount--;
+    }
+  }
+
+  /**
+   * Remove dirty tag on sector if it has not been written since.
+   *
+   * @param lsn     logical sector number
+   * @param version version returned when the sector was read
+   * @return true if the sector is now clean
+   */
+  @Override
+  public synchronized boolean makeClean(final int lsn, final long version) {
+    if (this.version(lsn) != version) {
+      return false;
+    }
+    this.makeClean(lsn);
+    return true;
+  }
+
+  /**
+   * Get count of dirty sectors.
+   *
+   * @return dirty sectors
+   */
+  @Override
+  public synchronized int getDirtyCount() {
+    return this.dirtyCount;
+  }
+
+  /**
+   * Find next dirty sector.
+   *
+   * @param fromLsn first LSN to consider
+   * @return LSN of next dirty sector, or -1 if there are none
+   */
+  @Override
+  public synchronized int nextDirty(final int fromLsn) {
+    return this.dirty.nextSetBit(Math.max(0, fromLsn));
+  }
+
+  /**
+   * Fault a range of sectors into memory.
+   * <p>
+   * The pages are touched outside the store lock so the protocol
+   * thread is never held up behind a prefetch
+   * </p>
+   *
+   * @param fromLsn first LSN in range
+   * @param count   number of sectors in range
+   */
+  @Override
+  public void prefetch(final int fromLsn, final int count) {
+    final MappedByteBuffer view;
+    synchronized (this) {
+      final int end = Math.min(fromLsn + count, this.sectorCount);
+      if (this.map == null || fromLsn < 0 || fromLsn >= end) {
+        return;
+      }
+      view = this.map.slice(
+          fromLsn * this.sectorSize, (end - fromLsn) * this.sectorSize
+      );
+    }
+    view.load();
+  }
+
+  /**
+   * Force all modified sectors out to the image file.
+   *
+   * @return number of sectors that were dirty
+   */
+  public synchronized int force() {
+    final int written = this.dirtyCount;
+    if (this.map != null && written > 0) {
+      this.map.force();
+      this.dirty.clear();
+      this.dirtyCount = 0;
+    }
+    return written;
+  }
+
+  /**
+   * Release the mapping and close the image file.
+   * <p>
+   * Any outstanding modifications are forced out first, and the file
+   * is cut back if the mapping grew ahead of what must be kept
+   * </p>
+   *
+   * @throws IOException failed to close image file
+   */
+  @Override
+  public synchronized void clear() throws IOException {
+    this.force();
+    this.map = null;
+    final long keep = this.keepLength;
+    this.sectorCount = 0;
+    this.mappedSectors = 0;
+    this.versions = new long[0];
+    if (this.channel != null) {
+      try {
+        if (this.channel.size() > keep) {
+          this.channel.truncate(keep);
+        }
+      } finally {
+        this.channel.close();
+        this.channel = null;
+      }
+    }
+  }
+}
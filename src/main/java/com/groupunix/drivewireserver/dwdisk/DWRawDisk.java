@@ -2,9 +2,14 @@ package com.groupunix.drivewireserver.dwdisk;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.util.Vector;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
+import org.apache.commons.configuration.event.ConfigurationEvent;
 import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.RandomAccessContent;
@@ -12,7 +17,6 @@ import org.apache.commons.vfs2.util.RandomAccessMode;
 import org.apache.log4j.Logger;
 
 import com.groupunix.drivewireserver.DWDefs;
-import com.groupunix.drivewireserver.dwexceptions.DWDiskInvalidSectorNumber;
 import com.groupunix.drivewireserver.dwexceptions.DWDriveWriteProtectedException;
 import com.groupunix.drivewireserver.dwexceptions.DWImageFormatException;
 import com.groupunix.drivewireserver.dwexceptions.DWImageHasNoSourceException;
@@ -39,6 +43,14 @@ public class DWRawDisk extends DWDisk {
    * Direct flag.
    */
   private boolean direct = false;
+  /**
+   * Mapped sector store, when in direct mode.
+   */
+  private DWMappedSectorStore mappedStore = null;
+  /**
+   * Write journal, when cached with a source.
+   */
+  private DWDiskJournal journal = null;
 
   /**
    * Raw Disk Constructor.
@@ -93,9 +105,9 @@ public class DWRawDisk extends DWDisk {
   /**
    * Raw disk constructor.
    *
-   * @param sectors disk sector vectors
+   * @param sectors disk sector store
    */
-  public DWRawDisk(final Vector<DWDiskSector> sectors) {
+  public DWRawDisk(final DWSectorStore sectors) {
     // used only for temp objs...
     super();
     this.setSectors(sectors);
@@ -136,6 +148,7 @@ public class DWRawDisk extends DWDisk {
     this.setParam("syncfrom", DWDefs.DISK_DEFAULT_SYNCFROM);
     this.setParam("syncto", DWDefs.DISK_DEFAULT_SYNCTO);
     setDefaultOptions(sectorSize, maxSectors);
+    this.getParams().addConfigurationListener(this::paramChanged);
     load(forceCache);
     LOGGER.debug("New DWRawDisk for '" + this.getFilePath() + "'");
   }
@@ -177,23 +190,33 @@ public class DWRawDisk extends DWDisk {
    */
   public void seekSector(final int newLSN)
       throws DWInvalidSectorException, DWSeekPastEndOfDeviceException {
-    if (newLSN < 0 || newLSN > this.getMaxSectors()) {
-      throw new DWInvalidSectorException("Sector " + newLSN + " is not valid");
+    this.checkSector(newLSN);
+    this.getState().setLsn(newLSN);
+  }
+
+  /**
+   * Check LSN can be read or written.
+   *
+   * @param lsn logical sector number
+   * @throws DWInvalidSectorException
+   * @throws DWSeekPastEndOfDeviceException
+   */
+  private void checkSector(final int lsn)
+      throws DWInvalidSectorException, DWSeekPastEndOfDeviceException {
+    if (lsn < 0 || lsn > this.getMaxSectors()) {
+      throw new DWInvalidSectorException("Sector " + lsn + " is not valid");
     } else if (
-        newLSN >= this.getDiskSectors()
-            && !this.getParams().
-            getBoolean("expand", DWDefs.DISK_DEFAULT_EXPAND)
+        lsn >= this.getDiskSectors()
+            && !this.getState().isExpand()
     ) {
       throw new DWSeekPastEndOfDeviceException(
-          "Sector " + newLSN
+          "Sector " + lsn
               + " is beyond end of file, and expansion is not allowed"
       );
-    } else if (this.getSizeLimit() > -1 && newLSN >= this.getSizeLimit()) {
+    } else if (this.getSizeLimit() > -1 && lsn >= this.getSizeLimit()) {
       throw new DWSeekPastEndOfDeviceException(
-          "Sector " + newLSN + " is beyond specified sector size limit"
+          "Sector " + lsn + " is beyond specified sector size limit"
       );
-    } else {
-      this.setParam("_lsn", newLSN);
     }
   }
 
@@ -222,25 +245,27 @@ public class DWRawDisk extends DWDisk {
         || filesize / this.getSectorSize() > DWDefs.DISK_MAXSECTORS) {
       throw new DWImageFormatException("Image file is too large");
     }
-    if (!forceCache
-        && this.getFileObject().getName().toString().startsWith("file://")) {
-      this.direct = true;
-    }
+    // mapped writes land in the image, so only disks synced to it
+    this.direct = !forceCache
+        && this.isSyncTo()
+        && this.getFileObject().getName().toString().startsWith("file://")
+        && this.getFileObject().isWriteable();
     final int sectorsize = this.getSectorSize();
     int sector = 0;
     if (direct) {
-      int size = 0;
-      this.getSectors().setSize((int) (filesize / sectorsize));
-      while (size < filesize) {
-        this.getSectors().set(
-            sector,
-            new DWDiskSector(this, sector, sectorsize, true)
-        );
-        sector++;
-        size += sectorsize;
-      }
+      this.mappedStore = new DWMappedSectorStore(
+          this.getFileObject().getPath(), sectorsize
+      );
+      this.setSectors(this.mappedStore);
+      sector = this.mappedStore.size();
+      LOGGER.debug(
+          "mapped " + sector
+              + " sectors from '" + this.getFileObject().getName() + "'"
+      );
     } else {
       LOGGER.debug("Caching " + this.getFileObject().getName() + " in memory");
+      this.mappedStore = null;
+      this.setSectors(new DWSectorArena(this));
       final long memFree = Runtime.getRuntime().maxMemory()
           - (Runtime.getRuntime().totalMemory()
           - Runtime.getRuntime().freeMemory());
@@ -263,10 +288,7 @@ public class DWRawDisk extends DWDisk {
       while (readres > -1) {
         bytesRead += readres;
         if (bytesRead == sectorsize) {
-          this.getSectors().set(sector, new DWDiskSector(
-              this, sector, sectorsize, false)
-          );
-          this.getSectors().get(sector).setData(buffer, false);
+          this.getSectors().write(sector, buffer, false);
           sector++;
           bytesRead = 0;
         }
@@ -293,10 +315,60 @@ public class DWRawDisk extends DWDisk {
     this.setParam("_sectors", sector);
     this.setParam(
         "_filesystem",
-        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(this.getSectors()))
+        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(
+            this.getFileObject(), this.getSectors()
+        ))
     );
   }
 
+  /**
+   * Handle disk parameter change.
+   *
+   * @param event configuration change
+   */
+  private void paramChanged(final ConfigurationEvent event) {
+    if (!event.isBeforeUpdate() && "syncto".equals(event.getPropertyName())
+        && !this.isSyncTo()) {
+      try {
+        this.unmap();
+      } catch (IOException e) {
+        LOGGER.warn(
+            "Moving " + getFilePath() + " into memory: " + e.getMessage()
+        );
+      }
+    }
+  }
+
+  /**
+   * Move a mapped disk into memory.
+   * <p>
+   * Writes to a mapped disk go straight to the image, so once the disk
+   * is no longer synced to its source the sectors are copied into
+   * memory and the mapping is released.  Writes made before that are
+   * forced out to the image as the mapping goes.
+   * </p>
+   *
+   * @throws IOException failed to read or release mapping
+   */
+  private synchronized void unmap() throws IOException {
+    if (this.mappedStore == null) {
+      return;
+    }
+    final DWSectorArena arena = new DWSectorArena(this);
+    final int count = this.mappedStore.size();
+    final byte[] buf = new byte[this.getSectorSize()];
+    arena.setSize(count);
+    for (int i = 0; i < count; i++) {
+      this.mappedStore.read(i, buf);
+      arena.write(i, buf, false);
+    }
+    this.mappedStore = null;
+    this.direct = false;
+    this.replaceSectors(arena);
+    LOGGER.debug("moved " + count + " sectors of " + getFilePath()
+        + " into memory");
+  }
+
   /**
    * Read sector to byte array.
    *
@@ -305,56 +377,107 @@ public class DWRawDisk extends DWDisk {
    * @throws DWImageFormatException image format exception
    */
   public byte[] readSector() throws IOException, DWImageFormatException {
-    this.incParam("_reads");
-    // check source for changes...
-    if (this.isSyncFrom()
-        && this.getFileObject() != null
-        && this.getFileObject()
-        .getContent()
-        .getLastModifiedTime() != this.getLastModifiedTime()
-        && this.getDirtySectors() > 0
-    ) {
-      // doh
-      LOGGER.warn(
-          "Sync conflict on " + getFilePath()
-              + ", both the source and our cached image have changed.  "
-              + "Source will be overwritten!"
-      );
-      try {
-        this.write();
-      } catch (DWImageHasNoSourceException ignored) {
+    final byte[] buf = new byte[this.getSectorSize()];
+    this.readSector(buf);
+    return buf;
+  }
+
+  /**
+   * Read sector into a caller supplied buffer.
+   *
+   * @param buffer buffer of at least one sector
+   * @throws IOException read failure
+   * @throws DWImageFormatException image format exception
+   */
+  @Override
+  public void readSector(final byte[] buffer)
+      throws IOException, DWImageFormatException {
+    this.getState().incReads();
+    // source watcher has seen a change...
+    if (this.isSourceChanged()) {
+      this.refreshFromSource();
+    }
+    this.readStore(this.getSectors(), this.getStoreLSN(), buffer);
+  }
+
+  /**
+   * Read a sector by LSN into a caller supplied buffer.
+   * <p>
+   * Reads go straight to the sector store, which locks per sector, so
+   * neither the disk lock nor the current LSN is involved.  A pending
+   * source refresh, or a reload that overlaps the read, sends the read
+   * down the locked path instead.
+   * </p>
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @throws DWInvalidSectorException invalid LSN
+   * @throws DWSeekPastEndOfDeviceException LSN past end of disk
+   * @throws IOException read failure
+   * @throws DWImageFormatException image format exception
+   */
+  @Override
+  public void readSector(final int lsn, final byte[] buffer)
+      throws DWInvalidSectorException, DWSeekPastEndOfDeviceException,
+      IOException, DWImageFormatException {
+    final int seq = this.getReloadSeq();
+    final DWSectorStore store = this.getSectors();
+    if ((seq & 1) != 0 || store == null || this.isSourceChanged()) {
+      super.readSector(lsn, buffer);
+      return;
+    }
+    try {
+      this.checkSector(lsn);
+    } catch (DWSeekPastEndOfDeviceException e) {
+      // the store is briefly empty while reloading
+      if (this.getReloadSeq() != seq) {
+        super.readSector(lsn, buffer);
+        return;
       }
-    } else {
-      LOGGER.info(
-          "Disk source " + getFilePath() + " has changed, reloading"
-      );
-      this.reload();
+      throw e;
+    }
+    this.readStore(store, this.getStoreLSN(lsn), buffer);
+    if (this.getReloadSeq() != seq) {
+      super.readSector(lsn, buffer);
+      return;
     }
-    final int effLSN = this.getLSN() + this.getOffset();
+    this.getState().incReads();
+    this.getState().noteAccess(lsn);
+  }
+
+  /**
+   * Read sector from store, undefined sectors read as zeros.
+   *
+   * @param store  sector store
+   * @param effLSN store LSN
+   * @param buffer buffer of at least one sector
+   * @throws IOException read failure
+   */
+  private void readStore(
+      final DWSectorStore store, final int effLSN, final byte[] buffer
+  ) throws IOException {
     // we can read beyond the current size of the image
-    if (
-        effLSN >= this.getSectors().size()
-            || this.getSectors().get(effLSN) == null
-    ) {
+    if (!store.isDefined(effLSN)) {
       LOGGER.debug(
           "request for undefined sector, effLSN: " + effLSN
-              + "  rawLSN: " + this.getLSN()
-              + "  curSize: " + (this.getSectors().size() - 1)
+              + "  curSize: " + (store.size() - 1)
       );
       // no need to expand disk on read, give a blank sector
-      return new byte[this.getSectorSize()];
+      Arrays.fill(buffer, 0, this.getSectorSize(), (byte) 0);
+      return;
     }
-    return this.getSectors().get(effLSN).getData();
+    store.read(effLSN, buffer);
   }
 
   /**
    * Expand disk to target.
    *
    * @param target sector count
+   * @throws IOException failed to grow sector store
    */
-  private void expandDisk(final int target) {
+  private void expandDisk(final int target) throws IOException {
     this.getSectors().setSize(target);
-    this.setParam("_sectors", target + 1);
+    this.setParam("_sectors", target);
   }
 
   /**
@@ -370,28 +493,116 @@ public class DWRawDisk extends DWDisk {
     if (this.isWriteProtect()) {
       throw new DWDriveWriteProtectedException("Disk is write protected");
     } else {
-      final int effLSN = this.getLSN() + this.getOffset();
+      final int effLSN = this.getStoreLSN();
 
       // we can write beyond our current size
       if (effLSN >= this.getSectors().size()) {
         // expand disk / add sector
-        expandDisk(effLSN);
-        this.getSectors().add(
-            effLSN, new DWDiskSector(this, effLSN, this.getSectorSize(), false)
-        );
+        expandDisk(effLSN + 1);
       }
+      this.getSectors().write(effLSN, data, true);
+      this.getState().incWrites();
+      if (this.journal != null && this.isSyncTo()) {
+        try {
+          this.journal.append(effLSN, data);
+        } catch (IOException e) {
+          LOGGER.warn(
+              "Journal for " + getFilePath() + " failed, writes to this "
+                  + "disk are no longer journalled: " + e.getMessage()
+          );
+          this.closeJournal(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Open write journal for disk.
+   * <p>
+   * Direct disks already write through to the image, and disks that
+   * are not synced to their source keep their writes in memory only,
+   * so only cached disks synced to a source are journalled.  Writes
+   * left in the journal by an earlier run are applied to the disk
+   * first.
+   * </p>
+   *
+   * @param file journal file
+   * @throws IOException failed to open or replay journal
+   */
+  @Override
+  public void openJournal(final Path file) throws IOException {
+    if (this.direct || this.getFileObject() == null || this.journal != null
+        || !this.isSyncTo()) {
+      return;
+    }
+    final DWDiskJournal newJournal
+        = new DWDiskJournal(file, this.getSectorSize());
+    this.stampJournal(newJournal);
+    final int recovered = newJournal.replay(this.getSectors());
+    if (recovered > 0) {
+      LOGGER.warn(
+          "Recovered " + recovered + " unsaved sectors of "
+              + getFilePath() + " from " + file
+      );
+      this.setParam("_sectors", this.getSectors().size());
+    }
+    this.journal = newJournal;
+  }
 
-      // jit sector maker
-      if (this.getSectors().get(effLSN) == null) {
-        this.getSectors().set(
-            effLSN, new DWDiskSector(this, effLSN, this.getSectorSize(), false)
+  /**
+   * Close write journal.
+   *
+   * @param delete remove the journal file as well
+   */
+  private void closeJournal(final boolean delete) {
+    if (this.journal != null) {
+      try {
+        this.journal.close(delete);
+      } catch (IOException e) {
+        LOGGER.warn(
+            "Closing journal " + this.journal.getPath() + ": " + e.getMessage()
         );
       }
-      this.getSectors().get(effLSN).setData(data);
-      this.incParam("_writes");
+      this.journal = null;
     }
   }
 
+  /**
+   * Reload disk image from file system.
+   * <p>
+   * Journalled writes are superseded by the new source contents
+   * </p>
+   *
+   * @throws IOException Failed to read from file object
+   * @throws DWImageFormatException Invalid file format
+   */
+  @Override
+  public void reload() throws IOException, DWImageFormatException {
+    super.reload();
+    if (this.journal != null) {
+      this.stampJournal(this.journal);
+      this.journal.reset();
+    }
+  }
+
+  /**
+   * Eject disk.
+   * <p>
+   * The journal is removed once everything has reached the source, or
+   * if the disk is no longer synced to it, otherwise it is kept for the
+   * next time the disk is inserted
+   * </p>
+   *
+   * @throws IOException Failed to write to file object
+   */
+  @Override
+  public void eject() throws IOException {
+    this.sync();
+    final boolean clean = this.getDirtySectors() == 0 || !this.isSyncTo();
+    super.eject();
+    this.closeJournal(clean);
+  }
+
   /**
    * Write disk to source image.
    *
@@ -433,42 +644,54 @@ public class DWRawDisk extends DWDisk {
    * Sync sectors to source.
    */
   private void syncSectors() {
+    if (this.mappedStore != null) {
+      syncMappedSectors();
+      return;
+    }
     long sectorswritten = 0;
+    long runs = 0;
     final long starttime = System.currentTimeMillis();
-    long sleeptime = 0;
+    final int sectorsize = this.getSectorSize();
+    final byte[] buf = new byte[DWDefs.DISK_FLUSH_MAX_RUN * sectorsize];
+    final byte[] sector = new byte[sectorsize];
+    final long[] versions = new long[DWDefs.DISK_FLUSH_MAX_RUN];
 
     try {
       final RandomAccessContent raf = getFileObject()
           .getContent()
           .getRandomAccessContent(RandomAccessMode.READWRITE);
 
-      for (int i = 0; i < this.getSectors().size(); i++) {
-        if (getSector(i) != null && getSector(i).isDirty()) {
-          if (
-              this.getDrive().getDiskDrives().getDWProtocolHandler().isInOp()
-          ) {
-            try {
-              final long sleepStart = System.currentTimeMillis();
-              Thread.sleep(DWDefs.DISK_SYNC_INOP_PAUSE);
-              sleeptime += System.currentTimeMillis() - sleepStart;
-            } catch (InterruptedException e) {
-              //  this would be weird..
-              e.printStackTrace();
-            }
-          }
-          final long pos = (long) i * this.getSectorSize();
-          raf.seek(pos);
-          raf.write(getSector(i).getData());
-          sectorswritten++;
-          getSector(i).makeClean();
+      int first = this.getSectors().nextDirty(0);
+      while (first > -1) {
+        // gather run of adjacent dirty sectors
+        int end = first + 1;
+        while (end - first < DWDefs.DISK_FLUSH_MAX_RUN
+            && this.getSectors().isDirty(end)) {
+          end++;
+        }
+        for (int lsn = first; lsn < end; lsn++) {
+          versions[lsn - first]
+              = this.getSectors().readVersioned(lsn, sector);
+          System.arraycopy(
+              sector, 0, buf, (lsn - first) * sectorsize, sectorsize
+          );
+        }
+        raf.seek((long) first * sectorsize);
+        raf.write(buf, 0, (end - first) * sectorsize);
+        // a sector written again since it was copied stays dirty
+        for (int lsn = first; lsn < end; lsn++) {
+          this.getSectors().makeClean(lsn, versions[lsn - first]);
         }
+        sectorswritten += end - first;
+        runs++;
+        first = this.getSectors().nextDirty(end);
       }
       raf.close();
       this.getFileObject().close();
       this.setLastModifiedTime(
           this.getFileObject().getContent().getLastModifiedTime()
       );
-    } catch (IOException | DWDiskInvalidSectorNumber e) {
+    } catch (IOException e) {
       LOGGER.error(
           "Error writing sectors in "
               + this.getFilePath() + ": " + e.getMessage()
@@ -477,9 +700,36 @@ public class DWRawDisk extends DWDisk {
 
     if (sectorswritten > 0) {
       LOGGER.debug(
-          "wrote " + sectorswritten
+          "wrote " + sectorswritten + " sectors in " + runs + " writes in "
+              + (System.currentTimeMillis() - starttime)
+              + " ms, to " + getFilePath()
+      );
+    }
+  }
+
+  /**
+   * Sync mapped sectors to source.
+   * <p>
+   * Modified sectors are already in the mapping, so all that is
+   * left is to force them out to the device
+   * </p>
+   */
+  private void syncMappedSectors() {
+    final long starttime = System.currentTimeMillis();
+    final int sectorswritten = this.mappedStore.force();
+    try {
+      this.getFileObject().refresh();
+      this.setLastModifiedTime(
+          this.getFileObject().getContent().getLastModifiedTime()
+      );
+    } catch (FileSystemException e) {
+      LOGGER.warn(e.getMessage());
+    }
+    if (sectorswritten > 0) {
+      LOGGER.debug(
+          "forced " + sectorswritten
               + " sectors in " + (System.currentTimeMillis() - starttime)
-              + " ms (" + sleeptime + "ms sleep), to " + getFilePath()
+              + " ms, to " + getFilePath()
       );
     }
   }
@@ -490,7 +740,7 @@ public class DWRawDisk extends DWDisk {
    * @return max sectors
    */
   private int getMaxSectors() {
-    return this.getParams().getInt("_maxsectors", DWDefs.DISK_MAXSECTORS);
+    return this.getState().getMaxSectors();
   }
 
   /**
@@ -499,18 +749,7 @@ public class DWRawDisk extends DWDisk {
    * @return disk sector size
    */
   private int getSectorSize() {
-    return this.getParams()
-        .getInt("_sectorsize", DWDefs.DISK_SECTORSIZE);
-  }
-
-  /**
-   * Get SyncFrom parameter.
-   *
-   * @return SyncFrom
-   */
-  private boolean isSyncFrom() {
-    return this.getParams()
-        .getBoolean("syncfrom", DWDefs.DISK_DEFAULT_SYNCFROM);
+    return this.getState().getSectorSize();
   }
 
   /**
@@ -519,8 +758,7 @@ public class DWRawDisk extends DWDisk {
    * @return SyncTo
    */
   private boolean isSyncTo() {
-    return this.getParams()
-        .getBoolean("syncto", DWDefs.DISK_DEFAULT_SYNCTO);
+    return this.getState().isSyncTo();
   }
 
   /**
@@ -529,9 +767,18 @@ public class DWRawDisk extends DWDisk {
    * @return offset
    */
   private int getOffset() {
-    return this.getParams().getInt("offset", DWDefs.DISK_DEFAULT_OFFSET)
-        + this.getParams().getInt("offsetdrv", 0)
-        * DWDefs.DISK_HDBDOS_DISKSIZE;
+    return this.getState().getOffset();
+  }
+
+  /**
+   * Get position of a sector in the sector store.
+   *
+   * @param lsn logical sector number
+   * @return LSN adjusted by disk offset
+   */
+  @Override
+  public int getStoreLSN(final int lsn) {
+    return lsn + this.getOffset();
   }
 
   /**
@@ -540,7 +787,7 @@ public class DWRawDisk extends DWDisk {
    * @return size limit
    */
   private int getSizeLimit() {
-    return this.getParams().getInt("sizelimit", DWDefs.DISK_DEFAULT_SIZELIMIT);
+    return this.getState().getSizeLimit();
   }
 
   /**
@@ -559,6 +806,54 @@ public class DWRawDisk extends DWDisk {
       } catch (DWImageHasNoSourceException ignored) {
       }
     }
+    if (this.journal != null) {
+      // writes arriving now wait for the disk lock, so the journal
+      // cannot be emptied under them
+      synchronized (this) {
+        if (this.getDirtySectors() == 0) {
+          // written sectors must be on the device before the journal
+          // protecting them goes
+          this.forceSource();
+          this.stampJournal(this.journal);
+          this.journal.reset();
+        } else {
+          this.stampJournal(this.journal);
+          this.journal.force();
+        }
+      }
+    }
+  }
+
+  /**
+   * Record current state of the source in a journal.
+   *
+   * @param target journal
+   * @throws IOException failed to read source or write journal
+   */
+  private void stampJournal(final DWDiskJournal target) throws IOException {
+    this.getFileObject().refresh();
+    final FileContent content = this.getFileObject().getContent();
+    target.setSource(content.getSize(), content.getLastModifiedTime());
+  }
+
+  /**
+   * Force writes to the source out to the device.
+   * <p>
+   * Only local files can be forced, other sources are as durable as
+   * their file system makes them once written
+   * </p>
+   *
+   * @throws IOException failed to force source
+   */
+  private void forceSource() throws IOException {
+    if (!this.getFileObject().getName().toString().startsWith("file://")) {
+      return;
+    }
+    try (FileChannel fc = FileChannel.open(
+        this.getFileObject().getPath(), StandardOpenOption.WRITE
+    )) {
+      fc.force(true);
+    }
   }
 
   /**
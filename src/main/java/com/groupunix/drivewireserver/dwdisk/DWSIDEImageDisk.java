@@ -4,6 +4,8 @@ import java.io.IOException;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
 import org.apache.log4j.Logger;
 
 import com.groupunix.drivewireserver.DWDefs;
@@ -120,17 +122,19 @@ public class DWSIDEImageDisk extends DWDisk {
     if (filesize > Integer.MAX_VALUE) {
       throw new DWImageFormatException("Image file is too large");
     }
-    int size = 0;
     this.getSectors().setSize((int) (filesize / SECTOR_SIZE));
+    final RandomAccessContent raf = this.getFileObject()
+        .getContent()
+        .getRandomAccessContent(RandomAccessMode.READ);
+    final byte[] buf = new byte[SECTOR_SIZE];
     int sector = 0;
-    while (size < filesize) {
-      this.getSectors().set(
-          sector,
-          new DWDiskSector(this, sector, SECTOR_SIZE, true)
-      );
+    raf.seek(this.startPos);
+    while (sector < this.getSectors().size()) {
+      raf.readFully(buf);
+      this.getSectors().write(sector, buf, false);
       sector++;
-      size += SECTOR_SIZE;
     }
+    raf.close();
     long lastmodtime = -1;
     try {
       lastmodtime = this.getFileObject().getContent().getLastModifiedTime();
@@ -0,0 +1,518 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.DriveWireServer;
+
+/**
+ * Sector store holding all sectors in one contiguous buffer.
+ * <p>
+ * Replaces one object and one array per sector with a single arena,
+ * optionally allocated off heap (server setting DiskCacheOffHeap).
+ * Dirty sectors are tracked in a bitset alongside a running count, so
+ * the dirty count is O(1) and sync passes only visit dirty sectors.
+ * Sectors that have never been written read back as zeros.
+ * </p>
+ * <p>
+ * Sector data is guarded by a fixed set of stripe locks rather than one
+ * lock for the whole store, so reads and writes of different sectors do
+ * not wait for each other.  Only resizing the arena locks everything.
+ * Every write gives the sector a new version from a store wide clock,
+ * letting sync copy a sector and later clean it only if nothing was
+ * written in between, and letting caches built from sectors tell
+ * whether they are still current, even across a reload.
+ * </p>
+ */
+public class DWSectorArena implements DWSectorStore {
+  /**
+   * Number of stripe locks, a power of two.
+   */
+  private static final int STRIPES = 64;
+  /**
+   * Owning disk.
+   */
+  private final DWDisk dwDisk;
+  /**
+   * Allocate arena outside of the java heap.
+   */
+  private final boolean offHeap;
+  /**
+   * Held shared by sector operations, exclusive while the arena is
+   * replaced or resized.
+   */
+  private final ReentrantReadWriteLock layout = new ReentrantReadWriteLock();
+  /**
+   * Stripe locks, sector data is guarded by stripe lsn % STRIPES.
+   */
+  private final Object[] stripes = new Object[STRIPES];
+  /**
+   * Sector data.
+   */
+  private ByteBuffer arena;
+  /**
+   * Write version of each sector.
+   */
+  private long[] versions = new long[0];
+  /**
+   * Source of sector versions, never reset.
+   */
+  private final AtomicLong clock = new AtomicLong();
+  /**
+   * Sector size, fixed on first allocation.
+   */
+  private int sectorSize;
+  /**
+   * Number of sectors in store.
+   */
+  private volatile int sectorCount;
+  /**
+   * Dirty sector flags, also the lock for the dirty count.
+   */
+  private final BitSet dirty = new BitSet();
+  /**
+   * Number of dirty sectors.
+   */
+  private int dirtyCount;
+
+  /**
+   * Sector arena constructor.
+   *
+   * @param disk owning disk
+   */
+  public DWSectorArena(final DWDisk disk) {
+    this.dwDisk = disk;
+    this.offHeap = DriveWireServer.getServerConfiguration() != null
+        && DriveWireServer.getServerConfiguration().getBoolean(
+        "DiskCacheOffHeap", DWDefs.DISK_DEFAULT_CACHE_OFFHEAP
+    );
+    for (int i = 0; i < STRIPES; i++) {
+      this.stripes[i] = new Object();
+    }
+  }
+
+  /**
+   * Get stripe lock for a sector.
+   *
+   * @param lsn logical sector number
+   * @return lock object
+   */
+  private Object stripe(final int lsn) {
+    return this.stripes[lsn & (STRIPES - 1)];
+  }
+
+  /**
+   * Get sector size.
+   * <p>
+   * Taken from the disk until the arena is first allocated
+   * </p>
+   *
+   * @return bytes per sector
+   */
+  @Override
+  public int getSectorSize() {
+    if (this.arena == null) {
+      return this.dwDisk.getState().getSectorSize();
+    }
+    return this.sectorSize;
+  }
+
+  /**
+   * Get sector capacity of current arena.
+   *
+   * @return sectors that fit without reallocating
+   */
+  private int capacity() {
+    if (this.arena == null) {
+      return 0;
+    }
+    return this.arena.capacity() / this.sectorSize;
+  }
+
+  /**
+   * Make sure the arena can hold the given number of sectors.
+   * <p>
+   * Grows geometrically so that sector at a time expansion
+   * does not copy the whole image on every write.  Caller must
+   * hold the layout lock exclusively.
+   * </p>
+   *
+   * @param sectors required sector count
+   * @throws IOException arena would be too large
+   */
+  private void ensureCapacity(final int sectors) throws IOException {
+    if (sectors <= this.capacity()) {
+      return;
+    }
+    if (this.arena == null) {
+      this.sectorSize = this.dwDisk.getState().getSectorSize();
+    }
+    final int limit = Integer.MAX_VALUE / this.sectorSize;
+    if (sectors > limit) {
+      throw new IOException("Image would exceed maximum cache size");
+    }
+    int newCapacity = this.sectorCount == 0
+        ? sectors
+        : (int) Math.min((long) this.capacity() * 2, limit);
+    newCapacity = Math.max(newCapacity, sectors);
+    final int bytes = newCapacity * this.sectorSize;
+    final ByteBuffer newArena;
+    if (this.offHeap) {
+      newArena = ByteBuffer.allocateDirect(bytes);
+    } else {
+      newArena = ByteBuffer.allocate(bytes);
+    }
+    if (this.arena != null) {
+      newArena.put(0, this.arena, 0, this.sectorCount * this.sectorSize);
+    }
+    this.arena = newArena;
+    this.versions = Arrays.copyOf(this.versions, newCapacity);
+  }
+
+  /**
+   * Get number of sectors in store.
+   *
+   * @return sector count
+   */
+  @Override
+  public int size() {
+    return this.sectorCount;
+  }
+
+  /**
+   * Set number of sectors in store.
+   *
+   * @param newCount new sector count
+   * @throws IOException arena would be too large
+   */
+  @Override
+  public void setSize(final int newCount) throws IOException {
+    this.layout.writeLock().lock();
+    try {
+      this.resize(newCount);
+    } finally {
+      this.layout.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Set number of sectors in store, layout lock held exclusively.
+   *
+   * @param newCount new sector count
+   * @throws IOException arena would be too large
+   */
+  private void resize(final int newCount) throws IOException {
+    if (newCount > this.sectorCount) {
+      this.ensureCapacity(newCount);
+    } else if (newCount < this.sectorCount) {
+      synchronized (this.dirty) {
+        for (int i = this.dirty.nextSetBit(newCount);
+             i > -1 && i < this.sectorCount;
+             i = this.dirty.nextSetBit(i + 1)) {
+          this.dirtyCount--;
+        }
+        this.dirty.clear(newCount, this.sectorCount);
+      }
+      // sectors beyond the new size must read back as zeros if regrown
+      final byte[] zeros = new byte[this.sectorSize];
+      for (int i = newCount; i < this.sectorCount; i++) {
+        this.arena.put(i * this.sectorSize, zeros);
+        this.versions[i] = this.clock.incrementAndGet();
+      }
+    }
+    this.sectorCount = newCount;
+  }
+
+  /**
+   * Is sector defined.
+   *
+   * @param lsn logical sector number
+   * @return true if sector is within the store
+   */
+  @Override
+  public boolean isDefined(final int lsn) {
+    return lsn >= 0 && lsn < this.sectorCount;
+  }
+
+  /**
+   * Get sector handle.
+   *
+   * @param lsn logical sector number
+   * @return sector view, or null if sector is outside the store
+   */
+  @Override
+  public DWDiskSector get(final int lsn) {
+    if (!this.isDefined(lsn)) {
+      return null;
+    }
+    return new DWDiskSector(this, lsn);
+  }
+
+  /**
+   * Read sector data.
+   *
+   * @param lsn logical sector number
+   * @return copy of sector bytes
+   */
+  @Override
+  public byte[] read(final int lsn) {
+    final byte[] buf = new byte[this.dwDisk.getState().getSectorSize()];
+    this.readVersioned(lsn, buf);
+    return buf;
+  }
+
+  /**
+   * Read sector data into a caller supplied buffer.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   */
+  @Override
+  public void read(final int lsn, final byte[] buffer) {
+    this.copyOut(lsn, buffer, 0);
+  }
+
+  /**
+   * Read sector data into a caller supplied buffer at an offset.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer with room for one sector after offset
+   * @param offset position in buffer to read to
+   */
+  @Override
+  public void read(final int lsn, final byte[] buffer, final int offset) {
+    this.copyOut(lsn, buffer, offset);
+  }
+
+  /**
+   * Read sector data along with its write version.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @return version of the data read
+   */
+  @Override
+  public long readVersioned(final int lsn, final byte[] buffer) {
+    return this.copyOut(lsn, buffer, 0);
+  }
+
+  /**
+   * Copy sector data out of the arena.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer with room for one sector after offset
+   * @param offset position in buffer to read to
+   * @return version of the data read
+   */
+  private long copyOut(final int lsn, final byte[] buffer, final int offset) {
+    this.layout.readLock().lock();
+    try {
+      if (this.arena == null) {
+        Arrays.fill(
+            buffer, offset,
+            offset + this.dwDisk.getState().getSectorSize(), (byte) 0
+        );
+        return 0;
+      }
+      synchronized (this.stripe(lsn)) {
+        this.arena.get(
+            lsn * this.sectorSize, buffer, offset, this.sectorSize
+        );
+        return this.versions[lsn];
+      }
+    } finally {
+      this.layout.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get write version of sector.
+   *
+   * @param lsn logical sector number
+   * @return version, changes whenever the sector is written
+   */
+  @Override
+  public long getVersion(final int lsn) {
+    this.layout.readLock().lock();
+    try {
+      if (lsn < 0 || lsn >= this.versions.length) {
+        return 0;
+      }
+      synchronized (this.stripe(lsn)) {
+        return this.versions[lsn];
+      }
+    } finally {
+      this.layout.readLock().unlock();
+    }
+  }
+
+  /**
+   * Write sector data.
+   *
+   * @param lsn       logical sector number
+   * @param data      sector bytes
+   * @param dirtyFlag tag sector as dirty
+   * @throws IOException arena would be too large
+   */
+  @Override
+  public void write(
+      final int lsn, final byte[] data, final boolean dirtyFlag
+  ) throws IOException {
+    this.layout.readLock().lock();
+    try {
+      if (lsn < this.sectorCount) {
+        this.store(lsn, data, dirtyFlag);
+        return;
+      }
+    } finally {
+      this.layout.readLock().unlock();
+    }
+    // growing, the store must happen under the same lock as the resize
+    // or a clear() in between would leave no arena to write to
+    this.layout.writeLock().lock();
+    try {
+      if (lsn >= this.sectorCount) {
+        this.resize(lsn + 1);
+      }
+      this.store(lsn, data, dirtyFlag);
+    } finally {
+      this.layout.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Store sector data, layout lock held.
+   *
+   * @param lsn       logical sector number
+   * @param data      sector bytes
+   * @param dirtyFlag tag sector as dirty
+   */
+  private void store(
+      final int lsn, final byte[] data, final boolean dirtyFlag
+  ) {
+    synchronized (this.stripe(lsn)) {
+      this.arena.put(lsn * this.sectorSize, data, 0, this.sectorSize);
+      this.versions[lsn] = this.clock.incrementAndGet();
+      if (dirtyFlag) {
+        this.makeDirty(lsn);
+      } else {
+        this.makeClean(lsn);
+      }
+    }
+  }
+
+  /**
+   * Is sector dirty.
+   *
+   * @param lsn logical sector number
+   * @return true if dirty
+   */
+  @Override
+  public boolean isDirty(final int lsn) {
+    synchronized (this.dirty) {
+      return lsn >= 0 && this.dirty.get(lsn);
+    }
+  }
+
+  /**
+   * Tag sector as dirty.
+   *
+   * @param lsn logical sector number
+   */
+  @Override
+  public void makeDirty(final int lsn) {
+    synchronized (this.dirty) {
+      if (!this.dirty.get(lsn)) {
+        this.dirty.set(lsn);
+        this.dirtyCount++;
+      }
+    }
+  }
+
+  /**
+   * Remove dirty tag on sector.
+   *
+   * @param lsn logical sector number
+   */
+  @Override
+  public void makeClean(final int lsn) {
+    synchronized (this.dirty) {
+      if (this.dirty.get(lsn)) {
+        this.dirty.clear(lsn);
+        this.dirtyCount--;
+      }
+    }
+  }
+
+  /**
+   * Remove dirty tag on sector if it has not been written since.
+   *
+   * @param lsn     logical sector number
+   * @param version version returned when the sector was read
+   * @return true if the sector is now clean
+   */
+  @Override
+  public boolean makeClean(final int lsn, final long version) {
+    this.layout.readLock().lock();
+    try {
+      synchronized (this.stripe(lsn)) {
+        if (lsn >= this.versions.length || this.versions[lsn] != version) {
+          return false;
+        }
+        this.makeClean(lsn);
+        return true;
+      }
+    } finally {
+      this.layout.readLock().unlock();
+    }
+  }
+
+  /**
+   * Get count of dirty sectors.
+   *
+   * @return dirty sectors
+   */
+  @Override
+  public int getDirtyCount() {
+    synchronized (this.dirty) {
+      return this.dirtyCount;
+    }
+  }
+
+  /**
+   * Find next dirty sector.
+   *
+   * @param fromLsn first LSN to consider
+   * @return LSN of next dirty sector, or -1 if there are none
+   */
+  @Override
+  public int nextDirty(final int fromLsn) {
+    synchronized (this.dirty) {
+      return this.dirty.nextSetBit(Math.max(0, fromLsn));
+    }
+  }
+
+  /**
+   * Discard all sectors and release the arena.
+   */
+  @Override
+  public void clear() {
+    this.layout.writeLock().lock();
+    try {
+      this.arena = null;
+      this.versions = new long[0];
+      this.sectorCount = 0;
+      synchronized (this.dirty) {
+        this.dirty.clear();
+        this.dirtyCount = 0;
+      }
+    } finally {
+      this.layout.writeLock().unlock();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.IOException;
+
+/**
+ * Backing store for the sectors of a disk image.
+ * <p>
+ * Sectors are addressed by LSN.  Implementations decide where the
+ * sector data actually lives (heap, memory mapped file...) and keep
+ * track of which sectors have been modified since they were last
+ * written back to the image source.
+ * </p>
+ */
+public interface DWSectorStore {
+  /**
+   * Get number of sectors in store.
+   *
+   * @return sector count
+   */
+  int size();
+
+  /**
+   * Set number of sectors in store.
+   * <p>
+   * Growing the store adds undefined sectors, shrinking
+   * discards sectors beyond the new size
+   * </p>
+   *
+   * @param sectorCount new sector count
+   * @throws IOException failed to resize backing store
+   */
+  void setSize(int sectorCount) throws IOException;
+
+  /**
+   * Get sector size.
+   *
+   * @return bytes per sector
+   */
+  int getSectorSize();
+
+  /**
+   * Is sector defined.
+   *
+   * @param lsn logical sector number
+   * @return true if sector holds data
+   */
+  boolean isDefined(int lsn);
+
+  /**
+   * Get sector handle.
+   *
+   * @param lsn logical sector number
+   * @return sector, or null if sector is undefined
+   */
+  DWDiskSector get(int lsn);
+
+  /**
+   * Read sector data.
+   *
+   * @param lsn logical sector number
+   * @return sector bytes
+   * @throws IOException failed to read from backing store
+   */
+  byte[] read(int lsn) throws IOException;
+
+  /**
+   * Read sector data into a caller supplied buffer.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @throws IOException failed to read from backing store
+   */
+  void read(int lsn, byte[] buffer) throws IOException;
+
+  /**
+   * Read sector data into a caller supplied buffer at an offset.
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer with room for one sector after offset
+   * @param offset position in buffer to read to
+   * @throws IOException failed to read from backing store
+   */
+  void read(int lsn, byte[] buffer, int offset) throws IOException;
+
+  /**
+   * Read sector data along with its write version.
+   * <p>
+   * The version changes whenever the sector is written, so a caller
+   * copying dirty sectors out can tell whether they were written again
+   * before it finished, see {@link #makeClean(int, long)}.
+   * </p>
+   *
+   * @param lsn    logical sector number
+   * @param buffer buffer of at least one sector
+   * @return version of the data read
+   * @throws IOException failed to read from backing store
+   */
+  long readVersioned(int lsn, byte[] buffer) throws IOException;
+
+  /**
+   * Get write version of sector.
+   * <p>
+   * Anything derived from sector contents is still current while the
+   * versions of the sectors it came from are unchanged
+   * </p>
+   *
+   * @param lsn logical sector number
+   * @return version
+   */
+  long getVersion(int lsn);
+
+  /**
+   * Write sector data.
+   * <p>
+   * Undefined sectors are created as required
+   * </p>
+   *
+   * @param lsn   logical sector number
+   * @param data  sector bytes
+   * @param dirty tag sector as dirty
+   * @throws IOException failed to write to backing store
+   */
+  void write(int lsn, byte[] data, boolean dirty) throws IOException;
+
+  /**
+   * Is sector dirty.
+   *
+   * @param lsn logical sector number
+   * @return true if dirty
+   */
+  boolean isDirty(int lsn);
+
+  /**
+   * Tag sector as dirty.
+   *
+   * @param lsn logical sector number
+   */
+  void makeDirty(int lsn);
+
+  /**
+   * Remove dirty tag on sector.
+   *
+   * @param lsn logical sector number
+   */
+  void makeClean(int lsn);
+
+  /**
+   * Remove dirty tag on sector if it has not been written since.
+   *
+   * @param lsn     logical sector number
+   * @param version version returned by {@link #readVersioned}
+   * @return true if the sector is now clean
+   */
+  boolean makeClean(int lsn, long version);
+
+  /**
+   * Get count of dirty sectors.
+   *
+   * @return dirty sectors
+   */
+  int getDirtyCount();
+
+  /**
+   * Find next dirty sector.
+   *
+   * @param fromLsn first LSN to consider
+   * @return LSN of next dirty sector, or -1 if there are none
+   */
+  int nextDirty(int fromLsn);
+
+  /**
+   * Hint that a range of sectors is about to be read.
+   * <p>
+   * Stores that already hold every sector in memory have nothing
+   * to do.  Sectors beyond the end of the store are ignored.
+   * </p>
+   *
+   * @param fromLsn first LSN in range
+   * @param count   number of sectors in range
+   */
+  default void prefetch(int fromLsn, int count) {
+    // sectors are resident
+  }
+
+  /**
+   * Discard all sectors.
+   *
+   * @throws IOException failed to release backing store
+   */
+  void clear() throws IOException;
+}
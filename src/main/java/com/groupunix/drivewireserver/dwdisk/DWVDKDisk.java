@@ -204,19 +204,19 @@ public final class DWVDKDisk extends DWDisk {
 
     if (
         this.getFileObject().getContent().getSize()
-            != (long) this.getParams().getInt("_sectors")
+            != (long) this.getState().getSectors()
             * DWVDKDisk.VDK_SECTOR_SIZE
             + header.getHeaderLen()
     ) {
       throw new DWImageFormatException("Invalid VDK image, wrong file size");
     }
 
-    this.getSectors().setSize(this.getParams().getInt("_sectors"));
+    this.getSectors().setSize(this.getState().getSectors());
 
     final byte[] buf = new byte[DWVDKDisk.VDK_SECTOR_SIZE];
     int readres;
 
-    for (int i = 0; i < this.getParams().getInt("_sectors"); i++) {
+    for (int i = 0; i < this.getState().getSectors(); i++) {
       readres = 0;
       while (readres < DWVDKDisk.VDK_SECTOR_SIZE) {
         readres += fis.read(
@@ -225,16 +225,14 @@ public final class DWVDKDisk extends DWDisk {
             DWVDKDisk.VDK_SECTOR_SIZE - readres
         );
       }
-      this.getSectors().set(
-          i,
-          new DWDiskSector(this, i, DWVDKDisk.VDK_SECTOR_SIZE, false)
-      );
-      this.getSectors().get(i).setData(buf, false);
+      this.getSectors().write(i, buf, false);
     }
     fis.close();
     this.setParam(
         "_filesystem",
-        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(this.getSectors()))
+        DWUtils.prettyFileSystem(DWDiskDrives.getDiskFSType(
+            this.getFileObject(), this.getSectors()
+        ))
     );
   }
 
@@ -256,7 +254,7 @@ public final class DWVDKDisk extends DWDisk {
           "Attempt to seek beyond end of image"
       );
     } else {
-      this.setParam("_lsn", newLSN);
+      this.getState().setLsn(newLSN);
     }
   }
 
@@ -280,8 +278,8 @@ public final class DWVDKDisk extends DWDisk {
     if (this.isWriteProtect()) {
       throw new DWDriveWriteProtectedException("Disk is write protected");
     } else {
-      this.getSectors().get(this.getLSN()).setData(data);
-      this.incParam("_writes");
+      this.getSectors().write(this.getLSN(), data, true);
+      this.getState().incWrites();
     }
   }
 
@@ -292,7 +290,7 @@ public final class DWVDKDisk extends DWDisk {
    * @throws IOException read failure
    */
   public byte[] readSector() throws IOException {
-    this.incParam("_reads");
-    return this.getSectors().get(this.getLSN()).getData();
+    this.getState().incReads();
+    return this.getSectors().read(this.getLSN());
   }
 }
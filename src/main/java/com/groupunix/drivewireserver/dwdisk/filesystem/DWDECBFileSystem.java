@@ -1,14 +1,19 @@
 package com.groupunix.drivewireserver.dwdisk.filesystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 import com.groupunix.drivewireserver.DECBDefs;
 import com.groupunix.drivewireserver.DWDefs;
 import com.groupunix.drivewireserver.DriveWireServer;
 import com.groupunix.drivewireserver.dwdisk.DWDisk;
 import com.groupunix.drivewireserver.dwdisk.DWDiskSector;
+import com.groupunix.drivewireserver.dwdisk.DWSectorStore;
 import com.groupunix.drivewireserver.dwexceptions.DWDiskInvalidSectorNumber;
 import com.groupunix.drivewireserver.dwexceptions.DWDriveWriteProtectedException;
 import com.groupunix.drivewireserver.dwexceptions.DWFileSystemFileNotFoundException;
@@ -94,6 +99,10 @@ public class DWDECBFileSystem extends DWFileSystem {
    * Filesystem errors.
    */
   private final List<String> fsErrors = new ArrayList<>();
+  /**
+   * Parsed FAT and directory shared by all file systems on the disk.
+   */
+  private final DWDECBFileSystemCache cache;
 
   /**
    * DECB File system constructor.
@@ -102,6 +111,7 @@ public class DWDECBFileSystem extends DWFileSystem {
    */
   public DWDECBFileSystem(final DWDisk disk) {
     super(disk);
+    this.cache = DWDECBFileSystemCache.forDisk(disk);
   }
 
   /**
@@ -114,27 +124,13 @@ public class DWDECBFileSystem extends DWFileSystem {
    */
   public List<DWFileSystemDirEntry> getDirectory(final String path)
       throws IOException, DWFileSystemInvalidDirectoryException {
-    final List<DWFileSystemDirEntry> dir = new ArrayList<>();
     try {
-      for (int i = 0; i < BLOCK_GROUPS; i++) {
-        for (int j = 0; j < DIRECTORY_BLOCKS; j++) {
-          final byte[] buf = new byte[DIRECTORY_SIZE];
-          System.arraycopy(
-              this.getDisk().getSector(i + DECBDefs.DIRECTORY_OFFSET).getData(),
-              DIRECTORY_SIZE * j,
-              buf,
-              0,
-              DIRECTORY_SIZE
-          );
-          dir.add(new DWDECBFileSystemDirEntry(buf));
-        }
-      }
+      return new ArrayList<>(this.cache.getEntries());
     } catch (DWDiskInvalidSectorNumber e) {
       throw new DWFileSystemInvalidDirectoryException(
           "Invalid DECB directory: " + e.getMessage()
       );
     }
-    return dir;
   }
 
   /**
@@ -145,17 +141,10 @@ public class DWDECBFileSystem extends DWFileSystem {
    */
   public boolean hasFile(final String filename) throws IOException {
     try {
-      for (final DWFileSystemDirEntry entry : this.getDirectory(null)) {
-        if (
-            (entry.getFileName().trim() + "."
-                + entry.getFileExt()).equalsIgnoreCase(filename)
-        ) {
-          return true;
-        }
-      }
-    } catch (DWFileSystemInvalidDirectoryException ignored) {
+      return this.cache.find(filename) != null;
+    } catch (DWDiskInvalidSectorNumber ignored) {
+      return false;
     }
-    return false;
   }
 
   /**
@@ -194,13 +183,16 @@ public class DWDECBFileSystem extends DWFileSystem {
       throws DWFileSystemFileNotFoundException,
       IOException,
       DWFileSystemInvalidDirectoryException {
-    for (final DWFileSystemDirEntry entry : this.getDirectory(null)) {
-      if (
-          (entry.getFileName().trim() + "." + entry.getFileExt())
-              .equalsIgnoreCase(filename)
-      ) {
-        return entry;
-      }
+    final DWDECBFileSystemDirEntry entry;
+    try {
+      entry = this.cache.find(filename);
+    } catch (DWDiskInvalidSectorNumber e) {
+      throw new DWFileSystemInvalidDirectoryException(
+          "Invalid DECB directory: " + e.getMessage()
+      );
+    }
+    if (entry != null) {
+      return entry;
     }
     throw new DWFileSystemFileNotFoundException(
         "File '" + filename + "' not found in DOS directory."
@@ -224,33 +216,50 @@ public class DWDECBFileSystem extends DWFileSystem {
       IOException,
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException {
-    byte[] res = new byte[0];
-    final ArrayList<DWDiskSector> sectors = this.getFileSectors(filename);
-    final int bytes = ((DWDECBFileSystemDirEntry) getDirEntry(filename))
-        .getBytesInLastSector();
-    if (sectors != null && sectors.size() > 0) {
-      res = new byte[(sectors.size() - 1) * DWDefs.DISK_SECTORSIZE + bytes];
-      for (int i = 0; i < sectors.size() - 1; i++) {
-        System.arraycopy(
-            sectors.get(i).getData(),
-            0,
-            res,
-            i * DWDefs.DISK_SECTORSIZE,
-            DWDefs.DISK_SECTORSIZE
-        );
-      }
+    try (DWFileSystemInputStream in = this.openFile(filename)) {
+      final byte[] res = new byte[(int) in.length()];
+      in.readNBytes(res, 0, res.length);
+      return res;
     }
+  }
+
+  /**
+   * Open file for reading.
+   * <p>
+   * Sectors are read as the granule chain is followed
+   * </p>
+   *
+   * @param filename source file name
+   * @return stream of file contents
+   * @throws DWFileSystemFileNotFoundException file not found
+   * @throws DWFileSystemInvalidFATException invalid fat descriptor
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  @Override
+  public DWFileSystemInputStream openFile(final String filename)
+      throws DWFileSystemFileNotFoundException,
+      DWFileSystemInvalidFATException,
+      IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    final DWDECBFileSystemDirEntry entry
+        = (DWDECBFileSystemDirEntry) getDirEntry(filename);
+    final DWDECBFileSystemFAT fat = getFAT();
+    final long sectors
+        = fat.getFileSectorNumbers(entry.getFirstGranule()).count();
+    long length = 0;
     // last sector is partial bytes
-    if (bytes > 0) {
-      assert sectors != null;
-      System.arraycopy(
-          sectors.get(sectors.size() - 1).getData(),
-          0,
-          res,
-          (sectors.size() - 1) * DWDefs.DISK_SECTORSIZE, bytes
-      );
+    if (sectors > 0) {
+      length = (sectors - 1) * DWDefs.DISK_SECTORSIZE
+          + entry.getBytesInLastSector();
     }
-    return res;
+    return new DWFileSystemInputStream(
+        this.getDisk().getSectors(),
+        fat.getFileSectorNumbers(entry.getFirstGranule()).iterator(),
+        length
+    );
   }
 
   /**
@@ -274,62 +283,126 @@ public class DWDECBFileSystem extends DWFileSystem {
       IOException,
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException {
-    final DWDECBFileSystemFAT fat = getFAT();
-    // make fat entries
-    final byte firstGranule = fat.allocate(fileContents.length);
-
-    // dir entry
-    this.addDirectoryEntry(
-        filename, firstGranule, (byte) (fileContents.length % BUFFER_SIZE)
+    this.addFile(
+        filename, new ByteArrayInputStream(fileContents), fileContents.length
     );
+  }
 
-    // put content into sectors
-    final ArrayList<DWDiskSector> sectors = this.getFileSectors(filename);
-
-    int byteswritten = 0;
-    byte[] buf = new byte[BUFFER_SIZE];
-
-    for (final DWDiskSector sector : sectors) {
-      if (fileContents.length - byteswritten >= BUFFER_SIZE) {
-        System.arraycopy(fileContents, byteswritten, buf, 0, BUFFER_SIZE);
-        byteswritten += BUFFER_SIZE;
-      } else {
-        System.arraycopy(
-            fileContents,
-            byteswritten,
-            buf,
-            0,
-            fileContents.length - byteswritten
+  /**
+   * Add file to filesystem from a stream.
+   * <p>
+   * Contents are written a sector at a time as they are read
+   * </p>
+   *
+   * @param filename file name
+   * @param contents stream of contents
+   * @param length   bytes to take from stream
+   * @throws DWFileSystemFullException file system full
+   * @throws DWFileSystemInvalidFilenameException invalid filename
+   * @throws DWFileSystemFileNotFoundException filesystem not found
+   * @throws DWFileSystemInvalidFATException invalid FAT descriptor
+   * @throws IOException failed to read contents or write to source
+   * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  @Override
+  public void addFile(
+      final String filename, final InputStream contents, final int length
+  ) throws DWFileSystemFullException,
+      DWFileSystemInvalidFilenameException,
+      DWFileSystemFileNotFoundException,
+      DWFileSystemInvalidFATException,
+      IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    final DWDECBFileSystemFAT fat;
+    final byte firstGranule;
+    synchronized (this.cache) {
+      fat = getFAT();
+      // make fat entries
+      firstGranule = fat.allocate(length);
+      this.cache.fatWritten();
+
+      // dir entry
+      this.addDirectoryEntry(
+          filename, firstGranule, (byte) (length % BUFFER_SIZE)
+      );
+    }
+
+    this.writeContents(fat, firstGranule, contents, length);
+  }
+
+  /**
+   * Write file contents into the granules allocated to it.
+   * <p>
+   * The last sector is zero padded.  A stream that ends before
+   * length bytes is an error, the caller must discard the granules
+   * </p>
+   *
+   * @param fat          FAT holding the granule chain
+   * @param firstGranule first granule of file
+   * @param contents     stream of contents
+   * @param length       bytes to take from stream
+   * @throws DWFileSystemInvalidFATException invalid granule chain
+   * @throws IOException contents too short, failed to read contents or
+   *                     write to source
+   */
+  void writeContents(
+      final DWDECBFileSystemFAT fat,
+      final byte firstGranule,
+      final InputStream contents,
+      final int length
+  ) throws DWFileSystemInvalidFATException, IOException {
+    final DWSectorStore store = this.getDisk().getSectors();
+    final PrimitiveIterator.OfInt lsns
+        = fat.getFileSectorNumbers(firstGranule).iterator();
+    final byte[] buf = new byte[BUFFER_SIZE];
+    int remaining = length;
+    while (lsns.hasNext()) {
+      final int want = Math.min(BUFFER_SIZE, remaining);
+      final int got = contents.readNBytes(buf, 0, want);
+      if (got < want) {
+        throw new IOException(
+            "Contents ended " + (remaining - got) + " bytes short"
         );
-        // zero pad partial sectors?
-        for (
-            int i = fileContents.length - byteswritten; i < BUFFER_SIZE; i++
-        ) {
-          buf[i] = 0;
-        }
-        byteswritten += fileContents.length - byteswritten;
       }
-      sector.setData(buf);
+      remaining -= got;
+      Arrays.fill(buf, got, BUFFER_SIZE, (byte) 0);
+      store.write(lsns.nextInt(), buf, true);
     }
   }
 
   /**
    * Get file allocation table.
+   * <p>
+   * The FAT is shared by all file systems on the disk and is only read
+   * again once the FAT sector has been written by something else
+   * </p>
    *
    * @return FAT
    * @throws DWFileSystemInvalidFATException invalid FAT descriptor
    * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws IOException failed to read from source
    */
   public DWDECBFileSystemFAT getFAT()
-      throws DWFileSystemInvalidFATException, DWDiskInvalidSectorNumber {
+      throws DWFileSystemInvalidFATException,
+      DWDiskInvalidSectorNumber,
+      IOException {
     if (this.getDisk().getDiskSectors() < DECBDefs.FAT_OFFSET) {
       throw new DWFileSystemInvalidFATException(
           "Image is too small to contain a FAT"
       );
     }
-    return new DWDECBFileSystemFAT(
-        this.getDisk().getSector(DECBDefs.FAT_OFFSET)
-    );
+    return this.cache.getFAT();
+  }
+
+  /**
+   * Get parsed FAT and directory shared by file systems on this disk.
+   *
+   * @return cache
+   */
+  DWDECBFileSystemCache getCache() {
+    return this.cache;
   }
 
   private void addDirectoryEntry(
@@ -339,11 +412,9 @@ public class DWDECBFileSystem extends DWFileSystem {
       IOException,
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException {
-    final List<DWFileSystemDirEntry> dirEntries = this.getDirectory(null);
-
     int dirsize = 0;
 
-    for (final DWFileSystemDirEntry dirEntry : dirEntries) {
+    for (final DWFileSystemDirEntry dirEntry : this.getDirectory(null)) {
       if (((DWDECBFileSystemDirEntry) dirEntry).isUsed()) {
         dirsize++;
       }
@@ -353,12 +424,35 @@ public class DWDECBFileSystem extends DWFileSystem {
       throw new DWFileSystemFullException("No free directory entries");
     }
 
-    byte[] secdata;
-
+    final byte[] buf = this.directoryRecord(filename, firstGranule, leftovers);
     final DWDiskSector sec = this.getDisk().getSector(
         dirsize / DIRECTORY_ENTRY_LEN + DECBDefs.DIRECTORY_OFFSET
     );
-    secdata = sec.getData();
+    final byte[] secdata = sec.getData();
+    System.arraycopy(
+        buf,
+        0,
+        secdata,
+        (dirsize % DIRECTORY_ENTRY_LEN) * DIRECTORY_BUFFER_SIZE,
+        DIRECTORY_BUFFER_SIZE
+    );
+    sec.setData(secdata);
+    this.cache.directoryWritten(dirsize, new DWDECBFileSystemDirEntry(buf));
+  }
+
+  /**
+   * Build directory record for a new file.
+   *
+   * @param filename     file name
+   * @param firstGranule first granule of file
+   * @param leftovers    bytes used in last sector
+   * @return 32 byte directory record
+   * @throws DWFileSystemInvalidFilenameException invalid filename
+   * @throws IOException failed to encode filename
+   */
+  byte[] directoryRecord(
+      final String filename, final byte firstGranule, final byte leftovers
+  ) throws DWFileSystemInvalidFilenameException, IOException {
     final String[] fileParts = filename.split("\\.");
 
     if (fileParts.length != 2) {
@@ -385,7 +479,7 @@ public class DWDECBFileSystem extends DWFileSystem {
       name.append(" ");
     }
 
-    byte[] buf = new byte[DIRECTORY_BUFFER_SIZE];
+    final byte[] buf = new byte[DIRECTORY_BUFFER_SIZE];
     System.arraycopy(
         name.toString().getBytes(DWDefs.ENCODING),
         0,
@@ -458,14 +552,7 @@ public class DWDECBFileSystem extends DWFileSystem {
     buf[FIRST_GRANULE_OFFSET] = firstGranule;
     buf[UNUSED_OFFSET] = 0;
     buf[LEFTOVERS_OFFSET] = leftovers;
-    System.arraycopy(
-        buf,
-        0,
-        secdata,
-        (dirsize % DIRECTORY_ENTRY_LEN) * DIRECTORY_BUFFER_SIZE,
-        DIRECTORY_BUFFER_SIZE
-    );
-    sec.setData(secdata);
+    return buf;
   }
 
   /**
@@ -488,14 +575,10 @@ public class DWDECBFileSystem extends DWFileSystem {
       for (int i = 0; i < BUFFER_SIZE; i++) {
         buf[i] = (byte) BYTE_MASK;
       }
-      this.getDisk().getSectors().removeAllElements();
+      this.getDisk().getSectors().setSize(0);
+      this.getDisk().getSectors().setSize(MAX_SECTORS);
       for (int i = 0; i < MAX_SECTORS; i++) {
-        this.getDisk().getSectors().add(
-            new DWDiskSector(
-                this.getDisk(), i, BUFFER_SIZE, this.getDisk().isDirect()
-            )
-        );
-        this.getDisk().getSectors().get(i).setData(buf);
+        this.getDisk().getSectors().write(i, buf, true);
       }
     }
 
@@ -0,0 +1,249 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.groupunix.drivewireserver.DECBDefs;
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWSectorStore;
+import com.groupunix.drivewireserver.dwexceptions.DWDiskInvalidSectorNumber;
+
+/**
+ * Parsed FAT and directory of a DECB disk.
+ * <p>
+ * One cache is kept per disk, however many file system objects are made
+ * for it, so repeated lookups by server commands only parse the disk
+ * once.  The cache is held by the disk itself and goes away with it.
+ * The FAT and the directory each remember the version of the sectors
+ * they were read from and are read again as soon as any of those
+ * sectors is written by something else, such as the CoCo.  Writes made
+ * through the cache update it in place instead.
+ * </p>
+ */
+final class DWDECBFileSystemCache {
+  /**
+   * Source disk.
+   */
+  private final DWDisk disk;
+  /**
+   * Store the directory was read from.
+   */
+  private DWSectorStore dirStore;
+  /**
+   * Versions of directory sectors read.
+   */
+  private final long[] dirVersions = new long[DWDECBFileSystem.BLOCK_GROUPS];
+  /**
+   * Directory slots in disk order, null if not read.
+   */
+  private List<DWDECBFileSystemDirEntry> entries;
+  /**
+   * First directory slot for each name.
+   */
+  private final Map<String, DWDECBFileSystemDirEntry> names = new HashMap<>();
+  /**
+   * Store the FAT was read from.
+   */
+  private DWSectorStore fatStore;
+  /**
+   * Version of FAT sector read.
+   */
+  private long fatVersion;
+  /**
+   * Parsed FAT, null if not read.
+   */
+  private DWDECBFileSystemFAT fat;
+
+  /**
+   * DECB file system cache constructor.
+   *
+   * @param source source disk
+   */
+  private DWDECBFileSystemCache(final DWDisk source) {
+    this.disk = source;
+  }
+
+  /**
+   * Get cache for a disk.
+   *
+   * @param disk source disk
+   * @return cache shared by all file systems on the disk
+   */
+  static synchronized DWDECBFileSystemCache forDisk(final DWDisk disk) {
+    if (disk.getFileSystemCache() instanceof DWDECBFileSystemCache cache) {
+      return cache;
+    }
+    final DWDECBFileSystemCache cache = new DWDECBFileSystemCache(disk);
+    disk.setFileSystemCache(cache);
+    return cache;
+  }
+
+  /**
+   * Name a directory entry is looked up by.
+   *
+   * @param filename file name and extension
+   * @return lookup key
+   */
+  private static String key(final String filename) {
+    return filename.toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Name a directory entry is looked up by.
+   *
+   * @param entry directory entry
+   * @return lookup key
+   */
+  private static String key(final DWDECBFileSystemDirEntry entry) {
+    return key(entry.getFileName().trim() + "." + entry.getFileExt());
+  }
+
+  /**
+   * Get directory slots.
+   *
+   * @return slots in disk order
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber directory is beyond end of disk
+   */
+  synchronized List<DWDECBFileSystemDirEntry> getEntries()
+      throws IOException, DWDiskInvalidSectorNumber {
+    final DWSectorStore store = this.disk.getSectors();
+    if (this.entries == null || store != this.dirStore
+        || !this.isDirectoryCurrent(store)) {
+      this.readDirectory(store);
+    }
+    return Collections.unmodifiableList(this.entries);
+  }
+
+  /**
+   * Find directory entry by name.
+   *
+   * @param filename file name and extension
+   * @return entry, or null if not present
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber directory is beyond end of disk
+   */
+  synchronized DWDECBFileSystemDirEntry find(final String filename)
+      throws IOException, DWDiskInvalidSectorNumber {
+    this.getEntries();
+    return this.names.get(key(filename));
+  }
+
+  /**
+   * Get FAT.
+   *
+   * @return FAT
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber FAT is beyond end of disk
+   */
+  synchronized DWDECBFileSystemFAT getFAT()
+      throws IOException, DWDiskInvalidSectorNumber {
+    final DWSectorStore store = this.disk.getSectors();
+    if (this.fat == null || store != this.fatStore
+        || store.getVersion(DECBDefs.FAT_OFFSET) != this.fatVersion) {
+      this.fatStore = store;
+      this.fatVersion = store.getVersion(DECBDefs.FAT_OFFSET);
+      this.fat = new DWDECBFileSystemFAT(
+          this.disk.getSector(DECBDefs.FAT_OFFSET)
+      );
+    }
+    return this.fat;
+  }
+
+  /**
+   * Note that the FAT held here has been written to the disk.
+   */
+  synchronized void fatWritten() {
+    if (this.fat != null && this.disk.getSectors() == this.fatStore) {
+      this.fatVersion = this.fatStore.getVersion(DECBDefs.FAT_OFFSET);
+    }
+  }
+
+  /**
+   * Forget the FAT held here, so it is read from the disk again.
+   * <p>
+   * Used when changes made to it are abandoned before being written
+   * </p>
+   */
+  synchronized void discardFAT() {
+    this.fat = null;
+  }
+
+  /**
+   * Note that a directory slot has been written to the disk.
+   *
+   * @param slot  slot number
+   * @param entry new contents of slot
+   */
+  synchronized void directoryWritten(
+      final int slot, final DWDECBFileSystemDirEntry entry
+  ) {
+    if (this.entries == null || this.disk.getSectors() != this.dirStore) {
+      return;
+    }
+    final int block = slot / DWDECBFileSystem.DIRECTORY_BLOCKS;
+    this.entries.set(slot, entry);
+    this.dirVersions[block]
+        = this.dirStore.getVersion(block + DECBDefs.DIRECTORY_OFFSET);
+    this.names.clear();
+    for (final DWDECBFileSystemDirEntry each : this.entries) {
+      this.names.putIfAbsent(key(each), each);
+    }
+  }
+
+  /**
+   * Are all directory sectors unchanged since they were read.
+   *
+   * @param store current store of disk
+   * @return true if directory is still current
+   */
+  private boolean isDirectoryCurrent(final DWSectorStore store) {
+    for (int i = 0; i < this.dirVersions.length; i++) {
+      if (store.getVersion(i + DECBDefs.DIRECTORY_OFFSET)
+          != this.dirVersions[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read and parse all directory sectors.
+   *
+   * @param store current store of disk
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber directory is beyond end of disk
+   */
+  private void readDirectory(final DWSectorStore store)
+      throws IOException, DWDiskInvalidSectorNumber {
+    this.entries = null;
+    this.names.clear();
+    final List<DWDECBFileSystemDirEntry> dir = new ArrayList<>(
+        DWDECBFileSystem.BLOCK_GROUPS * DWDECBFileSystem.DIRECTORY_BLOCKS
+    );
+    for (int i = 0; i < DWDECBFileSystem.BLOCK_GROUPS; i++) {
+      final int lsn = i + DECBDefs.DIRECTORY_OFFSET;
+      // version first, so a write during the read is seen next time
+      this.dirVersions[i] = store.getVersion(lsn);
+      final byte[] data = this.disk.getSector(lsn).getData();
+      for (int j = 0; j < DWDECBFileSystem.DIRECTORY_BLOCKS; j++) {
+        final byte[] buf = new byte[DWDECBFileSystem.DIRECTORY_SIZE];
+        System.arraycopy(
+            data, DWDECBFileSystem.DIRECTORY_SIZE * j,
+            buf, 0, DWDECBFileSystem.DIRECTORY_SIZE
+        );
+        final DWDECBFileSystemDirEntry entry
+            = new DWDECBFileSystemDirEntry(buf);
+        dir.add(entry);
+        this.names.putIfAbsent(key(entry), entry);
+      }
+    }
+    this.dirStore = store;
+    this.entries = dir;
+  }
+}
@@ -2,13 +2,15 @@ package com.groupunix.drivewireserver.dwdisk.filesystem;
 
 import com.groupunix.drivewireserver.DECBDefs;
 import com.groupunix.drivewireserver.dwdisk.DWDiskSector;
+import com.groupunix.drivewireserver.dwdisk.DWSectorStore;
 import com.groupunix.drivewireserver.dwexceptions.DWFileSystemFullException;
 import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFATException;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Vector;
+import java.util.BitSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.groupunix.drivewireserver.DWDefs.BYTE_MASK;
 import static com.groupunix.drivewireserver.DWDefs.LOW_NIBBLE_MASK;
@@ -38,14 +40,33 @@ public class DWDECBFileSystemFAT {
    * Source disk sector.
    */
   private final DWDiskSector diskSector;
+  /**
+   * FAT sector contents.
+   */
+  private final byte[] table;
+  /**
+   * Free granules.
+   */
+  private final BitSet free = new BitSet(DECBDefs.FAT_SIZE);
 
   /**
    * DECB File system FAT.
+   * <p>
+   * The FAT sector is read once, changes are made to the copy held
+   * here and written back to the sector as each allocation completes.
+   * </p>
    *
    * @param sector disk sector
+   * @throws IOException failed to read FAT sector
    */
-  public DWDECBFileSystemFAT(final DWDiskSector sector) {
+  public DWDECBFileSystemFAT(final DWDiskSector sector) throws IOException {
     this.diskSector = sector;
+    this.table = sector.getData();
+    for (int i = 0; i < DECBDefs.FAT_SIZE; i++) {
+      if ((this.table[i] & BYTE_MASK) == BYTE_MASK) {
+        this.free.set(i);
+      }
+    }
   }
 
   /**
@@ -58,21 +79,60 @@ public class DWDECBFileSystemFAT {
    * @throws IOException                     failed to read from source
    */
   public ArrayList<DWDiskSector> getFileSectors(
-      final Vector<DWDiskSector> sectors, final byte granule
+      final DWSectorStore sectors, final byte granule
   ) throws DWFileSystemInvalidFATException, IOException {
-    final ArrayList<DWDiskSector> res = new ArrayList<>();
+    return this.getFileSectorNumbers(granule)
+        .mapToObj(sectors::get)
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  /**
+   * Get numbers of file sectors starting at granule.
+   * <p>
+   * The granule chain is checked when called, sector numbers are
+   * generated as the stream is consumed.
+   * </p>
+   *
+   * @param granule first granule of file
+   * @return sector numbers in file order
+   * @throws DWFileSystemInvalidFATException invalid or looping chain
+   * @throws IOException                     failed to read from source
+   */
+  public IntStream getFileSectorNumbers(final byte granule)
+      throws DWFileSystemInvalidFATException, IOException {
+    final byte[] chain = new byte[DECBDefs.FAT_SIZE];
+    int links = 0;
     byte index = granule;
     byte entry = getEntry(index);
     while (!this.isLastEntry(entry)) {
-      res.addAll(this.getGranuleSectors(sectors, index));
+      if (links == chain.length) {
+        throw new DWFileSystemInvalidFATException(
+            "Chain from granule #" + granule + " loops"
+        );
+      }
+      chain[links++] = index;
       index = entry;
       entry = getEntry(index);
     }
     // last granule is partial, first 4 bits say how many sectors to read
-    for (int i = 0; i < (entry & LOW_NIBBLE_MASK); i++) {
-      res.add(sectors.get(getFirstSectorNoForGranule(index) + i));
-    }
-    return res;
+    return IntStream.concat(
+        IntStream.range(0, links).flatMap(
+            i -> this.granuleSectorNumbers(chain[i], SECTORS_PER_GRANULE)
+        ),
+        this.granuleSectorNumbers(index, entry & LOW_NIBBLE_MASK)
+    );
+  }
+
+  /**
+   * Get numbers of sectors in granule.
+   *
+   * @param granule granule index
+   * @param count   sectors of granule in use
+   * @return sector numbers
+   */
+  private IntStream granuleSectorNumbers(final byte granule, final int count) {
+    final int first = this.getFirstSectorNoForGranule(granule);
+    return IntStream.range(first, first + count);
   }
 
   /**
@@ -95,23 +155,6 @@ public class DWDECBFileSystemFAT {
     return res;
   }
 
-  /**
-   * Get sectors covered by granule.
-   *
-   * @param sectors disk sectors
-   * @param granule granule index
-   * @return filtered list of sectors
-   */
-  private List<DWDiskSector> getGranuleSectors(
-      final Vector<DWDiskSector> sectors, final byte granule
-  ) {
-    final List<DWDiskSector> res = new ArrayList<>();
-    for (int i = 0; i < SECTORS_PER_GRANULE; ++i) {
-      res.add(sectors.get(this.getFirstSectorNoForGranule(granule) + i));
-    }
-    return res;
-  }
-
   /**
    * Get first sector number for granule.
    *
@@ -137,15 +180,12 @@ public class DWDECBFileSystemFAT {
   public byte getEntry(final byte granule)
       throws DWFileSystemInvalidFATException, IOException {
     if (((granule & BYTE_MASK)) <= DECBDefs.FAT_SIZE) {
-      if (
-          (this.diskSector.getData()[granule & BYTE_MASK] & BYTE_MASK)
-              == BYTE_MASK
-      ) {
+      if ((this.table[granule & BYTE_MASK] & BYTE_MASK) == BYTE_MASK) {
         throw new DWFileSystemInvalidFATException(
             "Chain links to unused FAT entry #" + granule
         );
       } else {
-        return this.diskSector.getData()[granule & BYTE_MASK];
+        return this.table[granule & BYTE_MASK];
       }
     } else {
       throw new DWFileSystemInvalidFATException("Invalid granule #" + granule);
@@ -161,7 +201,7 @@ public class DWDECBFileSystemFAT {
    */
   @SuppressWarnings("unused")
   public byte getGranuleByte(final byte granule) throws IOException {
-    return this.diskSector.getData()[granule & BYTE_MASK];
+    return this.table[granule & BYTE_MASK];
   }
 
   /**
@@ -181,13 +221,7 @@ public class DWDECBFileSystemFAT {
    * @throws IOException failed to read from source
    */
   public int getFreeGanules() throws IOException {
-    int free = 0;
-    for (int i = 0; i < (DECBDefs.FAT_SIZE); ++i) {
-      if ((this.diskSector.getData()[i] & BYTE_MASK) == BYTE_MASK) {
-        ++free;
-      }
-    }
-    return free;
+    return this.free.cardinality();
   }
 
   /**
@@ -200,11 +234,42 @@ public class DWDECBFileSystemFAT {
    */
   public byte allocate(final int bytes)
       throws DWFileSystemFullException, IOException {
+    final byte firstgran = this.reserve(bytes);
+    this.write();
+    return firstgran;
+  }
+
+  /**
+   * Get granules needed to hold a file.
+   *
+   * @param bytes number of bytes
+   * @return granules
+   */
+  public static int granulesNeeded(final int bytes) {
     final int sectorsNeeded = bytes / BYTES_PER_SECTOR + 1;
     int granulesNeeded = sectorsNeeded / SECTORS_PER_GRANULE;
     if (!(sectorsNeeded % SECTORS_PER_GRANULE == 0)) {
       granulesNeeded++;
     }
+    return granulesNeeded;
+  }
+
+  /**
+   * Allocate space without writing the FAT to the disk.
+   * <p>
+   * Several files can be reserved and the FAT written once with
+   * {@link #write()}
+   * </p>
+   *
+   * @param bytes number of bytes
+   * @return first granule
+   * @throws DWFileSystemFullException file system full
+   * @throws IOException               failed to read from source
+   */
+  public byte reserve(final int bytes)
+      throws DWFileSystemFullException, IOException {
+    final int sectorsNeeded = bytes / BYTES_PER_SECTOR + 1;
+    final int granulesNeeded = granulesNeeded(bytes);
     // check for free space
     if (this.getFreeGanules() < granulesNeeded) {
       throw new DWFileSystemFullException(
@@ -222,39 +287,41 @@ public class DWDECBFileSystemFAT {
       lastgran = nextgran;
       allocated++;
     }
+    // sectors used in last granule, a full granule is 9 not 0
     this.setEntry(
         lastgran,
-        (byte) (sectorsNeeded % SECTORS_PER_GRANULE + LAST_ENTRY)
+        (byte) ((sectorsNeeded - 1) % SECTORS_PER_GRANULE + 1 + LAST_ENTRY)
     );
     return firstgran;
   }
 
+  /**
+   * Write FAT to the disk.
+   *
+   * @throws IOException failed to write to source
+   */
+  public void write() throws IOException {
+    this.diskSector.setData(this.table);
+  }
+
   /**
    * Set entry.
    *
    * @param gran     granule
    * @param nextGran next granule
-   * @throws IOException failed to write to source
    */
-  private void setEntry(final byte gran, final byte nextGran)
-      throws IOException {
-    this.diskSector.setDataByte(BYTE_MASK & gran, nextGran);
-    this.diskSector.makeDirty();
+  private void setEntry(final byte gran, final byte nextGran) {
+    this.table[BYTE_MASK & gran] = nextGran;
+    this.free.set(BYTE_MASK & gran, (nextGran & BYTE_MASK) == BYTE_MASK);
   }
 
   /**
    * Get free granule.
    *
    * @return First free granule
-   * @throws IOException failed to read from source
    */
-  private byte getFreeGranule() throws IOException {
-    for (byte i = 0; i < (DECBDefs.FAT_SIZE); i++) {
-      if ((this.diskSector.getData()[i] & BYTE_MASK) == BYTE_MASK) {
-        return i;
-      }
-    }
-    return -1;
+  private byte getFreeGranule() {
+    return (byte) this.free.nextSetBit(0);
   }
 
   /**
@@ -267,10 +334,10 @@ public class DWDECBFileSystemFAT {
   public String dumpFat() throws IOException {
     final StringBuilder res = new StringBuilder();
     for (int i = 0; i < DECBDefs.FAT_SIZE; i++) {
-      if (this.diskSector.getData()[i] != -1) {
+      if (this.table[i] != -1) {
         res.append(i)
             .append(": ")
-            .append(this.diskSector.getData()[i])
+            .append(this.table[i])
             .append("\t\t");
       }
     }
@@ -0,0 +1,255 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.groupunix.drivewireserver.DECBDefs;
+import com.groupunix.drivewireserver.dwdisk.DWDiskSector;
+import com.groupunix.drivewireserver.dwexceptions.DWDiskInvalidSectorNumber;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemFullException;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFATException;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFilenameException;
+
+/**
+ * Adds a set of files to a DECB disk in one pass.
+ * <p>
+ * Names, directory slots and granules for the whole set are checked and
+ * planned before anything is written, so a set that does not fit leaves
+ * the disk untouched.  File contents are then written in allocation
+ * order, followed by the FAT once and each directory sector once, and
+ * the disk is synced at the end.
+ * </p>
+ */
+public class DWDECBFileSystemImport {
+  /**
+   * Source of one file's contents.
+   */
+  @FunctionalInterface
+  public interface Source {
+    /**
+     * Open contents for reading.
+     *
+     * @return stream of contents
+     * @throws IOException failed to open source
+     */
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * Target file system.
+   */
+  private final DWDECBFileSystem fileSystem;
+  /**
+   * File names, in import order.
+   */
+  private final List<String> names = new ArrayList<>();
+  /**
+   * File lengths, matching names.
+   */
+  private final List<Integer> lengths = new ArrayList<>();
+  /**
+   * File sources, matching names.
+   */
+  private final List<Source> sources = new ArrayList<>();
+
+  /**
+   * DECB file system import constructor.
+   *
+   * @param target file system files are added to
+   */
+  public DWDECBFileSystemImport(final DWDECBFileSystem target) {
+    this.fileSystem = target;
+  }
+
+  /**
+   * Queue file for import.
+   *
+   * @param filename file name
+   * @param length   bytes to take from source
+   * @param source   source of contents
+   */
+  public void add(
+      final String filename, final int length, final Source source
+  ) {
+    this.names.add(filename);
+    this.lengths.add(length);
+    this.sources.add(source);
+  }
+
+  /**
+   * Get number of files queued.
+   *
+   * @return files
+   */
+  public int size() {
+    return this.names.size();
+  }
+
+  /**
+   * Write all queued files to the disk.
+   *
+   * @throws DWFileSystemFullException not enough directory entries or
+   *                                   granules for the whole set
+   * @throws DWFileSystemInvalidFilenameException invalid or duplicate name
+   * @throws DWFileSystemInvalidFATException invalid FAT
+   * @throws DWDiskInvalidSectorNumber disk too small for a DECB file system
+   * @throws IOException failed to read a source or write to the disk
+   */
+  public void run()
+      throws DWFileSystemFullException,
+      DWFileSystemInvalidFilenameException,
+      DWFileSystemInvalidFATException,
+      DWDiskInvalidSectorNumber,
+      IOException {
+    final DWDECBFileSystemCache cache = this.fileSystem.getCache();
+    synchronized (cache) {
+      final byte[][] records = this.checkNames(cache);
+      final List<Integer> slots = this.freeSlots(cache);
+      final DWDECBFileSystemFAT fat = this.fileSystem.getFAT();
+      int granules = 0;
+      for (final int length : this.lengths) {
+        granules += DWDECBFileSystemFAT.granulesNeeded(length);
+      }
+      if (granules > fat.getFreeGanules()) {
+        throw new DWFileSystemFullException(
+            "Need " + granules + " granules, have only "
+                + fat.getFreeGanules() + " free."
+        );
+      }
+      boolean written = false;
+      try {
+        for (int i = 0; i < records.length; i++) {
+          final byte first = fat.reserve(this.lengths.get(i));
+          records[i][DWDECBFileSystem.FIRST_GRANULE_OFFSET] = first;
+          try (InputStream in = this.sources.get(i).open()) {
+            this.fileSystem.writeContents(fat, first, in, this.lengths.get(i));
+          }
+        }
+        fat.write();
+        cache.fatWritten();
+        written = true;
+      } finally {
+        if (!written) {
+          cache.discardFAT();
+        }
+      }
+      this.writeDirectory(cache, slots, records);
+    }
+    this.fileSystem.getDisk().sync();
+  }
+
+  /**
+   * Build directory records, rejecting bad and duplicate names.
+   *
+   * @param cache parsed directory
+   * @return directory records, first granule not yet set
+   * @throws DWFileSystemInvalidFilenameException invalid or duplicate name
+   * @throws DWDiskInvalidSectorNumber directory is beyond end of disk
+   * @throws IOException failed to read directory
+   */
+  private byte[][] checkNames(final DWDECBFileSystemCache cache)
+      throws DWFileSystemInvalidFilenameException,
+      DWDiskInvalidSectorNumber,
+      IOException {
+    final Set<String> seen = new HashSet<>();
+    for (final DWDECBFileSystemDirEntry entry : cache.getEntries()) {
+      if (entry.isUsed()) {
+        seen.add(
+            (entry.getFileName().trim() + "." + entry.getFileExt())
+                .toUpperCase(Locale.ROOT)
+        );
+      }
+    }
+    final byte[][] records = new byte[this.names.size()][];
+    for (int i = 0; i < records.length; i++) {
+      final String filename = this.names.get(i);
+      records[i] = this.fileSystem.directoryRecord(
+          filename,
+          (byte) 0,
+          (byte) (this.lengths.get(i) % DWDECBFileSystem.BUFFER_SIZE)
+      );
+      if (!seen.add(filename.toUpperCase(Locale.ROOT))) {
+        throw new DWFileSystemInvalidFilenameException(
+            "File '" + filename + "' already exists"
+        );
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Pick directory slots for the new files.
+   *
+   * @param cache parsed directory
+   * @return lowest free slots, one per file
+   * @throws DWFileSystemFullException not enough free slots
+   * @throws DWDiskInvalidSectorNumber directory is beyond end of disk
+   * @throws IOException failed to read directory
+   */
+  private List<Integer> freeSlots(final DWDECBFileSystemCache cache)
+      throws DWFileSystemFullException,
+      DWDiskInvalidSectorNumber,
+      IOException {
+    final List<DWDECBFileSystemDirEntry> entries = cache.getEntries();
+    final List<Integer> slots = new ArrayList<>();
+    for (int i = 0; i < entries.size() && slots.size() < this.size(); i++) {
+      if (!entries.get(i).isUsed()) {
+        slots.add(i);
+      }
+    }
+    if (slots.size() < this.size()) {
+      throw new DWFileSystemFullException(
+          "Need " + this.size() + " directory entries, have only "
+              + slots.size() + " free."
+      );
+    }
+    return slots;
+  }
+
+  /**
+   * Write directory records, each directory sector once.
+   *
+   * @param cache   parsed directory
+   * @param slots   slot for each record, ascending
+   * @param records directory records
+   * @throws DWDiskInvalidSectorNumber directory is beyond end of disk
+   * @throws IOException failed to write to disk
+   */
+  private void writeDirectory(
+      final DWDECBFileSystemCache cache,
+      final List<Integer> slots,
+      final byte[][] records
+  ) throws DWDiskInvalidSectorNumber, IOException {
+    int i = 0;
+    while (i < records.length) {
+      final int block = slots.get(i) / DWDECBFileSystem.DIRECTORY_BLOCKS;
+      final DWDiskSector sector = this.fileSystem.getDisk().getSector(
+          block + DECBDefs.DIRECTORY_OFFSET
+      );
+      final byte[] data = sector.getData();
+      final int first = i;
+      while (i < records.length
+          && slots.get(i) / DWDECBFileSystem.DIRECTORY_BLOCKS == block) {
+        System.arraycopy(
+            records[i], 0,
+            data,
+            (slots.get(i) % DWDECBFileSystem.DIRECTORY_BLOCKS)
+                * DWDECBFileSystem.DIRECTORY_SIZE,
+            DWDECBFileSystem.DIRECTORY_SIZE
+        );
+        i++;
+      }
+      sector.setData(data);
+      for (int j = first; j < i; j++) {
+        cache.directoryWritten(
+            slots.get(j), new DWDECBFileSystemDirEntry(records[j])
+        );
+      }
+    }
+  }
+}
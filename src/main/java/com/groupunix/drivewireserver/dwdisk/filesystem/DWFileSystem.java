@@ -1,6 +1,8 @@
 package com.groupunix.drivewireserver.dwdisk.filesystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -114,6 +116,68 @@ public abstract class DWFileSystem {
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException;
 
+  /**
+   * Open file for reading.
+   * <p>
+   * File systems that can walk a file's sectors return a stream that
+   * reads them from the disk as it goes.  The default reads the whole
+   * file with {@link #getFileContents(String)} first.
+   * </p>
+   *
+   * @param filename source file name
+   * @return stream of file contents
+   * @throws DWFileSystemFileNotFoundException file not found
+   * @throws DWFileSystemInvalidFATException invalid FAT descriptor
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  public InputStream openFile(final String filename)
+      throws DWFileSystemFileNotFoundException,
+      DWFileSystemInvalidFATException,
+      IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    final byte[] contents = this.getFileContents(filename);
+    if (contents == null) {
+      throw new IOException(
+          this.getFSName() + " file system cannot read files"
+      );
+    }
+    return new ByteArrayInputStream(contents);
+  }
+
+  /**
+   * Add file from a stream.
+   * <p>
+   * File systems that can write a file's sectors as they go override
+   * this.  The default reads the whole stream and calls
+   * {@link #addFile(String, byte[])}.
+   * </p>
+   *
+   * @param filename file name
+   * @param contents stream of contents
+   * @param length   bytes to take from stream
+   * @throws DWFileSystemFullException file system is full
+   * @throws DWFileSystemInvalidFilenameException invalid file name
+   * @throws DWFileSystemFileNotFoundException file not found
+   * @throws DWFileSystemInvalidFATException invalid fat descriptor
+   * @throws IOException failed to read contents or write to source
+   * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  public void addFile(
+      final String filename, final InputStream contents, final int length
+  ) throws DWFileSystemFullException,
+      DWFileSystemInvalidFilenameException,
+      DWFileSystemFileNotFoundException,
+      DWFileSystemInvalidFATException,
+      IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    this.addFile(filename, contents.readNBytes(length));
+  }
+
   /**
    * Add file.
    *
@@ -0,0 +1,185 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.PrimitiveIterator;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwdisk.DWSectorStore;
+
+/**
+ * Stream of file contents read straight from a sector store.
+ * <p>
+ * The file system supplies the sectors of the file, in order, as they
+ * are needed, so only one sector is ever held here however large the
+ * file is.  Reads of whole sectors go directly into the caller's
+ * buffer.  A file whose sectors run out before its length is reached
+ * simply ends early.
+ * </p>
+ */
+public class DWFileSystemInputStream extends InputStream {
+  /**
+   * Sector store file is read from.
+   */
+  private final DWSectorStore store;
+  /**
+   * Sectors of file, in file order.
+   */
+  private final PrimitiveIterator.OfInt lsns;
+  /**
+   * File length in bytes.
+   */
+  private final long length;
+  /**
+   * Bytes handed out so far.
+   */
+  private long position = 0;
+  /**
+   * Current partly consumed sector.
+   */
+  private final byte[] sector;
+  /**
+   * Next byte of current sector.
+   */
+  private int sectorPos = 0;
+  /**
+   * Bytes of file in current sector.
+   */
+  private int sectorLen = 0;
+
+  /**
+   * File system input stream constructor.
+   *
+   * @param sectors     sector store file is read from
+   * @param fileSectors sectors of file, in file order
+   * @param fileLength  file length in bytes
+   */
+  public DWFileSystemInputStream(
+      final DWSectorStore sectors,
+      final PrimitiveIterator.OfInt fileSectors,
+      final long fileLength
+  ) {
+    this.store = sectors;
+    this.sector = new byte[sectors.getSectorSize()];
+    this.lsns = fileSectors;
+    this.length = fileLength;
+  }
+
+  /**
+   * Get file length.
+   *
+   * @return length in bytes
+   */
+  public long length() {
+    return this.length;
+  }
+
+  /**
+   * Get next sector of file.
+   *
+   * @return logical sector number, or -1 at end of file
+   * @throws IOException sector is not on the disk
+   */
+  private int nextSector() throws IOException {
+    if (this.position >= this.length || !this.lsns.hasNext()) {
+      return -1;
+    }
+    final int lsn = this.lsns.nextInt();
+    if (!this.store.isDefined(lsn)) {
+      throw new IOException("Invalid sector number: " + lsn);
+    }
+    return lsn;
+  }
+
+  /**
+   * Load next sector of file into the sector buffer.
+   *
+   * @return false at end of file
+   * @throws IOException failed to read sector
+   */
+  private boolean fill() throws IOException {
+    if (this.sectorPos < this.sectorLen) {
+      return true;
+    }
+    final int lsn = this.nextSector();
+    if (lsn < 0) {
+      return false;
+    }
+    this.store.read(lsn, this.sector);
+    this.sectorPos = 0;
+    this.sectorLen = (int) Math.min(
+        this.sector.length, this.length - this.position
+    );
+    return true;
+  }
+
+  /**
+   * Read one byte.
+   *
+   * @return byte, or -1 at end of file
+   * @throws IOException failed to read sector
+   */
+  @Override
+  public int read() throws IOException {
+    if (!this.fill()) {
+      return -1;
+    }
+    this.position++;
+    return this.sector[this.sectorPos++] & DWDefs.BYTE_MASK;
+  }
+
+  /**
+   * Read bytes into buffer.
+   *
+   * @param buffer destination
+   * @param offset first byte of destination
+   * @param len    most bytes to read
+   * @return bytes read, or -1 at end of file
+   * @throws IOException failed to read sector
+   */
+  @Override
+  public int read(final byte[] buffer, final int offset, final int len)
+      throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    int done = 0;
+    while (done < len) {
+      if (this.sectorPos == this.sectorLen
+          && len - done >= this.sector.length
+          && this.length - this.position >= this.sector.length) {
+        // whole sector wanted, skip the sector buffer
+        final int lsn = this.nextSector();
+        if (lsn < 0) {
+          break;
+        }
+        this.store.read(lsn, buffer, offset + done);
+        done += this.sector.length;
+        this.position += this.sector.length;
+      } else {
+        if (!this.fill()) {
+          break;
+        }
+        final int n = Math.min(len - done, this.sectorLen - this.sectorPos);
+        System.arraycopy(this.sector, this.sectorPos, buffer, offset + done, n);
+        this.sectorPos += n;
+        done += n;
+        this.position += n;
+      }
+    }
+    if (done == 0) {
+      return -1;
+    }
+    return done;
+  }
+
+  /**
+   * Get bytes left in file.
+   *
+   * @return bytes that can be read
+   */
+  @Override
+  public int available() {
+    return (int) Math.min(Integer.MAX_VALUE, this.length - this.position);
+  }
+}
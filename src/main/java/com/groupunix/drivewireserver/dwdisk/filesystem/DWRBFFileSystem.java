@@ -13,6 +13,7 @@ import com.groupunix.drivewireserver.dwprotocolhandler.DWUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.groupunix.drivewireserver.DWDefs.BYTE_MASK;
 import static com.groupunix.drivewireserver.DWDefs.BYTE_SHIFT;
@@ -43,6 +44,10 @@ public class DWRBFFileSystem extends DWFileSystem {
    * Shift left bit (multiplier).
    */
   public static final int SHIFT_BITS = 8;
+  /**
+   * Parsed directories and root directory LSN, shared per disk.
+   */
+  private final DWRBFFileSystemCache cache;
 
   /**
    * RBF file system constructor.
@@ -52,6 +57,7 @@ public class DWRBFFileSystem extends DWFileSystem {
   @SuppressWarnings("unused")
   public DWRBFFileSystem(final DWDisk disk) {
     super(disk);
+    this.cache = DWRBFFileSystemCache.forDisk(disk);
   }
 
   /**
@@ -67,7 +73,14 @@ public class DWRBFFileSystem extends DWFileSystem {
       throws IOException, DWFileSystemInvalidDirectoryException {
     ArrayList<DWFileSystemDirEntry> res;
     try {
-      res = new ArrayList<>(this.getDirectoryFromFD(this.getFDFromPath(path)));
+      final DWRBFFileSystemDirEntry entry = this.getEntryFromPath(path);
+      final int lsn;
+      if (entry == null) {
+        lsn = this.getRootDirectoryLSN();
+      } else {
+        lsn = entry.getFdLsn();
+      }
+      res = new ArrayList<>(this.getDirectoryAt(lsn).getEntries());
     } catch (DWDiskInvalidSectorNumber | DWFileSystemFileNotFoundException e) {
       throw new DWFileSystemInvalidDirectoryException(e.getMessage());
     }
@@ -144,23 +157,52 @@ public class DWRBFFileSystem extends DWFileSystem {
       DWDiskInvalidSectorNumber,
       DWFileSystemFileNotFoundException,
       DWFileSystemInvalidDirectoryException {
-    if (filename == null) {
+    final DWRBFFileSystemDirEntry entry = this.getEntryFromPath(filename);
+    if (entry == null) {
       return new DWRBFFileDescriptor(
           this.getDisk().getSector(this.getRootDirectoryLSN()).getData()
       );
     }
-    final String[] path = filename.split("/");
-    final ArrayList<DWRBFFileSystemDirEntry> dir = this.getRootDirectory();
-    DWRBFFileDescriptor res = null;
-    for (final String s : path) {
-      res = null;
-      int index = 0;
-      while (index < dir.size() && res == null) {
-        if (dir.get(index).getFileName().equals(s)) {
-          res = dir.get(index).getFD();
+    return entry.getFD();
+  }
+
+  /**
+   * Get directory entry from path.
+   * <p>
+   * Each path component is looked up in the directory named by the
+   * components before it, starting from the root directory.
+   * </p>
+   *
+   * @param filename source file name
+   * @return directory entry, or null if path names the root directory
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws DWFileSystemFileNotFoundException file not found
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  private DWRBFFileSystemDirEntry getEntryFromPath(final String filename)
+      throws IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemFileNotFoundException,
+      DWFileSystemInvalidDirectoryException {
+    if (filename == null) {
+      return null;
+    }
+    DWRBFFileSystemDirEntry res = null;
+    int dirLsn = this.getRootDirectoryLSN();
+    for (final String s : filename.split("/")) {
+      if (s.isEmpty()) {
+        continue;
+      }
+      if (res != null) {
+        if (!res.isDirectory()) {
+          throw new DWFileSystemFileNotFoundException(
+              "File not found: " + filename
+          );
         }
-        index++;
+        dirLsn = res.getFdLsn();
       }
+      res = this.getDirectoryAt(dirLsn).find(s);
       if (res == null) {
         throw new DWFileSystemFileNotFoundException(
             "File not found: " + filename
@@ -292,23 +334,16 @@ public class DWRBFFileSystem extends DWFileSystem {
       throws IOException,
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException {
-    ArrayList<DWRBFFileSystemDirEntry> dir;
-    try {
-      final int rootsec = this.getRootDirectoryLSN();
-      final DWRBFFileDescriptor descriptor = new DWRBFFileDescriptor(
-          this.getDisk().getSector(rootsec).getData()
-      );
-      dir = this.directoryFromContents(
-          this.getFileContentsFromDescriptor(descriptor)
-      );
-    } catch (NumberFormatException e) {
-      throw new DWDiskInvalidSectorNumber(e.getMessage());
-    }
-    return dir;
+    return new ArrayList<>(
+        this.getDirectoryAt(this.getRootDirectoryLSN()).getEntries()
+    );
   }
 
   /**
    * Get root directory sector number.
+   * <p>
+   * Read from the ID sector, and remembered until that sector is written
+   * </p>
    *
    * @return logical sector number
    * @throws DWDiskInvalidSectorNumber invalid sector number
@@ -316,17 +351,51 @@ public class DWRBFFileSystem extends DWFileSystem {
    */
   private int getRootDirectoryLSN()
       throws DWDiskInvalidSectorNumber, IOException {
-    int rootSec;
-    try {
-      rootSec = Integer.parseInt(
-          this.getIDSector().getAttrib("DD.DIR").toString()
-      );
-    } catch (NumberFormatException e) {
-      throw new DWDiskInvalidSectorNumber(e.getMessage());
+    int rootSec = this.cache.getRootLsn();
+    if (rootSec < 0) {
+      final long version = this.getDisk().getSectors().getVersion(0);
+      final Object dir = this.getIDSector().getAttrib("DD.DIR");
+      if (!(dir instanceof Integer)) {
+        throw new DWDiskInvalidSectorNumber("No root directory in ID sector");
+      }
+      rootSec = (Integer) dir;
+      this.cache.putRootLsn(rootSec, version);
     }
     return rootSec;
   }
 
+  /**
+   * Get directory by file descriptor LSN.
+   * <p>
+   * Served from the cache while none of the sectors it was read from
+   * have been written
+   * </p>
+   *
+   * @param fdLsn LSN of directory file descriptor
+   * @return directory
+   * @throws IOException                           failed to read from source
+   * @throws DWDiskInvalidSectorNumber             invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  private DWRBFFileSystemCache.Directory getDirectoryAt(final int fdLsn)
+      throws IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    DWRBFFileSystemCache.Directory dir = this.cache.get(fdLsn);
+    if (dir == null) {
+      dir = this.cache.newDirectory();
+      dir.depends(fdLsn);
+      final DWRBFFileDescriptor descriptor = new DWRBFFileDescriptor(
+          this.getDisk().getSector(fdLsn).getData()
+      );
+      this.directoryFromContents(
+          this.readContents(descriptor, dir), dir
+      );
+      this.cache.put(fdLsn, dir);
+    }
+    return dir;
+  }
+
   /**
    * Get directory from file descriptor.
    *
@@ -341,23 +410,24 @@ public class DWRBFFileSystem extends DWFileSystem {
   ) throws IOException,
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException {
-    return this.directoryFromContents(
-        this.getFileContentsFromDescriptor(descriptor)
+    final DWRBFFileSystemCache.Directory dir = this.cache.newDirectory();
+    this.directoryFromContents(
+        this.getFileContentsFromDescriptor(descriptor), dir
     );
+    return new ArrayList<>(dir.getEntries());
   }
 
   /**
-   * Get directory entry from file contents.
+   * Get directory entries from file contents.
    *
    * @param data file contents
-   * @return list of directory entries
+   * @param res  directory to add entries to
    * @throws IOException failed to read from source
    * @throws DWDiskInvalidSectorNumber invalid sector number
    */
-  private ArrayList<DWRBFFileSystemDirEntry> directoryFromContents(
-      final byte[] data
+  private void directoryFromContents(
+      final byte[] data, final DWRBFFileSystemCache.Directory res
   ) throws IOException, DWDiskInvalidSectorNumber {
-    final ArrayList<DWRBFFileSystemDirEntry> res = new ArrayList<>();
     for (int i = 0; i < data.length / DESCRIPTOR_LENGTH; i++) {
       final byte[] entry = new byte[DESCRIPTOR_LENGTH];
       System.arraycopy(
@@ -372,15 +442,9 @@ public class DWRBFFileSystem extends DWFileSystem {
             (entry[SECTOR_OFFSET] & BYTE_MASK) * BYTE_SHIFT * BYTE_SHIFT
                 + (entry[SECTOR_OFFSET + 1] & BYTE_MASK) * BYTE_SHIFT
                 + (entry[SECTOR_OFFSET + 2] & BYTE_MASK);
-        final DWRBFFileDescriptor descriptor = new DWRBFFileDescriptor(
-            this.getDisk().getSector(lsn).getData()
-        );
-        res.add(new DWRBFFileSystemDirEntry(
-            DWUtils.os9String(entry), lsn, descriptor)
-        );
+        res.add(DWUtils.os9String(entry), lsn);
       }
     }
-    return res;
   }
 
   /**
@@ -397,31 +461,81 @@ public class DWRBFFileSystem extends DWFileSystem {
   ) throws IOException,
       DWDiskInvalidSectorNumber,
       DWFileSystemInvalidDirectoryException {
+    return this.readContents(descriptor, null);
+  }
+
+  /**
+   * Read file contents, recording the sectors read.
+   *
+   * @param descriptor file descriptor
+   * @param dir        directory to record sectors in, or null
+   * @return byte array of file contents
+   * @throws IOException                           failed to read from source
+   * @throws DWDiskInvalidSectorNumber             invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  private byte[] readContents(
+      final DWRBFFileDescriptor descriptor,
+      final DWRBFFileSystemCache.Directory dir
+  ) throws IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    try (DWFileSystemInputStream in = this.openDescriptor(descriptor, dir)) {
+      final byte[] res = new byte[descriptor.getFilesize()];
+      in.readNBytes(res, 0, res.length);
+      return res;
+    }
+  }
+
+  /**
+   * Open file for reading.
+   * <p>
+   * Sectors are read as the segment list is walked
+   * </p>
+   *
+   * @param filename source file name
+   * @return stream of file contents
+   * @throws DWFileSystemFileNotFoundException file not found
+   * @throws IOException failed to read from source
+   * @throws DWDiskInvalidSectorNumber invalid sector number
+   * @throws DWFileSystemInvalidDirectoryException invalid file path
+   */
+  @Override
+  public DWFileSystemInputStream openFile(final String filename)
+      throws DWFileSystemFileNotFoundException,
+      IOException,
+      DWDiskInvalidSectorNumber,
+      DWFileSystemInvalidDirectoryException {
+    return this.openDescriptor(this.getFDFromPath(filename), null);
+  }
+
+  /**
+   * Open file for reading by file descriptor.
+   *
+   * @param descriptor file descriptor
+   * @param dir        directory to record sectors in, or null
+   * @return stream of file contents
+   * @throws DWFileSystemInvalidDirectoryException invalid file size
+   */
+  private DWFileSystemInputStream openDescriptor(
+      final DWRBFFileDescriptor descriptor,
+      final DWRBFFileSystemCache.Directory dir
+  ) throws DWFileSystemInvalidDirectoryException {
     if (descriptor.getFilesize() < 0) {
       throw new DWFileSystemInvalidDirectoryException("Negative file size?");
     }
-    final byte[] res = new byte[descriptor.getFilesize()];
-    int bytesread = 0;
-    int segmentsread = 0;
-    while (bytesread < res.length && segmentsread < MAX_SEGMENTS) {
-      final int lsn = descriptor.getSegmentList()[segmentsread].getLsn();
-      final int siz = descriptor.getSegmentList()[segmentsread].getSize();
-      int index = lsn;
-      while (index < lsn + siz && bytesread < res.length) {
-        final int toRead = Math.min(MAX_SINGLE_READ, res.length - bytesread);
-        System.arraycopy(
-            this.getDisk().getSector(index).getData(),
-            0,
-            res,
-            bytesread,
-            toRead
-        );
-        bytesread += toRead;
-        index++;
-      }
-      segmentsread++;
+    final DWRBFFileSegment[] segments = descriptor.getSegmentList();
+    IntStream lsns = IntStream
+        .range(0, Math.min(MAX_SEGMENTS, segments.length))
+        .flatMap(i -> IntStream.range(
+            segments[i].getLsn(), segments[i].getLsn() + segments[i].getSize()
+        ));
+    if (dir != null) {
+      lsns = lsns.peek(dir::depends);
     }
-    return res;
+    return new DWFileSystemInputStream(
+        this.getDisk().getSectors(), lsns.iterator(), descriptor.getFilesize()
+    );
   }
 
   /**
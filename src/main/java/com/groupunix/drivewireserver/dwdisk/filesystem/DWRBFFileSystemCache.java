@@ -0,0 +1,298 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWSectorStore;
+
+/**
+ * Parsed directories of an RBF file system.
+ * <p>
+ * Kept on the disk, so it is shared by every file system object built
+ * for it.  Directories are kept by the LSN of their file descriptor,
+ * along with the version of the sectors they were read from: the
+ * directory's own descriptor and data sectors.  A directory is only
+ * handed out while none of those has been written since.  The
+ * descriptor of an entry is checked only when that entry is used, and
+ * read again if it has been written, so a lookup costs the same however
+ * large the directory.  The least recently used directories are
+ * dropped beyond a fixed limit.
+ * </p>
+ */
+final class DWRBFFileSystemCache {
+  /**
+   * Most directories kept.
+   */
+  private static final int MAX_DIRECTORIES = 256;
+  /**
+   * Initial room for recorded sectors.
+   */
+  private static final int INITIAL_SECTORS = 8;
+  /**
+   * Source disk.
+   */
+  private final DWDisk disk;
+  /**
+   * Directories by file descriptor LSN, least recently used first.
+   */
+  private final Map<Integer, Directory> directories
+      = new LinkedHashMap<>(MAX_DIRECTORIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            final Map.Entry<Integer, Directory> eldest
+        ) {
+          return this.size() > MAX_DIRECTORIES;
+        }
+      };
+  /**
+   * Root directory LSN, or -1 if not known.
+   */
+  private int rootLsn = -1;
+  /**
+   * Version of ID sector that root LSN was read from.
+   */
+  private long rootVersion;
+  /**
+   * Store that root LSN was read from.
+   */
+  private DWSectorStore rootStore;
+
+  /**
+   * RBF file system cache constructor.
+   *
+   * @param source source disk
+   */
+  private DWRBFFileSystemCache(final DWDisk source) {
+    this.disk = source;
+  }
+
+  /**
+   * Get cache for a disk.
+   *
+   * @param disk source disk
+   * @return cache shared by all file systems on the disk
+   */
+  static synchronized DWRBFFileSystemCache forDisk(final DWDisk disk) {
+    if (disk.getFileSystemCache() instanceof DWRBFFileSystemCache cache) {
+      return cache;
+    }
+    final DWRBFFileSystemCache cache = new DWRBFFileSystemCache(disk);
+    disk.setFileSystemCache(cache);
+    return cache;
+  }
+
+  /**
+   * Get root directory LSN if the ID sector is unchanged.
+   *
+   * @return LSN, or -1 if it must be read again
+   */
+  synchronized int getRootLsn() {
+    final DWSectorStore store = this.disk.getSectors();
+    if (this.rootLsn < 0 || store != this.rootStore
+        || store.getVersion(0) != this.rootVersion) {
+      return -1;
+    }
+    return this.rootLsn;
+  }
+
+  /**
+   * Remember root directory LSN.
+   *
+   * @param lsn     root directory LSN
+   * @param version version of ID sector it was read from
+   */
+  synchronized void putRootLsn(final int lsn, final long version) {
+    this.rootLsn = lsn;
+    this.rootVersion = version;
+    this.rootStore = this.disk.getSectors();
+  }
+
+  /**
+   * Get directory if none of its own sectors have changed.
+   *
+   * @param fdLsn LSN of directory file descriptor
+   * @return directory, or null if it must be read again
+   */
+  synchronized Directory get(final int fdLsn) {
+    final Directory dir = this.directories.get(fdLsn);
+    if (dir == null) {
+      return null;
+    }
+    if (!dir.isCurrent(this.disk.getSectors())) {
+      this.directories.remove(fdLsn);
+      return null;
+    }
+    return dir;
+  }
+
+  /**
+   * Remember directory.
+   *
+   * @param fdLsn LSN of directory file descriptor
+   * @param dir   directory
+   */
+  synchronized void put(final int fdLsn, final Directory dir) {
+    this.directories.put(fdLsn, dir);
+  }
+
+  /**
+   * Start a directory, recording sector versions as it is read.
+   *
+   * @return empty directory
+   */
+  Directory newDirectory() {
+    return new Directory(this.disk.getSectors());
+  }
+
+  /**
+   * One parsed directory and the sectors it depends on.
+   */
+  static final class Directory {
+    /**
+     * Store the directory was read from.
+     */
+    private final DWSectorStore store;
+    /**
+     * Entries in directory order.
+     */
+    private final List<DWRBFFileSystemDirEntry> entries = new ArrayList<>();
+    /**
+     * Version of each entry's descriptor when read, matching entries.
+     */
+    private long[] fdVersions = new long[INITIAL_SECTORS];
+    /**
+     * Entry index by name.
+     */
+    private final Map<String, Integer> names = new HashMap<>();
+    /**
+     * Directory sectors read, in read order.
+     */
+    private int[] lsns = new int[INITIAL_SECTORS];
+    /**
+     * Versions of directory sectors read, matching lsns.
+     */
+    private long[] versions = new long[INITIAL_SECTORS];
+    /**
+     * Number of directory sectors recorded.
+     */
+    private int sectors = 0;
+
+    /**
+     * Directory constructor.
+     *
+     * @param source store the directory is read from
+     */
+    private Directory(final DWSectorStore source) {
+      this.store = source;
+    }
+
+    /**
+     * Record a directory sector about to be read.
+     *
+     * @param lsn logical sector number
+     */
+    synchronized void depends(final int lsn) {
+      if (this.sectors == this.lsns.length) {
+        this.lsns = Arrays.copyOf(this.lsns, this.sectors * 2);
+        this.versions = Arrays.copyOf(this.versions, this.sectors * 2);
+      }
+      this.lsns[this.sectors] = lsn;
+      this.versions[this.sectors] = this.store.getVersion(lsn);
+      this.sectors++;
+    }
+
+    /**
+     * Add entry, reading its file descriptor.
+     *
+     * @param name  file name
+     * @param fdLsn LSN of entry's file descriptor
+     * @throws IOException failed to read descriptor
+     */
+    synchronized void add(final String name, final int fdLsn)
+        throws IOException {
+      final int index = this.entries.size();
+      if (index == this.fdVersions.length) {
+        this.fdVersions = Arrays.copyOf(this.fdVersions, index * 2);
+      }
+      // version first, so a write during the read is noticed later
+      this.fdVersions[index] = this.store.getVersion(fdLsn);
+      this.entries.add(new DWRBFFileSystemDirEntry(
+          name, fdLsn, new DWRBFFileDescriptor(this.store.read(fdLsn))
+      ));
+      this.names.putIfAbsent(name, index);
+    }
+
+    /**
+     * Get entries, reading any changed descriptors again.
+     *
+     * @return entries in directory order
+     * @throws IOException failed to read descriptor
+     */
+    synchronized List<DWRBFFileSystemDirEntry> getEntries()
+        throws IOException {
+      for (int i = 0; i < this.entries.size(); i++) {
+        this.resolve(i);
+      }
+      return this.entries;
+    }
+
+    /**
+     * Find entry by name, reading its descriptor again if changed.
+     *
+     * @param name file name
+     * @return entry, or null if not present
+     * @throws IOException failed to read descriptor
+     */
+    synchronized DWRBFFileSystemDirEntry find(final String name)
+        throws IOException {
+      final Integer index = this.names.get(name);
+      if (index == null) {
+        return null;
+      }
+      return this.resolve(index);
+    }
+
+    /**
+     * Get entry with a current file descriptor.
+     *
+     * @param index entry index
+     * @return entry
+     * @throws IOException failed to read descriptor
+     */
+    private DWRBFFileSystemDirEntry resolve(final int index)
+        throws IOException {
+      final DWRBFFileSystemDirEntry entry = this.entries.get(index);
+      final int fdLsn = entry.getFdLsn();
+      final long version = this.store.getVersion(fdLsn);
+      if (version != this.fdVersions[index]) {
+        this.fdVersions[index] = version;
+        entry.setFd(new DWRBFFileDescriptor(this.store.read(fdLsn)));
+      }
+      return entry;
+    }
+
+    /**
+     * Are the directory's own sectors unchanged.
+     *
+     * @param current current store of disk
+     * @return true if directory is still current
+     */
+    private synchronized boolean isCurrent(final DWSectorStore current) {
+      if (current != this.store) {
+        return false;
+      }
+      for (int i = 0; i < this.sectors; i++) {
+        if (current.getVersion(this.lsns[i]) != this.versions[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -76,6 +76,13 @@ public interface DWProtocol extends Runnable {
    */
   HierarchicalConfiguration getConfig();
 
+  /**
+   * Get settings snapshot of configuration.
+   *
+   * @return settings
+   */
+  DWProtocolSettings getSettings();
+
   /**
    * Get protocol device.
    *
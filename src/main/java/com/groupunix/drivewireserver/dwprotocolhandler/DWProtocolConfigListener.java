@@ -8,6 +8,10 @@ public class DWProtocolConfigListener implements ConfigurationListener {
    * Host protocol.
    */
   private final DWProtocol dwProtocol;
+  /**
+   * Current settings snapshot.
+   */
+  private volatile DWProtocolSettings settings;
 
   /**
    * Protocol configuration listener.
@@ -17,18 +21,31 @@ public class DWProtocolConfigListener implements ConfigurationListener {
   public DWProtocolConfigListener(final DWProtocol protocol) {
     super();
     this.dwProtocol = protocol;
+    this.settings = new DWProtocolSettings(protocol.getConfig());
+  }
+
+  /**
+   * Get settings built from the current configuration.
+   *
+   * @return settings snapshot
+   */
+  public DWProtocolSettings getSettings() {
+    return this.settings;
   }
 
   /**
    * Updated configuration event.
    * <p>
-   * Propagates event to host protocol
+   * Rebuilds the settings snapshot and propagates event to host protocol
    * </p>
    *
    * @param event new event
    */
   @Override
   public void configurationChanged(final ConfigurationEvent event) {
+    if (!event.isBeforeUpdate()) {
+      this.settings = new DWProtocolSettings(this.dwProtocol.getConfig());
+    }
     if (!event.isBeforeUpdate() && event.getPropertyName() != null) {
       if (event.getPropertyValue() == null) {
         this.dwProtocol.submitConfigEvent(event.getPropertyName(), "");
@@ -50,6 +50,22 @@ public interface DWProtocolDevice {
    */
   byte[] comRead(int len) throws IOException, DWCommTimeOutException;
 
+  /**
+   * Read N bytes into a caller supplied buffer.
+   * <p>
+   * Devices override this to avoid allocating on every read
+   * </p>
+   *
+   * @param buffer buffer of at least len bytes
+   * @param len    number of bytes to read
+   * @throws IOException            failed to read data
+   * @throws DWCommTimeOutException read timeout
+   */
+  default void comRead(byte[] buffer, int len)
+      throws IOException, DWCommTimeOutException {
+    System.arraycopy(comRead(len), 0, buffer, 0, len);
+  }
+
   /**
    * Read a single byte.
    *
@@ -94,4 +110,22 @@ public interface DWProtocolDevice {
    * @return input stream
    */
   InputStream getInputStream();
+
+  /**
+   * Get bytes received since device was opened.
+   *
+   * @return byte count, 0 if device does not count
+   */
+  default long getBytesIn() {
+    return 0;
+  }
+
+  /**
+   * Get bytes sent since device was opened.
+   *
+   * @return byte count, 0 if device does not count
+   */
+  default long getBytesOut() {
+    return 0;
+  }
 }
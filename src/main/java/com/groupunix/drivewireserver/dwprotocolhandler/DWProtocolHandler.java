@@ -5,6 +5,7 @@ import gnu.io.PortInUseException;
 import gnu.io.UnsupportedCommOperationException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.TooManyListenersException;
@@ -65,6 +66,10 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   private static final Logger LOGGER
       = Logger.getLogger("DWServer.DWProtocolHandler");
+  /**
+   * Nanoseconds per microsecond.
+   */
+  private static final long NANOS_PER_MICRO = 1000;
   /**
    * Sector data overhead.
    * <p>
@@ -181,10 +186,6 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * In Op flag.
    */
   private boolean inOp = false;
-  /**
-   * Sync skipped.
-   */
-  private int syncSkipped = 0;
   /**
    * Creation time.
    */
@@ -217,6 +218,10 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Configuration.
    */
   private final HierarchicalConfiguration config;
+  /**
+   * Configuration listener, keeps the settings snapshot.
+   */
+  private final DWProtocolConfigListener configListener;
   /**
    * Terminal thread.
    */
@@ -237,6 +242,34 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Timers.
    */
   private DWProtocolTimers timers;
+  /**
+   * Scratch sector buffer.
+   */
+  private byte[] sectorBuf = new byte[0];
+  /**
+   * Scratch buffer for sector write packets.
+   */
+  private byte[] writePacketBuf = new byte[0];
+  /**
+   * Scratch buffer for read request packets.
+   */
+  private final byte[] readPacketBuf = new byte[READ_PACKET_LEN];
+  /**
+   * Scratch buffer for server checksum.
+   */
+  private final byte[] serverSumBuf = new byte[2];
+  /**
+   * Scratch buffer for CoCo checksum.
+   */
+  private final byte[] cocoSumBuf = new byte[2];
+  /**
+   * Operation metrics.
+   */
+  private final DWProtocolMetrics metrics = new DWProtocolMetrics();
+  /**
+   * Streaming disk ops.
+   */
+  private final DWStreamingDiskOps streamOps = new DWStreamingDiskOps(this);
   /**
    * Am I ready.
    */
@@ -262,7 +295,8 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     this.handlerno = handlerId;
     this.config = hconf;
     initData();
-    config.addConfigurationListener(new DWProtocolConfigListener(this));
+    this.configListener = new DWProtocolConfigListener(this);
+    config.addConfigurationListener(this.configListener);
   }
 
   private void initData() {
@@ -277,6 +311,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     lastChecksum = 0;
     lastError = 0;
     lastLSN = new byte[LSN_SIZE];
+    streamOps.reset();
   }
 
   /**
@@ -288,6 +323,15 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     return this.config;
   }
 
+  /**
+   * Get settings snapshot.
+   *
+   * @return settings
+   */
+  public DWProtocolSettings getSettings() {
+    return this.configListener.getSettings();
+  }
+
   /**
    * Reset protocol handler.
    */
@@ -382,13 +426,11 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
         }
       }
       if (opcodeint > -1 && this.protodev != null) {
-        if (this.protodev.getClass().getCanonicalName()
-            .equals("com.groupunix.drivewireserver."
-                + "dwprotocolhandler.DWSerialDevice")
-        ) {
-          ((DWSerialDevice) this.protodev).resetReadTime();
+        if (this.protodev instanceof DWSerialDevice serialDevice) {
+          serialDevice.resetReadTime();
         }
         optime = System.currentTimeMillis();
+        final long opstart = System.nanoTime();
         this.inOp = true;
         lastOpcode = (byte) opcodeint;
         totalOps++;
@@ -408,6 +450,8 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
           } else {
             // regular OP decode
             decodeOp(lastOpcode, optime, opcodeint);
+            // send any port output gathered during the op
+            this.dwVSerialPorts.flushOutput();
           }
         } catch (IOException e) {
           LOGGER.error("IOError in proto op: " + e.getMessage());
@@ -419,14 +463,21 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
               + DWUtils.prettyOP(lastOpcode) + ": " + e.getMessage());
         }
         this.inOp = false;
+        this.metrics.recordOp(
+            lastOpcode, (System.nanoTime() - opstart) / NANOS_PER_MICRO
+        );
+        long readWait = 0;
+        if (this.protodev instanceof DWSerialDevice serialDevice) {
+          readWait = serialDevice.getReadTime();
+          this.metrics.addReadWait(readWait);
+        }
         optook = System.currentTimeMillis() - optime;
         if (optook > DWDefs.SERVER_SLOW_OP) {
           LOGGER.warn(DWUtils.prettyOP(lastOpcode) + " took " + optook
               + "ms.");
-        } else if (config.getBoolean("LogTiming", false)) {
+        } else if (getSettings().isLogTiming()) {
           LOGGER.debug(DWUtils.prettyOP(lastOpcode) + " took " + optook
-              + "ms, serial read delay was "
-              + ((DWSerialDevice) this.protodev).getReadTime());
+              + "ms, serial read delay was " + readWait);
         }
       } else {
         if (!this.wanttodie) {
@@ -459,6 +510,9 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
   }
 
   private void shutdownAfterRun() {
+    if (this.rfmhandler != null) {
+      this.rfmhandler.shutdown();
+    }
     if (this.dwVSerialPorts != null) {
       this.dwVSerialPorts.shutdown();
     }
@@ -542,6 +596,16 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
         doOpWrite(opCode);
         diskOps++;
       }
+      case DWDefs.OP_READM, DWDefs.OP_WRITEM -> {
+        if (this.streamOps.isNegotiated()) {
+          this.timers.resetTimer(opCode == DWDefs.OP_READM
+              ? DWDefs.TIMER_READ : DWDefs.TIMER_WRITE, opTime);
+          this.streamOps.doOp(protodev, diskDrives, opCode);
+          diskOps++;
+        } else {
+          unknownOp(opTime, opCodeInt);
+        }
+      }
       case DWDefs.OP_GETSTAT, DWDefs.OP_SETSTAT -> {
         this.timers.resetTimer(DWDefs.TIMER_NP_OP, opTime);
         doOpStat(opCode);
@@ -625,14 +689,21 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
         this.timers.resetTimer(DWDefs.TIMER_NP_OP, opTime);
         doOpAaron();
       }
-      default -> {
-        this.timers.resetTimer(DWDefs.TIMER_BAD_DATA, opTime);
-        LOGGER.warn("UNKNOWN OPCODE: " + opCodeInt + " "
-            + ((char) opCodeInt));
-      }
+      default -> unknownOp(opTime, opCodeInt);
     }
   }
 
+  /**
+   * Unknown op code.
+   *
+   * @param opTime timestamp
+   * @param opCodeInt integer version of op code
+   */
+  private void unknownOp(final long opTime, final int opCodeInt) {
+    this.timers.resetTimer(DWDefs.TIMER_BAD_DATA, opTime);
+    LOGGER.warn("UNKNOWN OPCODE: " + opCodeInt + " " + ((char) opCodeInt));
+  }
+
   /**
    * Aaron.
    */
@@ -655,17 +726,17 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     final String objName = new String(nameBuf, DWDefs.ENCODING);
     final int result = diskDrives.nameObjMount(objName);
     // artificial delay test
-    if (config.containsKey("NameObjMountDelay")) {
+    final long mountDelay = getSettings().getNameObjMountDelay();
+    if (mountDelay != DWProtocolSettings.NO_DELAY) {
       try {
-        LOGGER.debug("named object mount delay "
-            + config.getLong("NameObjMountDelay") + " ms...");
-        Thread.sleep(config.getLong("NameObjMountDelay"));
+        LOGGER.debug("named object mount delay " + mountDelay + " ms...");
+        Thread.sleep(mountDelay);
       } catch (InterruptedException e) {
         LOGGER.warn("Interrupted during mount delay");
       }
     }
     protodev.comWrite1(result, false);
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       final long delay = System.currentTimeMillis() - startTime;
       LOGGER.info("DoOP_NAMEOBJ_MOUNT for '" + objName + "' result: " + result
           + ", call took " + delay + "ms");
@@ -676,7 +747,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Switch serial baud to 230k.
    */
   private void doOp230K115K() {
-    if (config.getBoolean("DetectDATurbo", false)) {
+    if (getSettings().isDetectDATurbo()) {
       try {
         ((DWSerialDevice) protodev).enableDATurbo();
         LOGGER.info("Detected switch to 230k mode");
@@ -702,7 +773,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     try {
       final int dataByte = protodev.comRead1(true);
       dwVSerialPorts.serWrite(port, dataByte);
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.info("DoOP_FASTSERWRITE to port " + port + ": " + dataByte);
       }
     } catch (DWPortNotOpenException | DWPortNotValidException e1) {
@@ -718,22 +789,25 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * @throws IOException read/write failure
    */
   private void doOpDwInit() throws DWCommTimeOutException, IOException {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_DWINIT");
     }
     final int drvVersion = protodev.comRead1(true);
     // are we limited to dw3?
-    if (config.getBoolean("DW3Only", false)) {
+    if (getSettings().isDW3Only()) {
       LOGGER.info("DWINIT received, ignoring due to DW3Only setting");
     } else {
       // send response
-      protodev.comWrite1(DWDefs.DW_PROTOCOL_VERSION, true);
+      protodev.comWrite1(this.streamOps.negotiate(drvVersion), true);
       if (drvVersion <= VERSION_DW3_MAX) {
         LOGGER.debug("DWINIT from NitrOS9! Implementation variety type # "
             + drvVersion);
       } else if (drvVersion <= VERSION_NITROS_MAX) {
         LOGGER.debug("DWINIT from CoCoBoot! Implementation variety type # "
             + (drvVersion - VERSION_NITROS_MIN));
+      } else if (drvVersion <= DWStreamingDiskOps.VERSION_STREAM_MAX) {
+        LOGGER.debug("DWINIT from streaming driver! Implementation variety "
+            + "type # " + (drvVersion - DWStreamingDiskOps.VERSION_STREAM_MIN));
       } else if (drvVersion >= VERSION_LWOS_MIN
           && drvVersion <= VERSION_LWOS_MAX) {
         LOGGER.debug("DWINIT from LWOS/LWBASIC! Implementation variety type # "
@@ -743,7 +817,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
       }
       // possibly extend this to all DWINITs..
       if (drvVersion < VERSION_MAX
-          && this.config.getBoolean("HDBDOSMode", false)
+          && getSettings().isHDBDOSMode()
       ) {
         LOGGER.warn("Disabling HDBDOS mode due to non HDBDOS DWINIT");
         this.config.setProperty("HDBDOSMode", false);
@@ -759,7 +833,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Do nothing.
    */
   private void doOpNop() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_NOP");
     }
   }
@@ -780,7 +854,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Terminate.
    */
   private void doOpTerm() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_TERM");
     }
   }
@@ -789,7 +863,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Initialise.
    */
   private void doOpInit() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_INIT");
     }
   }
@@ -804,7 +878,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     // Sync disks??
     // reset all ports
     dwVSerialPorts.resetAllPorts();
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_RESET");
     }
   }
@@ -818,17 +892,15 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   private void doOpWrite(final byte opcode)
       throws DWCommTimeOutException, IOException {
-    final byte[] cocoSum = new byte[2];
-    byte[] responseBuf;
-    final byte[] sector = new byte[
-        getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
-        ];
+    final int sectorSize = getSettings().getSectorSize();
+    final byte[] cocoSum = this.cocoSumBuf;
+    final byte[] sector = sectorBuffer(sectorSize);
+    if (this.writePacketBuf.length != sectorSize + SECTOR_OVERHEAD) {
+      this.writePacketBuf = new byte[sectorSize + SECTOR_OVERHEAD];
+    }
+    final byte[] responseBuf = this.writePacketBuf;
     // read rest of packet
-    responseBuf = protodev.comRead(
-        getConfig()
-            .getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
-                + SECTOR_OVERHEAD
-    );
+    protodev.comRead(responseBuf, sectorSize + SECTOR_OVERHEAD);
     lastDrive = responseBuf[0] & BYTE_MASK;
     System.arraycopy(responseBuf, 1, lastLSN, 0, LSN_OFFSET);
     System.arraycopy(
@@ -836,27 +908,23 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
         SECTOR_START_OFFSET,
         sector,
         0,
-        getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
+        sectorSize
     );
     System.arraycopy(
         responseBuf,
-        getConfig()
-            .getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
-                + SECTOR_START_OFFSET,
+        sectorSize + SECTOR_START_OFFSET,
         cocoSum,
         0,
         2
     );
 
     // Compute Checksum on sector received - NOTE: no V1 version checksum
-    lastChecksum = computeChecksum(
-        sector,
-        getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
-    );
+    lastChecksum = computeChecksum(sector, sectorSize);
     // Compare checksums
     if (lastChecksum != DWUtils.int2(cocoSum)) {
       // checksums do not match, tell Coco
       protodev.comWrite1(DWDefs.DWERROR_CRC, true);
+      this.metrics.crcFailure();
       LOGGER.warn("DoOP_WRITE: Bad checksum, drive: " + lastDrive + " LSN: "
           + DWUtils.int3(lastLSN) + " CocoSum: " + DWUtils.int2(cocoSum)
           + " ServerSum: " + lastChecksum);
@@ -897,12 +965,12 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     }
     if (opcode == DWDefs.OP_REWRITE) {
       writeRetries++;
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.warn("DoOP_REWRITE lastDrive: " + lastDrive + " LSN: "
             + DWUtils.int3(lastLSN));
       }
     } else {
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.info("DoOP_WRITE lastDrive: " + lastDrive + " LSN: "
             + DWUtils.int3(lastLSN));
       }
@@ -918,28 +986,23 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   private void doOpRead(final int opcode)
       throws IOException, DWCommTimeOutException {
-    byte[] mySum = new byte[2];
-    byte[] responseBuf;
-    byte[] sector = new byte[getConfig().getInt(
-        "DiskSectorSize",
-        DWDefs.DISK_SECTORSIZE
-    )];
+    final int sectorSize = getSettings().getSectorSize();
+    final byte[] mySum = this.serverSumBuf;
+    final byte[] responseBuf = this.readPacketBuf;
+    final byte[] sector = sectorBuffer(sectorSize);
     byte result = DWDefs.DWOK;
 
     try {
       // read rest of packet - drive # and 3 byte LSN
-      responseBuf = protodev.comRead(READ_PACKET_LEN);
+      protodev.comRead(responseBuf, READ_PACKET_LEN);
       // store that..
       lastDrive = responseBuf[0] & BYTE_MASK;
       System.arraycopy(
           responseBuf, 1, lastLSN, 0, READ_PACKET_LEN - 1
       );
-      // attempt seek to requested LSN (will throw one of the many exceptions
-      // caught below if it cannot)
-      diskDrives.seekSector(lastDrive, DWUtils.int3(lastLSN));
-      // we didn't throw an exception in our seek, so load a buffer with
-      // the sector's data
-      sector = diskDrives.readSector(lastDrive);
+      // load a buffer with the requested sector's data (will throw one of
+      // the many exceptions caught below if it cannot)
+      diskDrives.read(lastDrive, DWUtils.int3(lastLSN), sector);
       // deal with all kinds of things that could have gone wrong as we did
       // the seek and read above...
     } catch (DWDriveNotLoadedException
@@ -959,16 +1022,9 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     if (result == DWDefs.DWOK) {
       // if our response was OK, next we send the sector data
       // write out response sector
-      protodev.comWrite(
-          sector,
-          getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE),
-          true
-      );
+      protodev.comWrite(sector, sectorSize, true);
       // calc a checksum
-      lastChecksum = computeChecksum(
-          sector,
-          getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
-      );
+      lastChecksum = computeChecksum(sector, sectorSize);
       mySum[0] = (byte) ((lastChecksum >> BYTE_BITS) & BYTE_MASK);
       mySum[1] = (byte) (lastChecksum & BYTE_MASK);
       // send checksum to coco
@@ -980,7 +1036,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
         LOGGER.warn("DoOP_REREAD lastDrive: " + lastDrive + " LSN: "
             + DWUtils.int3(lastLSN));
       } else {
-        if (config.getBoolean("LogOpCode", false)) {
+        if (getSettings().isLogOpCode()) {
           LOGGER.info("DoOP_READ lastDrive: " + lastDrive + " LSN: "
               + DWUtils.int3(lastLSN));
         }
@@ -1000,65 +1056,56 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   private void doOpReadEx(final int opcode)
       throws IOException, DWCommTimeOutException {
-    byte[] cocoSum;
-    byte[] mySum = new byte[2];
-    byte[] responseBuf;
-    byte[] sector;
-    //= new byte[getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)];
+    final DWProtocolSettings settings = getSettings();
+    final int sectorSize = settings.getSectorSize();
+    final byte[] cocoSum = this.cocoSumBuf;
+    final byte[] mySum = this.serverSumBuf;
+    final byte[] responseBuf = this.readPacketBuf;
+    final byte[] sector = sectorBuffer(sectorSize);
     byte result = DWDefs.DWOK;
 
     try {
       // read rest of packet
-      responseBuf = protodev.comRead(READ_PACKET_LEN);
+      protodev.comRead(responseBuf, READ_PACKET_LEN);
       lastDrive = responseBuf[0] & BYTE_MASK;
       System.arraycopy(
           responseBuf, 1, lastLSN, 0, READ_PACKET_LEN - 1
       );
-      // seek to requested LSN
-      diskDrives.seekSector(lastDrive, DWUtils.int3(lastLSN));
-      // load lastSector with bytes from file
-      sector = diskDrives.readSector(lastDrive);
+      // load lastSector with bytes of requested LSN
+      diskDrives.read(lastDrive, DWUtils.int3(lastLSN), sector);
     } catch (DWDriveNotLoadedException
              | DWDriveNotValidException e1) {
       // zero sector
-      sector = diskDrives.nullSector();
+      Arrays.fill(sector, (byte) 0);
       LOGGER.warn("DoOP_READEX: " + e1.getMessage());
       result = DWDefs.DWERROR_NOTREADY;
     } catch (DWInvalidSectorException
              | DWImageFormatException
              | DWSeekPastEndOfDeviceException e5) {
-      sector = diskDrives.nullSector();
+      Arrays.fill(sector, (byte) 0);
       LOGGER.error("DoOP_READEX: " + e5.getMessage());
       result = DWDefs.DWERROR_READ;
     }
     // artificial delay test
-    if (config.containsKey("ReadDelay")) {
+    if (settings.getReadDelay() != DWProtocolSettings.NO_DELAY) {
       try {
-        LOGGER.debug("read delay "
-            + config.getLong("ReadDelay") + " ms...");
-        Thread.sleep(config.getLong("ReadDelay"));
+        LOGGER.debug("read delay " + settings.getReadDelay() + " ms...");
+        Thread.sleep(settings.getReadDelay());
       } catch (InterruptedException e) {
         LOGGER.warn("Interrupted during read delay");
       }
     }
     // write out response sector
-    protodev.comWrite(
-        sector,
-        getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE),
-        true
-    );
-    if (!config.getBoolean("ProtocolDisableReadChecksum", false)) {
+    protodev.comWrite(sector, sectorSize, true);
+    if (!settings.isDisableReadChecksum()) {
       // calc checksum
-      lastChecksum = computeChecksum(
-          sector,
-          getConfig().getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE)
-      );
+      lastChecksum = computeChecksum(sector, sectorSize);
       mySum[0] = (byte) ((lastChecksum >> BYTE_BITS) & BYTE_MASK);
       mySum[1] = (byte) (lastChecksum & BYTE_MASK);
       // logger.debug("looking for checksum " + mySum[0] + ":" + mySum[1]);
-      cocoSum = protodev.comRead(2);
+      protodev.comRead(cocoSum, 2);
       if (mySum[0] == cocoSum[0] && mySum[1] == cocoSum[1]
-          || config.getBoolean("ProtocolLieAboutCRC", false)) {
+          || settings.isLieAboutCRC()) {
         // Good checksum, all is well
         sectorsRead++;
         if (opcode == DWDefs.OP_REREADEX) {
@@ -1066,7 +1113,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
           LOGGER.warn("DoOP_REREADEX lastDrive: " + lastDrive + " LSN: "
               + DWUtils.int3(lastLSN));
         } else {
-          if (config.getBoolean("LogOpCode", false)) {
+          if (getSettings().isLogOpCode()) {
             LOGGER.info("DoOP_READEX lastDrive: " + lastDrive + " LSN: "
                 + DWUtils.int3(lastLSN));
           }
@@ -1075,6 +1122,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
         // checksum mismatch
         // sectorsRead++;  should we increment this?
         result = DWDefs.DWERROR_CRC;
+        this.metrics.crcFailure();
         if (opcode == DWDefs.OP_REREADEX) {
           readRetries++;
           LOGGER.warn("DoOP_REREADEX CRC check failed, lastDrive: "
@@ -1112,13 +1160,13 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     lastDrive = responseBuf[0] & BYTE_MASK;
     if (opcode == DWDefs.OP_GETSTAT) {
       lastGetStat = responseBuf[1];
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.info("DoOP_GETSTAT: " + DWUtils.prettySS(responseBuf[1])
             + " lastDrive: " + lastDrive + " LSN: " + DWUtils.int3(lastLSN));
       }
     } else {
       lastSetStat = responseBuf[1];
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.info("DoOP_SETSTAT " + DWUtils.prettySS(responseBuf[1])
             + " lastDrive: " + lastDrive + " LSN: " + DWUtils.int3(lastLSN));
       }
@@ -1134,7 +1182,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
   private void doOpSetTime() throws IOException, DWCommTimeOutException {
     byte[] responseBuf;
     responseBuf = protodev.comRead(FULL_TIME);
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_SETTIME data: "
           + DWUtils.byteArrayToHexString(responseBuf));
     }
@@ -1155,12 +1203,12 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     buf[index++] = (byte) calendar.get(Calendar.MINUTE);
     buf[index++] = (byte) calendar.get(Calendar.SECOND);
     buf[index] = (byte) calendar.get(Calendar.DAY_OF_WEEK);
-    if (config.getBoolean("OpTimeSendsDOW", false)) {
+    if (getSettings().isOpTimeSendsDOW()) {
       protodev.comWrite(buf, FULL_TIME_AND_DOW, true);
     } else {
       protodev.comWrite(buf, FULL_TIME, true);
     }
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_TIME");
     }
   }
@@ -1175,7 +1223,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     // read rest of packet - timer #
     final byte timer = (byte) protodev.comRead1(true);
     protodev.comWrite(timers.getTimerBytes(timer), TIMER_LEN, true);
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_TIMER # " + (timer & BYTE_MASK) + " val ~"
           + timers.getTimer(timer));
     }
@@ -1191,7 +1239,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     // read rest of packet - timer #
     final byte timer = (byte) protodev.comRead1(true);
     timers.resetTimer(timer);
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_RESET_TIMER # " + (timer & BYTE_MASK));
     }
   }
@@ -1218,7 +1266,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
       protodev.comWrite1(0, true);
     }
 
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_SERGETSTAT: " + DWUtils.prettySS(responseBuffer[1])
           + " port: " + responseBuffer[0] + "("
           + dwVSerialPorts.prettyPort(responseBuffer[0]) + ")");
@@ -1237,7 +1285,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
       // get packet args
       // port # and stat
       responseBuffer = protodev.comRead(2);
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.info("DoOP_SERSETSTAT: " + DWUtils.prettySS(responseBuffer[1])
             + " port: " + responseBuffer[0] + "("
             + dwVSerialPorts.prettyPort(responseBuffer[0]) + ")");
@@ -1291,7 +1339,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     // port # (mode no longer sent)
     final byte[] responseBuffer = protodev.comRead(1);
     final int portNumber = responseBuffer[0];
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_SERINIT for port "
           + dwVSerialPorts.prettyPort(portNumber));
     }
@@ -1316,7 +1364,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     // just port #
     portNumber = protodev.comRead1(true);
     //dwVSerialPorts.closePort(portNumber);
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_SERTERM for port " + portNumber);
     }
   }
@@ -1329,7 +1377,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     result = dwVSerialPorts.serRead();
     protodev.comWrite(result, 2, true);
     //if (result[0] != 0)
-    if (config.getBoolean("LogOpCodePolls", false)) {
+    if (getSettings().isLogOpCodePolls()) {
       LOGGER.info("DoOP_SERREAD response " + (int) (result[0] & BYTE_MASK)
           + ":" + (int) (result[1] & BYTE_MASK));
     }
@@ -1346,7 +1394,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     try {
       cmdPacket = protodev.comRead(2);
       dwVSerialPorts.serWrite(cmdPacket[0], cmdPacket[1]);
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.debug("DoOP_SERWRITE to port " + cmdPacket[0]);
       }
     } catch (DWPortNotOpenException | DWPortNotValidException e1) {
@@ -1366,7 +1414,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     byte[] data;
     try {
       cmdPacket = protodev.comRead(2);
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.info("DoOP_SERREADM for " + (cmdPacket[1] & BYTE_MASK)
             + " bytes on port " + cmdPacket[0]);
       }
@@ -1391,7 +1439,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
       byte[] data;
       data = protodev.comRead(BYTE_MASK & cmdPacket[1]);
       dwVSerialPorts.serWriteM(cmdPacket[0], data);
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         LOGGER.debug("DoOP_SERWRITEM to port " + cmdPacket[0] + ", "
             + (BYTE_MASK & cmdPacket[1]) + " bytes");
       }
@@ -1410,7 +1458,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
   private void doOpPrint()
       throws IOException, DWCommTimeOutException {
     final int printByte = protodev.comRead1(true);
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_PRINT: byte " + printByte);
     }
     vprinter.addByte((byte) printByte);
@@ -1420,7 +1468,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * Flush printer buffer.
    */
   private void doOpPrintFlush() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       LOGGER.info("DoOP_PRINTFLUSH");
     }
     vprinter.flush();
@@ -1437,15 +1485,32 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    * @param numBytes number of bytes to work on
    * @return checksum
    */
-  private int computeChecksum(final byte[] data, final int numBytes) {
-    lastChecksum = 0;
+  public static int computeChecksum(final byte[] data, final int numBytes) {
+    int checksum = 0;
     int counter = numBytes;
     /* Check to see if numBytes is odd or even */
     while (counter > 0) {
       counter--;
-      lastChecksum += data[counter] & BYTE_MASK;
+      checksum += data[counter] & BYTE_MASK;
     }
-    return lastChecksum;
+    return checksum;
+  }
+
+  /**
+   * Get scratch sector buffer.
+   * <p>
+   * Only the protocol thread uses it, and it is only replaced when
+   * the sector size changes
+   * </p>
+   *
+   * @param size sector size
+   * @return sector buffer
+   */
+  private byte[] sectorBuffer(final int size) {
+    if (this.sectorBuf.length != size) {
+      this.sectorBuf = new byte[size];
+    }
+    return this.sectorBuf;
   }
 
   /**
@@ -1464,7 +1529,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   @SuppressWarnings("unused")
   public int getReadRetries() {
-    return readRetries;
+    return readRetries + this.streamOps.getReadRetries();
   }
 
   /**
@@ -1474,7 +1539,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   @SuppressWarnings("unused")
   public int getWriteRetries() {
-    return writeRetries;
+    return writeRetries + this.streamOps.getWriteRetries();
   }
 
   /**
@@ -1484,7 +1549,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   @SuppressWarnings("unused")
   public int getSectorsRead() {
-    return sectorsRead;
+    return sectorsRead + this.streamOps.getSectorsRead();
   }
 
   /**
@@ -1494,7 +1559,7 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   @SuppressWarnings("unused")
   public int getSectorsWritten() {
-    return sectorsWritten;
+    return sectorsWritten + this.streamOps.getSectorsWritten();
   }
 
   /**
@@ -1596,6 +1661,19 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     return this.protodev;
   }
 
+  /**
+   * Attach protocol device.
+   * <p>
+   * A device attached before the handler is started is used in
+   * place of the one described by the instance configuration
+   * </p>
+   *
+   * @param device protocol device
+   */
+  public void setProtoDev(final DWProtocolDevice device) {
+    this.protodev = device;
+  }
+
   /**
    * Reset protocol device.
    */
@@ -1742,14 +1820,8 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
    */
   @Override
   public void syncStorage() {
-    if (this.isInOp() && this.syncSkipped < DWDefs.DISK_MAX_SYNC_SKIPS) {
-      LOGGER.debug("Ignoring sync request because we are processing a "
-          + "protocol operation (" + (this.syncSkipped + 1)
-          + " of " + DWDefs.DISK_MAX_SYNC_SKIPS + ")");
-      this.syncSkipped++;
-    } else if (this.diskDrives != null) {
-      this.diskDrives.sync();
-      this.syncSkipped = 0;
+    if (this.diskDrives != null) {
+      this.diskDrives.getFlusher().request();
     } else {
       LOGGER.debug("handler is alive, but disk drive object is null, "
           + "probably startup taking a while... skipping");
@@ -1863,6 +1935,15 @@ public class DWProtocolHandler implements Runnable, DWVSerialProtocol {
     return this.timers;
   }
 
+  /**
+   * Get operation metrics.
+   *
+   * @return protocol metrics
+   */
+  public DWProtocolMetrics getMetrics() {
+    return this.metrics;
+  }
+
   /**
    * Is handler's device started.
    *
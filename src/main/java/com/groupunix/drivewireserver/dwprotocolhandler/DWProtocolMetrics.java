@@ -0,0 +1,206 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import static com.groupunix.drivewireserver.DWDefs.BYTE_MASK;
+
+/**
+ * Operation statistics for a protocol handler instance.
+ * <p>
+ * Latencies are kept per opcode in power of two microsecond buckets,
+ * which gives percentiles to within a factor of two for a fixed,
+ * small cost per operation.  Byte counts and retries are kept by the
+ * protocol device and handler themselves.
+ * </p>
+ */
+public class DWProtocolMetrics {
+  /**
+   * Number of opcodes.
+   */
+  public static final int OPCODES = 256;
+  /**
+   * Median.
+   */
+  public static final double P50 = 0.5;
+  /**
+   * 99th percentile.
+   */
+  public static final double P99 = 0.99;
+  /**
+   * Histogram buckets, the last holds everything over 2^38 us.
+   */
+  private static final int BUCKETS = 40;
+  /**
+   * Bits in a long.
+   */
+  private static final int LONG_BITS = 64;
+
+  /**
+   * Latency histogram per opcode, allocated on first use.
+   */
+  private final long[][] histograms = new long[OPCODES][];
+  /**
+   * Operations per opcode.
+   */
+  private final long[] counts = new long[OPCODES];
+  /**
+   * Total latency per opcode (micros).
+   */
+  private final long[] totals = new long[OPCODES];
+  /**
+   * Worst latency per opcode (micros).
+   */
+  private final long[] maxima = new long[OPCODES];
+  /**
+   * Checksum failures.
+   */
+  private long crcFailures = 0;
+  /**
+   * Time spent waiting for serial data (millis).
+   */
+  private long readWait = 0;
+
+  /**
+   * Record a completed operation.
+   *
+   * @param opcode operation code
+   * @param micros time taken in microseconds
+   */
+  public synchronized void recordOp(final byte opcode, final long micros) {
+    final int op = opcode & BYTE_MASK;
+    if (this.histograms[op] == null) {
+      this.histograms[op] = new long[BUCKETS];
+    }
+    final long value = Math.max(0, micros);
+    this.histograms[op][bucket(value)]++;
+    this.counts[op]++;
+    this.totals[op] += value;
+    if (value > this.maxima[op]) {
+      this.maxima[op] = value;
+    }
+  }
+
+  /**
+   * Get histogram bucket for a latency.
+   *
+   * @param micros latency in microseconds
+   * @return bucket index
+   */
+  private static int bucket(final long micros) {
+    return Math.min(
+        BUCKETS - 1, LONG_BITS - Long.numberOfLeadingZeros(micros)
+    );
+  }
+
+  /**
+   * Get opcodes that have been seen.
+   *
+   * @return opcodes with at least one operation, in ascending order
+   */
+  public synchronized int[] getOpcodes() {
+    int seen = 0;
+    for (final long count : this.counts) {
+      if (count > 0) {
+        seen++;
+      }
+    }
+    final int[] res = new int[seen];
+    int pos = 0;
+    for (int op = 0; op < OPCODES; op++) {
+      if (this.counts[op] > 0) {
+        res[pos++] = op;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Get number of operations.
+   *
+   * @param op opcode (0-255)
+   * @return operation count
+   */
+  public synchronized long getCount(final int op) {
+    return this.counts[op];
+  }
+
+  /**
+   * Get total latency.
+   *
+   * @param op opcode (0-255)
+   * @return sum of latencies in microseconds
+   */
+  public synchronized long getTotal(final int op) {
+    return this.totals[op];
+  }
+
+  /**
+   * Get worst latency.
+   *
+   * @param op opcode (0-255)
+   * @return maximum latency in microseconds
+   */
+  public synchronized long getMax(final int op) {
+    return this.maxima[op];
+  }
+
+  /**
+   * Get latency percentile.
+   * <p>
+   * Reports the upper bound of the bucket holding the percentile,
+   * never more than the worst latency seen
+   * </p>
+   *
+   * @param op       opcode (0-255)
+   * @param fraction percentile as a fraction (0.5 for median)
+   * @return latency in microseconds
+   */
+  public synchronized long getPercentile(final int op, final double fraction) {
+    if (this.counts[op] == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(this.counts[op] * fraction));
+    long seen = 0;
+    int idx = 0;
+    while (idx < BUCKETS - 1) {
+      seen += this.histograms[op][idx];
+      if (seen >= rank) {
+        break;
+      }
+      idx++;
+    }
+    return Math.min(this.maxima[op], (1L << idx) - 1);
+  }
+
+  /**
+   * Count a checksum failure.
+   */
+  public synchronized void crcFailure() {
+    this.crcFailures++;
+  }
+
+  /**
+   * Get checksum failures.
+   *
+   * @return failure count
+   */
+  public synchronized long getCrcFailures() {
+    return this.crcFailures;
+  }
+
+  /**
+   * Add time spent waiting for serial data.
+   *
+   * @param millis wait time
+   */
+  public synchronized void addReadWait(final long millis) {
+    this.readWait += millis;
+  }
+
+  /**
+   * Get time spent waiting for serial data.
+   *
+   * @return wait time in milliseconds
+   */
+  public synchronized long getReadWait() {
+    return this.readWait;
+  }
+}
@@ -0,0 +1,329 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+/**
+ * Instance settings consulted while handling operations.
+ * <p>
+ * Built from the instance configuration and never changed afterwards.
+ * The configuration listener builds a new one whenever the configuration
+ * changes, so code on the protocol path reads plain fields instead of
+ * searching the configuration tree for every operation.
+ * </p>
+ */
+public final class DWProtocolSettings {
+  /**
+   * Delay value meaning no delay is configured.
+   */
+  public static final long NO_DELAY = -1;
+
+  /**
+   * Disk sector size.
+   */
+  private final int sectorSize;
+  /**
+   * Log operations.
+   */
+  private final boolean logOpCode;
+  /**
+   * Log polling operations.
+   */
+  private final boolean logOpCodePolls;
+  /**
+   * Log time taken by each operation.
+   */
+  private final boolean logTiming;
+  /**
+   * Artificial delay before extended read response.
+   */
+  private final long readDelay;
+  /**
+   * Artificial delay before named object mount response.
+   */
+  private final long nameObjMountDelay;
+  /**
+   * Skip checksum exchange on extended reads.
+   */
+  private final boolean disableReadChecksum;
+  /**
+   * Accept any checksum on extended reads.
+   */
+  private final boolean lieAboutCRC;
+  /**
+   * Ignore DWINIT.
+   */
+  private final boolean dw3Only;
+  /**
+   * HDB-DOS drive mapping.
+   */
+  private final boolean hdbdosMode;
+  /**
+   * Send day of week in time response.
+   */
+  private final boolean opTimeSendsDOW;
+  /**
+   * Follow switch to DATurbo mode.
+   */
+  private final boolean detectDATurbo;
+  /**
+   * Delay between bytes written to serial device.
+   */
+  private final long writeByteDelay;
+  /**
+   * Time to wait for a byte from serial device.
+   */
+  private final long readByteWait;
+  /**
+   * Reverse bits of output.
+   */
+  private final boolean flipOutputBits;
+  /**
+   * Prefix responses.
+   */
+  private final boolean responsePrefix;
+  /**
+   * Invert input bits.
+   */
+  private final boolean xorInputBits;
+  /**
+   * Log protocol device bytes.
+   */
+  private final boolean logDeviceBytes;
+  /**
+   * Log virtual port bytes.
+   */
+  private final boolean logVPortBytes;
+  /**
+   * Current printer name, null if not set.
+   */
+  private final String currentPrinter;
+  /**
+   * Accept streaming disk ops at DWINIT.
+   */
+  private final boolean streamingOps;
+
+  /**
+   * Protocol settings constructor.
+   *
+   * @param config instance configuration
+   */
+  public DWProtocolSettings(final HierarchicalConfiguration config) {
+    this.sectorSize = config.getInt("DiskSectorSize", DWDefs.DISK_SECTORSIZE);
+    this.logOpCode = config.getBoolean("LogOpCode", false);
+    this.logOpCodePolls = config.getBoolean("LogOpCodePolls", false);
+    this.logTiming = config.getBoolean("LogTiming", false);
+    this.readDelay = config.getLong("ReadDelay", NO_DELAY);
+    this.nameObjMountDelay = config.getLong("NameObjMountDelay", NO_DELAY);
+    this.disableReadChecksum
+        = config.getBoolean("ProtocolDisableReadChecksum", false);
+    this.lieAboutCRC = config.getBoolean("ProtocolLieAboutCRC", false);
+    this.dw3Only = config.getBoolean("DW3Only", false);
+    this.hdbdosMode = config.getBoolean("HDBDOSMode", false);
+    this.opTimeSendsDOW = config.getBoolean("OpTimeSendsDOW", false);
+    this.detectDATurbo = config.getBoolean("DetectDATurbo", false);
+    this.writeByteDelay = config.getLong(
+        "WriteByteDelay", DWSerialDevice.DEFAULT_WRITE_DELAY
+    );
+    this.readByteWait = config.getLong(
+        "ReadByteWait", DWSerialDevice.DEFAULT_WAIT_TIME
+    );
+    this.flipOutputBits = config.getBoolean("ProtocolFlipOutputBits", false);
+    this.responsePrefix = config.getBoolean("ProtocolResponsePrefix", false);
+    this.xorInputBits = config.getBoolean("ProtocolXORInputBits", false);
+    this.logDeviceBytes = config.getBoolean("LogDeviceBytes", false);
+    this.logVPortBytes = config.getBoolean("LogVPortBytes", false);
+    this.currentPrinter = config.getString("CurrentPrinter", null);
+    this.streamingOps = config.getBoolean("ProtocolStreamingOps", true);
+  }
+
+  /**
+   * Get disk sector size.
+   *
+   * @return sector size
+   */
+  public int getSectorSize() {
+    return this.sectorSize;
+  }
+
+  /**
+   * Are operations logged.
+   *
+   * @return true if logging operations
+   */
+  public boolean isLogOpCode() {
+    return this.logOpCode;
+  }
+
+  /**
+   * Are polling operations logged.
+   *
+   * @return true if logging polls
+   */
+  public boolean isLogOpCodePolls() {
+    return this.logOpCodePolls;
+  }
+
+  /**
+   * Are operation times logged.
+   *
+   * @return true if logging timing
+   */
+  public boolean isLogTiming() {
+    return this.logTiming;
+  }
+
+  /**
+   * Get extended read delay.
+   *
+   * @return delay in millis or NO_DELAY
+   */
+  public long getReadDelay() {
+    return this.readDelay;
+  }
+
+  /**
+   * Get named object mount delay.
+   *
+   * @return delay in millis or NO_DELAY
+   */
+  public long getNameObjMountDelay() {
+    return this.nameObjMountDelay;
+  }
+
+  /**
+   * Is read checksum disabled.
+   *
+   * @return true if disabled
+   */
+  public boolean isDisableReadChecksum() {
+    return this.disableReadChecksum;
+  }
+
+  /**
+   * Are bad read checksums accepted.
+   *
+   * @return true if accepted
+   */
+  public boolean isLieAboutCRC() {
+    return this.lieAboutCRC;
+  }
+
+  /**
+   * Is DWINIT ignored.
+   *
+   * @return true if limited to DW3
+   */
+  public boolean isDW3Only() {
+    return this.dw3Only;
+  }
+
+  /**
+   * Is HDB-DOS drive mapping on.
+   *
+   * @return true if in HDB-DOS mode
+   */
+  public boolean isHDBDOSMode() {
+    return this.hdbdosMode;
+  }
+
+  /**
+   * Does time response include day of week.
+   *
+   * @return true if sending day of week
+   */
+  public boolean isOpTimeSendsDOW() {
+    return this.opTimeSendsDOW;
+  }
+
+  /**
+   * Is DATurbo switch followed.
+   *
+   * @return true if detecting DATurbo
+   */
+  public boolean isDetectDATurbo() {
+    return this.detectDATurbo;
+  }
+
+  /**
+   * Get delay between written bytes.
+   *
+   * @return delay in millis
+   */
+  public long getWriteByteDelay() {
+    return this.writeByteDelay;
+  }
+
+  /**
+   * Get time to wait for a byte.
+   *
+   * @return wait in millis
+   */
+  public long getReadByteWait() {
+    return this.readByteWait;
+  }
+
+  /**
+   * Are output bits reversed.
+   *
+   * @return true if flipping output
+   */
+  public boolean isFlipOutputBits() {
+    return this.flipOutputBits;
+  }
+
+  /**
+   * Are responses prefixed.
+   *
+   * @return true if prefixing responses
+   */
+  public boolean isResponsePrefix() {
+    return this.responsePrefix;
+  }
+
+  /**
+   * Are input bits inverted.
+   *
+   * @return true if inverting input
+   */
+  public boolean isXorInputBits() {
+    return this.xorInputBits;
+  }
+
+  /**
+   * Are device bytes logged.
+   *
+   * @return true if logging device bytes
+   */
+  public boolean isLogDeviceBytes() {
+    return this.logDeviceBytes;
+  }
+
+  /**
+   * Are virtual port bytes logged.
+   *
+   * @return true if logging port bytes
+   */
+  public boolean isLogVPortBytes() {
+    return this.logVPortBytes;
+  }
+
+  /**
+   * Get current printer name.
+   *
+   * @return printer name or null
+   */
+  public String getCurrentPrinter() {
+    return this.currentPrinter;
+  }
+
+  /**
+   * Are streaming disk ops accepted.
+   *
+   * @return true if drivers may negotiate streaming ops
+   */
+  public boolean isStreamingOps() {
+    return this.streamingOps;
+  }
+}
@@ -0,0 +1,350 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.log4j.Logger;
+
+import static com.groupunix.drivewireserver.DWDefs.CARRIAGE_RETURN;
+
+/**
+ * Host file used by RFM paths.
+ * <p>
+ * One of these is shared by every path open on the same file, so the
+ * read ahead and write behind buffers are seen by all of them and no
+ * path reads stale data written through another.  The file is kept
+ * open between requests, until the pool closes it to make room for
+ * others; it is opened again when next used.
+ * </p>
+ */
+class DWRFMFile {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWRFMFile");
+  /**
+   * Read ahead and write behind buffer size.
+   */
+  private static final int BUFFER_SIZE = 4096;
+  /**
+   * Host file.
+   */
+  private final Path path;
+  /**
+   * Pool limiting open files.
+   */
+  private final DWRFMHandlePool pool;
+  /**
+   * Number of paths using this file.
+   */
+  private int users = 0;
+  /**
+   * Open file, null if not open.
+   */
+  private FileChannel channel;
+  /**
+   * Open file can be written.
+   */
+  private boolean channelWritable;
+  /**
+   * File size, including buffered writes.
+   */
+  private long fileSize;
+  /**
+   * Bytes read ahead from file.
+   */
+  private final byte[] readBuffer = new byte[BUFFER_SIZE];
+  /**
+   * File position of first read ahead byte.
+   */
+  private long readStart;
+  /**
+   * Number of read ahead bytes.
+   */
+  private int readLen = 0;
+  /**
+   * Bytes waiting to be written to file.
+   */
+  private final byte[] writeBuffer = new byte[BUFFER_SIZE];
+  /**
+   * File position of first waiting byte.
+   */
+  private long writeStart;
+  /**
+   * Number of waiting bytes.
+   */
+  private int writeLen = 0;
+
+  /**
+   * RFM file constructor.
+   *
+   * @param file    host file
+   * @param handles pool limiting open files
+   */
+  DWRFMFile(final Path file, final DWRFMHandlePool handles) {
+    this.path = file;
+    this.pool = handles;
+  }
+
+  /**
+   * Get host file.
+   *
+   * @return host file
+   */
+  Path getPath() {
+    return this.path;
+  }
+
+  /**
+   * Note another path using this file.
+   */
+  void addUser() {
+    this.users++;
+  }
+
+  /**
+   * Note a path no longer using this file.
+   *
+   * @return number of paths still using it
+   */
+  int removeUser() {
+    return --this.users;
+  }
+
+  /**
+   * Is the file open.
+   *
+   * @return true if open
+   */
+  boolean isOpen() {
+    return this.channel != null;
+  }
+
+  /**
+   * Flush and close the file, if open.
+   * <p>
+   * Waiting bytes that cannot be written are dropped, so the buffers
+   * always match the file when it is next opened
+   * </p>
+   */
+  void releaseChannel() {
+    if (this.channel == null) {
+      return;
+    }
+    this.flushWrites();
+    if (this.writeLen > 0) {
+      LOGGER.error(
+          "lost " + this.writeLen + " bytes written to " + this.path
+      );
+      this.writeLen = 0;
+    }
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      LOGGER.warn("error closing file: " + e.getMessage());
+    }
+    this.channel = null;
+    this.readLen = 0;
+  }
+
+  /**
+   * Get open file, opening it if needed.
+   *
+   * @param write file must be writable
+   * @return open file
+   * @throws IOException failed to open file
+   */
+  private FileChannel channel(final boolean write) throws IOException {
+    if (this.channel != null && write && !this.channelWritable) {
+      this.releaseChannel();
+    }
+    if (this.channel == null) {
+      if (write) {
+        this.channel = FileChannel.open(
+            this.path, StandardOpenOption.READ, StandardOpenOption.WRITE
+        );
+      } else {
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ);
+      }
+      this.channelWritable = write;
+      this.fileSize = this.channel.size();
+    }
+    this.pool.touch(this);
+    return this.channel;
+  }
+
+  /**
+   * Write waiting bytes to file.
+   *
+   * @throws IOException failed to write file
+   */
+  private void flush() throws IOException {
+    if (this.writeLen == 0 || this.channel == null) {
+      return;
+    }
+    final ByteBuffer bb = ByteBuffer.wrap(this.writeBuffer, 0, this.writeLen);
+    long pos = this.writeStart;
+    while (bb.hasRemaining()) {
+      pos += this.channel.write(bb, pos);
+    }
+    this.writeLen = 0;
+  }
+
+  /**
+   * Write waiting bytes to file, logging any failure.
+   */
+  void flushWrites() {
+    try {
+      this.flush();
+    } catch (IOException e) {
+      LOGGER.warn("error writing file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Read ahead from a file position.
+   *
+   * @param position file position
+   * @throws IOException failed to read file
+   */
+  private void fill(final long position) throws IOException {
+    final FileChannel fc = this.channel(false);
+    final ByteBuffer bb = ByteBuffer.wrap(this.readBuffer);
+    this.readStart = position;
+    int got = 0;
+    while (bb.hasRemaining() && got >= 0) {
+      got = fc.read(bb, this.readStart + bb.position());
+    }
+    this.readLen = bb.position();
+  }
+
+  /**
+   * Get bytes at a file position from the read ahead buffer.
+   * <p>
+   * Waiting writes are written first, so reads see them
+   * </p>
+   *
+   * @param position file position
+   * @param wanted   most bytes wanted
+   * @return offset of position in read buffer
+   * @throws IOException failed to read file
+   */
+  private int buffered(final long position, final int wanted)
+      throws IOException {
+    if (this.writeLen > 0) {
+      this.flush();
+      this.readLen = 0;
+    }
+    final long offset = position - this.readStart;
+    if (this.channel == null || offset < 0
+        || offset + wanted > this.readLen) {
+      this.fill(position);
+      return 0;
+    }
+    this.pool.touch(this);
+    return (int) offset;
+  }
+
+  /**
+   * Get number of bytes from a file position to end of file.
+   *
+   * @param position file position
+   * @return bytes left, 0 if none
+   * @throws IOException failed to open file
+   */
+  long remaining(final long position) throws IOException {
+    this.channel(false);
+    if (this.fileSize <= position) {
+      // may have grown since opened
+      this.fileSize = Math.max(this.fileSize, this.channel.size());
+    }
+    return Math.max(0, this.fileSize - position);
+  }
+
+  /**
+   * Read bytes from a file position.
+   *
+   * @param position file position
+   * @param buf      buffer to read to
+   * @param len      bytes wanted
+   * @return bytes read
+   * @throws IOException failed to read file
+   */
+  int read(final long position, final byte[] buf, final int len)
+      throws IOException {
+    final int offset = this.buffered(position, len);
+    final int got = Math.max(0, Math.min(len, this.readLen - offset));
+    System.arraycopy(this.readBuffer, offset, buf, 0, got);
+    return got;
+  }
+
+  /**
+   * Read a line from a file position.
+   * <p>
+   * Returns up to and including the first $0D within the available
+   * bytes, or all available bytes if there is none
+   * </p>
+   *
+   * @param position   file position
+   * @param availBytes bytes available
+   * @return line bytes
+   * @throws IOException failed to read file
+   */
+  byte[] readLine(final long position, final int availBytes)
+      throws IOException {
+    final int offset = this.buffered(position, availBytes);
+    final int end = Math.min(offset + availBytes, this.readLen);
+    int len = 0;
+    while (offset + len < end) {
+      len++;
+      if (this.readBuffer[offset + len - 1] == (byte) CARRIAGE_RETURN) {
+        break;
+      }
+    }
+    final byte[] buf = new byte[len];
+    System.arraycopy(this.readBuffer, offset, buf, 0, len);
+    return buf;
+  }
+
+  /**
+   * Write bytes at a file position.
+   * <p>
+   * Writes that follow on from each other are collected and written
+   * to the file together
+   * </p>
+   *
+   * @param position file position
+   * @param buf      bytes to write
+   * @param len      number of bytes
+   * @throws IOException failed to write file
+   */
+  void write(final long position, final byte[] buf, final int len)
+      throws IOException {
+    this.channel(true);
+    if (this.writeLen > 0
+        && (this.writeStart + this.writeLen != position
+        || this.writeLen + len > this.writeBuffer.length)) {
+      this.flush();
+    }
+    // read ahead no longer matches the file
+    this.readLen = 0;
+    if (len > this.writeBuffer.length) {
+      final ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+      long pos = position;
+      while (bb.hasRemaining()) {
+        pos += this.channel.write(bb, pos);
+      }
+    } else {
+      if (this.writeLen == 0) {
+        this.writeStart = position;
+      }
+      System.arraycopy(buf, 0, this.writeBuffer, this.writeLen, len);
+      this.writeLen += len;
+    }
+    this.fileSize = Math.max(this.fileSize, position + len);
+  }
+}
@@ -0,0 +1,102 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Host files used by RFM paths.
+ * <p>
+ * Paths open on the same host file share one {@link DWRFMFile}, and
+ * the number of files held open is bounded.  Files register here
+ * whenever they are used, most recently used last.  Once more than the
+ * limit are open, the least recently used file is flushed and closed;
+ * it opens again next time it is used, so OS-9 can keep any number of
+ * paths open.
+ * </p>
+ */
+class DWRFMHandlePool {
+  /**
+   * Default most open files.
+   */
+  public static final int DEFAULT_MAX_OPEN = 32;
+  /**
+   * Most open files.
+   */
+  private final int maxOpen;
+  /**
+   * Files in use by paths, by host file.
+   */
+  private final Map<Path, DWRFMFile> files = new HashMap<>();
+  /**
+   * Files held open, least recently used first.
+   */
+  private final LinkedHashSet<DWRFMFile> open = new LinkedHashSet<>();
+
+  /**
+   * RFM handle pool constructor.
+   *
+   * @param limit most open files
+   */
+  DWRFMHandlePool(final int limit) {
+    this.maxOpen = limit;
+  }
+
+  /**
+   * Get the file for a path to use.
+   *
+   * @param path host file
+   * @return file shared with other paths on the same host file
+   */
+  synchronized DWRFMFile acquire(final Path path) {
+    final DWRFMFile file = this.files.computeIfAbsent(
+        path.toAbsolutePath().normalize(), p -> new DWRFMFile(p, this)
+    );
+    file.addUser();
+    return file;
+  }
+
+  /**
+   * Note a path has finished with a file.
+   * <p>
+   * The file is flushed and closed once no path is using it
+   * </p>
+   *
+   * @param file file
+   */
+  synchronized void release(final DWRFMFile file) {
+    if (file.removeUser() > 0) {
+      return;
+    }
+    this.files.remove(file.getPath());
+    this.open.remove(file);
+    file.releaseChannel();
+  }
+
+  /**
+   * Note that a file is in use, closing others if needed.
+   *
+   * @param file open file
+   */
+  synchronized void touch(final DWRFMFile file) {
+    this.open.remove(file);
+    this.open.add(file);
+    final Iterator<DWRFMFile> it = this.open.iterator();
+    while (this.open.size() > this.maxOpen) {
+      final DWRFMFile eldest = it.next();
+      it.remove();
+      eldest.releaseChannel();
+    }
+  }
+
+  /**
+   * Get number of open files.
+   *
+   * @return open files
+   */
+  synchronized int size() {
+    return this.open.size();
+  }
+}
@@ -81,6 +81,11 @@ public class DWRFMHandler {
    * RFM paths.
    */
   private final DWRFMPath[] paths = new DWRFMPath[MAX_PATHS];
+  /**
+   * Pool limiting files held open by paths.
+   */
+  private final DWRFMHandlePool handles
+      = new DWRFMHandlePool(DWRFMHandlePool.DEFAULT_MAX_OPEN);
   /**
    * Handler Id.
    */
@@ -96,6 +101,15 @@ public class DWRFMHandler {
     this.handlerId = handler;
   }
 
+  /**
+   * Close all paths, writing any buffered data.
+   */
+  public void shutdown() {
+    for (int i = 0; i < this.paths.length; i++) {
+      this.closePath(i);
+    }
+  }
+
   /**
    * Route device operation.
    *
@@ -111,7 +125,7 @@ public class DWRFMHandler {
       case RFM_OP_DELETE -> doOpRfmDelete();
       case RFM_OP_SEEK -> doOpRfmSeek(device);
       case RFM_OP_READ -> doOpRfmRead(device);
-      case RFM_OP_WRITE -> doOpRfmWrite();
+      case RFM_OP_WRITE -> doOpRfmWrite(device);
       case RFM_OP_READLN -> doOpRfmReadLn(device);
       case RFM_OP_WRITLN -> doOpRfmWriteLn(device);
       case RFM_OP_GETSTT -> doOpRfmGetStt(device);
@@ -130,8 +144,7 @@ public class DWRFMHandler {
       if (this.paths[pathNumber] == null) {
         LOGGER.error("close on null path: " + pathNumber);
       } else {
-        this.paths[pathNumber].close();
-        this.paths[pathNumber] = null;
+        this.closePath(pathNumber);
       }
       // send response
       device.comWrite1(0, true);
@@ -209,21 +222,7 @@ public class DWRFMHandler {
    */
   private void doOpRfmWriteLn(final DWProtocolDevice device) {
     LOGGER.debug("WRITLN");
-    // read path #
-    try {
-      final int pathNumber = device.comRead1(true);
-      // read sending bytes
-      final byte[] maxBytesB = device.comRead(2);
-      final int maxBytes = DWUtils.int2(maxBytesB);
-      // read bytes
-      final byte[] buf = device.comRead(maxBytes);
-      // write to file
-      this.paths[pathNumber].writeBytes(buf, maxBytes);
-      this.paths[pathNumber].incSeekPos(maxBytes);
-      LOGGER.debug("writln on path " + pathNumber + " bytes: " + maxBytes);
-    } catch (IOException | DWCommTimeOutException e) {
-      e.printStackTrace();
-    }
+    this.doWrite(device, "writln");
   }
 
   /**
@@ -241,22 +240,9 @@ public class DWRFMHandler {
       final int maxBytes = DWUtils.int2(maxBytesB);
       int availBytes = this.paths[pathNumber].getBytesAvail(maxBytes);
       LOGGER.debug("initial AB: " + availBytes);
-      final byte[] buf = new byte[availBytes];
-      System.arraycopy(
-          this.paths[pathNumber].getBytes(availBytes),
-          0,
-          buf,
-          0,
-          availBytes
-      );
-      // find $0D or end
-      int index = 0;
-      while (index < availBytes) {
-        if (buf[index] == (byte) CARRIAGE_RETURN) {
-          availBytes = index + 1;
-        }
-        index++;
-      }
+      // up to $0D or end
+      final byte[] buf = this.paths[pathNumber].getLine(availBytes);
+      availBytes = buf.length;
       LOGGER.debug("adjusted AB: " + availBytes);
       device.comWrite1(availBytes, true);
       if (availBytes > 0) {
@@ -273,12 +259,38 @@ public class DWRFMHandler {
 
   /**
    * Write protocol path.
+   *
+   * @param device protocol device
+   */
+  private void doOpRfmWrite(final DWProtocolDevice device) {
+    LOGGER.debug("WRITE");
+    this.doWrite(device, "write");
+  }
+
+  /**
+   * Write bytes sent by the CoCo to a path.
    * <p>
-   *   not implemented
+   * Used for both write and writln, which are handled the same here
    * </p>
+   *
+   * @param device protocol device
+   * @param op     operation name for the log
    */
-  private void doOpRfmWrite() {
-    LOGGER.debug("WRITE");
+  private void doWrite(final DWProtocolDevice device, final String op) {
+    // read path #
+    try {
+      final int pathNumber = device.comRead1(true);
+      // read sending bytes
+      final int maxBytes = DWUtils.int2(device.comRead(2));
+      // read bytes
+      final byte[] buf = device.comRead(maxBytes);
+      // write to file
+      this.paths[pathNumber].writeBytes(buf, maxBytes);
+      this.paths[pathNumber].incSeekPos(maxBytes);
+      LOGGER.debug(op + " on path " + pathNumber + " bytes: " + maxBytes);
+    } catch (IOException | DWCommTimeOutException e) {
+      e.printStackTrace();
+    }
   }
 
   /**
@@ -298,14 +310,7 @@ public class DWRFMHandler {
       if (maxBytes > availBytes) {
         maxBytes = availBytes;
       }
-      final byte[] buf = new byte[maxBytes];
-      System.arraycopy(
-          this.paths[pathNumber].getBytes(maxBytes),
-          0,
-          buf,
-          0,
-          maxBytes
-      );
+      final byte[] buf = this.paths[pathNumber].getBytes(maxBytes);
       device.comWrite1(maxBytes, true);
       if (maxBytes > 0) {
         // possible prefix needed
@@ -381,7 +386,9 @@ public class DWRFMHandler {
       final int modeByte = device.comRead1(true) & BYTE_MASK;
       final String pathString = buildPath(device);
       // send result
-      this.paths[pathNumber] = new DWRFMPath(this.handlerId, pathNumber);
+      this.closePath(pathNumber);
+      this.paths[pathNumber]
+          = new DWRFMPath(this.handlerId, pathNumber, this.handles);
       this.paths[pathNumber].setPathStr(pathString);
       final int result = this.paths[pathNumber].createFile();
       device.comWrite1(result, true);
@@ -406,7 +413,9 @@ public class DWRFMHandler {
       final String pathString = buildPath(device);
       // send result
       // anything needed for dealing with multiple opens..
-      this.paths[pathNumber] = new DWRFMPath(this.handlerId, pathNumber);
+      this.closePath(pathNumber);
+      this.paths[pathNumber]
+          = new DWRFMPath(this.handlerId, pathNumber, this.handles);
       this.paths[pathNumber].setPathStr(pathString);
       final int result = this.paths[pathNumber].openFile(modeByte);
       device.comWrite1(result, true);
@@ -417,6 +426,18 @@ public class DWRFMHandler {
     }
   }
 
+  /**
+   * Close path if open, releasing its file.
+   *
+   * @param pathNumber path number
+   */
+  private void closePath(final int pathNumber) {
+    if (this.paths[pathNumber] != null) {
+      this.paths[pathNumber].close();
+      this.paths[pathNumber] = null;
+    }
+  }
+
   private String buildPath(final DWProtocolDevice device)
       throws DWCommTimeOutException, IOException {
     final StringBuilder pathString = new StringBuilder();
@@ -1,8 +1,7 @@
 package com.groupunix.drivewireserver.dwprotocolhandler;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
 import org.apache.commons.vfs2.FileObject;
@@ -90,16 +89,27 @@ public class DWRFMPath {
    * Directory entry number.
    */
   private int dirEntryNum = 0;
+  /**
+   * Pool limiting open files.
+   */
+  private final DWRFMHandlePool pool;
+  /**
+   * Host file, null until first used.
+   */
+  private DWRFMFile file;
 
   /**
    * RFM path.
    *
    * @param handler handler id
    * @param pathNum path number
+   * @param handles pool limiting open files
    * @throws FileSystemException read/write failure
    */
-  public DWRFMPath(final int handler, final int pathNum)
-      throws FileSystemException {
+  public DWRFMPath(
+      final int handler, final int pathNum, final DWRFMHandlePool handles
+  ) throws FileSystemException {
+    this.pool = handles;
     this.setPathNumber(pathNum);
     this.setSeekPos(0);
     LOGGER.debug("new path " + pathNum);
@@ -159,13 +169,42 @@ public class DWRFMPath {
    */
   public void close() {
     LOGGER.debug("closing path " + this.pathNumber + " to " + this.pathString);
+    if (this.file != null) {
+      this.pool.release(this.file);
+      this.file = null;
+    }
     try {
-      fileObject.close();
+      if (fileObject != null) {
+        fileObject.close();
+      }
     } catch (FileSystemException e) {
       LOGGER.warn("error closing file: " + e.getMessage());
     }
   }
 
+  /**
+   * Get host file, shared with other paths open on it.
+   *
+   * @return host file
+   */
+  private DWRFMFile file() {
+    if (this.file == null) {
+      this.file = this.pool.acquire(
+          Paths.get(this.localRoot + this.pathString)
+      );
+    }
+    return this.file;
+  }
+
+  /**
+   * Write waiting bytes to host file.
+   */
+  private void flushWrites() {
+    if (this.file != null) {
+      this.file.flushWrites();
+    }
+  }
+
   /**
    * Get seek position.
    *
@@ -289,18 +328,14 @@ public class DWRFMPath {
     }
     // File mode
     // return # bytes left in file from current seek pos, up to maxBytes
-    final File file = new File(this.localRoot + this.pathString);
-    if (file.exists()) {
-      // we only handle int sized files...
-      final int tmpSize = Math.min(
-          BYTES_AVAILABLE_CAP,
-          (int) file.length() - this.seekPosition
-      );
-      return Math.min(tmpSize, maxBytes);
-    } else {
+    final long left;
+    try {
+      left = this.file().remaining(this.seekPosition);
+    } catch (IOException e) {
       //TODO wrong!
       return 0;
     }
+    return (int) Math.min(Math.min(BYTES_AVAILABLE_CAP, left), maxBytes);
   }
 
   /**
@@ -321,23 +356,38 @@ public class DWRFMPath {
       // this.seekpos += availbytes;
       return buf;
     }
-    final File file = new File(this.localRoot + this.pathString);
-    if (file.exists()) {
-      LOGGER.debug("FILE: asked for " + availBytes);
-      try (
-          RandomAccessFile inFile = new RandomAccessFile(file, "r")
-      ) {
-        inFile.seek(seekPosition);
-        //TODO what if we don't get buf.length??
-        //this.seekpos +=
-        inFile.read(buf);
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+    LOGGER.debug("FILE: asked for " + availBytes);
+    try {
+      //TODO what if we don't get buf.length??
+      this.file().read(this.seekPosition, buf, availBytes);
+    } catch (IOException e) {
+      LOGGER.error("read failed: " + e.getMessage());
     }
     return buf;
   }
 
+  /**
+   * Get next line from path.
+   * <p>
+   * Returns up to and including the first $0D within the available
+   * bytes, or all available bytes if there is none
+   * </p>
+   *
+   * @param availBytes bytes available
+   * @return byte array
+   */
+  public byte[] getLine(final int availBytes) {
+    if (this.dirMode) {
+      return this.getBytes(availBytes);
+    }
+    try {
+      return this.file().readLine(this.seekPosition, availBytes);
+    } catch (IOException e) {
+      LOGGER.error("read line failed: " + e.getMessage());
+    }
+    return new byte[0];
+  }
+
   /**
    * Increment seek position by N bytes.
    *
@@ -355,6 +405,7 @@ public class DWRFMPath {
    * @throws FileSystemException write failure
    */
   public void setFd(final byte[] buf) throws FileSystemException {
+    this.flushWrites();
     final DWRFMFD dwrfmfd = new DWRFMFD(
         DriveWireServer
             .getHandler(this.handlerId)
@@ -378,6 +429,7 @@ public class DWRFMPath {
    */
   public byte[] getFd(final int size) throws FileSystemException {
     final byte[] bytes = new byte[size];
+    this.flushWrites();
     final DWRFMFD dwrfmfd = new DWRFMFD(
         DriveWireServer
             .getHandler(this.handlerId)
@@ -392,26 +444,21 @@ public class DWRFMPath {
 
   /**
    * Write Bytes to path.
+   * <p>
+   * Writes are collected by the host file, shared with any other path
+   * open on it
+   * </p>
    *
    * @param buf      byte array
    * @param maxBytes maximum number of bytes
    */
   public void writeBytes(final byte[] buf, final int maxBytes) {
-    // write to file
-    final File file = new File(this.localRoot + this.pathString);
-    if (file.exists()) {
-      try (
-          RandomAccessFile inFile = new RandomAccessFile(file, "rw")
-      ) {
-        inFile.seek(this.seekPosition);
-        //TODO what if we don't get buf.length??
-        //this.seekpos +=
-        inFile.write(buf);
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
-    } else {
-      LOGGER.error("write to non existent file");
+    try {
+      this.file().write(
+          this.seekPosition, buf, Math.min(buf.length, maxBytes)
+      );
+    } catch (IOException e) {
+      LOGGER.error("write failed: " + e.getMessage());
     }
   }
 
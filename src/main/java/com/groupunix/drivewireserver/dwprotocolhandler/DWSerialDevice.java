@@ -10,8 +10,6 @@ import gnu.io.UnsupportedCommOperationException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.TooManyListenersException;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
@@ -70,10 +68,6 @@ public class DWSerialDevice implements DWProtocolDevice {
    * Serial port.
    */
   private SerialPort serialPort = null;
-  /**
-   * Log byte flag.
-   */
-  private boolean bytelog = false;
   /**
    * Device name.
    */
@@ -86,42 +80,34 @@ public class DWSerialDevice implements DWProtocolDevice {
    * DATURBO mode flag.
    */
   private boolean daTurboMode = false;
-  /**
-   * XOR input.
-   */
-  private boolean xorInput = false;
-  /**
-   * Delay on write byte.
-   */
-  private long writeByteDelay = 0;
-  /**
-   * Wait on read byte.
-   */
-  private long readByteWait = DEFAULT_WAIT_TIME;
   /**
    * Prefix.
    */
   private final byte[] prefix;
+  /**
+   * Scratch buffer for prefixed responses.
+   */
+  private byte[] outBuf = new byte[0];
   /**
    * Read time.
    */
   private long readtime;
   /**
-   * Queue.
+   * Bytes received.
    */
-  private ArrayBlockingQueue<Byte> queue;
+  private volatile long bytesIn = 0;
   /**
-   * Serial reader.
+   * Bytes sent.
    */
-  private DWSerialReader evtlistener;
+  private volatile long bytesOut = 0;
   /**
-   * Flip output bits flag.
+   * Received data buffer.
    */
-  private boolean protocolFlipOutputBits;
+  private DWSerialRingBuffer queue;
   /**
-   * Response prefix flag.
+   * Serial reader.
    */
-  private boolean protocolResponsePrefix;
+  private DWSerialReader evtlistener;
 
   /**
    * Serial device.
@@ -144,7 +130,8 @@ public class DWSerialDevice implements DWProtocolDevice {
     prefix = new byte[1];
     prefix[0] = (byte) PREFIX_BYTE;
     LOGGER.debug("init " + device + " for handler #" + protocol.getHandlerNo()
-        + " (logging bytes: " + bytelog + "  xorinput: " + xorInput + ")");
+        + " (logging bytes: " + protocol.getSettings().isLogDeviceBytes()
+        + "  xorinput: " + protocol.getSettings().isXorInputBits() + ")");
     connect(device);
   }
 
@@ -197,7 +184,7 @@ public class DWSerialDevice implements DWProtocolDevice {
       if (this.evtlistener != null) {
         this.serialPort.removeEventListener();
       }
-      this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+      this.queue = new DWSerialRingBuffer(QUEUE_CAPACITY);
       this.evtlistener = new DWSerialReader(serialPort.getInputStream(), queue);
       serialPort.addEventListener(this.evtlistener);
       serialPort.notifyOnDataAvailable(true);
@@ -293,20 +280,6 @@ public class DWSerialDevice implements DWProtocolDevice {
     final int stopBits = getStopBits();
     final int dataBits = DEFAULT_DATA_BITS;
 
-    // mode vars
-    this.writeByteDelay = this.dwProtocol.getConfig()
-        .getLong("WriteByteDelay", DEFAULT_WRITE_DELAY);
-    this.readByteWait = this.dwProtocol.getConfig()
-        .getLong("ReadByteWait", DEFAULT_WAIT_TIME);
-    this.protocolFlipOutputBits = this.dwProtocol.getConfig()
-        .getBoolean("ProtocolFlipOutputBits", false);
-    this.protocolResponsePrefix = dwProtocol.getConfig()
-        .getBoolean("ProtocolResponsePrefix", false);
-    this.xorInput = dwProtocol.getConfig()
-        .getBoolean("ProtocolXORInputBits", false);
-    this.bytelog = dwProtocol.getConfig()
-        .getBoolean("LogDeviceBytes", false);
-
     // serial port tweaks
     this.serialPort.enableReceiveThreshold(1);
 
@@ -375,27 +348,32 @@ public class DWSerialDevice implements DWProtocolDevice {
   public void comWrite(
       final byte[] byteData, final int len, final boolean prefixFlag
   ) {
-    byte[] data = new byte[byteData.length];
-    System.arraycopy(byteData, 0, data, 0, byteData.length);
+    final DWProtocolSettings mode = this.dwProtocol.getSettings();
+    byte[] data = byteData;
     try {
-      if (this.protocolFlipOutputBits || this.daTurboMode) {
-        data = DWUtils.reverseByteArray(data);
+      if (mode.isFlipOutputBits() || this.daTurboMode) {
+        data = DWUtils.reverseByteArray(byteData);
       }
-      if (this.writeByteDelay > 0) {
+      if (mode.getWriteByteDelay() > 0) {
         for (int i = 0; i < len; i++) {
           comWrite1(data[i], prefixFlag);
         }
       } else {
-        if (prefixFlag && (this.protocolResponsePrefix || this.daTurboMode)) {
-          final byte[] out = new byte[this.prefix.length + len];
-          System.arraycopy(this.prefix, 0, out, 0, this.prefix.length);
-          System.arraycopy(data, 0, out, this.prefix.length, len);
-          serialPort.getOutputStream().write(out);
+        if (prefixFlag && (mode.isResponsePrefix() || this.daTurboMode)) {
+          if (this.outBuf.length < this.prefix.length + len) {
+            this.outBuf = new byte[this.prefix.length + len];
+          }
+          System.arraycopy(this.prefix, 0, this.outBuf, 0, this.prefix.length);
+          System.arraycopy(data, 0, this.outBuf, this.prefix.length, len);
+          serialPort.getOutputStream().write(
+              this.outBuf, 0, this.prefix.length + len
+          );
         } else {
           serialPort.getOutputStream().write(data, 0, len);
         }
+        this.bytesOut += len;
         // extreme cases only
-        if (bytelog) {
+        if (mode.isLogDeviceBytes()) {
           final StringBuilder tmps = new StringBuilder();
           for (int i = 0; i < len; i++) {
             tmps.append(" ").append(data[i] & BYTE_MASK);
@@ -416,27 +394,33 @@ public class DWSerialDevice implements DWProtocolDevice {
    * @param prefixFlag   require response prefix
    */
   public void comWrite1(final int dataByte, final boolean prefixFlag) {
+    final DWProtocolSettings mode = this.dwProtocol.getSettings();
     int data = dataByte;
     try {
-      if (this.protocolFlipOutputBits || this.daTurboMode) {
+      if (mode.isFlipOutputBits() || this.daTurboMode) {
         data = DWUtils.reverseByte(data);
       }
-      if (this.writeByteDelay > 0) {
+      if (mode.getWriteByteDelay() > 0) {
         try {
-          Thread.sleep(this.writeByteDelay);
+          Thread.sleep(mode.getWriteByteDelay());
         } catch (InterruptedException e) {
           LOGGER.warn("interrupted during writebytedelay");
         }
       }
-      if (prefixFlag && (this.protocolResponsePrefix || this.daTurboMode)) {
-        byte[] out = new byte[this.prefix.length + 1];
-        out[out.length - 1] = (byte) data;
-        System.arraycopy(this.prefix, 0, out, 0, this.prefix.length);
-        serialPort.getOutputStream().write(out);
+      if (prefixFlag && (mode.isResponsePrefix() || this.daTurboMode)) {
+        if (this.outBuf.length < this.prefix.length + 1) {
+          this.outBuf = new byte[this.prefix.length + 1];
+        }
+        System.arraycopy(this.prefix, 0, this.outBuf, 0, this.prefix.length);
+        this.outBuf[this.prefix.length] = (byte) data;
+        serialPort.getOutputStream().write(
+            this.outBuf, 0, this.prefix.length + 1
+        );
       } else {
         serialPort.getOutputStream().write((byte) data);
       }
-      if (bytelog) {
+      this.bytesOut++;
+      if (mode.isLogDeviceBytes()) {
         LOGGER.debug("WRITE1: " + (BYTE_MASK & data));
       }
     } catch (IOException e) {
@@ -453,18 +437,53 @@ public class DWSerialDevice implements DWProtocolDevice {
    * @throws DWCommTimeOutException serial port timeout
    */
   public byte[] comRead(final int len) throws DWCommTimeOutException {
-    byte[] buf = new byte[len];
-    for (int i = 0; i < len; i++) {
-      buf[i] = (byte) comRead1(true, false);
+    final byte[] buf = new byte[len];
+    comRead(buf, len);
+    return buf;
+  }
+
+  /**
+   * Read N bytes from serial port into a caller supplied buffer.
+   *
+   * @param buf buffer of at least len bytes
+   * @param len number of bytes to read
+   * @throws DWCommTimeOutException serial port timeout
+   */
+  @Override
+  public void comRead(final byte[] buf, final int len)
+      throws DWCommTimeOutException {
+    final DWProtocolSettings mode = this.dwProtocol.getSettings();
+    int got = 0;
+    try {
+      while (got < len && this.serialPort != null) {
+        final long startTime = System.currentTimeMillis();
+        final int res = queue.read(
+            buf, got, len - got, mode.getReadByteWait()
+        );
+        this.readtime += System.currentTimeMillis() - startTime;
+        if (res == 0) {
+          throw new DWCommTimeOutException(
+              "No data in " + mode.getReadByteWait() + " ms"
+          );
+        }
+        got += res;
+        this.bytesIn += res;
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted in serial read");
+    }
+    if (mode.isXorInputBits()) {
+      for (int i = 0; i < len; i++) {
+        buf[i] = (byte) (buf[i] ^ BYTE_MASK);
+      }
     }
-    if (this.bytelog) {
+    if (mode.isLogDeviceBytes()) {
       final StringBuilder tmp = new StringBuilder();
-      for (final byte b : buf) {
-        tmp.append(" ").append(b & BYTE_MASK);
+      for (int i = 0; i < len; i++) {
+        tmp.append(" ").append(buf[i] & BYTE_MASK);
       }
       LOGGER.debug("READ " + len + ": " + tmp);
     }
-    return buf;
   }
 
   /**
@@ -494,27 +513,29 @@ public class DWSerialDevice implements DWProtocolDevice {
    */
   public int comRead1(final boolean timeout, final boolean blog)
       throws DWCommTimeOutException {
+    final DWProtocolSettings mode = this.dwProtocol.getSettings();
     int res = -1;
     try {
       while (res == -1 && this.serialPort != null) {
         final long startTime = System.currentTimeMillis();
-        final Byte read = queue.poll(this.readByteWait, TimeUnit.MILLISECONDS);
+        res = queue.read(mode.getReadByteWait());
         this.readtime += System.currentTimeMillis() - startTime;
-        if (read != null) {
-          res = BYTE_MASK & read;
-        } else if (timeout) {
+        if (res == -1 && timeout) {
           throw new DWCommTimeOutException(
-              "No data in " + this.readByteWait + " ms"
+              "No data in " + mode.getReadByteWait() + " ms"
           );
         }
       }
     } catch (InterruptedException e) {
       LOGGER.debug("interrupted in serial read");
     }
-    if (this.xorInput) {
+    if (res > -1) {
+      this.bytesIn++;
+    }
+    if (mode.isXorInputBits()) {
       res = res ^ BYTE_MASK;
     }
-    if (blog && this.bytelog) {
+    if (blog && mode.isLogDeviceBytes()) {
       LOGGER.debug("READ1: " + res);
     }
     return res;
@@ -612,21 +633,10 @@ public class DWSerialDevice implements DWProtocolDevice {
   @Override
   public InputStream getInputStream() {
     return new InputStream() {
-      private boolean endReached = false;
-
       @Override
       public int read() throws IOException {
-        if (endReached) {
-          return -1;
-        }
         try {
-          final Byte value = queue.take();
-          if (value == null) {
-            throw new IOException(
-                "Timeout while reading from the queue-based input stream");
-          }
-          endReached = value.intValue() == -1;
-          return value;
+          return queue.read(0);
         } catch (InterruptedException ie) {
           throw new IOException(
               "Interruption occurred while writing in the queue");
@@ -634,4 +644,24 @@ public class DWSerialDevice implements DWProtocolDevice {
       }
     };
   }
+
+  /**
+   * Get bytes received since device was opened.
+   *
+   * @return byte count
+   */
+  @Override
+  public long getBytesIn() {
+    return this.bytesIn;
+  }
+
+  /**
+   * Get bytes sent since device was opened.
+   *
+   * @return byte count
+   */
+  @Override
+  public long getBytesOut() {
+    return this.bytesOut;
+  }
 }
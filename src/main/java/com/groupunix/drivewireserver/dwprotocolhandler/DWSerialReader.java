@@ -5,13 +5,20 @@ import gnu.io.SerialPortEventListener;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.ArrayBlockingQueue;
 
 public class DWSerialReader implements SerialPortEventListener {
   /**
-   * Event queue.
+   * Largest block moved per read.
    */
-  private final ArrayBlockingQueue<Byte> queue;
+  public static final int READ_BLOCK_SIZE = 256;
+  /**
+   * Received data buffer.
+   */
+  private final DWSerialRingBuffer queue;
+  /**
+   * Transfer block.
+   */
+  private final byte[] block = new byte[READ_BLOCK_SIZE];
   /**
    * Input stream.
    */
@@ -25,12 +32,12 @@ public class DWSerialReader implements SerialPortEventListener {
    * Serial Reader.
    *
    * @param input         input stream
-   * @param blockingQueue event queue
+   * @param ringBuffer    received data buffer
    */
   public DWSerialReader(
-      final InputStream input, final ArrayBlockingQueue<Byte> blockingQueue
+      final InputStream input, final DWSerialRingBuffer ringBuffer
   ) {
-    this.queue = blockingQueue;
+    this.queue = ringBuffer;
     this.inputStream = input;
   }
 
@@ -41,14 +48,18 @@ public class DWSerialReader implements SerialPortEventListener {
    */
   @Override
   public void serialEvent(final SerialPortEvent event) {
-    int data;
+    int len;
 
     try {
-      while (!wantToDie && (data = inputStream.read()) > -1) {
-        queue.add((byte) data);
+      while (!wantToDie && (len = inputStream.read(
+          block, 0, Math.max(1, Math.min(block.length, inputStream.available()))
+      )) > 0) {
+        queue.write(block, 0, len);
       }
     } catch (IOException e) {
       e.printStackTrace();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
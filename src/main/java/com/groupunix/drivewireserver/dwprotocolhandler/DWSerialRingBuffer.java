@@ -0,0 +1,189 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import static com.groupunix.drivewireserver.DWDefs.BYTE_MASK;
+
+/**
+ * Primitive byte ring buffer between the serial event thread
+ * and the protocol thread.
+ * <p>
+ * Bytes move in bulk in both directions with no boxing.  A consumer
+ * waiting for a block of bytes sleeps once and is only woken when
+ * the producer adds data, rather than polling byte by byte.
+ * </p>
+ */
+public class DWSerialRingBuffer {
+  /**
+   * Buffer storage.
+   */
+  private final byte[] buffer;
+  /**
+   * Next position to read.
+   */
+  private int readPos = 0;
+  /**
+   * Number of bytes held.
+   */
+  private int count = 0;
+  /**
+   * Consumer is waiting for data.
+   */
+  private boolean consumerWaiting = false;
+  /**
+   * Producer is waiting for space.
+   */
+  private boolean producerWaiting = false;
+
+  /**
+   * Ring buffer constructor.
+   *
+   * @param capacity buffer size in bytes
+   */
+  public DWSerialRingBuffer(final int capacity) {
+    this.buffer = new byte[capacity];
+  }
+
+  /**
+   * Get number of bytes available to read.
+   *
+   * @return bytes held
+   */
+  public synchronized int available() {
+    return this.count;
+  }
+
+  /**
+   * Add bytes to the buffer.
+   * <p>
+   * Blocks while the buffer is full
+   * </p>
+   *
+   * @param data   source bytes
+   * @param offset offset into source
+   * @param len    number of bytes to add
+   * @throws InterruptedException interrupted while waiting for space
+   */
+  public synchronized void write(
+      final byte[] data, final int offset, final int len
+  ) throws InterruptedException {
+    int pos = offset;
+    int remaining = len;
+    while (remaining > 0) {
+      while (this.count == this.buffer.length) {
+        this.producerWaiting = true;
+        wait();
+      }
+      final int writePos = (this.readPos + this.count) % this.buffer.length;
+      final int chunk = Math.min(
+          remaining,
+          Math.min(
+              this.buffer.length - this.count,
+              this.buffer.length - writePos
+          )
+      );
+      System.arraycopy(data, pos, this.buffer, writePos, chunk);
+      this.count += chunk;
+      pos += chunk;
+      remaining -= chunk;
+      if (this.consumerWaiting) {
+        this.consumerWaiting = false;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Read a block of bytes.
+   * <p>
+   * Waits until the whole block has arrived, giving up if no new
+   * data turns up within the timeout.  The timeout restarts whenever
+   * more bytes arrive, matching a per-byte read timeout.
+   * A timeout of 0 waits indefinitely.
+   * </p>
+   *
+   * @param dest    destination array
+   * @param offset  offset into destination
+   * @param len     number of bytes wanted
+   * @param timeout milliseconds to wait for data
+   * @return number of bytes read, less than len on timeout
+   * @throws InterruptedException interrupted while waiting for data
+   */
+  public synchronized int read(
+      final byte[] dest, final int offset, final int len, final long timeout
+  ) throws InterruptedException {
+    int done = 0;
+    long deadline = System.currentTimeMillis() + timeout;
+    while (done < len) {
+      if (this.count == 0) {
+        final long remaining = deadline - System.currentTimeMillis();
+        if (timeout > 0 && remaining <= 0) {
+          break;
+        }
+        this.consumerWaiting = true;
+        if (timeout > 0) {
+          wait(remaining);
+        } else {
+          wait();
+        }
+        continue;
+      }
+      final int chunk = Math.min(
+          len - done,
+          Math.min(this.count, this.buffer.length - this.readPos)
+      );
+      System.arraycopy(this.buffer, this.readPos, dest, offset + done, chunk);
+      this.readPos = (this.readPos + chunk) % this.buffer.length;
+      this.count -= chunk;
+      done += chunk;
+      deadline = System.currentTimeMillis() + timeout;
+      if (this.producerWaiting) {
+        this.producerWaiting = false;
+        notifyAll();
+      }
+    }
+    return done;
+  }
+
+  /**
+   * Read a single byte.
+   *
+   * @param timeout milliseconds to wait for data, 0 waits indefinitely
+   * @return byte value, or -1 on timeout
+   * @throws InterruptedException interrupted while waiting for data
+   */
+  public synchronized int read(final long timeout)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + timeout;
+    while (this.count == 0) {
+      final long remaining = deadline - System.currentTimeMillis();
+      if (timeout > 0 && remaining <= 0) {
+        return -1;
+      }
+      this.consumerWaiting = true;
+      if (timeout > 0) {
+        wait(remaining);
+      } else {
+        wait();
+      }
+    }
+    final int res = this.buffer[this.readPos] & BYTE_MASK;
+    this.readPos = (this.readPos + 1) % this.buffer.length;
+    this.count--;
+    if (this.producerWaiting) {
+      this.producerWaiting = false;
+      notifyAll();
+    }
+    return res;
+  }
+
+  /**
+   * Discard all buffered bytes.
+   */
+  public synchronized void clear() {
+    this.readPos = 0;
+    this.count = 0;
+    if (this.producerWaiting) {
+      this.producerWaiting = false;
+      notifyAll();
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwdisk.DWDiskDrives;
+import com.groupunix.drivewireserver.dwexceptions.DWCommTimeOutException;
+import com.groupunix.drivewireserver.dwexceptions.DWDriveNotLoadedException;
+import com.groupunix.drivewireserver.dwexceptions.DWDriveNotValidException;
+import com.groupunix.drivewireserver.dwexceptions.DWDriveWriteProtectedException;
+import com.groupunix.drivewireserver.dwexceptions.DWImageFormatException;
+import com.groupunix.drivewireserver.dwexceptions.DWInvalidSectorException;
+import com.groupunix.drivewireserver.dwexceptions.DWSeekPastEndOfDeviceException;
+
+import static com.groupunix.drivewireserver.DWDefs.BYTE_BITS;
+import static com.groupunix.drivewireserver.DWDefs.BYTE_MASK;
+
+/**
+ * Multi-sector streaming disk operations.
+ * <p>
+ * A driver asks for these by sending a DWINIT version between
+ * {@link #VERSION_STREAM_MIN} and {@link #VERSION_STREAM_MAX}.  If the
+ * instance allows it the DWINIT response has
+ * {@link DWDefs#DW_PROTOCOL_STREAM_FLAG} set, and OP_READM and OP_WRITEM
+ * are accepted until the next DWINIT or reset.  Both ops start with
+ * drive, 3 byte LSN and sector count (1-255), and every sector on the
+ * wire is followed by its 2 byte checksum.
+ * </p>
+ */
+public class DWStreamingDiskOps {
+  /**
+   * Version number min for drivers asking for streaming disk ops.
+   */
+  public static final int VERSION_STREAM_MIN = 0x50;
+  /**
+   * Version number max for drivers asking for streaming disk ops.
+   */
+  public static final int VERSION_STREAM_MAX = 0x5F;
+  /**
+   * Request header length: drive, LSN and sector count.
+   */
+  public static final int HEADER_LEN = 5;
+  /**
+   * Checksum bytes following each sector.
+   */
+  public static final int CHECKSUM_LEN = 2;
+  /**
+   * Bytes needed for LSN.
+   */
+  private static final int LSN_SIZE = 3;
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWStreamingDiskOps");
+
+  /**
+   * Owning protocol handler.
+   */
+  private final DWProtocolHandler dwProtocolHandler;
+  /**
+   * Request header.
+   */
+  private final byte[] header = new byte[HEADER_LEN];
+  /**
+   * Requested LSN.
+   */
+  private final byte[] lsnBuf = new byte[LSN_SIZE];
+  /**
+   * Checksum.
+   */
+  private final byte[] sum = new byte[CHECKSUM_LEN];
+  /**
+   * Sector being sent or received.
+   */
+  private byte[] sector = new byte[0];
+  /**
+   * Sector run.
+   */
+  private byte[] run = new byte[0];
+  /**
+   * Streaming ops accepted at last DWINIT.
+   */
+  private boolean negotiated = false;
+  /**
+   * Sectors read.
+   */
+  private int sectorsRead = 0;
+  /**
+   * Sectors written.
+   */
+  private int sectorsWritten = 0;
+  /**
+   * Runs resent after a bad checksum.
+   */
+  private int readRetries = 0;
+  /**
+   * Runs refused for a bad checksum.
+   */
+  private int writeRetries = 0;
+
+  /**
+   * Streaming disk ops constructor.
+   *
+   * @param handler protocol handler
+   */
+  public DWStreamingDiskOps(final DWProtocolHandler handler) {
+    this.dwProtocolHandler = handler;
+  }
+
+  /**
+   * Forget negotiation and counters.
+   */
+  public void reset() {
+    this.negotiated = false;
+    this.sectorsRead = 0;
+    this.sectorsWritten = 0;
+    this.readRetries = 0;
+    this.writeRetries = 0;
+  }
+
+  /**
+   * Negotiate streaming ops for a DWINIT.
+   *
+   * @param drvVersion driver version sent with DWINIT
+   * @return protocol version to send in response
+   */
+  public byte negotiate(final int drvVersion) {
+    this.negotiated = drvVersion >= VERSION_STREAM_MIN
+        && drvVersion <= VERSION_STREAM_MAX
+        && this.dwProtocolHandler.getSettings().isStreamingOps();
+    if (drvVersion >= VERSION_STREAM_MIN && drvVersion <= VERSION_STREAM_MAX) {
+      LOGGER.info("Streaming disk ops "
+          + (this.negotiated ? "enabled" : "refused by ProtocolStreamingOps"));
+    }
+    if (this.negotiated) {
+      return (byte) (DWDefs.DW_PROTOCOL_VERSION
+          | DWDefs.DW_PROTOCOL_STREAM_FLAG);
+    }
+    return DWDefs.DW_PROTOCOL_VERSION;
+  }
+
+  /**
+   * Are streaming ops accepted.
+   *
+   * @return true if negotiated at last DWINIT
+   */
+  public boolean isNegotiated() {
+    return this.negotiated;
+  }
+
+  /**
+   * Route streaming operation.
+   *
+   * @param device protocol device
+   * @param drives disk drives
+   * @param opcode OP_READM or OP_WRITEM
+   * @throws IOException failed to read/write
+   * @throws DWCommTimeOutException port timeout
+   */
+  public void doOp(
+      final DWProtocolDevice device, final DWDiskDrives drives,
+      final byte opcode
+  ) throws IOException, DWCommTimeOutException {
+    final int sectorSize = this.dwProtocolHandler.getSettings().getSectorSize();
+    if (this.sector.length != sectorSize) {
+      this.sector = new byte[sectorSize];
+    }
+    device.comRead(this.header, HEADER_LEN);
+    final int drive = this.header[0] & BYTE_MASK;
+    System.arraycopy(this.header, 1, this.lsnBuf, 0, LSN_SIZE);
+    final int lsn = DWUtils.int3(this.lsnBuf);
+    final int count = this.header[LSN_SIZE + 1] & BYTE_MASK;
+    if (this.run.length < count * sectorSize) {
+      this.run = new byte[count * sectorSize];
+    }
+    if (opcode == DWDefs.OP_READM) {
+      doOpReadM(device, drives, drive, lsn, count);
+    } else {
+      doOpWriteM(device, drives, drive, lsn, count);
+    }
+  }
+
+  /**
+   * Streaming read.
+   * <p>
+   * Reply is a result byte and, if that is DWOK, each sector followed
+   * by its checksum.  The CoCo answers with the number of sectors that
+   * arrived intact, and asks again from the first bad one.
+   * </p>
+   *
+   * @param device protocol device
+   * @param drives disk drives
+   * @param drive  drive number
+   * @param lsn    first logical sector number
+   * @param count  number of sectors
+   * @throws IOException failed to read/write
+   * @throws DWCommTimeOutException port timeout
+   */
+  private void doOpReadM(
+      final DWProtocolDevice device, final DWDiskDrives drives,
+      final int drive, final int lsn, final int count
+  ) throws IOException, DWCommTimeOutException {
+    final int sectorSize = this.sector.length;
+    byte result = DWDefs.DWOK;
+    try {
+      if (count == 0) {
+        throw new DWInvalidSectorException("Empty sector run");
+      }
+      drives.readSectors(drive, lsn, count, this.run);
+    } catch (DWDriveNotLoadedException
+             | DWDriveNotValidException e1) {
+      LOGGER.warn("DoOP_READM: " + e1.getMessage());
+      result = DWDefs.DWERROR_NOTREADY;
+    } catch (DWInvalidSectorException
+             | DWImageFormatException
+             | DWSeekPastEndOfDeviceException e5) {
+      LOGGER.error("DoOP_READM: " + e5.getMessage());
+      result = DWDefs.DWERROR_READ;
+    }
+    device.comWrite1(result, true);
+    if (result != DWDefs.DWOK) {
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(this.run, i * sectorSize, this.sector, 0, sectorSize);
+      device.comWrite(this.sector, sectorSize, true);
+      final int checksum
+          = DWProtocolHandler.computeChecksum(this.sector, sectorSize);
+      this.sum[0] = (byte) ((checksum >> BYTE_BITS) & BYTE_MASK);
+      this.sum[1] = (byte) (checksum & BYTE_MASK);
+      device.comWrite(this.sum, CHECKSUM_LEN, true);
+    }
+    final int good = device.comRead1(true);
+    this.sectorsRead += Math.min(good, count);
+    if (good < count) {
+      this.readRetries++;
+      this.dwProtocolHandler.getMetrics().crcFailure();
+      LOGGER.warn("DoOP_READM CRC check failed, drive: " + drive
+          + " LSN: " + (lsn + good));
+    } else if (this.dwProtocolHandler.getSettings().isLogOpCode()) {
+      LOGGER.info("DoOP_READM drive: " + drive + " LSN: " + lsn
+          + " count: " + count);
+    }
+  }
+
+  /**
+   * Streaming write.
+   * <p>
+   * The sectors follow the header.  Nothing is written unless every
+   * checksum matches.  Reply is a single result byte.
+   * </p>
+   *
+   * @param device protocol device
+   * @param drives disk drives
+   * @param drive  drive number
+   * @param lsn    first logical sector number
+   * @param count  number of sectors
+   * @throws IOException failed to read/write
+   * @throws DWCommTimeOutException port timeout
+   */
+  private void doOpWriteM(
+      final DWProtocolDevice device, final DWDiskDrives drives,
+      final int drive, final int lsn, final int count
+  ) throws IOException, DWCommTimeOutException {
+    final int sectorSize = this.sector.length;
+    boolean goodSums = true;
+    for (int i = 0; i < count; i++) {
+      device.comRead(this.sector, sectorSize);
+      device.comRead(this.sum, CHECKSUM_LEN);
+      System.arraycopy(this.sector, 0, this.run, i * sectorSize, sectorSize);
+      if (DWProtocolHandler.computeChecksum(this.sector, sectorSize)
+          != DWUtils.int2(this.sum)) {
+        goodSums = false;
+      }
+    }
+    if (!goodSums) {
+      device.comWrite1(DWDefs.DWERROR_CRC, true);
+      this.writeRetries++;
+      this.dwProtocolHandler.getMetrics().crcFailure();
+      LOGGER.warn("DoOP_WRITEM: Bad checksum, drive: " + drive
+          + " LSN: " + lsn + " count: " + count);
+      return;
+    }
+    byte response = DWDefs.DWOK;
+    try {
+      if (count == 0) {
+        throw new DWInvalidSectorException("Empty sector run");
+      }
+      drives.writeSectors(drive, lsn, count, this.run);
+      this.sectorsWritten += count;
+    } catch (DWDriveNotLoadedException
+             | DWDriveNotValidException e1) {
+      response = DWDefs.DWERROR_NOTREADY;
+      LOGGER.warn(e1.getMessage());
+    } catch (DWDriveWriteProtectedException e3) {
+      response = DWDefs.DWERROR_WP;
+      LOGGER.warn(e3.getMessage());
+    } catch (DWInvalidSectorException | DWSeekPastEndOfDeviceException e5) {
+      response = DWDefs.DWERROR_WRITE;
+      LOGGER.warn(e5.getMessage());
+    }
+    device.comWrite1(response, true);
+    if (this.dwProtocolHandler.getSettings().isLogOpCode()) {
+      LOGGER.info("DoOP_WRITEM drive: " + drive + " LSN: " + lsn
+          + " count: " + count);
+    }
+  }
+
+  /**
+   * Get sectors read.
+   *
+   * @return sectors read
+   */
+  public int getSectorsRead() {
+    return this.sectorsRead;
+  }
+
+  /**
+   * Get sectors written.
+   *
+   * @return sectors written
+   */
+  public int getSectorsWritten() {
+    return this.sectorsWritten;
+  }
+
+  /**
+   * Get read retries.
+   *
+   * @return read retries
+   */
+  public int getReadRetries() {
+    return this.readRetries;
+  }
+
+  /**
+   * Get write retries.
+   *
+   * @return write retries
+   */
+  public int getWriteRetries() {
+    return this.writeRetries;
+  }
+}
@@ -21,6 +21,14 @@ public class DWTCPClientDevice implements DWProtocolDevice {
    * Port number.
    */
   private final int tcpport;
+  /**
+   * Bytes received.
+   */
+  private volatile long bytesIn = 0;
+  /**
+   * Bytes sent.
+   */
+  private volatile long bytesOut = 0;
   /**
    * Hostname.
    */
@@ -34,9 +42,9 @@ public class DWTCPClientDevice implements DWProtocolDevice {
    */
   private final Socket sock;
   /**
-   * Log bytes flag.
+   * Protocol handler using this device.
    */
-  private boolean bytelog = false;
+  private final DWProtocol protocol;
 
   /**
    * TCP client device.
@@ -51,18 +59,27 @@ public class DWTCPClientDevice implements DWProtocolDevice {
     this.handlerno = handler;
     this.tcpport = port;
     this.tcphost = host;
-    bytelog = DriveWireServer
-        .getHandler(this.handlerno)
-        .getConfig()
-        .getBoolean("LogDeviceBytes", false);
+    this.protocol = DriveWireServer.getHandler(this.handlerno);
     LOGGER.debug("init tcp device client to " + host + " port " + port
-        + " for handler #" + handler + " (logging bytes: " + bytelog + ")");
+        + " for handler #" + handler + " (logging bytes: " + isByteLog() + ")");
     // check for listen address
     sock = new Socket(this.tcphost, this.tcpport);
   }
 
+  /**
+   * Is byte logging on.
+   * <p>
+   * Read from the current settings, so changes apply at once
+   * </p>
+   *
+   * @return true if bytes are logged
+   */
+  private boolean isByteLog() {
+    return this.protocol.getSettings().isLogDeviceBytes();
+  }
+
   private void logByte(final String message) {
-    if (bytelog) {
+    if (isByteLog()) {
       LOGGER.debug(message);
     }
   }
@@ -86,11 +103,22 @@ public class DWTCPClientDevice implements DWProtocolDevice {
    * @return byte array
    */
   public byte[] comRead(final int len) {
-    byte[] buf = new byte[len];
+    final byte[] buf = new byte[len];
+    comRead(buf, len);
+    return buf;
+  }
+
+  /**
+   * Read bytes from input stream into a caller supplied buffer.
+   *
+   * @param buffer buffer of at least len bytes
+   * @param len    number of bytes to read
+   */
+  @Override
+  public void comRead(final byte[] buffer, final int len) {
     for (int i = 0; i < len; i++) {
-      buf[i] = (byte) comRead1(true);
+      buffer[i] = (byte) comRead1(true);
     }
-    return buf;
   }
 
   /**
@@ -111,7 +139,10 @@ public class DWTCPClientDevice implements DWProtocolDevice {
       LOGGER.info("socket error reading device");
       return -1;
     }
-    logByte("TCPREAD: " + data);
+    this.bytesIn++;
+    if (isByteLog()) {
+      logByte("TCPREAD: " + data);
+    }
     return data;
   }
 
@@ -125,7 +156,8 @@ public class DWTCPClientDevice implements DWProtocolDevice {
   public void comWrite(final byte[] data, final int len, final boolean prefix) {
     try {
       sock.getOutputStream().write(data, 0, len);
-      if (bytelog) {
+      this.bytesOut += len;
+      if (isByteLog()) {
         final StringBuilder tmps = new StringBuilder();
         for (final byte datum : data) {
           tmps.append(" ").append(datum & BYTE_MASK);
@@ -146,7 +178,10 @@ public class DWTCPClientDevice implements DWProtocolDevice {
   public void comWrite1(final int data, final boolean prefix) {
     try {
       sock.getOutputStream().write((byte) data);
-      logByte("TCP-C-WRITE1: " + data);
+      this.bytesOut++;
+      if (isByteLog()) {
+        logByte("TCP-C-WRITE1: " + data);
+      }
     } catch (IOException e) {
       // problem with comm port, bail out
       LOGGER.error(e.getMessage());
@@ -227,4 +262,24 @@ public class DWTCPClientDevice implements DWProtocolDevice {
   public InputStream getInputStream() {
     return null;
   }
+
+  /**
+   * Get bytes received since device was opened.
+   *
+   * @return byte count
+   */
+  @Override
+  public long getBytesIn() {
+    return this.bytesIn;
+  }
+
+  /**
+   * Get bytes sent since device was opened.
+   *
+   * @return byte count
+   */
+  @Override
+  public long getBytesOut() {
+    return this.bytesOut;
+  }
 }
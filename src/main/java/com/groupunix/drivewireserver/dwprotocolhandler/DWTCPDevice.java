@@ -18,6 +18,14 @@ public class DWTCPDevice implements DWProtocolDevice {
    * log appender.
    */
   private static final Logger LOGGER = Logger.getLogger("DWServer.DWTCPDevice");
+  /**
+   * Bytes received.
+   */
+  private volatile long bytesIn = 0;
+  /**
+   * Bytes sent.
+   */
+  private volatile long bytesOut = 0;
   /**
    * port.
    */
@@ -35,9 +43,9 @@ public class DWTCPDevice implements DWProtocolDevice {
    */
   private Socket skt = null;
   /**
-   * log read byte(s) flag.
+   * Protocol handler using this device.
    */
-  private boolean bytelog = false;
+  private final DWProtocol protocol;
   /**
    * Client.
    */
@@ -54,12 +62,9 @@ public class DWTCPDevice implements DWProtocolDevice {
       throws IOException {
     this.handlerno = handler;
     this.tcpport = port;
-    bytelog = DriveWireServer
-        .getHandler(this.handlerno)
-        .getConfig()
-        .getBoolean("LogDeviceBytes", false);
+    this.protocol = DriveWireServer.getHandler(this.handlerno);
     LOGGER.debug("init tcp device server on port " + port
-        + " for handler #" + handler + " (logging bytes: " + bytelog + ")");
+        + " for handler #" + handler + " (logging bytes: " + isByteLog() + ")");
     // check for listen address
     if (DriveWireServer
         .getHandler(this.handlerno)
@@ -82,8 +87,20 @@ public class DWTCPDevice implements DWProtocolDevice {
     LOGGER.info("listening on port " + srvr.getLocalPort());
   }
 
+  /**
+   * Is byte logging on.
+   * <p>
+   * Read from the current settings, so changes apply at once
+   * </p>
+   *
+   * @return true if bytes are logged
+   */
+  private boolean isByteLog() {
+    return this.protocol.getSettings().isLogDeviceBytes();
+  }
+
   private void logByte(final String message) {
-    if (bytelog) {
+    if (isByteLog()) {
       LOGGER.debug(message);
     }
   }
@@ -124,11 +141,22 @@ public class DWTCPDevice implements DWProtocolDevice {
    * @return byte array
    */
   public byte[] comRead(final int len) {
-    byte[] buf = new byte[len];
+    final byte[] buf = new byte[len];
+    comRead(buf, len);
+    return buf;
+  }
+
+  /**
+   * Read bytes from input stream into a caller supplied buffer.
+   *
+   * @param buffer buffer of at least len bytes
+   * @param len    number of bytes to read
+   */
+  @Override
+  public void comRead(final byte[] buffer, final int len) {
     for (int i = 0; i < len; i++) {
-      buf[i] = (byte) comRead1(true);
+      buffer[i] = (byte) comRead1(true);
     }
-    return buf;
   }
 
   /**
@@ -157,7 +185,10 @@ public class DWTCPDevice implements DWProtocolDevice {
         // not sure if it is a great idea
         return comRead1(timeout);
       }
-      logByte("TCPREAD: " + data);
+      this.bytesIn++;
+      if (isByteLog()) {
+        logByte("TCPREAD: " + data);
+      }
     }
     return data;
   }
@@ -175,7 +206,8 @@ public class DWTCPDevice implements DWProtocolDevice {
     }
     try {
       skt.getOutputStream().write(data, 0, len);
-      if (bytelog) {
+      this.bytesOut += len;
+      if (isByteLog()) {
         final StringBuilder tmps = new StringBuilder();
         for (final byte datum : data) {
           tmps.append(" ").append(datum & BYTE_MASK);
@@ -199,7 +231,10 @@ public class DWTCPDevice implements DWProtocolDevice {
     }
     try {
       skt.getOutputStream().write((byte) data);
-      logByte("TCPWRITE1: " + data);
+      this.bytesOut++;
+      if (isByteLog()) {
+        logByte("TCPWRITE1: " + data);
+      }
     } catch (IOException e) {
       // problem with comm port, bail out
       LOGGER.error(e.getMessage());
@@ -301,4 +336,24 @@ public class DWTCPDevice implements DWProtocolDevice {
   public InputStream getInputStream() {
     return null;
   }
+
+  /**
+   * Get bytes received since device was opened.
+   *
+   * @return byte count
+   */
+  @Override
+  public long getBytesIn() {
+    return this.bytesIn;
+  }
+
+  /**
+   * Get bytes sent since device was opened.
+   *
+   * @return byte count
+   */
+  @Override
+  public long getBytesOut() {
+    return this.bytesOut;
+  }
 }
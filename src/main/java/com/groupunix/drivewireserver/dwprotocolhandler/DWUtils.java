@@ -393,6 +393,8 @@ public class DWUtils {
       case DWDefs.OP_REREAD -> "OP_REREAD";
       case DWDefs.OP_REREADEX -> "OP_REREADEX";
       case DWDefs.OP_REWRITE -> "OP_REWRITE";
+      case DWDefs.OP_READM -> "OP_READM";
+      case DWDefs.OP_WRITEM -> "OP_WRITEM";
       case DWDefs.OP_TERM -> "OP_TERM";
       case DWDefs.OP_RESET1,
           DWDefs.OP_RESET2,
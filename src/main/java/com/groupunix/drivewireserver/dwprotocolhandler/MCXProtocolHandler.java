@@ -78,6 +78,10 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
    * configuration.
    */
   private final HierarchicalConfiguration config;
+  /**
+   * Configuration listener, keeps the settings snapshot.
+   */
+  private final DWProtocolConfigListener configListener;
   /**
    * Last drive accessed.
    */
@@ -148,7 +152,8 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
                             final HierarchicalConfiguration hconf) {
     this.handlerNo = handlerno;
     this.config = hconf;
-    //config.addConfigurationListener(new DWProtocolConfigListener());
+    this.configListener = new DWProtocolConfigListener(this);
+    config.addConfigurationListener(this.configListener);
   }
 
   /**
@@ -160,6 +165,15 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
     return this.config;
   }
 
+  /**
+   * Get settings snapshot.
+   *
+   * @return settings
+   */
+  public DWProtocolSettings getSettings() {
+    return this.configListener.getSettings();
+  }
+
   /**
    * Perform reset.
    */
@@ -271,43 +285,43 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
   // MCX OP methods
 
   private void doOpLoadFile() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_LOADFILE");
     }
   }
 
   private void doOpGetDataBlock() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_GETDATABLOCK");
     }
   }
 
   private void doOpPrepareNextBlock() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_PREPARENEXTBLOCK");
     }
   }
 
   private void doOpSaveFile() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_SAVEFILE");
     }
   }
 
   private void doOpWriteBlock() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_WRITEBLOCK");
     }
   }
 
   private void doOpOpenDataFile() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_OPENDATAFILE");
     }
   }
 
   private void doOpDirFileRequest() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_DIRFILEREQUEST");
     }
     try {
@@ -334,7 +348,7 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
   }
 
   private void doOpRetrieveName() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_RETRIEVENAME");
     }
     try {
@@ -353,13 +367,13 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
   }
 
   private void doOpDirNameRequest() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_DIRNAMEREQUEST");
     }
   }
 
   private void doOpSetCurrentDir() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_SETCURRENTDIR");
     }
   }
@@ -379,7 +393,7 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
     lastLSN = new byte[LSN_LENGTH];
 
     // Sync disks??
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_RESET");
     }
   }
@@ -456,12 +470,12 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
     }
     if (opcode == DWDefs.OP_REWRITE) {
       writeRetries++;
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         logger.info("DoOP_REWRITE lastDrive: " + (int) lastDrive + " LSN: "
             + DWUtils.int3(lastLSN));
       }
     } else {
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         logger.info("DoOP_WRITE lastDrive: " + (int) lastDrive + " LSN: "
             + DWUtils.int3(lastLSN));
       }
@@ -474,7 +488,7 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
     int tmpint;
     try {
       tmpint = dwProtocolDevice.comRead1(true);
-      if (config.getBoolean("LogOpCode", false)) {
+      if (getSettings().isLogOpCode()) {
         logger.info("DoOP_PRINT: byte " + tmpint);
       }
       vprinter.addByte((byte) tmpint);
@@ -487,7 +501,7 @@ public class MCXProtocolHandler implements Runnable, DWProtocol {
 
   @SuppressWarnings("unused")
   private void doOpPrintFlush() {
-    if (config.getBoolean("LogOpCode", false)) {
+    if (getSettings().isLogOpCode()) {
       logger.info("DoOP_PRINTFLUSH");
     }
     vprinter.flush();
@@ -16,7 +16,9 @@ import com.groupunix.drivewireserver.dwexceptions.DWCommTimeOutException;
 import com.groupunix.drivewireserver.dwexceptions.DWPortNotOpenException;
 import com.groupunix.drivewireserver.dwexceptions.DWPortNotValidException;
 import com.groupunix.drivewireserver.dwhelp.DWHelp;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolConfigListener;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolDevice;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolSettings;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolTimers;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWSerialDevice;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWUtils;
@@ -45,6 +47,10 @@ public class VModemProtocolHandler implements Runnable, DWVSerialProtocol {
    * Configuration.
    */
   private final HierarchicalConfiguration config;
+  /**
+   * Configuration listener, keeps the settings snapshot.
+   */
+  private final DWProtocolConfigListener configListener;
   /**
    * Timers.
    */
@@ -92,6 +98,8 @@ public class VModemProtocolHandler implements Runnable, DWVSerialProtocol {
                                final HierarchicalConfiguration hconf) {
     this.handlerNo = handlerno;
     this.config = hconf;
+    this.configListener = new DWProtocolConfigListener(this);
+    config.addConfigurationListener(this.configListener);
     this.logdevbytes = config.getBoolean("LogDeviceBytes", false);
     this.vSerialPorts = new DWVSerialPorts(this);
     this.vSerialPorts.resetAllPorts();
@@ -251,6 +259,15 @@ public class VModemProtocolHandler implements Runnable, DWVSerialProtocol {
     return this.config;
   }
 
+  /**
+   * Get settings snapshot.
+   *
+   * @return settings
+   */
+  public DWProtocolSettings getSettings() {
+    return this.configListener.getSettings();
+  }
+
   /**
    * Get protocol device.
    *
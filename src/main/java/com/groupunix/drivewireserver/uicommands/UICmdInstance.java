@@ -22,6 +22,7 @@ public class UICmdInstance extends DWCommand {
     commands.addCommand(new UICmdInstanceDisk(clientThread));
     commands.addCommand(new UICmdInstanceReset(clientThread));
     commands.addCommand(new UICmdInstanceStatus(clientThread));
+    commands.addCommand(new UICmdInstanceMetrics(clientThread));
     commands.addCommand(new UICmdInstanceMIDIStatus(clientThread));
     commands.addCommand(new UICmdInstancePrinterStatus(clientThread));
     commands.addCommand(new UICmdInstancePortStatus(clientThread));
@@ -43,6 +44,7 @@ public class UICmdInstance extends DWCommand {
     }
     commands.addCommand(new UICmdInstanceReset(protocol));
     commands.addCommand(new UICmdInstanceStatus(protocol));
+    commands.addCommand(new UICmdInstanceMetrics(protocol));
     if (protocol.hasMIDI()) {
       commands.addCommand(new UICmdInstanceMIDIStatus(protocol));
     }
@@ -15,6 +15,8 @@ public class UICmdInstanceDisk extends DWCommand {
     super();
     this.getCommandList()
         .addCommand(new UICmdInstanceDiskShow(clientThread));
+    this.getCommandList()
+        .addCommand(new UICmdInstanceDiskImport(clientThread));
     setHelp();
   }
 
@@ -27,6 +29,8 @@ public class UICmdInstanceDisk extends DWCommand {
     super();
     this.getCommandList()
         .addCommand(new UICmdInstanceDiskShow(protocolHandler));
+    this.getCommandList()
+        .addCommand(new UICmdInstanceDiskImport(protocolHandler));
     setHelp();
   }
 
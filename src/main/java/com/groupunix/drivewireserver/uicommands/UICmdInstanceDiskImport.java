@@ -0,0 +1,83 @@
+package com.groupunix.drivewireserver.uicommands;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.DWUIClientThread;
+import com.groupunix.drivewireserver.DriveWireServer;
+import com.groupunix.drivewireserver.dwcommands.DWCmdDiskDosImport;
+import com.groupunix.drivewireserver.dwcommands.DWCommand;
+import com.groupunix.drivewireserver.dwcommands.DWCommandResponse;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+
+public class UICmdInstanceDiskImport extends DWCommand {
+  /**
+   * Client thread ref.
+   */
+  private DWUIClientThread dwuiClientThread = null;
+
+  /**
+   * Protocol handler.
+   */
+  private DWProtocolHandler dwProtocolHandler = null;
+
+  /**
+   * UI Command Instance Disk Import.
+   *
+   * @param clientThread client thread ref
+   */
+  public UICmdInstanceDiskImport(final DWUIClientThread clientThread) {
+    super();
+    this.dwuiClientThread = clientThread;
+    setHelp();
+  }
+
+  /**
+   * UI Command Instance Disk Import.
+   *
+   * @param protocolHandler protocol handler
+   */
+  public UICmdInstanceDiskImport(final DWProtocolHandler protocolHandler) {
+    super();
+    this.dwProtocolHandler = protocolHandler;
+    setHelp();
+  }
+
+  private void setHelp() {
+    setCommand("import");
+    setShortHelp("Add all files in a directory to DOS disk");
+    setUsage("ui instance disk import # path");
+  }
+
+  /**
+   * Parse command line.
+   *
+   * @param cmdline command line
+   * @return command response
+   */
+  public DWCommandResponse parse(final String cmdline) {
+    if (this.dwProtocolHandler == null) {
+      if (DriveWireServer.getHandler(this.dwuiClientThread.getInstance())
+          .hasDisks()) {
+        dwProtocolHandler = (DWProtocolHandler) DriveWireServer
+            .getHandler(this.dwuiClientThread.getInstance());
+      } else {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_INSTANCE_WONT,
+            "This operation is not supported on this type of instance"
+        );
+      }
+    }
+    return new DWCmdDiskDosImport(this.dwProtocolHandler, this)
+        .parse(cmdline);
+  }
+
+  /**
+   * Validate command line.
+   *
+   * @param cmdline command line
+   * @return true
+   */
+  public boolean validate(final String cmdline) {
+    return true;
+  }
+}
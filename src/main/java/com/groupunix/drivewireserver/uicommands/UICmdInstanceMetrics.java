@@ -0,0 +1,132 @@
+package com.groupunix.drivewireserver.uicommands;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.DWUIClientThread;
+import com.groupunix.drivewireserver.DriveWireServer;
+import com.groupunix.drivewireserver.dwcommands.DWCommand;
+import com.groupunix.drivewireserver.dwcommands.DWCommandResponse;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocol;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolHandler;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWProtocolMetrics;
+import com.groupunix.drivewireserver.dwprotocolhandler.DWUtils;
+
+public class UICmdInstanceMetrics extends DWCommand {
+  /**
+   * Client thread ref.
+   */
+  private final DWUIClientThread clientRef;
+  /**
+   * Protocol.
+   */
+  private DWProtocol dwProtocol;
+
+  /**
+   * UI Command Instance Metrics.
+   *
+   * @param clientThread client thread ref
+   */
+  public UICmdInstanceMetrics(final DWUIClientThread clientThread) {
+    super();
+    this.clientRef = clientThread;
+    this.dwProtocol = null;
+    setHelp();
+  }
+
+  /**
+   * UI Command Instance Metrics.
+   *
+   * @param protocol protocol
+   */
+  public UICmdInstanceMetrics(final DWProtocol protocol) {
+    super();
+    this.dwProtocol = protocol;
+    this.clientRef = null;
+    setHelp();
+  }
+
+  private void setHelp() {
+    setCommand("metrics");
+    setShortHelp("show instance operation metrics");
+    setUsage("ui instance metrics [#]");
+  }
+
+  /**
+   * Parse command line.
+   * <p>
+   * Counters are reported one per line as name|value, followed by one
+   * line per opcode seen: op|name|count|p50|p99|max|total, with times
+   * in microseconds
+   * </p>
+   *
+   * @param cmdline command line
+   * @return command response
+   */
+  @Override
+  public DWCommandResponse parse(final String cmdline) {
+    if (cmdline.length() > 0) {
+      try {
+        final int hno = Integer.parseInt(cmdline);
+        if (DriveWireServer.isValidHandlerNo(hno)) {
+          dwProtocol = DriveWireServer.getHandler(hno);
+        } else {
+          return new DWCommandResponse(
+              false,
+              DWDefs.RC_INVALID_HANDLER,
+              "Invalid handler number"
+          );
+        }
+      } catch (NumberFormatException ne) {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_SYNTAX_ERROR,
+            "Syntax error: non numeric instance #"
+        );
+      }
+    } else if (this.clientRef != null) {
+      dwProtocol = DriveWireServer.getHandler(clientRef.getInstance());
+    }
+    if (!(dwProtocol instanceof DWProtocolHandler)) {
+      return new DWCommandResponse(
+          false,
+          DWDefs.RC_SERVER_NOT_IMPLEMENTED,
+          "Metrics are only kept for DriveWire instances"
+      );
+    }
+    final DWProtocolHandler dwProto = (DWProtocolHandler) dwProtocol;
+    final DWProtocolMetrics metrics = dwProto.getMetrics();
+    final StringBuilder txt = new StringBuilder();
+    long bytesIn = 0;
+    long bytesOut = 0;
+    if (dwProto.getProtoDev() != null) {
+      bytesIn = dwProto.getProtoDev().getBytesIn();
+      bytesOut = dwProto.getProtoDev().getBytesOut();
+    }
+    txt.append("bytesin|").append(bytesIn).append('\n');
+    txt.append("bytesout|").append(bytesOut).append('\n');
+    txt.append("crcfailures|").append(metrics.getCrcFailures()).append('\n');
+    txt.append("readretries|").append(dwProto.getReadRetries()).append('\n');
+    txt.append("writeretries|").append(dwProto.getWriteRetries())
+        .append('\n');
+    txt.append("readwait|").append(metrics.getReadWait()).append('\n');
+    for (final int op : metrics.getOpcodes()) {
+      txt.append("op|").append(DWUtils.prettyOP((byte) op))
+          .append('|').append(metrics.getCount(op))
+          .append('|').append(metrics.getPercentile(op, DWProtocolMetrics.P50))
+          .append('|').append(metrics.getPercentile(op, DWProtocolMetrics.P99))
+          .append('|').append(metrics.getMax(op))
+          .append('|').append(metrics.getTotal(op))
+          .append('\n');
+    }
+    return new DWCommandResponse(txt.toString());
+  }
+
+  /**
+   * Validate command line.
+   *
+   * @param cmdline command line
+   * @return true
+   */
+  public boolean validate(final String cmdline) {
+    return true;
+  }
+}
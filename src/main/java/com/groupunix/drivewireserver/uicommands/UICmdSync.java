@@ -1,6 +1,9 @@
 package com.groupunix.drivewireserver.uicommands;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
@@ -44,17 +47,41 @@ public class UICmdSync extends DWCommand {
 
   /**
    * Parse command line.
+   * <p>
+   * A one shot connection is taken over by the event stream until
+   * the client goes away.  In a session the stream runs alongside
+   * further requests and this returns straight away.
+   * </p>
    *
    * @param cmdline command line
    * @return command response
    */
   public DWCommandResponse parse(final String cmdline) {
+    if (this.dwuiClientThread.isSession()) {
+      if (!this.dwuiClientThread.startEventStream()) {
+        return new DWCommandResponse(
+            false,
+            DWDefs.RC_UI_ERROR,
+            "Sync already active"
+        );
+      }
+      LOGGER.debug("adding status sync session");
+      return new DWCommandResponse("Sync started");
+    }
     boolean wanttodie = false;
     LOGGER.debug("adding status sync client");
+    final List<DWEvent> batch = new ArrayList<>(DWDefs.UI_EVENT_BATCH);
+    // queue from here on, so nothing after the status event is missed
+    this.dwuiClientThread.subscribe();
     try {
       dwuiClientThread.getOutputStream().write(CARRIAGE_RETURN);
       // bring client up to date...
-      sendEvent(DriveWireServer.getServerStatusEvent());
+      encodeEvent(
+          DriveWireServer.getServerStatusEvent(),
+          this.lastevt,
+          dwuiClientThread.getOutputStream()
+      );
+      dwuiClientThread.getOutputStream().flush();
       // ready for new log events
       this.dwuiClientThread.setDropLog(false);
     } catch (IOException e1) {
@@ -63,7 +90,15 @@ public class UICmdSync extends DWCommand {
     }
     while (!wanttodie && !dwuiClientThread.getSocket().isClosed()) {
       try {
-        sendEvent(this.dwuiClientThread.getEventQueue().take());
+        // send whatever has queued up, then flush once
+        batch.add(this.dwuiClientThread.getEventQueue().take());
+        this.dwuiClientThread.getEventQueue()
+            .drainTo(batch, DWDefs.UI_EVENT_BATCH - 1);
+        for (final DWEvent evt : batch) {
+          encodeEvent(evt, this.lastevt, dwuiClientThread.getOutputStream());
+        }
+        dwuiClientThread.getOutputStream().flush();
+        batch.clear();
       } catch (InterruptedException | IOException e) {
         wanttodie = true;
       }
@@ -76,21 +111,32 @@ public class UICmdSync extends DWCommand {
     );
   }
 
-  private void sendEvent(final DWEvent msg) throws IOException {
+  /**
+   * Write event in sync format.
+   * <p>
+   * Only parameters that changed since the last event sent are
+   * written, followed by the event type
+   * </p>
+   *
+   * @param msg     event to send
+   * @param lastevt last values sent, updated
+   * @param out     output stream
+   * @throws IOException write failed
+   */
+  public static void encodeEvent(
+      final DWEvent msg, final DWEvent lastevt, final OutputStream out
+  ) throws IOException {
     for (final String key : msg.getParamKeys()) {
       // only send changed params
       if (!lastevt.hasParam(key)
           || !lastevt.getParam(key).equals(msg.getParam(key))) {
-        dwuiClientThread.getOutputStream().write(
-            (key + ':' + msg.getParam(key)).getBytes(DWDefs.ENCODING)
-        );
-        dwuiClientThread.getOutputStream().write(CARRIAGE_RETURN);
+        out.write((key + ':' + msg.getParam(key)).getBytes(DWDefs.ENCODING));
+        out.write(CARRIAGE_RETURN);
         lastevt.setParam(key, msg.getParam(key));
       }
     }
-    dwuiClientThread.getOutputStream().write(msg.getEventType());
-    dwuiClientThread.getOutputStream().write(CARRIAGE_RETURN);
-    dwuiClientThread.getOutputStream().flush();
+    out.write(msg.getEventType());
+    out.write(CARRIAGE_RETURN);
   }
 
   /**
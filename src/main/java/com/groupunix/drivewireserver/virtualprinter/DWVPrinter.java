@@ -125,8 +125,8 @@ public class DWVPrinter {
   private DWVPrinterDriver getCurrentDriver()
       throws DWPrinterNotDefinedException {
     final String currentPrinter = this.dwProtocol
-        .getConfig()
-        .getString("CurrentPrinter", null);
+        .getSettings()
+        .getCurrentPrinter();
     if (currentPrinter == null) {
       throw new DWPrinterNotDefinedException(
           "No current printer is set in the configuration"
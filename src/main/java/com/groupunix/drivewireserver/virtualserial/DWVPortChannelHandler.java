@@ -0,0 +1,41 @@
+package com.groupunix.drivewireserver.virtualserial;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+
+public interface DWVPortChannelHandler {
+  /**
+   * Get channel served by this handler.
+   *
+   * @return selectable channel
+   */
+  SelectableChannel getChannel();
+
+  /**
+   * Get operations of interest when first registered.
+   *
+   * @return selection key interest set
+   */
+  int getInterestOps();
+
+  /**
+   * Handle channel readiness.
+   *
+   * @param key selection key
+   * @throws IOException channel failure
+   */
+  void ready(SelectionKey key) throws IOException;
+
+  /**
+   * Periodic housekeeping.
+   *
+   * @return false once the handler is finished with
+   */
+  boolean tick();
+
+  /**
+   * Abandon the channel.
+   */
+  void close();
+}
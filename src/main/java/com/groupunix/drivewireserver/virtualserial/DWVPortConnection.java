@@ -0,0 +1,260 @@
+package com.groupunix.drivewireserver.virtualserial;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import org.apache.log4j.Logger;
+
+import com.groupunix.drivewireserver.dwexceptions.DWConnectionNotValidException;
+import com.groupunix.drivewireserver.dwexceptions.DWPortNotValidException;
+
+import static com.groupunix.drivewireserver.DWDefs.CARRIAGE_RETURN;
+import static com.groupunix.drivewireserver.DWDefs.NEWLINE;
+
+public class DWVPortConnection implements DWVPortChannelHandler {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWVPortConnection");
+  /**
+   * Telnet mode.
+   */
+  public static final int MODE_TELNET = 1;
+  /**
+   * Socket read buffer size.
+   */
+  public static final int READ_BUFFER_SIZE = 1024;
+  /**
+   * Serial ports.
+   */
+  private final DWVSerialPorts dwVSerialPorts;
+  /**
+   * Virtual port.
+   */
+  private final int vport;
+  /**
+   * Listener pool connection number, -1 for outgoing connections.
+   */
+  private final int conno;
+  /**
+   * Connection mode.
+   */
+  private final int mode;
+  /**
+   * Socket channel.
+   */
+  private final SocketChannel sktchan;
+  /**
+   * Socket read buffer.
+   */
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+  /**
+   * Filtered output buffer.
+   */
+  private final byte[] filtered = new byte[READ_BUFFER_SIZE];
+  /**
+   * Last byte passed to the port in telnet mode.
+   */
+  private int lastbyte = -1;
+  /**
+   * Input has ended, waiting for the CoCo to drain the port.
+   */
+  private boolean draining = false;
+  /**
+   * Connection is finished with.
+   */
+  private boolean finished = false;
+
+  /**
+   * Virtual port connection.
+   * <p>
+   * Pumps data arriving on a socket into a virtual port, and on end
+   * of input waits for the CoCo to read what is left before closing
+   * the port
+   * </p>
+   *
+   * @param serialPorts virtual serial ports
+   * @param port        virtual port
+   * @param connNumber  listener pool connection, -1 if none
+   * @param connMode    connection mode
+   * @param channel     connected socket
+   */
+  public DWVPortConnection(final DWVSerialPorts serialPorts,
+                           final int port,
+                           final int connNumber,
+                           final int connMode,
+                           final SocketChannel channel) {
+    this.dwVSerialPorts = serialPorts;
+    this.vport = port;
+    this.conno = connNumber;
+    this.mode = connMode;
+    this.sktchan = channel;
+  }
+
+  /**
+   * Get channel served by this handler.
+   *
+   * @return socket channel
+   */
+  @Override
+  public SelectableChannel getChannel() {
+    return this.sktchan;
+  }
+
+  /**
+   * Get operations of interest when first registered.
+   *
+   * @return read interest
+   */
+  @Override
+  public int getInterestOps() {
+    return SelectionKey.OP_READ;
+  }
+
+  /**
+   * Handle channel readiness.
+   *
+   * @param key selection key
+   * @throws IOException channel failure
+   */
+  @Override
+  public void ready(final SelectionKey key) throws IOException {
+    if (key.isWritable()) {
+      if (this.dwVSerialPorts.flushPort(this.vport)) {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+      }
+    }
+    if (key.isValid() && key.isReadable()) {
+      this.readBuffer.clear();
+      final int readsize = this.sktchan.read(this.readBuffer);
+      if (readsize == -1) {
+        LOGGER.debug("got end of input stream on port " + this.vport);
+        key.interestOps(0);
+        endOfInput();
+      } else if (readsize > 0) {
+        deliver(this.readBuffer.array(), readsize);
+      }
+    }
+  }
+
+  /**
+   * Pass socket data on to the CoCo.
+   * <p>
+   * Telnet connections drop the LF or NUL following a CR,
+   * unless PD.INT and PD.QUT are both 0
+   * </p>
+   *
+   * @param data socket data
+   * @param len  bytes of data
+   */
+  private void deliver(final byte[] data, final int len) {
+    try {
+      if (this.mode == MODE_TELNET
+          && (dwVSerialPorts.getPdInt(this.vport) != 0
+          || dwVSerialPorts.getPdQut(this.vport) != 0)) {
+        int out = 0;
+        for (int i = 0; i < len; i++) {
+          final int databyte = data[i];
+          if (!(this.lastbyte == CARRIAGE_RETURN
+              && (databyte == NEWLINE || databyte == 0))) {
+            this.filtered[out++] = data[i];
+            this.lastbyte = databyte;
+          }
+        }
+        dwVSerialPorts.writeToCoco(this.vport, this.filtered, 0, out);
+      } else {
+        dwVSerialPorts.writeToCoco(this.vport, data, 0, len);
+      }
+    } catch (DWPortNotValidException e) {
+      LOGGER.error(e.getMessage());
+      endOfInput();
+    }
+  }
+
+  /**
+   * Socket input has ended or the port has closed.
+   */
+  private void endOfInput() {
+    if (this.draining) {
+      return;
+    }
+    if (this.conno > -1) {
+      dwVSerialPorts.markDisconnected(this.vport);
+      dwVSerialPorts.setPortChannel(this.vport, null);
+    }
+    if (this.sktchan.isConnected()) {
+      LOGGER.debug("exit stage 1, flush buffer");
+      this.draining = true;
+    } else {
+      finish(false);
+    }
+  }
+
+  /**
+   * Periodic housekeeping.
+   *
+   * @return false once the connection is finished with
+   */
+  @Override
+  public boolean tick() {
+    if (!this.draining && !this.finished
+        && (!this.sktchan.isOpen() || !dwVSerialPorts.isOpen(this.vport))) {
+      endOfInput();
+    }
+    if (this.draining) {
+      try {
+        if (dwVSerialPorts.bytesWaiting(this.vport) == 0
+            || !dwVSerialPorts.isOpen(this.vport)) {
+          finish(true);
+        }
+      } catch (DWPortNotValidException e) {
+        LOGGER.error(e.getMessage());
+        finish(false);
+      }
+    }
+    return !this.finished;
+  }
+
+  /**
+   * Tear down connection.
+   *
+   * @param closePort send peer signal by closing the port
+   */
+  private void finish(final boolean closePort) {
+    this.draining = false;
+    this.finished = true;
+    if (closePort) {
+      LOGGER.debug("exit stage 2, send peer signal");
+      try {
+        dwVSerialPorts.closePort(this.vport);
+      } catch (DWPortNotValidException e) {
+        LOGGER.error("in close port: " + e.getMessage());
+      }
+    }
+    if (this.conno > -1) {
+      try {
+        dwVSerialPorts.getListenerPool().clearConn(this.conno);
+      } catch (DWConnectionNotValidException e) {
+        LOGGER.debug(e.getMessage());
+      }
+    }
+    close();
+  }
+
+  /**
+   * Close the socket.
+   */
+  @Override
+  public void close() {
+    this.finished = true;
+    try {
+      this.sktchan.close();
+    } catch (IOException e) {
+      LOGGER.warn("IOException while closing socket: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.groupunix.drivewireserver.virtualserial;
+
+import org.apache.log4j.Logger;
+
+public class DWVPortFlusher implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWVPortFlusher");
+  /**
+   * Virtual serial ports.
+   */
+  private final DWVSerialPorts vSerialPorts;
+  /**
+   * Delay between output being queued and flushed (millis).
+   */
+  private final long flushDelay;
+  /**
+   * Flush requested.
+   */
+  private boolean pending = false;
+  /**
+   * Thread waiting to die.
+   */
+  private boolean wantToDie = false;
+
+  /**
+   * Virtual port output flusher.
+   * <p>
+   * Gathers bytes written to the virtual ports by separate protocol
+   * operations into a single socket write
+   * </p>
+   *
+   * @param serialPorts virtual serial ports
+   * @param delay       flush delay in milliseconds
+   */
+  public DWVPortFlusher(final DWVSerialPorts serialPorts, final long delay) {
+    this.vSerialPorts = serialPorts;
+    this.flushDelay = delay;
+  }
+
+  /**
+   * Request a flush.
+   */
+  public synchronized void request() {
+    this.pending = true;
+    notifyAll();
+  }
+
+  /**
+   * Shutdown.
+   */
+  public synchronized void shutdown() {
+    this.wantToDie = true;
+    notifyAll();
+  }
+
+  /**
+   * Run thread.
+   */
+  public void run() {
+    Thread.currentThread().setName(
+        "vportflush-" + Thread.currentThread().getId()
+    );
+    try {
+      while (true) {
+        synchronized (this) {
+          while (!this.pending && !this.wantToDie) {
+            wait();
+          }
+          if (this.wantToDie) {
+            break;
+          }
+          this.pending = false;
+        }
+        if (this.flushDelay > 0) {
+          Thread.sleep(this.flushDelay);
+        }
+        this.vSerialPorts.flushOutput();
+      }
+    } catch (InterruptedException e) {
+      LOGGER.debug("interrupted");
+    }
+    LOGGER.debug("exit");
+  }
+}
@@ -0,0 +1,179 @@
+package com.groupunix.drivewireserver.virtualserial;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Selector loop owning the TCP sockets of an instance's virtual ports.
+ * <p>
+ * Listeners and connections register a handler and are then served
+ * from this one thread with non-blocking I/O, instead of each holding
+ * a platform thread in a blocking read or accept.
+ * </p>
+ */
+public class DWVPortReactor implements Runnable {
+  /**
+   * Log appender.
+   */
+  private static final Logger LOGGER
+      = Logger.getLogger("DWServer.DWVPortReactor");
+  /**
+   * Longest time between housekeeping passes (millis).
+   */
+  public static final int SELECT_TIMEOUT = 100;
+  /**
+   * Selector, null until the reactor is running.
+   */
+  private volatile Selector selector;
+  /**
+   * Handlers waiting to be registered.
+   */
+  private final ConcurrentLinkedQueue<DWVPortChannelHandler> registrations
+      = new ConcurrentLinkedQueue<>();
+  /**
+   * Channels with output waiting for the socket to drain.
+   */
+  private final ConcurrentLinkedQueue<SelectableChannel> writeRequests
+      = new ConcurrentLinkedQueue<>();
+  /**
+   * Registered handlers.
+   */
+  private final List<DWVPortChannelHandler> handlers = new ArrayList<>();
+  /**
+   * Shutdown flag.
+   */
+  private volatile boolean wantToDie = false;
+
+  /**
+   * Hand a channel over to the reactor.
+   *
+   * @param handler channel handler
+   */
+  public void register(final DWVPortChannelHandler handler) {
+    this.registrations.add(handler);
+    wake();
+  }
+
+  /**
+   * Ask to be told when a channel can take more output.
+   *
+   * @param channel channel with pending output
+   */
+  public void requestWrite(final SelectableChannel channel) {
+    this.writeRequests.add(channel);
+    wake();
+  }
+
+  /**
+   * Shutdown.
+   */
+  public void shutdown() {
+    this.wantToDie = true;
+    wake();
+  }
+
+  private void wake() {
+    final Selector sel = this.selector;
+    if (sel != null) {
+      sel.wakeup();
+    }
+  }
+
+  /**
+   * Run reactor loop.
+   */
+  public void run() {
+    Thread.currentThread().setName(
+        "vportreactor-" + Thread.currentThread().getId()
+    );
+    try {
+      this.selector = Selector.open();
+    } catch (IOException e) {
+      LOGGER.error("cannot open selector: " + e.getMessage());
+      this.wantToDie = true;
+    }
+    while (!this.wantToDie) {
+      try {
+        this.selector.select(SELECT_TIMEOUT);
+        addRegistrations();
+        addWriteInterest();
+        final Iterator<SelectionKey> keys
+            = this.selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          dispatch(key);
+        }
+        this.handlers.removeIf(handler -> !handler.tick());
+      } catch (IOException e) {
+        LOGGER.error("in select: " + e.getMessage());
+      }
+    }
+    for (final DWVPortChannelHandler handler : this.handlers) {
+      handler.close();
+    }
+    DWVPortChannelHandler handler;
+    while ((handler = this.registrations.poll()) != null) {
+      handler.close();
+    }
+    if (this.selector != null) {
+      try {
+        this.selector.close();
+      } catch (IOException e) {
+        LOGGER.warn(e.getMessage());
+      }
+    }
+    LOGGER.debug("exit");
+  }
+
+  private void dispatch(final SelectionKey key) {
+    final DWVPortChannelHandler handler
+        = (DWVPortChannelHandler) key.attachment();
+    try {
+      if (key.isValid()) {
+        handler.ready(key);
+      }
+    } catch (CancelledKeyException e) {
+      // channel was closed elsewhere, tick will tidy up
+      LOGGER.debug("key cancelled during dispatch");
+    } catch (IOException e) {
+      LOGGER.debug("IO error on channel: " + e.getMessage());
+      key.cancel();
+      handler.close();
+    }
+  }
+
+  private void addRegistrations() {
+    DWVPortChannelHandler handler;
+    while ((handler = this.registrations.poll()) != null) {
+      try {
+        final SelectableChannel channel = handler.getChannel();
+        channel.configureBlocking(false);
+        channel.register(this.selector, handler.getInterestOps(), handler);
+        this.handlers.add(handler);
+      } catch (IOException e) {
+        LOGGER.warn("cannot register channel: " + e.getMessage());
+        handler.close();
+      }
+    }
+  }
+
+  private void addWriteInterest() {
+    SelectableChannel channel;
+    while ((channel = this.writeRequests.poll()) != null) {
+      final SelectionKey key = channel.keyFor(this.selector);
+      if (key != null && key.isValid()) {
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      }
+    }
+  }
+}
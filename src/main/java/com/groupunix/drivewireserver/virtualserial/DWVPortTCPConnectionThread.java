@@ -3,7 +3,6 @@ package com.groupunix.drivewireserver.virtualserial;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 import org.apache.log4j.Logger;
@@ -21,14 +20,6 @@ public class DWVPortTCPConnectionThread implements Runnable {
    */
   private static final Logger LOGGER
       = Logger.getLogger("DWServer.DWVPortTCPConnectionThread");
-  /**
-   * Buffer read size.
-   */
-  public static final int READ_BUFFER_SIZE = 256;
-  /**
-   * Delay between read cycles.
-   */
-  public static final int READ_DELAY_MILLIS = 100;
   /**
    * virtual port.
    */
@@ -41,10 +32,6 @@ public class DWVPortTCPConnectionThread implements Runnable {
    * TCP host name.
    */
   private final String tcphost;
-  /**
-   * Shutdown flag.
-   */
-  private boolean wanttodie = false;
   /**
    * Serial ports.
    */
@@ -176,7 +163,6 @@ public class DWVPortTCPConnectionThread implements Runnable {
           LOGGER.warn(e1.getMessage());
         }
       }
-      this.wanttodie = true;
     } catch (IOException e1) {
       LOGGER.debug("IO error: " + e1.getMessage());
 
@@ -189,65 +175,17 @@ public class DWVPortTCPConnectionThread implements Runnable {
           LOGGER.warn(e1.getMessage());
         }
       }
-      this.wanttodie = true;
     } catch (DWPortNotValidException e) {
       LOGGER.warn(e.getMessage());
     }
 
-    final byte[] readbytes = new byte[READ_BUFFER_SIZE];
-    final ByteBuffer readBuffer = ByteBuffer.wrap(readbytes);
-
-    while (!wanttodie && sktchan.isOpen()
-        && dwVSerialPorts.isOpen(this.vport)) {
-      try {
-        final int readsize = sktchan.read(readBuffer);
-        if (readsize == -1) {
-          LOGGER.debug("got end of input stream");
-          wanttodie = true;
-        } else if (readsize > 0) {
-          dwVSerialPorts.writeToCoco(this.vport, readbytes, 0, readsize);
-          readBuffer.clear();
-        }
-      } catch (IOException e) {
-        LOGGER.debug("IO error reading tcp: " + e.getMessage());
-        wanttodie = true;
-      } catch (DWPortNotValidException e) {
-        LOGGER.error(e.getMessage());
-        wanttodie = true;
-      }
-    }
-    if (wanttodie) {
-      LOGGER.debug("exit because wanttodie");
-    } else if (sktchan.isConnected()) {
-      if (!dwVSerialPorts.isOpen(this.vport)) {
-        LOGGER.debug("exit because port is not open");
-      }
-    } else {
-      LOGGER.debug("exit because skt isClosed");
-    }
-    // only if we got connected...
-    if (sktchan != null) {
-      if (sktchan.isConnected()) {
-        LOGGER.debug("exit stage 1, flush buffer");
-        // flush buffer, term port
-        try {
-          while (dwVSerialPorts.bytesWaiting(this.vport) > 0
-              && dwVSerialPorts.isOpen(this.vport)) {
-            LOGGER.debug("pause for the cause: "
-                + dwVSerialPorts.bytesWaiting(this.vport) + " bytes left");
-            Thread.sleep(READ_DELAY_MILLIS);
-          }
-        } catch (InterruptedException | DWPortNotValidException e) {
-          LOGGER.error(e.getMessage());
-        }
-        LOGGER.debug("exit stage 2, send peer signal");
-        try {
-          dwVSerialPorts.closePort(this.vport);
-        } catch (DWPortNotValidException e) {
-          LOGGER.error("in close port: " + e.getMessage());
-        }
-      }
-      LOGGER.debug("thread exiting");
+    if (sktchan != null && sktchan.isConnected()) {
+      // the instance reactor pumps the socket from here on
+      dwVSerialPorts.getReactor().register(new DWVPortConnection(
+          dwVSerialPorts, this.vport, -1, 0, sktchan
+      ));
+      LOGGER.debug("connection handed to reactor");
     }
+    LOGGER.debug("thread exiting");
   }
 }
@@ -2,6 +2,8 @@ package com.groupunix.drivewireserver.virtualserial;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 
@@ -14,13 +16,22 @@ import com.groupunix.drivewireserver.dwprotocolhandler.DWVSerialProtocol;
 import static com.groupunix.drivewireserver.DWDefs.CARRIAGE_RETURN;
 import static com.groupunix.drivewireserver.DWDefs.NEWLINE;
 
-public class DWVPortTCPListenerThread implements Runnable {
+/**
+ * Virtual port TCP listener.
+ * <p>
+ * Run once on a short-lived thread to bind the listening socket, then
+ * registered with the instance reactor, which accepts connections from
+ * then on.  No thread is held for the life of the listener
+ * </p>
+ */
+public class DWVPortTCPListener
+    implements Runnable, DWVPortChannelHandler {
 
   /**
    * Log appender.
    */
   private static final Logger LOGGER
-      = Logger.getLogger("DWServer.DWVPortTCPListenerThread");
+      = Logger.getLogger("DWServer.DWVPortTCPListener");
   /**
    * Backlog.
    */
@@ -54,21 +65,21 @@ public class DWVPortTCPListenerThread implements Runnable {
    */
   private boolean doTelnet = false;
   /**
-   * shutdown flag.
+   * Server socket.
    */
-  private boolean wantToDie = false;
+  private ServerSocketChannel srvr;
 
   /**
-   * Virtual Port TCP Listener Thread.
+   * Virtual Port TCP Listener.
    *
    * @param serialProtocol serial protocol
    * @param vPort          virtual port
    * @param tcpPort        tcp port
    */
-  public DWVPortTCPListenerThread(final DWVSerialProtocol serialProtocol,
-                                  final int vPort,
-                                  final int tcpPort) {
-    LOGGER.debug("init tcp listener thread on port " + tcpPort);
+  public DWVPortTCPListener(final DWVSerialProtocol serialProtocol,
+                            final int vPort,
+                            final int tcpPort) {
+    LOGGER.debug("init tcp listener on port " + tcpPort);
     this.vport = vPort;
     this.tcpport = tcpPort;
     this.dwProto = serialProtocol;
@@ -76,7 +87,11 @@ public class DWVPortTCPListenerThread implements Runnable {
   }
 
   /**
-   * Run listener thread.
+   * Bind the listener.
+   * <p>
+   * Binds the listening socket then hands this handler to the
+   * instance reactor and returns
+   * </p>
    */
   public void run() {
     Thread.currentThread().setName("tcplisten-"
@@ -85,7 +100,7 @@ public class DWVPortTCPListenerThread implements Runnable {
     LOGGER.debug("run");
     try {
       // startup server
-      final ServerSocketChannel srvr = ServerSocketChannel.open();
+      srvr = ServerSocketChannel.open();
       try {
         final InetSocketAddress sktaddr = new InetSocketAddress(this.tcpport);
         srvr.socket().setReuseAddress(true);
@@ -104,36 +119,86 @@ public class DWVPortTCPListenerThread implements Runnable {
           + this.tcpport + (char) NEWLINE + (char) CARRIAGE_RETURN);
 
       this.dwVSerialPorts.setUtilMode(vport, DWDefs.UTILMODE_TCPLISTEN);
+      this.dwVSerialPorts.getReactor().register(this);
+    } catch (IOException | DWPortNotValidException e2) {
+      LOGGER.error(e2.getMessage());
+    }
+    LOGGER.debug("tcp listener handed to reactor");
+  }
 
-      while (!wantToDie && dwVSerialPorts.isOpen(this.vport)
-          && srvr.isOpen() && !srvr.socket().isClosed()) {
-        LOGGER.debug("waiting for connection");
-        final SocketChannel skt = srvr.accept();
-        LOGGER.info("new connection from " + skt.socket().getInetAddress());
-        this.dwVSerialPorts.getListenerPool().addConn(this.vport, skt, opMode);
-        if (opMode == 2) {
-          // http mode
-          LOGGER.error("HTTP MODE NO LONGER SUPPORTED");
-        } else {
-          // run telnet preflight, let it add the connection to the pool
-          // if things work out
-          final Thread pfthread = new Thread(new DWVPortTelnetPreflightThread(
-              this.dwProto, this.vport, skt, this.doTelnet, this.doBanner
-          ));
-          pfthread.start();
-        }
-      }
+  /**
+   * Get channel served by this handler.
+   *
+   * @return server socket channel
+   */
+  @Override
+  public SelectableChannel getChannel() {
+    return this.srvr;
+  }
 
-      try {
-        srvr.close();
-      } catch (IOException e) {
-        LOGGER.error("error closing server socket: " + e.getMessage());
-      }
+  /**
+   * Get operations of interest when first registered.
+   *
+   * @return accept interest
+   */
+  @Override
+  public int getInterestOps() {
+    return SelectionKey.OP_ACCEPT;
+  }
 
-    } catch (IOException | DWPortNotValidException e2) {
-      LOGGER.error(e2.getMessage());
+  /**
+   * Accept new connection.
+   *
+   * @param key selection key
+   * @throws IOException accept failed
+   */
+  @Override
+  public void ready(final SelectionKey key) throws IOException {
+    final SocketChannel skt = srvr.accept();
+    if (skt == null) {
+      return;
+    }
+    LOGGER.info("new connection from " + skt.socket().getInetAddress());
+    this.dwVSerialPorts.getListenerPool().addConn(this.vport, skt, opMode);
+    if (opMode == 2) {
+      // http mode
+      LOGGER.error("HTTP MODE NO LONGER SUPPORTED");
+    } else {
+      // run telnet preflight, let it add the connection to the pool
+      // if things work out
+      final Thread pfthread = new Thread(new DWVPortTelnetPreflightThread(
+          this.dwProto, this.vport, skt, this.doTelnet, this.doBanner
+      ));
+      pfthread.start();
+    }
+  }
+
+  /**
+   * Stop listening once the port or socket closes.
+   *
+   * @return false once the listener is finished with
+   */
+  @Override
+  public boolean tick() {
+    if (dwVSerialPorts.isOpen(this.vport)
+        && srvr.isOpen() && !srvr.socket().isClosed()) {
+      return true;
+    }
+    close();
+    return false;
+  }
+
+  /**
+   * Close the listening socket.
+   */
+  @Override
+  public void close() {
+    try {
+      srvr.close();
+    } catch (IOException e) {
+      LOGGER.error("error closing server socket: " + e.getMessage());
     }
-    LOGGER.debug("tcp listener thread exiting");
+    LOGGER.debug("tcp listener on port " + this.tcpport + " closed");
   }
 
   /**
@@ -21,18 +21,10 @@ public class DWVPortTCPServerThread implements Runnable {
    */
   private static final Logger LOGGER
       = Logger.getLogger("DWServer.DWVPortTCPServerThread");
-  /**
-   * Telnet mode.
-   */
-  private static final int MODE_TELNET = 1;
   /**
    * Term mode.
    */
   private static final int MODE_TERM = 3;
-  /**
-   * Delay to poll buffer for flush.
-   */
-  private static final int FLUSH_DELAY = 100;
   /**
    * Virtual port.
    */
@@ -99,22 +91,25 @@ public class DWVPortTCPServerThread implements Runnable {
       dwVSerialPorts.setUtilMode(vport, DWDefs.UTILMODE_TCPIN);
       dwVSerialPorts.setPortChannel(vport, sktchan);
 
-      int lastbyte = -1;
+      if (mode != MODE_TERM) {
+        // the instance reactor pumps the socket from here on
+        dwVSerialPorts.getReactor().register(new DWVPortConnection(
+            dwVSerialPorts, vport, conno, mode, sktchan
+        ));
+        LOGGER.debug("conn " + this.conno + " handed to reactor");
+        return;
+      }
 
-      while (!wanttodie
-          && sktchan.isOpen()
-          && dwVSerialPorts.isOpen(this.vport)
-          || mode == MODE_TERM) {
+      int lastbyte = -1;
 
+      while (sktchan.isOpen() && !wanttodie) {
         final int databyte = sktchan.socket().getInputStream().read();
         if (databyte == -1) {
           wanttodie = true;
         } else {
-          // filter CR,NULL if in telnet or term mode
-          // unless PD.INT and PD.QUT = 0
-          if ((mode == MODE_TELNET || mode == MODE_TERM)
-              && (dwVSerialPorts.getPdInt(this.vport) != 0
-              || dwVSerialPorts.getPdQut(this.vport) != 0)) {
+          // filter CR,NULL unless PD.INT and PD.QUT = 0
+          if (dwVSerialPorts.getPdInt(this.vport) != 0
+              || dwVSerialPorts.getPdQut(this.vport) != 0) {
             // TODO filter CR/LF.. should do this better
             if (!(lastbyte == CARRIAGE_RETURN
                 && (databyte == NEWLINE
@@ -131,25 +126,6 @@ public class DWVPortTCPServerThread implements Runnable {
 
       dwVSerialPorts.markDisconnected(this.vport);
       dwVSerialPorts.setPortChannel(vport, null);
-      // only if we got connected... and it's not term
-      if (mode != MODE_TERM) {
-        if (sktchan.isConnected()) {
-          LOGGER.debug("exit stage 1, flush buffer");
-          // flush buffer, term port
-          try {
-            while (dwVSerialPorts.bytesWaiting(this.vport) > 0
-                && dwVSerialPorts.isOpen(this.vport)) {
-              LOGGER.debug("pause for the cause: "
-                  + dwVSerialPorts.bytesWaiting(this.vport) + " bytes left");
-              Thread.sleep(FLUSH_DELAY);
-            }
-          } catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-          LOGGER.debug("exit stage 2, send peer signal");
-          dwVSerialPorts.closePort(this.vport);
-        }
-      }
     } catch (DWPortNotValidException | IOException
              | DWConnectionNotValidException e) {
       LOGGER.error(e.getMessage());
@@ -58,7 +58,11 @@ public class DWVSerialCircularBuffer {
    */
   public static final int INFINITE_SIZE = -1;
   /**
-   * Delay in poll (millis).
+   * Longest wait for a change in buffer state (millis).
+   * <p>
+   * Readers and writers are woken as soon as the buffer changes,
+   * this only bounds the wait in case a wakeup is missed.
+   * </p>
    */
   public static final int POLL_DELAY = 100;
   /**
@@ -272,6 +276,7 @@ public class DWVSerialCircularBuffer {
       markPosition = 0;
       outputStreamClosed = false;
       inputStreamClosed = false;
+      notifyAll();
     }
   }
 
@@ -453,6 +458,24 @@ public class DWVSerialCircularBuffer {
     }
   }
 
+  /**
+   * Wait for another thread to change the buffer state.
+   * <p>
+   * Must be called holding the buffer lock
+   * </p>
+   *
+   * @param message error message if the wait is interrupted
+   * @throws IOException wait interrupted
+   */
+  private void awaitChange(final String message) throws IOException {
+    try {
+      wait(POLL_DELAY);
+    } catch (InterruptedException x) {
+      Thread.currentThread().interrupt();
+      throw new IOException(message);
+    }
+  }
+
   // DW specific getter/setters
   /**
    * Get PD INT.
@@ -533,6 +556,7 @@ public class DWVSerialCircularBuffer {
     public void close() throws IOException {
       synchronized (DWVSerialCircularBuffer.this) {
         inputStreamClosed = true;
+        DWVSerialCircularBuffer.this.notifyAll();
       }
     }
 
@@ -596,15 +620,12 @@ public class DWVSerialCircularBuffer {
               readPosition = 0;
             }
             ensureMark();
+            DWVSerialCircularBuffer.this.notifyAll();
             return result;
           } else if (outputStreamClosed) {
             return -1;
           }
-        }
-        try {
-          Thread.sleep(POLL_DELAY);
-        } catch (Exception x) {
-          throw new IOException("Blocking read operation interrupted.");
+          awaitChange("Blocking read operation interrupted.");
         }
       }
     }
@@ -665,15 +686,12 @@ public class DWVSerialCircularBuffer {
               readPosition = 0;
             }
             ensureMark();
+            DWVSerialCircularBuffer.this.notifyAll();
             return length;
           } else if (outputStreamClosed) {
             return -1;
           }
-        }
-        try {
-          Thread.sleep(POLL_DELAY);
-        } catch (Exception x) {
-          throw new IOException("Blocking read operation interrupted.");
+          awaitChange("Blocking read operation interrupted.");
         }
       }
     }
@@ -695,6 +713,7 @@ public class DWVSerialCircularBuffer {
               + "cannot reset a closed InputStream.");
         }
         readPosition = markPosition;
+        DWVSerialCircularBuffer.this.notifyAll();
       }
     }
 
@@ -732,15 +751,12 @@ public class DWVSerialCircularBuffer {
               readPosition = 0;
             }
             ensureMark();
+            DWVSerialCircularBuffer.this.notifyAll();
             return length;
           } else if (outputStreamClosed) {
             return 0;
           }
-        }
-        try {
-          Thread.sleep(POLL_DELAY);
-        } catch (Exception x) {
-          throw new IOException("Blocking read operation interrupted.");
+          awaitChange("Blocking read operation interrupted.");
         }
       }
     }
@@ -776,6 +792,7 @@ public class DWVSerialCircularBuffer {
           flush();
         }
         outputStreamClosed = true;
+        DWVSerialCircularBuffer.this.notifyAll();
       }
     }
 
@@ -886,14 +903,11 @@ public class DWVSerialCircularBuffer {
           }
           off += written;
           len -= written;
-        }
-        if (len > 0) {
-          try {
-            Thread.sleep(POLL_DELAY);
-          } catch (Exception x) {
-            throw new IOException(
-                "Waiting for available space in buffer interrupted."
-            );
+          if (written > 0) {
+            DWVSerialCircularBuffer.this.notifyAll();
+          }
+          if (len > 0) {
+            awaitChange("Waiting for available space in buffer interrupted.");
           }
         }
       }
@@ -947,15 +961,9 @@ public class DWVSerialCircularBuffer {
               writePosition = 0;
             }
             written = true;
-          }
-        }
-        if (!written) {
-          try {
-            Thread.sleep(POLL_DELAY);
-          } catch (Exception x) {
-            throw new IOException(
-                "Waiting for available space in buffer interrupted."
-            );
+            DWVSerialCircularBuffer.this.notifyAll();
+          } else {
+            awaitChange("Waiting for available space in buffer interrupted.");
           }
         }
       }
@@ -63,10 +63,6 @@ public class DWVSerialPort {
    * Device command data offset.
    */
   public static final int DEVICE_CMD_OFFSET = 3;
-  /**
-   * Poll delay (millis).
-   */
-  public static final int BUFFER_POLL_DELAY = 100;
   /**
    * Midi msg type base value.
    */
@@ -136,6 +132,10 @@ public class DWVSerialPort {
    * Output buffer.
    */
   private final ByteBuffer outputBuffer = ByteBuffer.wrap(outBuffer);
+  /**
+   * Output bytes dropped since the buffer last had room.
+   */
+  private long outputDropped;
   /**
    * Shutdown flag.
    */
@@ -320,35 +320,18 @@ public class DWVSerialPort {
       }
     } else {
       // if we are connected, pass the data
-      if (this.connected || this.vPort == vSerialPorts.getNTermPort()
-          || this.vPort >= vSerialPorts.getMaxNPorts()
-          && this.vPort < vSerialPorts.getMaxPorts()) {
+      if (this.isPassThrough()) {
         if (socketChannel == null) {
           LOGGER.debug("write to null io channel on port " + this.vPort);
         } else {
-          try {
-            while (outputBuffer.remaining() < 1) {
-              System.out.println("FULL buffer " + outputBuffer.position()
-                  + " " + outputBuffer.remaining() + " "
-                  + outputBuffer.limit() + " " + outputBuffer.capacity());
-              outputBuffer.flip();
-              final int wrote = socketChannel.write(outputBuffer);
-              outputBuffer.compact();
-              System.out.println("full wrote " + wrote);
-              if (wrote == 0) {
-                try {
-                  Thread.sleep(BUFFER_POLL_DELAY);
-                } catch (InterruptedException ignored) {
-                }
-              }
+          synchronized (outputBuffer) {
+            if (makeOutputSpace()) {
+              outputBuffer.put((byte) databyte);
+            } else {
+              outputOverflow(1);
             }
-            outputBuffer.put((byte) databyte);
-            outputBuffer.flip();
-            socketChannel.write(outputBuffer);
-            outputBuffer.compact();
-          } catch (IOException e) {
-            LOGGER.error("in write: " + e.getMessage());
           }
+          vSerialPorts.outputQueued();
         }
       } else {
         // otherwise process as command
@@ -357,6 +340,134 @@ public class DWVSerialPort {
     }
   }
 
+  /**
+   * Write block of bytes.
+   * <p>
+   * Pass through data is queued in the port output buffer and sent
+   * as one block when the port is flushed, anything else is
+   * processed a byte at a time
+   * </p>
+   *
+   * @param data   byte array
+   * @param offset start offset
+   * @param len    bytes to write
+   */
+  public void write(final byte[] data, final int offset, final int len) {
+    if (this.vPort == vSerialPorts.getMIDIPort() || !this.isPassThrough()
+        || socketChannel == null) {
+      for (int i = offset; i < offset + len; i++) {
+        write(data[i]);
+      }
+      return;
+    }
+    synchronized (outputBuffer) {
+      int pos = offset;
+      final int end = offset + len;
+      while (pos < end) {
+        if (!makeOutputSpace()) {
+          outputOverflow(end - pos);
+          break;
+        }
+        final int chunk = Math.min(outputBuffer.remaining(), end - pos);
+        outputBuffer.put(data, pos, chunk);
+        pos += chunk;
+      }
+    }
+    vSerialPorts.outputQueued();
+  }
+
+  /**
+   * Is port passing data straight through to its io channel.
+   *
+   * @return true if pass through
+   */
+  private boolean isPassThrough() {
+    return this.connected || this.vPort == vSerialPorts.getNTermPort()
+        || this.vPort >= vSerialPorts.getMaxNPorts()
+        && this.vPort < vSerialPorts.getMaxPorts();
+  }
+
+  /**
+   * Make room in a full output buffer.
+   * <p>
+   * Flushes the buffer once.  Never waits for the reactor to drain the
+   * socket, the protocol thread must not be held up by one slow port.
+   * Must be called holding the output buffer lock
+   * </p>
+   *
+   * @return true if the buffer can take at least one byte
+   */
+  private boolean makeOutputSpace() {
+    if (!outputBuffer.hasRemaining()) {
+      flushOutput();
+    }
+    if (!outputBuffer.hasRemaining()) {
+      return false;
+    }
+    if (outputDropped > 0) {
+      LOGGER.warn("output overflow on port " + this.vPort + " dropped "
+          + outputDropped + " bytes");
+      outputDropped = 0;
+    }
+    return true;
+  }
+
+  /**
+   * Drop CoCo output that does not fit in the output buffer.
+   * <p>
+   * The DriveWire protocol has no way to hold back a serial write, so
+   * bytes the socket cannot take in time are lost.  The first drop is
+   * logged at once, the total when the buffer has room again
+   * </p>
+   *
+   * @param dropped number of bytes dropped
+   */
+  private void outputOverflow(final int dropped) {
+    if (outputDropped == 0) {
+      LOGGER.warn("output buffer full on port " + this.vPort
+          + ", dropping output");
+    }
+    outputDropped += dropped;
+  }
+
+  /**
+   * Send queued output to the io channel.
+   * <p>
+   * A non-blocking channel takes what it can and the reactor is asked
+   * to finish the job once the socket drains.  Queued data is discarded
+   * if the channel has gone away
+   * </p>
+   *
+   * @return true if no output remains queued
+   */
+  public boolean flushOutput() {
+    synchronized (outputBuffer) {
+      if (outputBuffer.position() == 0) {
+        return true;
+      }
+      final SocketChannel channel = this.socketChannel;
+      outputBuffer.flip();
+      try {
+        // keep writing while the socket accepts data
+        int wrote = 1;
+        while (channel != null && outputBuffer.hasRemaining() && wrote > 0) {
+          wrote = channel.write(outputBuffer);
+        }
+      } catch (IOException e) {
+        LOGGER.error("in write: " + e.getMessage());
+        outputBuffer.clear();
+        return true;
+      }
+      if (channel == null || !outputBuffer.hasRemaining()) {
+        outputBuffer.clear();
+        return true;
+      }
+      outputBuffer.compact();
+      this.dwvSerialProtocol.getVPorts().getReactor().requestWrite(channel);
+      return false;
+    }
+  }
+
   private void sendMIDI(final int statusByte) {
     final ShortMessage mmsg = new ShortMessage();
     try {
@@ -598,6 +709,7 @@ public class DWVSerialPort {
         // close socket channel if connected
         if (this.socketChannel != null && this.socketChannel.isOpen()) {
           LOGGER.debug("closing io channel on port " + this.vPort);
+          flushOutput();
           try {
             this.socketChannel.close();
           } catch (IOException e) {
@@ -627,6 +739,7 @@ public class DWVSerialPort {
    * @param channel socket channel
    */
   public void setPortChannel(final SocketChannel channel) {
+    flushOutput();
     this.socketChannel = channel;
   }
 
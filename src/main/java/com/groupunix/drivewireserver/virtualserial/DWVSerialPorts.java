@@ -6,6 +6,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.channels.SocketChannel;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiChannel;
@@ -80,13 +81,13 @@ public class DWVSerialPorts {
    */
   public static final int REBOOT_STATUS = 255;
   /**
-   * Serial protocol.
+   * Default delay before queued port output is flushed (millis).
    */
-  private final DWVSerialProtocol dwProto;
+  public static final int DEFAULT_FLUSH_DELAY = 5;
   /**
-   * Log bytes switch.
+   * Serial protocol.
    */
-  private final boolean bytelog;
+  private final DWVSerialProtocol dwProto;
 
   /**
    * Serial ports.
@@ -158,6 +159,18 @@ public class DWVSerialPorts {
    * Reboot requested flag.
    */
   private boolean rebootRequested = false;
+  /**
+   * Port output waiting to be flushed.
+   */
+  private final AtomicBoolean outputPending = new AtomicBoolean(false);
+  /**
+   * Port output flusher.
+   */
+  private final DWVPortFlusher flusher;
+  /**
+   * Port socket reactor.
+   */
+  private final DWVPortReactor reactor = new DWVPortReactor();
 
   /**
    * Virtual Serial Ports.
@@ -166,8 +179,6 @@ public class DWVSerialPorts {
    */
   public DWVSerialPorts(final DWVSerialProtocol serialProtocol) {
     this.dwProto = serialProtocol;
-    bytelog = serialProtocol.getConfig()
-        .getBoolean("LogVPortBytes", false);
     maxNports = serialProtocol.getConfig()
         .getInt("VSerial_MaxNDevPorts", DEFAULT_MAX_NDEV_PORTS);
     maxZports = serialProtocol.getConfig()
@@ -186,6 +197,15 @@ public class DWVSerialPorts {
     dataWait = new int[maxports];
     vserialPorts = new DWVSerialPort[maxports];
 
+    this.flusher = new DWVPortFlusher(this, serialProtocol.getConfig()
+        .getLong("VSerial_FlushDelay", DEFAULT_FLUSH_DELAY));
+    final Thread flusherT = new Thread(this.flusher);
+    flusherT.setDaemon(true);
+    flusherT.start();
+    final Thread reactorT = new Thread(this.reactor);
+    reactorT.setDaemon(true);
+    reactorT.start();
+
     if (serialProtocol.getConfig().getBoolean("UseMIDI", false)
         && !DriveWireServer.isNoMIDI()) {
       clearGMInstrumentCache();
@@ -416,9 +436,7 @@ public class DWVSerialPorts {
    */
   public void serWriteM(final int vport, final byte[] data)
       throws DWPortNotOpenException, DWPortNotValidException {
-    for (final byte datum : data) {
-      serWrite(vport, datum);
-    }
+    serWriteM(vport, data, data.length);
   }
 
   /**
@@ -430,11 +448,72 @@ public class DWVSerialPorts {
    * @throws DWPortNotOpenException  port not open
    * @throws DWPortNotValidException invalid port
    */
-  @SuppressWarnings("unused")
   public void serWriteM(final int vport, final byte[] data, final int bread)
       throws DWPortNotOpenException, DWPortNotValidException {
-    for (int i = 0; i < data.length && i < bread; i++) {
-      serWrite(vport, data[i]);
+    final int len = Math.min(data.length, bread);
+    if (vport < this.maxports && vport >= 0) {
+      if (vserialPorts[vport] != null && vserialPorts[vport].isOpen()) {
+        if (dwProto.getSettings().isLogVPortBytes()) {
+          LOGGER.debug("write " + len + " bytes to port " + vport);
+        }
+        vserialPorts[vport].write(data, 0, len);
+      } else if (len > 0) {
+        throw new DWPortNotOpenException(
+            "Port " + vport + " is not open (but coco sent us "
+                + len + " bytes)"
+        );
+      }
+    } else {
+      throw new DWPortNotValidException(vport + " is not a valid port number");
+    }
+  }
+
+  /**
+   * Note that a port has queued output.
+   * <p>
+   * The output is sent at the end of the current protocol operation,
+   * or by the flusher after a short delay
+   * </p>
+   */
+  public void outputQueued() {
+    if (!this.outputPending.getAndSet(true)) {
+      this.flusher.request();
+    }
+  }
+
+  /**
+   * Send queued output on a port.
+   *
+   * @param vport virtual port
+   * @return true if no output remains queued
+   */
+  public boolean flushPort(final int vport) {
+    if (vport < 0 || vport >= vserialPorts.length
+        || vserialPorts[vport] == null) {
+      return true;
+    }
+    return vserialPorts[vport].flushOutput();
+  }
+
+  /**
+   * Get socket reactor.
+   *
+   * @return port socket reactor
+   */
+  public DWVPortReactor getReactor() {
+    return this.reactor;
+  }
+
+  /**
+   * Send any queued output on all ports.
+   */
+  public void flushOutput() {
+    if (this.outputPending.getAndSet(false)) {
+      for (final DWVSerialPort port : this.vserialPorts) {
+        if (port != null) {
+          port.flushOutput();
+        }
+      }
     }
   }
 
@@ -451,7 +530,7 @@ public class DWVSerialPorts {
     if (vport < this.maxports && vport >= 0) {
       if (vserialPorts[vport] != null) {
         if (vserialPorts[vport].isOpen()) {
-          if (bytelog) {
+          if (dwProto.getSettings().isLogVPortBytes()) {
             LOGGER.debug("write to port " + vport + ": "
                 + databyte + " (" + (char) databyte + ")");
           }
@@ -999,6 +1078,9 @@ public class DWVSerialPorts {
    */
   public void shutdown() {
     LOGGER.debug("shutting down");
+    this.flusher.shutdown();
+    this.flushOutput();
+    this.reactor.shutdown();
     for (int i = 0; i < this.maxports; i++) {
       this.listenerpool.closePortConnectionSockets(i);
       this.listenerpool.closePortServerSockets(i);
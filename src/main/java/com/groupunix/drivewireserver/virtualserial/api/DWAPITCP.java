@@ -5,7 +5,7 @@ import com.groupunix.drivewireserver.dwcommands.DWCommandResponse;
 import com.groupunix.drivewireserver.dwexceptions.DWConnectionNotValidException;
 import com.groupunix.drivewireserver.dwprotocolhandler.DWVSerialProtocol;
 import com.groupunix.drivewireserver.virtualserial.DWVPortTCPConnectionThread;
-import com.groupunix.drivewireserver.virtualserial.DWVPortTCPListenerThread;
+import com.groupunix.drivewireserver.virtualserial.DWVPortTCPListener;
 import com.groupunix.drivewireserver.virtualserial.DWVPortTCPServerThread;
 
 public class DWAPITCP {
@@ -188,7 +188,7 @@ public class DWAPITCP {
           "non-numeric port in tcp listen command"
       );
     }
-    final DWVPortTCPListenerThread listener = new DWVPortTCPListenerThread(
+    final DWVPortTCPListener listener = new DWVPortTCPListener(
         this.dwvSerialProtocol, this.virtualPort, tcpport
     );
     // simulate old behavior
@@ -213,7 +213,7 @@ public class DWAPITCP {
           "non-numeric port in tcp listen command"
       );
     }
-    final DWVPortTCPListenerThread listener = new DWVPortTCPListenerThread(
+    final DWVPortTCPListener listener = new DWVPortTCPListener(
         this.dwvSerialProtocol, this.virtualPort, tcpport
     );
     // parse options
@@ -0,0 +1,168 @@
+package com.groupunix.drivewireserver;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DWUIClientThreadTest {
+  private XMLConfiguration savedConfig;
+  private boolean savedReady;
+  private DWUIThread uiThread;
+  private LinkedList<DWUIClientThread> clients;
+  private Socket socket;
+  private DataInputStream in;
+  private OutputStream out;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup() throws Exception {
+    savedConfig = TestServerState.swapConfiguration(new XMLConfiguration());
+    savedReady = TestServerState.swapReady(false);
+    uiThread = new DWUIThread(0);
+    final Field field = DWUIThread.class.getDeclaredField("clientThreads");
+    field.setAccessible(true);
+    clients = (LinkedList<DWUIClientThread>) field.get(uiThread);
+    try (ServerSocket server
+             = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      socket = new Socket(server.getInetAddress(), server.getLocalPort());
+      final Thread thread
+          = new Thread(new DWUIClientThread(server.accept(), clients));
+      thread.setDaemon(true);
+      thread.start();
+    }
+    socket.setSoTimeout(5000);
+    in = new DataInputStream(socket.getInputStream());
+    out = socket.getOutputStream();
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    socket.close();
+    TestServerState.swapConfiguration(savedConfig);
+    TestServerState.swapReady(savedReady);
+  }
+
+  @Test
+  public void sessionAnswersHelloWithFrame() throws Exception {
+    send("session");
+    final Frame frame = readFrame();
+    assertEquals(DWDefs.UI_FRAME_RESPONSE, frame.type);
+    assertEquals(0, frame.id);
+    assertEquals(0, frame.payload[0]);
+    assertEquals("DriveWire UI session " + DWDefs.UI_SESSION_VERSION,
+        frame.text());
+  }
+
+  @Test
+  public void malformedRequestsEchoRequestId() throws Exception {
+    send("session");
+    readFrame();
+    send("7\0ui");
+    Frame frame = readFrame();
+    assertEquals(DWDefs.UI_FRAME_RESPONSE, frame.type);
+    assertEquals(7, frame.id);
+    assertEquals(DWDefs.RC_UI_MALFORMED_REQUEST, frame.payload[0]);
+    send("x\0" + "0\0ui sync");
+    frame = readFrame();
+    assertEquals(0, frame.id);
+    assertEquals(DWDefs.RC_UI_MALFORMED_REQUEST, frame.payload[0]);
+  }
+
+  @Test
+  public void eventsAreOnlyQueuedAfterSync() throws Exception {
+    TestServerState.swapReady(true);
+    send("session");
+    readFrame();
+    final DWUIClientThread client = waitForClient();
+    uiThread.submitEvent(diskEvent("1"));
+    assertFalse(client.isSubscribed());
+    assertTrue(client.getEventQueue().isEmpty());
+
+    send("3\0" + "0\0ui sync");
+    boolean response = false;
+    boolean status = false;
+    while (!response || !status) {
+      final Frame frame = readFrame();
+      assertEquals(3, frame.id);
+      if (frame.type == DWDefs.UI_FRAME_RESPONSE) {
+        assertEquals(0, frame.payload[0]);
+        response = true;
+      } else {
+        assertEquals(DWDefs.UI_FRAME_EVENTS, frame.type);
+        status = true;
+      }
+    }
+    assertTrue(client.isSubscribed());
+
+    uiThread.submitEvent(diskEvent("2"));
+    final Frame frame = readFrame();
+    assertEquals(DWDefs.UI_FRAME_EVENTS, frame.type);
+    assertEquals(3, frame.id);
+    assertEquals("k:2\rD\r", new String(frame.payload, DWDefs.ENCODING));
+
+    send("4\0" + "0\0ui sync");
+    final Frame again = readFrame();
+    assertEquals(4, again.id);
+    assertEquals(DWDefs.RC_UI_ERROR, again.payload[0]);
+  }
+
+  private DWUIClientThread waitForClient() throws InterruptedException {
+    while (true) {
+      synchronized (clients) {
+        if (!clients.isEmpty()) {
+          return clients.getFirst();
+        }
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private static DWEvent diskEvent(final String value) {
+    final DWEvent evt = new DWEvent(DWDefs.EVENT_TYPE_DISK, 0);
+    evt.setParam("k", value);
+    return evt;
+  }
+
+  private void send(final String line) throws Exception {
+    out.write((line + "\n").getBytes(DWDefs.ENCODING));
+    out.flush();
+  }
+
+  private Frame readFrame() throws Exception {
+    final byte type = in.readByte();
+    final int id = in.readInt();
+    final byte[] payload = new byte[in.readInt()];
+    in.readFully(payload);
+    return new Frame(type, id, payload);
+  }
+
+  private static final class Frame {
+    private final byte type;
+    private final int id;
+    private final byte[] payload;
+
+    private Frame(final byte type, final int id, final byte[] payload) {
+      this.type = type;
+      this.id = id;
+      this.payload = payload;
+    }
+
+    private String text() throws Exception {
+      return new String(payload, 1, payload.length - 1, DWDefs.ENCODING);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.groupunix.drivewireserver;
+
+import java.lang.reflect.Field;
+
+import org.apache.commons.configuration.XMLConfiguration;
+
+public final class TestServerState {
+  private TestServerState() {
+  }
+
+  public static XMLConfiguration swapConfiguration(
+      final XMLConfiguration config) throws Exception {
+    return (XMLConfiguration) swap("serverConfiguration", config);
+  }
+
+  public static boolean swapReady(final boolean ready) throws Exception {
+    return (Boolean) swap("ready", ready);
+  }
+
+  private static Object swap(final String name, final Object value)
+      throws Exception {
+    final Field field = DriveWireServer.class.getDeclaredField(name);
+    field.setAccessible(true);
+    final Object old = field.get(null);
+    field.set(null, value);
+    return old;
+  }
+}
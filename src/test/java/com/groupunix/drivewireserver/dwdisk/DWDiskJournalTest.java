@@ -0,0 +1,224 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DWDiskJournalTest {
+  private static final int SECTORS = 16;
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+
+  @TempDir
+  Path tempDir;
+
+  private Path image;
+  private Path journal;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    image = tempDir.resolve("test.dsk");
+    journal = tempDir.resolve("test.jnl");
+    Files.write(image, new byte[SECTORS * SIZE]);
+  }
+
+  @Test
+  public void unsyncedWritesAreReplayedOnNextOpen() throws Exception {
+    final DWDisk first = cachedDisk(true);
+    first.openJournal(journal);
+    write(first, 3, sector(1));
+    write(first, 20, sector(2));
+    // server goes down before the flusher runs
+
+    final DWDisk second = cachedDisk(true);
+    second.openJournal(journal);
+    assertEquals(2, second.getDirtySectors());
+    assertArrayEquals(sector(1), read(second, 3));
+    assertArrayEquals(sector(2), read(second, 20));
+    assertArrayEquals(new byte[SIZE * SECTORS], Files.readAllBytes(image));
+  }
+
+  @Test
+  public void journalIsNotReplayedOverEditedSource() throws Exception {
+    final DWDisk first = cachedDisk(true);
+    first.openJournal(journal);
+    write(first, 3, sector(1));
+    // server goes down, then the image is edited
+    final byte[] edited = new byte[SECTORS * SIZE];
+    Arrays.fill(edited, (byte) 9);
+    Files.write(image, edited);
+    Files.setLastModifiedTime(image, FileTime.fromMillis(
+        Files.getLastModifiedTime(image).toMillis() + 5000));
+
+    final DWDisk second = cachedDisk(true);
+    second.openJournal(journal);
+    assertEquals(0, second.getDirtySectors());
+    assertArrayEquals(sector(9), read(second, 3));
+    assertTrue(Files.exists(tempDir.resolve("test.jnl.stale")));
+    assertEquals(0, Files.size(journal));
+  }
+
+  @Test
+  public void writesAfterSyncAreReplayed() throws Exception {
+    final DWDisk first = cachedDisk(true);
+    first.openJournal(journal);
+    write(first, 3, sector(1));
+    first.sync();
+    write(first, 4, sector(2));
+    // server goes down before the next sync
+
+    final DWDisk second = cachedDisk(true);
+    second.openJournal(journal);
+    assertEquals(1, second.getDirtySectors());
+    assertArrayEquals(sector(1), read(second, 3));
+    assertArrayEquals(sector(2), read(second, 4));
+  }
+
+  @Test
+  public void replayStopsAtDamagedRecord() throws Exception {
+    final DWDisk first = cachedDisk(true);
+    first.openJournal(journal);
+    write(first, 3, sector(1));
+    write(first, 4, sector(2));
+    final long whole = Files.size(journal);
+    try (RandomAccessFile raf = new RandomAccessFile(journal.toFile(), "rw")) {
+      raf.seek(whole - 1);
+      final int last = raf.read();
+      raf.seek(whole - 1);
+      raf.write(last ^ 1);
+    }
+
+    final DWDisk second = cachedDisk(true);
+    second.openJournal(journal);
+    assertEquals(1, second.getDirtySectors());
+    assertArrayEquals(sector(1), read(second, 3));
+    assertArrayEquals(new byte[SIZE], read(second, 4));
+    assertTrue(Files.size(journal) < whole);
+  }
+
+  @Test
+  public void syncEmptiesJournalAndEjectRemovesIt() throws Exception {
+    final DWDisk disk = cachedDisk(true);
+    disk.openJournal(journal);
+    write(disk, 5, sector(7));
+    assertTrue(Files.size(journal) > 0);
+
+    disk.sync();
+    assertEquals(0, disk.getDirtySectors());
+    assertEquals(0, Files.size(journal));
+    assertArrayEquals(
+        sector(7),
+        Arrays.copyOfRange(Files.readAllBytes(image), 5 * SIZE, 6 * SIZE));
+
+    write(disk, 6, sector(8));
+    disk.eject();
+    assertFalse(Files.exists(journal));
+  }
+
+  @Test
+  public void reloadDiscardsJournalledWrites() throws Exception {
+    final DWDisk disk = cachedDisk(true);
+    disk.openJournal(journal);
+    write(disk, 5, sector(7));
+    disk.reload();
+    assertEquals(0, Files.size(journal));
+
+    final DWDisk next = cachedDisk(true);
+    next.openJournal(journal);
+    assertEquals(0, next.getDirtySectors());
+  }
+
+  @Test
+  public void diskNotSyncedToSourceIsNotJournalled() throws Exception {
+    final DWDisk disk = cachedDisk(false);
+    disk.openJournal(journal);
+    write(disk, 5, sector(7));
+    assertFalse(Files.exists(journal));
+    disk.eject();
+
+    final DWDisk next = cachedDisk(true);
+    next.openJournal(journal);
+    assertEquals(0, next.getDirtySectors());
+  }
+
+  @Test
+  public void journalDroppedWhenSyncToTurnedOff() throws Exception {
+    final DWDisk disk = cachedDisk(true);
+    disk.openJournal(journal);
+    write(disk, 5, sector(7));
+    disk.setParam("syncto", false);
+    final long size = Files.size(journal);
+    write(disk, 6, sector(8));
+    assertEquals(size, Files.size(journal));
+    disk.eject();
+    assertFalse(Files.exists(journal));
+  }
+
+  @Test
+  public void onlySyncedDisksCountTowardsFlushThreshold() throws Exception {
+    final HierarchicalConfiguration config = new HierarchicalConfiguration();
+    config.setProperty("DiskReadAhead", 0);
+    config.setProperty("DiskJournal", false);
+    final DWDiskFlusher flusher = mock(DWDiskFlusher.class);
+    final DWDiskDrives drives = mock(DWDiskDrives.class);
+    when(drives.getConfig()).thenReturn(config);
+    when(drives.getFlusher()).thenReturn(flusher);
+    when(drives.getSourceWatcher()).thenReturn(mock(DWDiskSourceWatcher.class));
+
+    final DWDiskDrive scratch = new DWDiskDrive(drives, 0);
+    scratch.insert(cachedDisk(false));
+    scratch.seekSector(1);
+    scratch.writeSector(sector(1));
+    verify(flusher, never()).dirtied(anyInt());
+
+    final DWDiskDrive synced = new DWDiskDrive(drives, 1);
+    synced.insert(cachedDisk(true));
+    synced.seekSector(1);
+    synced.writeSector(sector(1));
+    verify(flusher).dirtied(1);
+  }
+
+  private DWDisk cachedDisk(final boolean syncTo) throws Exception {
+    final DWDisk disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()), true);
+    disk.setParam("syncto", syncTo);
+    return disk;
+  }
+
+  private static void write(final DWDisk disk, final int lsn,
+      final byte[] data) throws Exception {
+    disk.seekSector(lsn);
+    disk.writeSector(data);
+  }
+
+  private static byte[] read(final DWDisk disk, final int lsn)
+      throws Exception {
+    disk.seekSector(lsn);
+    return disk.readSector();
+  }
+
+  private static byte[] sector(final int fill) {
+    final byte[] data = new byte[SIZE];
+    Arrays.fill(data, (byte) fill);
+    return data;
+  }
+}
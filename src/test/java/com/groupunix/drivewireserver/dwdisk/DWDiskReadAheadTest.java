@@ -0,0 +1,40 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import org.junit.jupiter.api.Test;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class DWDiskReadAheadTest {
+  private static final int DEPTH = 32;
+  private static final int RUN = DWDefs.DISK_READAHEAD_MAX_STRIDE * 2;
+
+  private final DWDiskPrefetcher prefetcher = mock(DWDiskPrefetcher.class);
+  private final DWSectorStore store = mock(DWSectorStore.class);
+  private final DWDiskReadAhead readAhead
+      = new DWDiskReadAhead(prefetcher, DEPTH);
+
+  @Test
+  public void longRunsKeepReadAheadGoing() {
+    readAhead.accessRun(store, 0, RUN);
+    readAhead.accessRun(store, RUN, RUN);
+
+    // the window opens on the second sector and is topped up in the
+    // second run instead of being reset by it
+    verify(prefetcher).request(store, 2, DEPTH);
+    verify(prefetcher).request(store, DEPTH + 2, DEPTH / 2);
+  }
+
+  @Test
+  public void runAfterJumpStartsAgain() {
+    readAhead.accessRun(store, 0, 1);
+    readAhead.accessRun(store, 1000, 1);
+
+    verify(prefetcher, never()).request(eq(store), anyInt(), anyInt());
+  }
+}
@@ -0,0 +1,87 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.DriveWireServer;
+import com.groupunix.drivewireserver.dwdisk.filesystem.DWDECBFileSystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DWImageIndexTest {
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void identifyFindsFormatAndFileSystem() throws Exception {
+    final byte[] image = new byte[DWDECBFileSystem.MAX_SECTORS * SIZE];
+    // freshly formatted DECB disk
+    Arrays.fill(image, (byte) 0xFF);
+    final FileObject fileobj = source("decb.dsk", image);
+
+    DWDiskDrives.identify(fileobj);
+
+    final DWImageIndexEntry entry
+        = DriveWireServer.getImageIndex().lookup(fileobj);
+    assertNotNull(entry);
+    assertEquals(DWDefs.DISK_FORMAT_RAW, entry.getFormat());
+    assertEquals(DWDefs.DISK_FILESYSTEM_DECB, entry.getFileSystem());
+    assertEquals(DWDECBFileSystem.MAX_SECTORS, entry.getSectors());
+    // the shared file object is still usable
+    assertEquals(image.length, fileobj.getContent().getSize());
+  }
+
+  @Test
+  public void identifyReadsOnlySectorZeroOfOtherSizes() throws Exception {
+    final FileObject fileobj = source("blank.dsk", new byte[16 * SIZE]);
+
+    DWDiskDrives.identify(fileobj);
+
+    final DWImageIndexEntry entry
+        = DriveWireServer.getImageIndex().lookup(fileobj);
+    assertEquals(DWDefs.DISK_FORMAT_RAW, entry.getFormat());
+    assertEquals(DWDefs.DISK_FILESYSTEM_UNKNOWN, entry.getFileSystem());
+    assertEquals(16, entry.getSectors());
+  }
+
+  @Test
+  public void savedIndexLoadsBack() throws Exception {
+    final Path file = tempDir.resolve("index");
+    final FileObject fileobj = source("blank.dsk", new byte[16 * SIZE]);
+    final DWImageIndex index = new DWImageIndex(file);
+    final DWImageIndexEntry entry = index.entry(fileobj);
+    entry.setFormat(DWDefs.DISK_FORMAT_RAW);
+    entry.setSectors(16);
+    entry.setFileSystem(DWDefs.DISK_FILESYSTEM_OS9);
+    index.save();
+
+    final DWImageIndex loaded = new DWImageIndex(file);
+    loaded.load();
+    final DWImageIndexEntry back = loaded.lookup(fileobj);
+    assertEquals(DWDefs.DISK_FORMAT_RAW, back.getFormat());
+    assertEquals(16, back.getSectors());
+    assertEquals(DWDefs.DISK_FILESYSTEM_OS9, back.getFileSystem());
+
+    Files.write(tempDir.resolve("blank.dsk"), new byte[8 * SIZE]);
+    fileobj.refresh();
+    assertNull(loaded.lookup(fileobj));
+  }
+
+  private FileObject source(final String name, final byte[] data)
+      throws Exception {
+    final Path path = tempDir.resolve(name);
+    Files.write(path, data);
+    return VFS.getManager().resolveFile(path.toUri().toString());
+  }
+}
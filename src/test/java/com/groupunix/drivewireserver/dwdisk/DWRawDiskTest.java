@@ -0,0 +1,245 @@
+package com.groupunix.drivewireserver.dwdisk;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DWRawDiskTest {
+  private static final int SECTORS = 16;
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+
+  @TempDir
+  Path tempDir;
+
+  private Path image;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    image = tempDir.resolve("test.dsk");
+    Files.write(image, new byte[SECTORS * SIZE]);
+  }
+
+  @Test
+  public void mappedWritesReachImage() throws Exception {
+    final DWDisk disk = mappedDisk();
+    assertTrue(disk.isDirect());
+    write(disk, 2, sector(5));
+    disk.sync();
+    assertArrayEquals(sector(5), imageSector(2));
+  }
+
+  @Test
+  public void syncToOffMovesDiskIntoMemory() throws Exception {
+    final DWDisk disk = mappedDisk();
+    write(disk, 2, sector(5));
+    disk.setParam("syncto", false);
+    assertFalse(disk.isDirect());
+    // writes made while synced have reached the image
+    assertArrayEquals(sector(5), imageSector(2));
+
+    write(disk, 3, sector(6));
+    disk.sync();
+    assertArrayEquals(sector(6), read(disk, 3));
+    disk.eject();
+    assertArrayEquals(new byte[SIZE], imageSector(3));
+    assertEquals(SECTORS * SIZE, Files.size(image));
+  }
+
+  @Test
+  public void syncToOffBeforeReloadKeepsDiskInMemory() throws Exception {
+    final DWDisk disk = mappedDisk();
+    disk.setParam("syncto", false);
+    disk.reload();
+    assertFalse(disk.isDirect());
+    write(disk, 1, sector(9));
+    assertArrayEquals(new byte[SIZE], imageSector(1));
+  }
+
+  @Test
+  public void expandingDiskGrowsMappingAhead() throws Exception {
+    final DWMappedSectorStore store = new DWMappedSectorStore(image, SIZE);
+    for (int i = SECTORS; i < SECTORS * 3; i++) {
+      store.write(i, sector(i), true);
+    }
+    assertEquals(SECTORS * 3, store.size());
+    assertEquals(SECTORS * 4 * SIZE, Files.size(image));
+    store.clear();
+    assertEquals(SECTORS * 3 * SIZE, Files.size(image));
+    final byte[] data = Files.readAllBytes(image);
+    assertArrayEquals(sector(40),
+        Arrays.copyOfRange(data, 40 * SIZE, 41 * SIZE));
+  }
+
+  @Test
+  public void clearedStoreReadsZeros() throws Exception {
+    final DWMappedSectorStore store = new DWMappedSectorStore(image, SIZE);
+    store.write(1, sector(3), true);
+    store.clear();
+    final byte[] buf = sector(7);
+    store.read(1, buf);
+    assertArrayEquals(new byte[SIZE], buf);
+  }
+
+  @Test
+  public void clearKeepsPartialSectorAndShrunkSectors() throws Exception {
+    Files.write(image, new byte[SECTORS * SIZE + 10]);
+    final DWMappedSectorStore store = new DWMappedSectorStore(image, SIZE);
+    assertEquals(SECTORS, store.size());
+    store.setSize(4);
+    store.clear();
+    assertEquals(SECTORS * SIZE + 10, Files.size(image));
+  }
+
+  @Test
+  public void sliceAndWriteByteOutsideStoreAreHarmless() throws Exception {
+    final DWMappedSectorStore store = new DWMappedSectorStore(image, SIZE);
+    store.writeByte(SECTORS, 0, (byte) 1);
+    assertEquals(SIZE, store.slice(SECTORS).remaining());
+    store.clear();
+    store.writeByte(1, 0, (byte) 1);
+    assertEquals(0, store.slice(1).get(0));
+    assertArrayEquals(new byte[SIZE], imageSector(SECTORS - 1));
+  }
+
+  @Test
+  public void mappedSectorCleansDespiteOtherWrites() throws Exception {
+    final DWMappedSectorStore store = new DWMappedSectorStore(image, SIZE);
+    store.write(1, sector(3), true);
+    final long version = store.readVersioned(1, new byte[SIZE]);
+    store.write(2, sector(4), true);
+    assertTrue(store.makeClean(1, version));
+    assertFalse(store.isDirty(1));
+
+    final long stale = store.getVersion(2);
+    store.write(2, sector(5), true);
+    assertFalse(store.makeClean(2, stale));
+    assertTrue(store.isDirty(2));
+    store.clear();
+  }
+
+  @Test
+  public void readsDuringReloadSeeImage() throws Exception {
+    readWhileReloading(false);
+  }
+
+  @Test
+  public void mappedReadsDuringReloadSeeImage() throws Exception {
+    readWhileReloading(true);
+  }
+
+  @Test
+  public void readsDuringReloadWithoutExpandSeeImage() throws Exception {
+    readWhileReloading(false, false);
+  }
+
+  @Test
+  public void arenaWriteRacingClearDoesNotFail() throws Exception {
+    final DWDisk disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()), true);
+    final DWSectorStore store = disk.getSectors();
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final Thread clearer = new Thread(() -> {
+      try {
+        for (int i = 0; i < 2000; i++) {
+          store.clear();
+        }
+      } catch (Throwable e) {
+        failure.compareAndSet(null, e);
+      }
+    });
+    clearer.start();
+    for (int i = 0; i < 20000; i++) {
+      store.write(i % (SECTORS * 2), sector(1), true);
+    }
+    clearer.join();
+    assertNull(failure.get());
+  }
+
+  private void readWhileReloading(final boolean mapped) throws Exception {
+    readWhileReloading(mapped, true);
+  }
+
+  private void readWhileReloading(final boolean mapped, final boolean expand)
+      throws Exception {
+    final byte[] data = new byte[SECTORS * SIZE];
+    for (int i = 0; i < SECTORS; i++) {
+      Arrays.fill(data, i * SIZE, (i + 1) * SIZE, (byte) (i + 1));
+    }
+    Files.write(image, data);
+    final DWDisk disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()), !mapped);
+    assertEquals(mapped, disk.isDirect());
+    disk.setParam("expand", expand);
+
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<String> failure = new AtomicReference<>();
+    final Thread reader = new Thread(() -> {
+      final byte[] buf = new byte[SIZE];
+      try {
+        while (!done.get()) {
+          for (int lsn = 0; lsn < SECTORS; lsn++) {
+            disk.readSector(lsn, buf);
+            if (!Arrays.equals(sector(lsn + 1), buf)) {
+              failure.compareAndSet(null, "sector " + lsn + " read wrong");
+            }
+          }
+        }
+      } catch (Exception e) {
+        failure.compareAndSet(null, e.toString());
+      }
+    });
+    reader.start();
+    for (int i = 0; i < 200 && failure.get() == null; i++) {
+      // reloads run under the disk lock, as the drives do
+      synchronized (disk) {
+        disk.reload();
+      }
+    }
+    done.set(true);
+    reader.join();
+    assertNull(failure.get());
+  }
+
+  private DWDisk mappedDisk() throws Exception {
+    return DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()));
+  }
+
+  private byte[] imageSector(final int lsn) throws Exception {
+    return Arrays.copyOfRange(
+        Files.readAllBytes(image), lsn * SIZE, (lsn + 1) * SIZE);
+  }
+
+  private static void write(final DWDisk disk, final int lsn,
+      final byte[] data) throws Exception {
+    disk.seekSector(lsn);
+    disk.writeSector(data);
+  }
+
+  private static byte[] read(final DWDisk disk, final int lsn)
+      throws Exception {
+    disk.seekSector(lsn);
+    return disk.readSector();
+  }
+
+  private static byte[] sector(final int fill) {
+    final byte[] data = new byte[SIZE];
+    Arrays.fill(data, (byte) fill);
+    return data;
+  }
+}
@@ -0,0 +1,105 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DECBDefs;
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.TestServerState;
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWDiskDrives;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DWDECBFileSystemCacheTest {
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+
+  @TempDir
+  Path tempDir;
+
+  private XMLConfiguration savedConfig;
+  private DWDisk disk;
+  private DWDECBFileSystem fileSystem;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    savedConfig = TestServerState.swapConfiguration(new XMLConfiguration());
+    final Path image = tempDir.resolve("decb.dsk");
+    Files.write(image, new byte[DWDECBFileSystem.MAX_SECTORS * SIZE]);
+    disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()), true);
+    fileSystem = new DWDECBFileSystem(disk);
+    fileSystem.format();
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    TestServerState.swapConfiguration(savedConfig);
+  }
+
+  @Test
+  public void cacheIsSharedPerDisk() throws Exception {
+    assertSame(fileSystem.getCache(), new DWDECBFileSystem(disk).getCache());
+    assertSame(fileSystem.getCache(), disk.getFileSystemCache());
+
+    final DWDisk other = DWDiskDrives.diskFromFile(VFS.getManager()
+        .resolveFile(disk.getFileObject().getName().getURI()), true);
+    assertNotSame(fileSystem.getCache(), new DWDECBFileSystem(other).getCache());
+  }
+
+  @Test
+  public void addFileUpdatesCacheInPlace() throws Exception {
+    final DWDECBFileSystemCache cache = fileSystem.getCache();
+    final List<DWDECBFileSystemDirEntry> before = cache.getEntries();
+    final DWDECBFileSystemFAT fat = cache.getFAT();
+    final int free = fat.getFreeGanules();
+
+    new DWDECBFileSystem(disk).addFile("NEW.BIN", new byte[3000]);
+
+    final List<DWDECBFileSystemDirEntry> after = cache.getEntries();
+    assertEquals("NEW", after.get(0).getFileName().trim());
+    // other slots were not read again
+    assertSame(before.get(1), after.get(1));
+    assertSame(fat, cache.getFAT());
+    assertEquals(free - DWDECBFileSystemFAT.granulesNeeded(3000),
+        cache.getFAT().getFreeGanules());
+    assertTrue(fileSystem.hasFile("new.bin"));
+  }
+
+  @Test
+  public void cocoWriteInvalidatesCache() throws Exception {
+    fileSystem.addFile("ONE.BIN", new byte[3000]);
+    final DWDECBFileSystemCache cache = fileSystem.getCache();
+    final List<DWDECBFileSystemDirEntry> entries = cache.getEntries();
+    final DWDECBFileSystemFAT fat = cache.getFAT();
+    assertTrue(fileSystem.hasFile("ONE.BIN"));
+
+    // the CoCo kills the file through the drive
+    final byte[] dir = disk.getSector(DECBDefs.DIRECTORY_OFFSET).getData();
+    dir[0] = 0;
+    disk.seekSector(DECBDefs.DIRECTORY_OFFSET);
+    disk.writeSector(dir);
+    final byte[] free = new byte[SIZE];
+    Arrays.fill(free, (byte) 0xFF);
+    disk.seekSector(DECBDefs.FAT_OFFSET);
+    disk.writeSector(free);
+
+    assertFalse(fileSystem.hasFile("ONE.BIN"));
+    assertNotSame(entries.get(1), cache.getEntries().get(1));
+    assertNotSame(fat, cache.getFAT());
+    assertEquals(DECBDefs.FAT_SIZE, cache.getFAT().getFreeGanules());
+  }
+}
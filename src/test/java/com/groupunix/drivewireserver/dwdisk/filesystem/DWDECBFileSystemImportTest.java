@@ -0,0 +1,196 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DECBDefs;
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.TestServerState;
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWDiskDrives;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemFullException;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFilenameException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DWDECBFileSystemImportTest {
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+  private static final int GRANULE
+      = DWDECBFileSystemFAT.SECTORS_PER_GRANULE * SIZE;
+
+  @TempDir
+  Path tempDir;
+
+  private XMLConfiguration savedConfig;
+  private DWDisk disk;
+  private DWDECBFileSystem fileSystem;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    savedConfig = TestServerState.swapConfiguration(new XMLConfiguration());
+    final Path image = tempDir.resolve("decb.dsk");
+    Files.write(image, new byte[DWDECBFileSystem.MAX_SECTORS * SIZE]);
+    disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()), true);
+    fileSystem = new DWDECBFileSystem(disk);
+    fileSystem.format();
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    TestServerState.swapConfiguration(savedConfig);
+  }
+
+  @Test
+  public void importsExactGranuleSizedFiles() throws Exception {
+    final byte[] one = contents(GRANULE, 1);
+    final byte[] two = contents(2 * GRANULE, 2);
+    final int free = fileSystem.getFAT().getFreeGanules();
+
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(fileSystem);
+    add(batch, "ONE.BIN", one);
+    add(batch, "TWO.BIN", two);
+    batch.run();
+
+    assertArrayEquals(one, fileSystem.getFileContents("ONE.BIN"));
+    assertArrayEquals(two, fileSystem.getFileContents("TWO.BIN"));
+    assertEquals(free - DWDECBFileSystemFAT.granulesNeeded(one.length)
+            - DWDECBFileSystemFAT.granulesNeeded(two.length),
+        fileSystem.getFAT().getFreeGanules());
+  }
+
+  @Test
+  public void duplicateInSetIsRejected() throws Exception {
+    final byte[] fat = sector(DECBDefs.FAT_OFFSET);
+
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(fileSystem);
+    add(batch, "ONE.BIN", contents(100, 1));
+    add(batch, "one.bin", contents(100, 2));
+    assertThrows(DWFileSystemInvalidFilenameException.class, batch::run);
+
+    assertArrayEquals(fat, sector(DECBDefs.FAT_OFFSET));
+    assertFalse(fileSystem.hasFile("ONE.BIN"));
+  }
+
+  @Test
+  public void duplicateOfExistingFileIsRejected() throws Exception {
+    fileSystem.addFile("OLD.BIN", contents(100, 1));
+    final byte[] fat = sector(DECBDefs.FAT_OFFSET);
+    final byte[] dir = sector(DECBDefs.DIRECTORY_OFFSET);
+
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(fileSystem);
+    add(batch, "NEW.BIN", contents(100, 2));
+    add(batch, "old.bin", contents(100, 3));
+    assertThrows(DWFileSystemInvalidFilenameException.class, batch::run);
+
+    assertArrayEquals(fat, sector(DECBDefs.FAT_OFFSET));
+    assertArrayEquals(dir, sector(DECBDefs.DIRECTORY_OFFSET));
+    assertFalse(fileSystem.hasFile("NEW.BIN"));
+  }
+
+  @Test
+  public void fullDirectoryIsRejected() throws Exception {
+    final int slots = fileSystem.getCache().getEntries().size();
+    final byte[] record
+        = fileSystem.directoryRecord("USED.BIN", (byte) 0, (byte) 0);
+    for (int s = 0; s < slots; s += DWDECBFileSystem.DIRECTORY_BLOCKS) {
+      final byte[] data = new byte[SIZE];
+      for (int i = 0; i < DWDECBFileSystem.DIRECTORY_BLOCKS; i++) {
+        System.arraycopy(record, 0, data,
+            i * DWDECBFileSystem.DIRECTORY_SIZE,
+            DWDECBFileSystem.DIRECTORY_SIZE);
+      }
+      disk.seekSector(
+          DECBDefs.DIRECTORY_OFFSET + s / DWDECBFileSystem.DIRECTORY_BLOCKS);
+      disk.writeSector(data);
+    }
+    final byte[] fat = sector(DECBDefs.FAT_OFFSET);
+
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(fileSystem);
+    add(batch, "NEW.BIN", contents(100, 1));
+    assertThrows(DWFileSystemFullException.class, batch::run);
+
+    assertArrayEquals(fat, sector(DECBDefs.FAT_OFFSET));
+    assertFalse(fileSystem.hasFile("NEW.BIN"));
+  }
+
+  @Test
+  public void failingSourceLeavesFatUnchanged() throws Exception {
+    fileSystem.addFile("OLD.BIN", contents(100, 1));
+    final byte[] fat = sector(DECBDefs.FAT_OFFSET);
+    final byte[] dir = sector(DECBDefs.DIRECTORY_OFFSET);
+    final int free = fileSystem.getFAT().getFreeGanules();
+
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(fileSystem);
+    add(batch, "ONE.BIN", contents(3000, 2));
+    batch.add("TWO.BIN", 3000, () -> new InputStream() {
+      private int left = 1000;
+
+      @Override
+      public int read() throws IOException {
+        if (left == 0) {
+          throw new IOException("source went away");
+        }
+        left--;
+        return 7;
+      }
+    });
+    assertThrows(IOException.class, batch::run);
+
+    assertArrayEquals(fat, sector(DECBDefs.FAT_OFFSET));
+    assertArrayEquals(dir, sector(DECBDefs.DIRECTORY_OFFSET));
+    assertEquals(free, fileSystem.getFAT().getFreeGanules());
+    assertFalse(fileSystem.hasFile("ONE.BIN"));
+    assertTrue(fileSystem.hasFile("OLD.BIN"));
+
+    // the granules it would have used are still there to be had
+    fileSystem.addFile("NEW.BIN", contents(3000, 3));
+    assertEquals(free - DWDECBFileSystemFAT.granulesNeeded(3000),
+        fileSystem.getFAT().getFreeGanules());
+  }
+
+  @Test
+  public void shortSourceLeavesFatUnchanged() throws Exception {
+    final byte[] fat = sector(DECBDefs.FAT_OFFSET);
+    final int free = fileSystem.getFAT().getFreeGanules();
+
+    final DWDECBFileSystemImport batch = new DWDECBFileSystemImport(fileSystem);
+    batch.add("SHORT.BIN", 3000,
+        () -> new ByteArrayInputStream(contents(1000, 1)));
+    assertThrows(IOException.class, batch::run);
+
+    assertArrayEquals(fat, sector(DECBDefs.FAT_OFFSET));
+    assertEquals(free, fileSystem.getFAT().getFreeGanules());
+    assertFalse(fileSystem.hasFile("SHORT.BIN"));
+  }
+
+  private byte[] sector(final int lsn) throws Exception {
+    return disk.getSector(lsn).getData();
+  }
+
+  private static void add(final DWDECBFileSystemImport batch,
+      final String name, final byte[] data) {
+    batch.add(name, data.length, () -> new ByteArrayInputStream(data));
+  }
+
+  private static byte[] contents(final int length, final int fill) {
+    final byte[] data = new byte[length];
+    Arrays.fill(data, (byte) fill);
+    return data;
+  }
+}
@@ -0,0 +1,123 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DECBDefs;
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.TestServerState;
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWDiskDrives;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemInvalidFATException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DWFileSystemInputStreamTest {
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+  private static final int GRANULE
+      = DWDECBFileSystemFAT.SECTORS_PER_GRANULE * SIZE;
+
+  @TempDir
+  Path tempDir;
+
+  private XMLConfiguration savedConfig;
+  private DWDisk disk;
+  private DWDECBFileSystem fileSystem;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    savedConfig = TestServerState.swapConfiguration(new XMLConfiguration());
+    final Path image = tempDir.resolve("decb.dsk");
+    Files.write(image, new byte[DWDECBFileSystem.MAX_SECTORS * SIZE]);
+    disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(image.toUri().toString()), true);
+    fileSystem = new DWDECBFileSystem(disk);
+    fileSystem.format();
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    TestServerState.swapConfiguration(savedConfig);
+  }
+
+  @Test
+  public void streamedFileRoundTripsWithPartialLastSector() throws Exception {
+    final byte[] data = contents(GRANULE + 3 * SIZE + 17);
+    fileSystem.addFile("PART.BIN", new ByteArrayInputStream(data),
+        data.length);
+
+    try (DWFileSystemInputStream in = fileSystem.openFile("PART.BIN")) {
+      assertEquals(data.length, in.length());
+      assertEquals(data.length, in.available());
+      assertArrayEquals(data, in.readAllBytes());
+      assertEquals(0, in.available());
+      assertEquals(-1, in.read());
+    }
+    assertArrayEquals(data, fileSystem.getFileContents("PART.BIN"));
+  }
+
+  @Test
+  public void readsSpanSectorBoundaries() throws Exception {
+    final byte[] data = contents(6 * SIZE + 100);
+    fileSystem.addFile("SPAN.BIN", data);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DWFileSystemInputStream in = fileSystem.openFile("SPAN.BIN")) {
+      out.write(in.read());
+      // partial, then partial into whole sectors, then whole sectors
+      final int[] chunks = {SIZE + 10, 2 * SIZE + 50, 2 * SIZE, 7, SIZE};
+      for (final int chunk : chunks) {
+        final byte[] buf = new byte[chunk + 2];
+        final int got = in.read(buf, 1, chunk);
+        out.write(buf, 1, got);
+      }
+      out.write(in.readAllBytes());
+    }
+    assertArrayEquals(data, out.toByteArray());
+  }
+
+  @Test
+  public void shortStreamIsAnError() throws Exception {
+    final byte[] data = contents(SIZE + 20);
+    assertThrows(IOException.class, () -> fileSystem.addFile(
+        "SHORT.BIN", new ByteArrayInputStream(data), data.length + SIZE));
+  }
+
+  @Test
+  public void loopingChainIsRejected() throws Exception {
+    fileSystem.addFile("LOOP.BIN", contents(2 * GRANULE + 10));
+    final byte first = ((DWDECBFileSystemDirEntry)
+        fileSystem.getDirEntry("LOOP.BIN")).getFirstGranule();
+    final byte[] fat = disk.getSector(DECBDefs.FAT_OFFSET).getData();
+    byte last = first;
+    while ((fat[last] & DWDefs.BYTE_MASK) < DECBDefs.FAT_SIZE) {
+      last = fat[last];
+    }
+    fat[last] = first;
+    disk.seekSector(DECBDefs.FAT_OFFSET);
+    disk.writeSector(fat);
+
+    assertThrows(DWFileSystemInvalidFATException.class,
+        () -> fileSystem.openFile("LOOP.BIN"));
+  }
+
+  private static byte[] contents(final int length) {
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i * 7 + i / SIZE);
+    }
+    return data;
+  }
+}
@@ -0,0 +1,160 @@
+package com.groupunix.drivewireserver.dwdisk.filesystem;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.vfs2.VFS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.TestServerState;
+import com.groupunix.drivewireserver.dwdisk.DWDisk;
+import com.groupunix.drivewireserver.dwdisk.DWDiskDrives;
+import com.groupunix.drivewireserver.dwexceptions.DWFileSystemFileNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DWRBFFileSystemCacheTest {
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+  private static final int SECTORS = 16;
+  private static final int ROOT_FD = 2;
+  private static final int SUB_FD = 4;
+  private static final int INNER_FD = 7;
+
+  @TempDir
+  Path tempDir;
+
+  private XMLConfiguration savedConfig;
+  private DWDisk disk;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    savedConfig = TestServerState.swapConfiguration(new XMLConfiguration());
+    final byte[] image = new byte[SECTORS * SIZE];
+    // ID sector: root directory descriptor
+    image[10] = ROOT_FD;
+    descriptor(image, ROOT_FD, true, 64, 3);
+    entry(image, 3, 0, "SUB", SUB_FD);
+    entry(image, 3, 1, "FILE", 6);
+    descriptor(image, SUB_FD, true, 32, 5);
+    entry(image, 5, 0, "INNER", INNER_FD);
+    descriptor(image, 6, false, 10, 8);
+    descriptor(image, INNER_FD, false, 5, 9);
+    put(image, 8, 0, "0123456789");
+    put(image, 9, 0, "hello");
+    final Path path = tempDir.resolve("rbf.dsk");
+    Files.write(path, image);
+    disk = DWDiskDrives.diskFromFile(
+        VFS.getManager().resolveFile(path.toUri().toString()), true);
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    TestServerState.swapConfiguration(savedConfig);
+  }
+
+  @Test
+  public void resolvesPathsThroughSharedCache() throws Exception {
+    assertArrayEquals(bytes("hello"),
+        new DWRBFFileSystem(disk).getFileContents("SUB/INNER"));
+    assertArrayEquals(bytes("0123456789"),
+        new DWRBFFileSystem(disk).getFileContents("/FILE"));
+
+    final DWRBFFileSystemCache cache = DWRBFFileSystemCache.forDisk(disk);
+    assertSame(cache, disk.getFileSystemCache());
+    assertNotNull(cache.get(ROOT_FD));
+    assertNotNull(cache.get(SUB_FD));
+    assertEquals(List.of("INNER"),
+        names(new DWRBFFileSystem(disk).getDirectory("SUB")));
+  }
+
+  @Test
+  public void componentUnderPlainFileIsNotFound() {
+    final DWRBFFileSystem fileSystem = new DWRBFFileSystem(disk);
+    assertThrows(DWFileSystemFileNotFoundException.class,
+        () -> fileSystem.getFileContents("FILE/INNER"));
+    assertThrows(DWFileSystemFileNotFoundException.class,
+        () -> fileSystem.getFileContents("SUB/NONE"));
+  }
+
+  @Test
+  public void directorySectorWriteDropsDirectory() throws Exception {
+    final DWRBFFileSystem fileSystem = new DWRBFFileSystem(disk);
+    fileSystem.getDirectory("SUB");
+    final DWRBFFileSystemCache cache = DWRBFFileSystemCache.forDisk(disk);
+    assertNotNull(cache.get(SUB_FD));
+
+    final byte[] image = new byte[SECTORS * SIZE];
+    entry(image, 5, 0, "OTHER", INNER_FD);
+    write(5, image);
+
+    assertNull(cache.get(SUB_FD));
+    assertEquals(List.of("OTHER"), names(fileSystem.getDirectory("SUB")));
+    assertArrayEquals(bytes("hello"), fileSystem.getFileContents("SUB/OTHER"));
+  }
+
+  @Test
+  public void descriptorWriteRereadsOnlyThatEntry() throws Exception {
+    final DWRBFFileSystem fileSystem = new DWRBFFileSystem(disk);
+    assertArrayEquals(bytes("hello"), fileSystem.getFileContents("SUB/INNER"));
+    final DWRBFFileSystemCache cache = DWRBFFileSystemCache.forDisk(disk);
+    final DWRBFFileSystemCache.Directory sub = cache.get(SUB_FD);
+
+    final byte[] image = new byte[SECTORS * SIZE];
+    descriptor(image, INNER_FD, false, 3, 9);
+    write(INNER_FD, image);
+
+    // the directory itself is untouched and still served
+    assertSame(sub, cache.get(SUB_FD));
+    assertArrayEquals(bytes("hel"), fileSystem.getFileContents("SUB/INNER"));
+  }
+
+  private void write(final int lsn, final byte[] image) throws Exception {
+    final byte[] data = new byte[SIZE];
+    System.arraycopy(image, lsn * SIZE, data, 0, SIZE);
+    disk.seekSector(lsn);
+    disk.writeSector(data);
+  }
+
+  private static List<String> names(final List<DWFileSystemDirEntry> dir) {
+    return dir.stream().map(DWFileSystemDirEntry::getFileName).toList();
+  }
+
+  private static void descriptor(final byte[] image, final int lsn,
+      final boolean dir, final int size, final int dataLsn) {
+    final int at = lsn * SIZE;
+    image[at] = (byte) (dir ? 0x83 : 0x03);
+    image[at + 12] = (byte) size;
+    image[at + 18] = (byte) dataLsn;
+    image[at + 20] = 1;
+  }
+
+  private static void entry(final byte[] image, final int lsn,
+      final int slot, final String name, final int fdLsn) {
+    final int at = lsn * SIZE + slot * 32;
+    put(image, lsn, slot * 32, name);
+    image[at + name.length() - 1] |= (byte) 0x80;
+    image[at + 31] = (byte) fdLsn;
+  }
+
+  private static void put(final byte[] image, final int lsn,
+      final int offset, final String text) {
+    System.arraycopy(bytes(text), 0, image, lsn * SIZE + offset,
+        text.length());
+  }
+
+  private static byte[] bytes(final String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,127 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DWRFMFileTest {
+  @TempDir
+  Path tempDir;
+
+  private Path one;
+  private Path two;
+  private DWRFMHandlePool pool;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    one = tempDir.resolve("one");
+    two = tempDir.resolve("two");
+    Files.write(one, bytes("first line\rsecond\rlast"));
+    Files.write(two, bytes("0123456789"));
+    pool = new DWRFMHandlePool(1);
+  }
+
+  @Test
+  public void pathsOnSameFileShareIt() {
+    final DWRFMFile a = pool.acquire(one);
+    final DWRFMFile b = pool.acquire(tempDir.resolve("x/../one"));
+    assertSame(a, b);
+    assertNotSame(a, pool.acquire(two));
+  }
+
+  @Test
+  public void writeIsSeenByOtherPathBeforeFlush() throws Exception {
+    final DWRFMFile reader = pool.acquire(one);
+    final byte[] buf = new byte[5];
+    assertEquals(5, reader.read(0, buf, 5));
+    assertArrayEquals(bytes("first"), buf);
+
+    final DWRFMFile writer = pool.acquire(one);
+    writer.write(0, bytes("FIR"), 3);
+    writer.write(3, bytes("ST"), 2);
+    // still waiting in the write buffer
+    assertArrayEquals(bytes("first"), head(one, 5));
+
+    assertEquals(5, reader.read(0, buf, 5));
+    assertArrayEquals(bytes("FIRST"), buf);
+    assertArrayEquals(bytes("FIRST"), head(one, 5));
+  }
+
+  @Test
+  public void releaseFlushesOnceLastPathIsDone() throws Exception {
+    final DWRFMFile a = pool.acquire(one);
+    pool.acquire(one);
+    a.write(0, bytes("FIRST"), 5);
+    pool.release(a);
+    assertTrue(a.isOpen());
+    assertArrayEquals(bytes("first"), head(one, 5));
+    pool.release(a);
+    assertFalse(a.isOpen());
+    assertArrayEquals(bytes("FIRST"), head(one, 5));
+  }
+
+  @Test
+  public void writePastEndGrowsFile() throws Exception {
+    final DWRFMFile file = pool.acquire(two);
+    assertEquals(10, file.remaining(0));
+    file.write(10, bytes("AB"), 2);
+    assertEquals(2, file.remaining(10));
+    final byte[] buf = new byte[2];
+    assertEquals(2, file.read(10, buf, 2));
+    assertArrayEquals(bytes("AB"), buf);
+    assertEquals(0, file.remaining(12));
+  }
+
+  @Test
+  public void readLineStopsAfterCarriageReturn() throws Exception {
+    final DWRFMFile file = pool.acquire(one);
+    assertArrayEquals(bytes("first line\r"), file.readLine(0, 50));
+    assertArrayEquals(bytes("second\r"), file.readLine(11, 50));
+    assertArrayEquals(bytes("last"), file.readLine(18, 50));
+    assertArrayEquals(bytes("sec"), file.readLine(11, 3));
+    assertEquals(0, file.readLine(22, 50).length);
+  }
+
+  @Test
+  public void leastRecentlyUsedFileIsClosed() throws Exception {
+    final DWRFMFile a = pool.acquire(one);
+    final DWRFMFile b = pool.acquire(two);
+    a.write(0, bytes("FIRST"), 5);
+    assertEquals(1, pool.size());
+
+    final byte[] buf = new byte[4];
+    b.read(0, buf, 4);
+    assertEquals(1, pool.size());
+    assertFalse(a.isOpen());
+    assertTrue(b.isOpen());
+    // waiting writes went out as it was closed
+    assertArrayEquals(bytes("FIRST"), head(one, 5));
+
+    final byte[] back = new byte[5];
+    assertEquals(5, a.read(0, back, 5));
+    assertArrayEquals(bytes("FIRST"), back);
+    assertFalse(b.isOpen());
+  }
+
+  private static byte[] head(final Path file, final int len)
+      throws Exception {
+    final byte[] buf = new byte[len];
+    System.arraycopy(Files.readAllBytes(file), 0, buf, 0, len);
+    return buf;
+  }
+
+  private static byte[] bytes(final String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}
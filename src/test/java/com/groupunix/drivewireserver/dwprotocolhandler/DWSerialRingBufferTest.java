@@ -0,0 +1,61 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DWSerialRingBufferTest {
+  private DWSerialRingBuffer ringBuffer;
+
+  @BeforeEach
+  public void setup() {
+    ringBuffer = new DWSerialRingBuffer(8);
+  }
+
+  @Test
+  public void readReturnsBytesInOrderAcrossWrap() throws InterruptedException {
+    final byte[] out = new byte[6];
+    ringBuffer.write(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6);
+    assertEquals(4, ringBuffer.read(out, 0, 4, 10));
+    ringBuffer.write(new byte[]{7, 8, 9, 10, 11, 12}, 0, 6);
+    assertEquals(8, ringBuffer.available());
+    assertEquals(6, ringBuffer.read(out, 0, 6, 10));
+    assertArrayEquals(new byte[]{5, 6, 7, 8, 9, 10}, out);
+  }
+
+  @Test
+  public void singleByteReadIsUnsigned() throws InterruptedException {
+    ringBuffer.write(new byte[]{(byte) 0xC0}, 0, 1);
+    assertEquals(0xC0, ringBuffer.read(10));
+  }
+
+  @Test
+  public void readTimesOutWithPartialBlock() throws InterruptedException {
+    final byte[] out = new byte[4];
+    ringBuffer.write(new byte[]{1, 2}, 0, 2);
+    assertEquals(2, ringBuffer.read(out, 0, 4, 10));
+    assertEquals(-1, ringBuffer.read(10));
+  }
+
+  @Test
+  public void blockLargerThanCapacityIsDelivered() throws Exception {
+    final byte[] in = new byte[262];
+    for (int i = 0; i < in.length; i++) {
+      in[i] = (byte) i;
+    }
+    final Thread producer = new Thread(() -> {
+      try {
+        ringBuffer.write(in, 0, in.length);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    final byte[] out = new byte[in.length];
+    assertEquals(in.length, ringBuffer.read(out, 0, out.length, 1000));
+    producer.join();
+    assertArrayEquals(in, out);
+  }
+}
@@ -0,0 +1,172 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.groupunix.drivewireserver.DWDefs;
+import com.groupunix.drivewireserver.dwexceptions.DWCommTimeOutException;
+
+/**
+ * Protocol device with a software CoCo driver on the other end, speaking
+ * the streaming disk ops.
+ */
+public class DWStreamingClient implements DWProtocolDevice {
+  private static final int BUFFER_SIZE = 4096;
+  private static final long READ_TIMEOUT = 2000;
+
+  private final DWSerialRingBuffer toServer
+      = new DWSerialRingBuffer(BUFFER_SIZE);
+  private final DWSerialRingBuffer toCoco
+      = new DWSerialRingBuffer(BUFFER_SIZE);
+  private volatile boolean closed = false;
+
+  public int dwInit(final int driverVersion) throws Exception {
+    cocoWrite(new byte[]{DWDefs.OP_DWINIT, (byte) driverVersion});
+    return cocoRead(1)[0] & 0xFF;
+  }
+
+  public byte readSectors(final int drive, final int lsn, final int count,
+                          final byte[] buffer) throws Exception {
+    cocoWrite(header(DWDefs.OP_READM, drive, lsn, count));
+    final byte result = cocoRead(1)[0];
+    if (result != DWDefs.DWOK) {
+      return result;
+    }
+    int good = count;
+    for (int i = 0; i < count; i++) {
+      final byte[] sector = cocoRead(DWDefs.DISK_SECTORSIZE);
+      final byte[] sum = cocoRead(2);
+      if (DWProtocolHandler.computeChecksum(sector, sector.length)
+          != DWUtils.int2(sum) && good == count) {
+        good = i;
+      }
+      System.arraycopy(sector, 0, buffer, i * sector.length, sector.length);
+    }
+    cocoWrite(new byte[]{(byte) good});
+    return result;
+  }
+
+  public byte writeSectors(final int drive, final int lsn, final int count,
+                           final byte[] buffer, final boolean corrupt)
+      throws Exception {
+    cocoWrite(header(DWDefs.OP_WRITEM, drive, lsn, count));
+    for (int i = 0; i < count; i++) {
+      final byte[] sector = new byte[DWDefs.DISK_SECTORSIZE];
+      System.arraycopy(buffer, i * sector.length, sector, 0, sector.length);
+      int sum = DWProtocolHandler.computeChecksum(sector, sector.length);
+      if (corrupt && i == count - 1) {
+        sum++;
+      }
+      cocoWrite(sector);
+      cocoWrite(new byte[]{(byte) (sum >> 8), (byte) sum});
+    }
+    return cocoRead(1)[0];
+  }
+
+  private static byte[] header(final byte op, final int drive, final int lsn,
+                               final int count) {
+    return new byte[]{op, (byte) drive, (byte) (lsn >> 16), (byte) (lsn >> 8),
+        (byte) lsn, (byte) count};
+  }
+
+  private void cocoWrite(final byte[] data) throws InterruptedException {
+    this.toServer.write(data, 0, data.length);
+  }
+
+  private byte[] cocoRead(final int len) throws Exception {
+    final byte[] buf = new byte[len];
+    if (this.toCoco.read(buf, 0, len, READ_TIMEOUT) < len) {
+      throw new IOException("timed out waiting for server response");
+    }
+    return buf;
+  }
+
+  @Override
+  public boolean connected() {
+    return !this.closed;
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+  }
+
+  @Override
+  public void shutdown() {
+    this.closed = true;
+  }
+
+  @Override
+  public void comWrite(final byte[] data, final int len, final boolean prefix) {
+    try {
+      this.toCoco.write(data, 0, len);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void comWrite1(final int data, final boolean prefix) {
+    comWrite(new byte[]{(byte) data}, 1, prefix);
+  }
+
+  @Override
+  public byte[] comRead(final int len)
+      throws IOException, DWCommTimeOutException {
+    final byte[] buf = new byte[len];
+    comRead(buf, len);
+    return buf;
+  }
+
+  @Override
+  public void comRead(final byte[] buffer, final int len)
+      throws IOException, DWCommTimeOutException {
+    try {
+      if (this.toServer.read(buffer, 0, len, READ_TIMEOUT) < len) {
+        throw new DWCommTimeOutException("timed out reading from client");
+      }
+    } catch (InterruptedException e) {
+      throw new IOException("interrupted reading from client");
+    }
+  }
+
+  @Override
+  public int comRead1(final boolean timeout)
+      throws IOException, DWCommTimeOutException {
+    final int res;
+    try {
+      res = this.toServer.read(timeout ? READ_TIMEOUT : 0);
+    } catch (InterruptedException e) {
+      throw new IOException("interrupted reading from client");
+    }
+    if (res < 0) {
+      throw new DWCommTimeOutException("timed out reading from client");
+    }
+    return res;
+  }
+
+  @Override
+  public int getRate() {
+    return 115200;
+  }
+
+  @Override
+  public String getDeviceType() {
+    return "test";
+  }
+
+  @Override
+  public String getDeviceName() {
+    return "test";
+  }
+
+  @Override
+  public String getClient() {
+    return "test";
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return null;
+  }
+}
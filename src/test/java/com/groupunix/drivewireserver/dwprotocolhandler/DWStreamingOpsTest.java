@@ -0,0 +1,108 @@
+package com.groupunix.drivewireserver.dwprotocolhandler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.apache.commons.configuration.HierarchicalConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.groupunix.drivewireserver.DWDefs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DWStreamingOpsTest {
+  private static final int SECTORS = 64;
+  private static final int SIZE = DWDefs.DISK_SECTORSIZE;
+
+  @TempDir
+  Path tempDir;
+
+  private DWProtocolHandler handler;
+  private DWStreamingClient client;
+  private byte[] image;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    image = new byte[SECTORS * SIZE];
+    new Random(1).nextBytes(image);
+    final File file = tempDir.resolve("test.dsk").toFile();
+    Files.write(file.toPath(), image);
+    final HierarchicalConfiguration config = new HierarchicalConfiguration();
+    config.setProperty("DeviceType", "dummy");
+    config.setProperty("RestoreDrivePaths", false);
+    config.setProperty("DiskJournal", false);
+    client = new DWStreamingClient();
+    handler = new DWProtocolHandler(0, config);
+    handler.setProtoDev(client);
+    final Thread thread = new Thread(handler);
+    thread.setDaemon(true);
+    thread.start();
+    while (!handler.isReady()) {
+      Thread.sleep(10);
+    }
+    handler.getDiskDrives().loadDiskFromFile(0, file.getAbsolutePath());
+  }
+
+  @AfterEach
+  public void teardown() {
+    handler.shutdown();
+  }
+
+  @Test
+  public void streamingIsOnlyOfferedToStreamingDrivers() throws Exception {
+    assertEquals(DWDefs.DW_PROTOCOL_VERSION, client.dwInit(0x40));
+    assertEquals(
+        (DWDefs.DW_PROTOCOL_VERSION | DWDefs.DW_PROTOCOL_STREAM_FLAG) & 0xFF,
+        client.dwInit(0x50));
+  }
+
+  @Test
+  public void readRunMatchesImage() throws Exception {
+    client.dwInit(0x50);
+    final byte[] run = new byte[20 * SIZE];
+    assertEquals(DWDefs.DWOK, client.readSectors(0, 5, 20, run));
+    for (int i = 0; i < 20; i++) {
+      assertArrayEquals(sector(image, 5 + i), sector(run, i));
+    }
+  }
+
+  @Test
+  public void writtenRunReadsBack() throws Exception {
+    client.dwInit(0x50);
+    final byte[] data = new byte[10 * SIZE];
+    new Random(2).nextBytes(data);
+    assertEquals(DWDefs.DWOK, client.writeSectors(0, 30, 10, data, false));
+    final byte[] back = new byte[10 * SIZE];
+    assertEquals(DWDefs.DWOK, client.readSectors(0, 30, 10, back));
+    assertArrayEquals(data, back);
+  }
+
+  @Test
+  public void badChecksumWritesNothing() throws Exception {
+    client.dwInit(0x50);
+    final byte[] data = new byte[4 * SIZE];
+    assertEquals(DWDefs.DWERROR_CRC, client.writeSectors(0, 8, 4, data, true));
+    final byte[] back = new byte[4 * SIZE];
+    assertEquals(DWDefs.DWOK, client.readSectors(0, 8, 4, back));
+    assertArrayEquals(sector(image, 8), sector(back, 0));
+  }
+
+  @Test
+  public void runPastLastSectorIsRefused() throws Exception {
+    client.dwInit(0x50);
+    assertEquals(DWDefs.DWERROR_READ,
+        client.readSectors(0, 0xFFFFFE, 4, new byte[4 * SIZE]));
+  }
+
+  private static byte[] sector(final byte[] data, final int lsn) {
+    final byte[] res = new byte[SIZE];
+    System.arraycopy(data, lsn * SIZE, res, 0, SIZE);
+    return res;
+  }
+}